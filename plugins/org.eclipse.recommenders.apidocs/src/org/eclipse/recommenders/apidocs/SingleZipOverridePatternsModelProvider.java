@@ -12,20 +12,19 @@ package org.eclipse.recommenders.apidocs;
 
 import static com.google.common.base.Optional.*;
 import static org.eclipse.recommenders.utils.Constants.DOT_JSON;
-import static org.eclipse.recommenders.utils.Zips.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.eclipse.recommenders.models.IInputStreamTransformer;
 import org.eclipse.recommenders.models.IModelProvider;
 import org.eclipse.recommenders.models.IUniqueName;
+import org.eclipse.recommenders.models.MappedZipArchive;
 import org.eclipse.recommenders.models.UniqueTypeName;
 import org.eclipse.recommenders.utils.IOUtils;
 import org.eclipse.recommenders.utils.Openable;
@@ -48,7 +47,7 @@ public class SingleZipOverridePatternsModelProvider implements
 
     private final File models;
     private final Map<String, IInputStreamTransformer> transformers;
-    private ZipFile zip;
+    private MappedZipArchive zip;
 
     public SingleZipOverridePatternsModelProvider(File models, Map<String, IInputStreamTransformer> transformers) {
         this.models = models;
@@ -57,20 +56,21 @@ public class SingleZipOverridePatternsModelProvider implements
 
     @Override
     public void open() throws IOException {
-        readFully(models);
-        zip = new ZipFile(models);
+        zip = MappedZipArchive.open(models, MappedZipArchive.getIndexFile(models));
     }
 
     @Override
     public void close() throws IOException {
-        closeQuietly(zip);
+        // the archive is unmapped once it is no longer referenced
+        zip = null;
     }
 
     public Set<ITypeName> acquireableTypes() {
-        Set<ITypeName> acquireableTypesSet = Zips.types(zip.entries(), DOT_JSON);
+        List<String> entryNames = zip.getEntryNames();
+        Set<ITypeName> acquireableTypesSet = Zips.types(entryNames, DOT_JSON);
 
         for (Entry<String, IInputStreamTransformer> transformer : transformers.entrySet()) {
-            acquireableTypesSet.addAll(Zips.types(zip.entries(), DOT_JSON + "." + transformer.getKey())); //$NON-NLS-1$
+            acquireableTypesSet.addAll(Zips.types(entryNames, DOT_JSON + "." + transformer.getKey())); //$NON-NLS-1$
         }
 
         return acquireableTypesSet;
@@ -98,19 +98,14 @@ public class SingleZipOverridePatternsModelProvider implements
         }
     }
 
-    private Optional<InputStream> getInputStream(ZipFile zip, String basePath) throws IOException {
+    private Optional<InputStream> getInputStream(MappedZipArchive zip, String basePath) throws IOException {
         for (Entry<String, IInputStreamTransformer> transformer : transformers.entrySet()) {
-            ZipEntry toTransform = zip.getEntry(basePath + "." + transformer.getKey()); //$NON-NLS-1$
-            if (toTransform == null) {
-                continue;
+            InputStream toTransform = zip.getInputStream(basePath + "." + transformer.getKey()).orNull(); //$NON-NLS-1$
+            if (toTransform != null) {
+                return Optional.of(transformer.getValue().transform(toTransform));
             }
-            return Optional.of(transformer.getValue().transform(zip.getInputStream(toTransform)));
         }
-        ZipEntry entry = zip.getEntry(basePath);
-        if (entry == null) {
-            return Optional.absent();
-        }
-        return Optional.of(zip.getInputStream(entry));
+        return zip.getInputStream(basePath);
     }
 
 }
@@ -165,14 +165,14 @@ public class CallCompletionSessionProcessor extends SessionProcessor {
         model.setObservedCalls(observedCalls);
 
         // read
-        recommendations = model.recommendCalls();
+        double minRelevance = max(prefs.minProposalPercentage, 0.01) / 100;
         // filter void methods if needed:
         if (ctx.getExpectedTypeSignature().isPresent()) {
-            recommendations = Recommendations.filterVoid(recommendations);
+            recommendations = Recommendations.filterVoid(model.recommendCalls());
+            recommendations = top(recommendations, prefs.maxNumberOfProposals, minRelevance);
+        } else {
+            recommendations = model.recommendCalls(prefs.maxNumberOfProposals, minRelevance);
         }
-
-        recommendations = top(recommendations, prefs.maxNumberOfProposals,
-                max(prefs.minProposalPercentage, 0.01) / 100);
         calculateProposalRelevanceBoostMap();
 
         return !isEmpty(recommendations) || !observedCalls.isEmpty();
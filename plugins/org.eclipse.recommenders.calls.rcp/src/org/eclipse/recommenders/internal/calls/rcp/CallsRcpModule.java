@@ -11,6 +11,8 @@
 package org.eclipse.recommenders.internal.calls.rcp;
 
 import static org.eclipse.recommenders.internal.calls.rcp.CallCompletionContextFunctions.*;
+import static org.eclipse.recommenders.internal.models.rcp.ModelsRcpModule.PREWARMED_MODEL_PROVIDERS;
+import static org.eclipse.recommenders.utils.Constants.CLASS_CALL_MODELS;
 
 import javax.inject.Singleton;
 
@@ -21,12 +23,14 @@ import org.eclipse.recommenders.completion.rcp.CompletionContextKey;
 import org.eclipse.recommenders.completion.rcp.ICompletionContextFunction;
 import org.eclipse.recommenders.internal.calls.rcp.CallCompletionContextFunctions.ReceiverCallsCompletionContextFunction;
 import org.eclipse.recommenders.internal.calls.rcp.CallCompletionContextFunctions.ReceiverTypeContextFunction;
+import org.eclipse.recommenders.models.IModelProvider;
 import org.eclipse.ui.IWorkbench;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
 import com.google.inject.multibindings.MapBinder;
+import com.google.inject.name.Names;
 
 @SuppressWarnings({ "rawtypes" })
 public class CallsRcpModule extends AbstractModule {
@@ -34,6 +38,8 @@ public class CallsRcpModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(ICallModelProvider.class).to(RcpCallModelProvider.class).in(Scopes.SINGLETON);
+        MapBinder.newMapBinder(binder(), String.class, IModelProvider.class, Names.named(PREWARMED_MODEL_PROVIDERS))
+                .addBinding(CLASS_CALL_MODELS).to(ICallModelProvider.class);
 
         MapBinder<CompletionContextKey, ICompletionContextFunction> functions = MapBinder.newMapBinder(binder(),
                 CompletionContextKey.class, ICompletionContextFunction.class);
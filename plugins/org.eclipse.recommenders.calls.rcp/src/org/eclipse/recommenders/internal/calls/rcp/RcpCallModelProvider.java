@@ -10,48 +10,65 @@
  */
 package org.eclipse.recommenders.internal.calls.rcp;
 
+import static org.eclipse.recommenders.internal.models.rcp.ModelsRcpModule.REPOSITORY_BASEDIR;
+import static org.eclipse.recommenders.utils.Constants.CLASS_CALL_MODELS;
+
+import java.io.File;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.inject.Named;
 
 import org.eclipse.recommenders.calls.ICallModel;
 import org.eclipse.recommenders.calls.ICallModelProvider;
 import org.eclipse.recommenders.calls.PoolingCallModelProvider;
+import org.eclipse.recommenders.models.IAsyncModelProvider;
 import org.eclipse.recommenders.models.IInputStreamTransformer;
 import org.eclipse.recommenders.models.IModelArchiveCoordinateAdvisor;
 import org.eclipse.recommenders.models.IModelRepository;
 import org.eclipse.recommenders.models.UniqueTypeName;
+import org.eclipse.recommenders.models.rcp.IModelPrewarmer;
 import org.eclipse.recommenders.models.rcp.ModelEvents.ModelRepositoryClosedEvent;
 import org.eclipse.recommenders.models.rcp.ModelEvents.ModelRepositoryOpenedEvent;
 import org.eclipse.recommenders.rcp.IRcpService;
 
 import com.google.common.base.Optional;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ListenableFuture;
 
-public class RcpCallModelProvider implements ICallModelProvider, IRcpService {
+public class RcpCallModelProvider implements ICallModelProvider, IAsyncModelProvider<UniqueTypeName, ICallModel>,
+        IRcpService {
 
     private final IModelRepository repository;
     private final IModelArchiveCoordinateAdvisor index;
     private final Map<String, IInputStreamTransformer> transformers;
+    private final File snapshotDirectory;
+    private final IModelPrewarmer prewarmer;
 
-    private ICallModelProvider delegate;
+    private PoolingCallModelProvider delegate;
 
     @Inject
     public RcpCallModelProvider(IModelRepository repository, IModelArchiveCoordinateAdvisor index,
-            Map<String, IInputStreamTransformer> transformers) {
+            Map<String, IInputStreamTransformer> transformers, @Named(REPOSITORY_BASEDIR) File repositoryBasedir,
+            IModelPrewarmer prewarmer) {
         this.repository = repository;
         this.index = index;
         this.transformers = transformers;
+        this.prewarmer = prewarmer;
+        // compiled models live next to the downloaded model archives
+        snapshotDirectory = new File(repositoryBasedir.getParentFile(), "compiled-call-models"); //$NON-NLS-1$
     }
 
     @Override
     @PostConstruct
     public void open() throws IOException {
-        delegate = new PoolingCallModelProvider(repository, index, transformers);
+        delegate = new PoolingCallModelProvider(repository, index, transformers, snapshotDirectory);
         delegate.open();
+        prewarmer.register(CLASS_CALL_MODELS, delegate);
     }
 
     @Override
@@ -62,9 +79,16 @@ public class RcpCallModelProvider implements ICallModelProvider, IRcpService {
 
     @Override
     public Optional<ICallModel> acquireModel(UniqueTypeName key) {
+        prewarmer.recordUsage(CLASS_CALL_MODELS, key);
         return delegate.acquireModel(key);
     }
 
+    @Override
+    public ListenableFuture<Optional<ICallModel>> acquireModelAsync(UniqueTypeName key, long timeout, TimeUnit unit) {
+        prewarmer.recordUsage(CLASS_CALL_MODELS, key);
+        return delegate.acquireModelAsync(key, timeout, unit);
+    }
+
     @Override
     public void releaseModel(ICallModel value) {
         delegate.releaseModel(value);
@@ -162,6 +162,15 @@ public interface ICallModel {
      */
     List<Recommendation<IMethodName>> recommendCalls();
 
+    /**
+     * Returns the <code>k</code> most relevant method calls whose relevance is at least <code>minRelevance</code>,
+     * sorted by relevance in descending order.
+     * <p>
+     * This is equivalent to <code>Recommendations.top(recommendCalls(), k, minRelevance)</code>, but implementations
+     * may avoid creating recommendations for calls that do not make it into the top k.
+     */
+    List<Recommendation<IMethodName>> recommendCalls(int k, double minRelevance);
+
     /**
      * Specifies how the variable under examination was defined (field, parameter, by method return...).
      */
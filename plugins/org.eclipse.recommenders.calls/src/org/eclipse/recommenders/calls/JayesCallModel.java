@@ -30,7 +30,13 @@ import java.util.Set;
 import org.eclipse.recommenders.commons.bayesnet.BayesianNetwork;
 import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
-import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.factor.FactorFactory;
+import org.eclipse.recommenders.jayes.inference.IInferenceListener;
+import org.eclipse.recommenders.jayes.inference.InferrerFactory;
+import org.eclipse.recommenders.jayes.inference.ModelTooLargeException;
+import org.eclipse.recommenders.jayes.inference.jtree.BeliefCache;
+import org.eclipse.recommenders.jayes.inference.jtree.CompiledJunctionTree;
+import org.eclipse.recommenders.jayes.inference.jtree.InferenceSession;
 import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeBuilder;
 import org.eclipse.recommenders.jayes.io.IBayesNetReader;
 import org.eclipse.recommenders.jayes.io.jbif.JayesBifReader;
@@ -39,6 +45,7 @@ import org.eclipse.recommenders.utils.Constants;
 import org.eclipse.recommenders.utils.IOUtils;
 import org.eclipse.recommenders.utils.Nullable;
 import org.eclipse.recommenders.utils.Recommendation;
+import org.eclipse.recommenders.utils.TopRecommendations;
 import org.eclipse.recommenders.utils.names.IFieldName;
 import org.eclipse.recommenders.utils.names.IMethodName;
 import org.eclipse.recommenders.utils.names.ITypeName;
@@ -92,12 +99,52 @@ import com.google.common.collect.ImmutableSet.Builder;
 @Beta
 public class JayesCallModel implements ICallModel {
 
+    /**
+     * the approximate maximum number of bytes of the beliefs cached for a compiled network
+     */
+    public static final long BELIEF_CACHE_SIZE = 256 * 1024;
+
     public static ICallModel load(InputStream is, ITypeName type) throws IOException {
         BayesNet net = getModel(is, type);
         return new JayesCallModel(type, net);
     }
 
-    private static BayesNet getModel(InputStream is, ITypeName type) throws IOException {
+    /**
+     * Reads and compiles a call model network. The result can be shared by all {@link JayesCallModel}s for the same
+     * type, see {@link #JayesCallModel(ITypeName, CompiledJunctionTree)}.
+     */
+    public static CompiledJunctionTree compile(InputStream is, ITypeName type) throws IOException {
+        return compile(getModel(is, type));
+    }
+
+    /**
+     * @throws ModelTooLargeException
+     *             if the junction tree would exceed the {@link InferrerFactory#DEFAULT_MEMORY_BUDGET default memory
+     *             budget}
+     */
+    static CompiledJunctionTree compile(BayesNet net) {
+        // compiled junction trees are shared between models, so unlike other inferrers they have no fallback
+        JunctionTreeBuilder builder = JunctionTreeBuilder.forHeuristic(new MinDegree())
+                .withMemoryBudget(InferrerFactory.DEFAULT_MEMORY_BUDGET);
+        return CompiledJunctionTree.compile(net, builder, newFactorFactory());
+    }
+
+    /**
+     * @return a factory configured like the one used by {@link #compile(BayesNet)}, as needed to restore a compiled
+     *         network
+     */
+    static FactorFactory newFactorFactory() {
+        return new FactorFactory();
+    }
+
+    /**
+     * @return a belief cache of {@link #BELIEF_CACHE_SIZE} bytes for the compiled network
+     */
+    public static BeliefCache newBeliefCache(CompiledJunctionTree compiledNet) {
+        return new BeliefCache(compiledNet, BELIEF_CACHE_SIZE);
+    }
+
+    static BayesNet getModel(InputStream is, ITypeName type) throws IOException {
         IBayesNetReader rdr = new JayesBifReader(is);
         try {
             return rdr.read();
@@ -119,7 +166,7 @@ public class JayesCallModel implements ICallModel {
     private final BayesNode overridesNode;
     private final BayesNode definedByNode;
     private final BayesNode defKindNode;
-    private final JunctionTreeAlgorithm junctionTree;
+    private final InferenceSession junctionTree;
 
     private final ITypeName typeName;
     private final Map<IMethodName, BayesNode> callNodes;
@@ -128,13 +175,26 @@ public class JayesCallModel implements ICallModel {
             N_NODEID_DEF_KIND, N_NODEID_DEF);
 
     public JayesCallModel(final ITypeName name, final BayesNet net) {
-        this.net = net;
+        this(name, compile(net));
+    }
+
+    public JayesCallModel(final ITypeName name, final CompiledJunctionTree compiledNet) {
+        this(name, newBeliefCache(compiledNet));
+    }
+
+    /**
+     * Creates a model that looks up beliefs in the given cache before computing them. Models for the same type can
+     * share the cache, so that evidence one model has seen is answered by all of them without inference.
+     */
+    public JayesCallModel(final ITypeName name, final BeliefCache beliefCache) {
+        CompiledJunctionTree compiledNet = beliefCache.getCompiledJunctionTree();
+        this.net = compiledNet.getNetwork();
         this.typeName = name;
         this.callNodes = new HashMap<IMethodName, BayesNode>();
-        this.junctionTree = new JunctionTreeAlgorithm();
-
-        junctionTree.setJunctionTreeBuilder(JunctionTreeBuilder.forHeuristic(new MinDegree()));
-        junctionTree.setNetwork(net);
+        this.junctionTree = compiledNet.newSession();
+        junctionTree.setBeliefCache(beliefCache);
+        // models of types with many observed calls can underflow in linear scale
+        junctionTree.setAdaptiveLogScale(true);
 
         overridesNode = net.getNode(N_NODEID_CONTEXT);
         callgroupNode = net.getNode(N_NODEID_CALL_GROUPS);
@@ -155,11 +215,11 @@ public class JayesCallModel implements ICallModel {
     }
 
     private Optional<IMethodName> computeMethodNameFromState(final BayesNode node) {
-        String stateId = junctionTree.getEvidence().get(node);
-        if (stateId == null) {
+        int state = junctionTree.getObservedOutcome(node);
+        if (state == InferenceSession.NOT_OBSERVED) {
             return absent();
         }
-        return Optional.<IMethodName>of(VmMethodName.get(stateId));
+        return Optional.<IMethodName>of(VmMethodName.get(node.getOutcomeName(state)));
     }
 
     @Override
@@ -196,11 +256,14 @@ public class JayesCallModel implements ICallModel {
     @Override
     public ImmutableSet<IMethodName> getObservedCalls() {
         Builder<IMethodName> builder = ImmutableSet.<IMethodName>builder();
-        Map<BayesNode, String> evidence = junctionTree.getEvidence();
+        if (junctionTree.getEvidenceCount() == 0) {
+            return builder.build();
+        }
         for (Entry<IMethodName, BayesNode> pair : callNodes.entrySet()) {
             BayesNode node = pair.getValue();
             IMethodName method = pair.getKey();
-            if (evidence.containsKey(node) && evidence.get(node).equals(Constants.N_STATE_TRUE)
+            int state = junctionTree.getObservedOutcome(node);
+            if (state != InferenceSession.NOT_OBSERVED && node.getOutcomeName(state).equals(Constants.N_STATE_TRUE)
             // remove the NULL that may have been introduced by
             // res.add(compute...)
                     && !VmMethodName.NULL.equals(method)) {
@@ -222,30 +285,49 @@ public class JayesCallModel implements ICallModel {
 
     @Override
     public Optional<DefinitionKind> getObservedDefinitionKind() {
-        String stateId = junctionTree.getEvidence().get(defKindNode);
-        if (stateId == null) {
+        int state = junctionTree.getObservedOutcome(defKindNode);
+        if (state == InferenceSession.NOT_OBSERVED) {
             return absent();
         }
-        return of(DefinitionKind.valueOf(stateId));
+        return of(DefinitionKind.valueOf(defKindNode.getOutcomeName(state)));
     }
 
     @Override
     public List<Recommendation<IMethodName>> recommendCalls() {
         List<Recommendation<IMethodName>> recs = new LinkedList<>();
+        computeBeliefsOfCalls();
         for (Entry<IMethodName, BayesNode> entry : callNodes.entrySet()) {
-            IMethodName method = entry.getKey();
             BayesNode bayesNode = entry.getValue();
-            boolean isAlreadyUsedAsEvidence = junctionTree.getEvidence().containsKey(bayesNode);
+            boolean isAlreadyUsedAsEvidence = junctionTree.hasEvidence(bayesNode);
             if (!isAlreadyUsedAsEvidence) {
                 int indexForTrue = bayesNode.getOutcomeIndex(N_STATE_TRUE);
-                double[] probabilities = junctionTree.getBeliefs(bayesNode);
-                double probability = probabilities[indexForTrue];
-                recs.add(newRecommendation(method, probability));
+                recs.add(newRecommendation(entry.getKey(), junctionTree.getBeliefs(bayesNode)[indexForTrue]));
             }
         }
         return recs;
     }
 
+    @Override
+    public List<Recommendation<IMethodName>> recommendCalls(int k, double minRelevance) {
+        TopRecommendations<IMethodName> recs = new TopRecommendations<>(k, minRelevance);
+        computeBeliefsOfCalls();
+        for (Entry<IMethodName, BayesNode> entry : callNodes.entrySet()) {
+            BayesNode bayesNode = entry.getValue();
+            boolean isAlreadyUsedAsEvidence = junctionTree.hasEvidence(bayesNode);
+            if (!isAlreadyUsedAsEvidence) {
+                int indexForTrue = bayesNode.getOutcomeIndex(N_STATE_TRUE);
+                // read straight from the session's belief arrays, which are already computed
+                recs.offer(entry.getKey(), junctionTree.getBeliefs(bayesNode)[indexForTrue]);
+            }
+        }
+        return recs.toList();
+    }
+
+    private void computeBeliefsOfCalls() {
+        // computing all beliefs at once is much cheaper than querying the call nodes one by one
+        junctionTree.computeBeliefs(callNodes.values());
+    }
+
     @Override
     public List<Recommendation<IMethodName>> recommendDefinitions() {
         List<Recommendation<IMethodName>> recs = new LinkedList<>();
@@ -279,6 +361,22 @@ public class JayesCallModel implements ICallModel {
         return recs;
     }
 
+    /**
+     * @return the cache of beliefs this model uses, e.g., for its hit and miss statistics
+     */
+    public BeliefCache getBeliefCache() {
+        return junctionTree.getBeliefCache();
+    }
+
+    /**
+     * @param listener
+     *            the listener to report the inference of this model to, e.g., to correlate slow recommendations with
+     *            their model, or <code>null</code> for none
+     */
+    public void setInferenceListener(IInferenceListener listener) {
+        junctionTree.setInferenceListener(listener);
+    }
+
     @Override
     public ITypeName getReceiverType() {
         return typeName;
@@ -286,7 +384,7 @@ public class JayesCallModel implements ICallModel {
 
     @Override
     public void reset() {
-        junctionTree.getEvidence().clear();
+        junctionTree.clearEvidence();
     }
 
     @Override
@@ -317,11 +415,11 @@ public class JayesCallModel implements ICallModel {
             return true;
         } else {
             String identifier = newDefinition.getIdentifier();
-            boolean contains = definedByNode.getOutcomes().contains(identifier);
-            if (contains) {
-                junctionTree.addEvidence(definedByNode, identifier);
+            int outcome = definedByNode.indexOfOutcome(identifier);
+            if (outcome != BayesNode.NO_OUTCOME) {
+                junctionTree.addEvidence(definedByNode, outcome);
             }
-            return contains;
+            return outcome != BayesNode.NO_OUTCOME;
         }
     }
 
@@ -333,11 +431,11 @@ public class JayesCallModel implements ICallModel {
             return true;
         } else {
             String id = newEnclosingMethod.getIdentifier();
-            boolean contains = overridesNode.getOutcomes().contains(id);
-            if (contains) {
-                junctionTree.addEvidence(overridesNode, id);
+            int outcome = overridesNode.indexOfOutcome(id);
+            if (outcome != BayesNode.NO_OUTCOME) {
+                junctionTree.addEvidence(overridesNode, outcome);
             }
-            return contains;
+            return outcome != BayesNode.NO_OUTCOME;
         }
     }
 
@@ -349,11 +447,11 @@ public class JayesCallModel implements ICallModel {
             return true;
         } else {
             String identifier = newDef.toString();
-            boolean contains = defKindNode.getOutcomes().contains(identifier);
-            if (contains) {
-                junctionTree.addEvidence(defKindNode, identifier);
+            int outcome = defKindNode.indexOfOutcome(identifier);
+            if (outcome != BayesNode.NO_OUTCOME) {
+                junctionTree.addEvidence(defKindNode, outcome);
             }
-            return contains;
+            return outcome != BayesNode.NO_OUTCOME;
         }
     }
 
@@ -364,11 +462,11 @@ public class JayesCallModel implements ICallModel {
         if (patternName == null) {
             return true;
         } else {
-            boolean contains = callgroupNode.getOutcomes().contains(patternName);
-            if (contains) {
-                junctionTree.addEvidence(callgroupNode, patternName);
+            int outcome = callgroupNode.indexOfOutcome(patternName);
+            if (outcome != BayesNode.NO_OUTCOME) {
+                junctionTree.addEvidence(callgroupNode, outcome);
             }
-            return contains;
+            return outcome != BayesNode.NO_OUTCOME;
         }
     }
 
@@ -12,23 +12,96 @@ package org.eclipse.recommenders.calls;
 
 import static org.eclipse.recommenders.utils.Constants.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
+import org.eclipse.recommenders.coordinates.ProjectCoordinate;
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.inference.jtree.BeliefCache;
+import org.eclipse.recommenders.jayes.inference.jtree.CompiledJunctionTree;
+import org.eclipse.recommenders.jayes.io.jbif.CompiledJayesBifReader;
+import org.eclipse.recommenders.jayes.io.jbif.CompiledJayesBifWriter;
 import org.eclipse.recommenders.models.IInputStreamTransformer;
 import org.eclipse.recommenders.models.IModelArchiveCoordinateAdvisor;
 import org.eclipse.recommenders.models.IModelRepository;
+import org.eclipse.recommenders.models.ModelPoolConfiguration;
 import org.eclipse.recommenders.models.PoolingModelProvider;
 import org.eclipse.recommenders.models.UniqueTypeName;
+import org.eclipse.recommenders.utils.Nullable;
 import org.eclipse.recommenders.utils.Zips;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
 
 public class PoolingCallModelProvider extends PoolingModelProvider<UniqueTypeName, ICallModel> implements
         ICallModelProvider {
 
+    private static final Logger LOG = LoggerFactory.getLogger(PoolingCallModelProvider.class);
+
+    private static final String DOT_COMPILED_JBIF = ".cjbif"; //$NON-NLS-1$
+
+    /**
+     * the number of cluster potential entries of all pooled models; about 32 MB of potentials
+     */
+    private static final long MAX_TOTAL_CLUSTER_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Pooled models of the same type share their compiled network and the beliefs computed on it; only the inference
+     * sessions are per model. Values are weak, so a compiled network is dropped once all models using it have been
+     * destroyed by the pool.
+     */
+    private final Cache<UniqueTypeName, BeliefCache> compiledNets = CacheBuilder.newBuilder().weakValues().build();
+
+    @Nullable
+    private final File snapshotDirectory;
+
     public PoolingCallModelProvider(IModelRepository repo, IModelArchiveCoordinateAdvisor index,
             Map<String, IInputStreamTransformer> transformers) {
-        super(repo, index, CLASS_CALL_MODELS, transformers);
+        this(repo, index, transformers, null);
+    }
+
+    /**
+     * @param snapshotDirectory
+     *            if not <code>null</code>, compiled networks are stored as compiled JBIF in this directory and loaded
+     *            from there instead of compiling them again, as long as the model they have been compiled from has not
+     *            changed
+     */
+    public PoolingCallModelProvider(IModelRepository repo, IModelArchiveCoordinateAdvisor index,
+            Map<String, IInputStreamTransformer> transformers, @Nullable File snapshotDirectory) {
+        super(repo, index, CLASS_CALL_MODELS, transformers, newPoolConfiguration());
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    private static ModelPoolConfiguration newPoolConfiguration() {
+        ModelPoolConfiguration configuration = new ModelPoolConfiguration();
+        configuration.setMaxTotalWeight(MAX_TOTAL_CLUSTER_SIZE);
+        return configuration;
+    }
+
+    /**
+     * Models of the same type share their compiled network, so a model weighs as much as the cluster potentials of its
+     * inference session.
+     */
+    @Override
+    protected int getModelWeight(UniqueTypeName key, ICallModel model) {
+        BeliefCache compiledNet = compiledNets.getIfPresent(key);
+        if (compiledNet == null) {
+            return 1;
+        }
+        long size = compiledNet.getCompiledJunctionTree().getTotalClusterSize();
+        return (int) Math.min(Math.max(size, 1), Integer.MAX_VALUE);
     }
 
     @Override
@@ -37,8 +110,73 @@ public class PoolingCallModelProvider extends PoolingModelProvider<UniqueTypeNam
     }
 
     @Override
-    protected ICallModel loadModel(InputStream in, UniqueTypeName key) throws IOException {
-        return JayesCallModel.load(in, key.getName());
+    protected ICallModel loadModel(final InputStream in, final UniqueTypeName key) throws IOException {
+        BeliefCache compiledNet;
+        try {
+            // concurrent loads of the same type wait for one compilation, so that all models share its beliefs
+            compiledNet = compiledNets.get(key, new Callable<BeliefCache>() {
+
+                @Override
+                public BeliefCache call() throws IOException {
+                    return JayesCallModel.newBeliefCache(snapshotDirectory == null ? JayesCallModel.compile(in,
+                            key.getName()) : loadCompiledNet(in, key));
+                }
+            });
+        } catch (ExecutionException e) {
+            Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+            throw new IOException(e.getCause());
+        }
+        return new JayesCallModel(key.getName(), compiledNet);
+    }
+
+    private CompiledJunctionTree loadCompiledNet(InputStream in, UniqueTypeName key) throws IOException {
+        byte[] jbif = ByteStreams.toByteArray(in);
+        long checksum = CompiledJayesBifReader.checksum(jbif);
+        BayesNet net = JayesCallModel.getModel(new ByteArrayInputStream(jbif), key.getName());
+
+        File snapshot = getSnapshotFile(key);
+        if (snapshot.exists()) {
+            try {
+                CompiledJayesBifReader reader = CompiledJayesBifReader.map(snapshot);
+                if (reader.getSourceChecksum() == checksum) {
+                    return reader.read(net, JayesCallModel.newFactorFactory());
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to read compiled model " + snapshot + "; compiling it again", e); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+        }
+
+        CompiledJunctionTree compiledNet = JayesCallModel.compile(net);
+        writeSnapshot(compiledNet, checksum, snapshot);
+        return compiledNet;
+    }
+
+    /**
+     * Writes to a temporary file first, so that concurrent readers never see a partially written snapshot.
+     */
+    private void writeSnapshot(CompiledJunctionTree compiledNet, long checksum, File snapshot) {
+        File tmp = new File(snapshot.getPath() + ".tmp"); //$NON-NLS-1$
+        try {
+            Files.createParentDirs(snapshot);
+            CompiledJayesBifWriter writer = new CompiledJayesBifWriter(new FileOutputStream(tmp));
+            try {
+                writer.write(compiledNet, checksum);
+            } finally {
+                writer.close();
+            }
+            java.nio.file.Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Failed to write compiled model " + snapshot, e); //$NON-NLS-1$
+            tmp.delete();
+        }
+    }
+
+    private File getSnapshotFile(UniqueTypeName key) {
+        ProjectCoordinate pc = key.getProjectCoordinate();
+        File dir = new File(new File(new File(snapshotDirectory, pc.getGroupId()), pc.getArtifactId()),
+                pc.getVersion());
+        return new File(dir, Zips.path(key.getName(), DOT_COMPILED_JBIF));
     }
 
     @Override
@@ -12,20 +12,19 @@ package org.eclipse.recommenders.calls;
 
 import static com.google.common.base.Optional.of;
 import static org.eclipse.recommenders.utils.Constants.*;
-import static org.eclipse.recommenders.utils.Zips.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.eclipse.recommenders.models.IInputStreamTransformer;
+import org.eclipse.recommenders.models.MappedZipArchive;
 import org.eclipse.recommenders.models.UniqueTypeName;
 import org.eclipse.recommenders.utils.IOUtils;
 import org.eclipse.recommenders.utils.Openable;
@@ -59,7 +58,7 @@ public class SingleZipCallModelProvider implements ICallModelProvider, Openable
     private final File models;
     private final Map<String, IInputStreamTransformer> transformers;
 
-    private ZipFile zip;
+    private MappedZipArchive zip;
 
     public SingleZipCallModelProvider(File models, Map<String, IInputStreamTransformer> transformers) {
         this.models = models;
@@ -68,13 +67,13 @@ public class SingleZipCallModelProvider implements ICallModelProvider, Openable
 
     @Override
     public void open() throws IOException {
-        readFully(models);
-        zip = new ZipFile(models);
+        zip = MappedZipArchive.open(models, MappedZipArchive.getIndexFile(models));
     }
 
     @Override
     public void close() throws IOException {
-        closeQuietly(zip);
+        // the archive is unmapped once it is no longer referenced
+        zip = null;
     }
 
     @Override
@@ -90,10 +89,11 @@ public class SingleZipCallModelProvider implements ICallModelProvider, Openable
     }
 
     public Set<ITypeName> acquireableTypes() {
-        Set<ITypeName> acquireableTypesSet = Zips.types(zip.entries(), DOT_JBIF);
+        List<String> entryNames = zip.getEntryNames();
+        Set<ITypeName> acquireableTypesSet = Zips.types(entryNames, DOT_JBIF);
 
         for (Entry<String, IInputStreamTransformer> transformer : transformers.entrySet()) {
-            acquireableTypesSet.addAll(Zips.types(zip.entries(), DOT_JBIF + "." + transformer.getKey())); //$NON-NLS-1$
+            acquireableTypesSet.addAll(Zips.types(entryNames, DOT_JBIF + "." + transformer.getKey())); //$NON-NLS-1$
         }
 
         return acquireableTypesSet;
@@ -126,19 +126,14 @@ public class SingleZipCallModelProvider implements ICallModelProvider, Openable
             }
         }
 
-        private Optional<InputStream> getInputStream(ZipFile zip, String path) throws IOException {
+        private Optional<InputStream> getInputStream(MappedZipArchive zip, String path) throws IOException {
             for (Entry<String, IInputStreamTransformer> transformer : transformers.entrySet()) {
-                ZipEntry toTransform = zip.getEntry(path + "." + transformer.getKey()); //$NON-NLS-1$
-                if (toTransform == null) {
-                    continue;
+                InputStream toTransform = zip.getInputStream(path + "." + transformer.getKey()).orNull(); //$NON-NLS-1$
+                if (toTransform != null) {
+                    return Optional.of(transformer.getValue().transform(toTransform));
                 }
-                return Optional.of(transformer.getValue().transform(zip.getInputStream(toTransform)));
             }
-            ZipEntry entry = zip.getEntry(path);
-            if (entry == null) {
-                return Optional.absent();
-            }
-            return Optional.of(zip.getInputStream(entry));
+            return zip.getInputStream(path);
         }
     }
 }
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.io.jbif;
+
+import static org.eclipse.recommenders.jayes.io.jbif.Constants.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.factor.FactorFactory;
+import org.eclipse.recommenders.jayes.inference.jtree.CompiledJunctionTree;
+
+/**
+ * Reader for compiled JBIF written by {@link CompiledJayesBifWriter}.
+ * <p>
+ * A compiled JBIF is only valid for the network it has been compiled from. Callers should compare
+ * {@link #getSourceChecksum()} with the {@link #checksum(byte[]) checksum} of the JBIF at hand and compile the network
+ * themselves if they differ.
+ */
+public class CompiledJayesBifReader {
+
+    private final ByteBuffer buffer;
+    private final long sourceChecksum;
+
+    /**
+     * Memory-maps the given file. The mapping stays valid after the file has been closed (or replaced), so that the
+     * file does not need to stay open.
+     */
+    public static CompiledJayesBifReader map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new CompiledJayesBifReader(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the checksum identifying the given JBIF in the header of compiled JBIF
+     */
+    public static long checksum(byte[] jbif) {
+        CRC32 crc = new CRC32();
+        crc.update(jbif);
+        return crc.getValue();
+    }
+
+    /**
+     * Reads the header of a compiled JBIF, starting at the buffer's current position.
+     */
+    public CompiledJayesBifReader(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        try {
+            readHeader();
+            sourceChecksum = buffer.getLong();
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed data", e);
+        }
+    }
+
+    private void readHeader() throws IOException {
+        int magicNumber = buffer.getInt();
+        if (magicNumber != COMPILED_MAGIC_NUMBER) {
+            throw new IOException("Wrong magic number: " + Integer.toHexString(magicNumber).toUpperCase());
+        }
+
+        int formatVersion = buffer.getInt();
+        if (formatVersion != COMPILED_FORMAT_VERSION) {
+            throw new IOException("Wrong compiled JBIF format version: " + formatVersion);
+        }
+    }
+
+    public long getSourceChecksum() {
+        return sourceChecksum;
+    }
+
+    /**
+     * Restores the junction tree of the given network. The factory must be configured like the one used for
+     * compiling it.
+     *
+     * @throws IOException
+     *             if the data is malformed or does not match the network or factory
+     */
+    public CompiledJunctionTree read(BayesNet net, FactorFactory factory) throws IOException {
+        try {
+            return CompiledJunctionTree.restore(net, factory, buffer.duplicate());
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed data", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.io.jbif;
+
+import static org.eclipse.recommenders.jayes.io.jbif.Constants.*;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.recommenders.jayes.inference.jtree.CompiledJunctionTree;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+
+/**
+ * Writer for compiled JBIF, a snapshot of a {@link CompiledJunctionTree} that can be loaded by
+ * {@link CompiledJayesBifReader} instead of compiling the network again.
+ *
+ * Compiled JBIF conforms to the following grammar:
+ *
+ * <dl>
+ * <dt><var>CompiledJBIF</var></dt>
+ * <dd><var>Header</var> <var>CompiledJunctionTree</var></dd>
+ * <dt><var>Header<var></dt>
+ * <dd>(magicNumber: 0xBA7E5C1F) (formatVersion: 1) (sourceChecksum: <code>long</code>)</dd>
+ * </dl>
+ *
+ * The <var>sourceChecksum</var> identifies the JBIF the junction tree has been compiled from, see
+ * {@link CompiledJayesBifReader#checksum(byte[])}. <var>CompiledJunctionTree</var> is written by
+ * {@link CompiledJunctionTree#writeTo(ByteBuffer)}.
+ *
+ * Multi-byte primitive types are serialized in network byte-order.
+ */
+public class CompiledJayesBifWriter implements Closeable {
+
+    private static final int HEADER_BYTES = 2 * Ints.BYTES + Longs.BYTES;
+
+    private OutputStream out;
+
+    public CompiledJayesBifWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void write(CompiledJunctionTree junctionTree, long sourceChecksum) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + junctionTree.getSerializedSize());
+        buffer.putInt(COMPILED_MAGIC_NUMBER);
+        buffer.putInt(COMPILED_FORMAT_VERSION);
+        buffer.putLong(sourceChecksum);
+        junctionTree.writeTo(buffer);
+        IOUtils.write(buffer.array(), out);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -18,4 +18,8 @@ public final class Constants {
 
     public static final int MAGIC_NUMBER = 0xBA7E5B1F;
     public static final int FORMAT_VERSION = 1;
+    public static final int ENCODED_CPTS_FORMAT_VERSION = 2;
+
+    public static final int COMPILED_MAGIC_NUMBER = 0xBA7E5C1F;
+    public static final int COMPILED_FORMAT_VERSION = 1;
 }
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.io.jbif;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Floats;
+import com.google.common.primitives.Shorts;
+
+/**
+ * How the entries of conditional probability tables are stored in JBIF (format version 2 and later).
+ */
+public enum CptEncoding {
+
+    /**
+     * 64-bit IEEE 754 floating point values; lossless.
+     */
+    DOUBLE(0, Doubles.BYTES) {
+        @Override
+        void put(ByteBuffer buffer, double probability) {
+            buffer.putDouble(probability);
+        }
+
+        @Override
+        double get(ByteBuffer buffer) {
+            return buffer.getDouble();
+        }
+    },
+
+    /**
+     * 32-bit IEEE 754 floating point values, with a relative error of less than 10<sup>-7</sup>.
+     */
+    FLOAT(1, Floats.BYTES) {
+        @Override
+        void put(ByteBuffer buffer, double probability) {
+            buffer.putFloat((float) probability);
+        }
+
+        @Override
+        double get(ByteBuffer buffer) {
+            return buffer.getFloat();
+        }
+    },
+
+    /**
+     * Unsigned 16-bit values <var>q</var> representing the probability <code>exp(-q / 1024)</code>; 0xFFFF represents
+     * 0. The relative error is less than 0.05% for probabilities down to about 10<sup>-28</sup>; smaller probabilities
+     * are stored as that minimum. The reader renormalizes each CPT row after decoding.
+     */
+    LOG_QUANTIZED(2, Shorts.BYTES) {
+        @Override
+        void put(ByteBuffer buffer, double probability) {
+            Preconditions.checkArgument(probability >= 0.0 && probability <= 1.0, "Not a probability: %s", probability);
+            if (probability == 0.0) {
+                buffer.putShort((short) ZERO);
+            } else {
+                long quantized = Math.round(-Math.log(probability) * STEPS_PER_NAT);
+                buffer.putShort((short) Math.min(quantized, ZERO - 1));
+            }
+        }
+
+        @Override
+        double get(ByteBuffer buffer) {
+            int quantized = buffer.getShort() & ZERO;
+            return quantized == ZERO ? 0.0 : Math.exp(-quantized / STEPS_PER_NAT);
+        }
+
+        @Override
+        boolean isLossy() {
+            return true;
+        }
+    };
+
+    private static final double STEPS_PER_NAT = 1024.0;
+    private static final int ZERO = 0xFFFF;
+
+    private final byte code;
+    private final int bytesPerEntry;
+
+    private CptEncoding(int code, int bytesPerEntry) {
+        this.code = (byte) code;
+        this.bytesPerEntry = bytesPerEntry;
+    }
+
+    abstract void put(ByteBuffer buffer, double probability);
+
+    abstract double get(ByteBuffer buffer);
+
+    /**
+     * @return whether decoded CPT rows need to be renormalized
+     */
+    boolean isLossy() {
+        return false;
+    }
+
+    byte getCode() {
+        return code;
+    }
+
+    int getBytesPerEntry() {
+        return bytesPerEntry;
+    }
+
+    static CptEncoding forCode(byte code) throws IOException {
+        for (CptEncoding encoding : values()) {
+            if (encoding.code == code) {
+                return encoding;
+            }
+        }
+        throw new IOException("Unknown CPT encoding: " + code);
+    }
+}
@@ -12,16 +12,24 @@ package org.eclipse.recommenders.jayes.io.jbif;
 
 import static org.eclipse.recommenders.jayes.io.jbif.Constants.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.io.IOUtils;
 import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleBufferArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
 import org.eclipse.recommenders.jayes.io.IBayesNetReader;
 
 import com.google.common.primitives.Doubles;
@@ -29,33 +37,86 @@ import com.google.common.primitives.Ints;
 
 /**
  * Reader for the Jayes Binary Interchange Format (JBIF) written by {@link JayesBifWriter}.
+ * <p>
+ * When reading from a {@link ByteBuffer}, e.g., a memory-mapped file or an uncompressed zip entry within a mapped
+ * archive, the CPTs of the network are not copied to the heap but are views of the buffer (see
+ * {@link DoubleBufferArrayWrapper}). The buffer's contents must then not change as long as the network is in use.
+ * This does not apply to CPTs in format version 2, which are decoded, nor to CPTs read as <code>float</code>s (see
+ * {@link #setFloatingPointType(Class)}).
  */
 public class JayesBifReader implements IBayesNetReader {
 
     private InputStream in;
+    private ByteBuffer buffer;
+    private boolean useFloat;
 
     public JayesBifReader(InputStream str) {
         in = str;
     }
 
+    /**
+     * Reads from the buffer's current position, without changing the position.
+     */
+    public JayesBifReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Memory-maps the given file.
+     */
+    public static JayesBifReader map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return map(channel, 0, channel.size());
+        }
+    }
+
+    /**
+     * Memory-maps the given region of a channel, e.g., the data of an uncompressed zip entry. The channel may be
+     * closed afterwards.
+     */
+    public static JayesBifReader map(FileChannel channel, long offset, long size) throws IOException {
+        return new JayesBifReader(channel.map(MapMode.READ_ONLY, offset, size));
+    }
+
+    /**
+     * Sets the floating point precision of the CPTs read. Reading them as <code>float</code>s halves their memory
+     * footprint and matches a {@link org.eclipse.recommenders.jayes.factor.FactorFactory FactorFactory} configured to
+     * use <code>float</code>s.
+     *
+     * @param contentType
+     *            possible values: double.class (the default), Double.class, float.class, Float.class
+     */
+    public void setFloatingPointType(Class<?> contentType) {
+        if (contentType == double.class || contentType == Double.class) {
+            useFloat = false;
+        } else if (contentType == float.class || contentType == Float.class) {
+            useFloat = true;
+        } else {
+            throw new IllegalArgumentException("wrong type, expected double, Double, float or Float, but got: "
+                    + contentType);
+        }
+    }
+
     @Override
     public BayesNet read() throws IOException {
-        return read(IOUtils.toByteArray(in));
+        if (buffer != null) {
+            return read(buffer.duplicate(), true);
+        }
+        return read(ByteBuffer.wrap(IOUtils.toByteArray(in)), false);
     }
 
-    private BayesNet read(byte[] array) throws IOException {
-        ByteBuffer buffer = ByteBuffer.wrap(array);
+    private BayesNet read(ByteBuffer buffer, boolean viewCpts) throws IOException {
         try {
-            return readBayesNet(buffer);
+            return readBayesNet(buffer, viewCpts);
         } catch (RuntimeException e) {
             throw new IOException("Malformed data", e);
         }
     }
 
-    private BayesNet readBayesNet(ByteBuffer buffer) throws IOException {
+    private BayesNet readBayesNet(ByteBuffer buffer, boolean viewCpts) throws IOException {
         BayesNet bayesNet = new BayesNet();
 
-        readHeader(buffer);
+        int formatVersion = readHeader(buffer);
 
         bayesNet.setName(readName(buffer));
 
@@ -66,22 +127,23 @@ public class JayesBifReader implements IBayesNetReader {
         }
 
         for (int i = 0; i < nrNodes; i++) {
-            readNodeDefinition(bayesNet, bayesNet.getNode(i), buffer);
+            readNodeDefinition(bayesNet, bayesNet.getNode(i), buffer, formatVersion, viewCpts);
         }
 
         return bayesNet;
     }
 
-    private void readHeader(ByteBuffer buffer) throws IOException {
+    private int readHeader(ByteBuffer buffer) throws IOException {
         int magicNumber = buffer.getInt();
         if (magicNumber != MAGIC_NUMBER) {
             throw new IOException("Wrong magic number: " + Integer.toHexString(magicNumber).toUpperCase());
         }
 
         int formatVersion = buffer.getInt();
-        if (formatVersion != FORMAT_VERSION) {
+        if (formatVersion != FORMAT_VERSION && formatVersion != ENCODED_CPTS_FORMAT_VERSION) {
             throw new IOException("Wrong JBIF format version: " + formatVersion);
         }
+        return formatVersion;
     }
 
     private String readName(ByteBuffer buffer) {
@@ -104,10 +166,17 @@ public class JayesBifReader implements IBayesNetReader {
         node.addOutcomes(outcomes);
     }
 
-    private void readNodeDefinition(BayesNet bayesNet, BayesNode node, ByteBuffer buffer) throws IOException {
+    private void readNodeDefinition(BayesNet bayesNet, BayesNode node, ByteBuffer buffer, int formatVersion,
+            boolean viewCpt) throws IOException {
         node.setParents(readParents(bayesNet, buffer));
 
-        node.setProbabilities(readCpt(buffer));
+        if (formatVersion == ENCODED_CPTS_FORMAT_VERSION) {
+            node.setProbabilities(readEncodedCpt(buffer, node.getOutcomeCount()));
+        } else if (viewCpt && !useFloat) {
+            node.setProbabilities(viewCpt(buffer));
+        } else {
+            node.setProbabilities(newArrayWrapper(readCpt(buffer)));
+        }
     }
 
     private List<BayesNode> readParents(BayesNet bayesNet, ByteBuffer buffer) throws IOException {
@@ -135,8 +204,79 @@ public class JayesBifReader implements IBayesNetReader {
         return probabilities;
     }
 
+    private IArrayWrapper readEncodedCpt(ByteBuffer buffer, int rowLength) throws IOException {
+        CptEncoding encoding = CptEncoding.forCode(buffer.get());
+        int entryCount = buffer.getInt();
+        int rowCount = rowLength == 0 ? 0 : entryCount / rowLength;
+        if (rowCount * rowLength != entryCount) {
+            throw new IOException("CPT size " + entryCount + " is not a multiple of the outcome count " + rowLength);
+        }
+
+        int distinctRowCount = buffer.getInt();
+        double[] distinctRows = new double[distinctRowCount * rowLength];
+        for (int i = 0; i < distinctRows.length; i++) {
+            distinctRows[i] = encoding.get(buffer);
+        }
+        if (encoding.isLossy()) {
+            normalizeRows(distinctRows, rowLength);
+        }
+
+        IArrayWrapper dictionary = newArrayWrapper(distinctRows);
+        if (distinctRowCount == rowCount) {
+            return dictionary;
+        }
+        IArrayWrapper probabilities = newArrayWrapper(new double[entryCount]);
+        for (int row = 0; row < rowCount; row++) {
+            int index = readRowIndex(buffer, distinctRowCount);
+            probabilities.arrayCopy(dictionary, index * rowLength, row * rowLength, rowLength);
+        }
+        return probabilities;
+    }
+
+    private int readRowIndex(ByteBuffer buffer, int distinctRowCount) {
+        if (distinctRowCount <= 1 << Byte.SIZE) {
+            return buffer.get() & 0xFF;
+        } else if (distinctRowCount <= 1 << Short.SIZE) {
+            return buffer.getShort() & 0xFFFF;
+        } else {
+            return buffer.getInt();
+        }
+    }
+
+    private void normalizeRows(double[] rows, int rowLength) {
+        for (int start = 0; start < rows.length; start += rowLength) {
+            double sum = 0.0;
+            for (int i = start; i < start + rowLength; i++) {
+                sum += rows[i];
+            }
+            if (sum > 0.0) {
+                for (int i = start; i < start + rowLength; i++) {
+                    rows[i] /= sum;
+                }
+            }
+        }
+    }
+
+    private IArrayWrapper newArrayWrapper(double[] probabilities) {
+        IArrayWrapper wrapper = useFloat ? new FloatArrayWrapper() : new DoubleArrayWrapper();
+        wrapper.setArray(probabilities);
+        return wrapper;
+    }
+
+    private DoubleBufferArrayWrapper viewCpt(ByteBuffer buffer) throws IOException {
+        int entryCount = buffer.getInt();
+
+        ByteBuffer cpt = buffer.slice();
+        cpt.limit(entryCount * Doubles.BYTES);
+        buffer.position(buffer.position() + entryCount * Doubles.BYTES);
+
+        return new DoubleBufferArrayWrapper(cpt.asDoubleBuffer());
+    }
+
     @Override
     public void close() throws IOException {
-        in.close();
+        if (in != null) {
+            in.close();
+        }
     }
 }
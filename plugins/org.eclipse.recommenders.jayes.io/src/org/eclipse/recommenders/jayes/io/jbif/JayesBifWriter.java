@@ -17,6 +17,8 @@ import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.eclipse.recommenders.jayes.BayesNet;
@@ -37,7 +39,7 @@ import com.google.common.primitives.Shorts;
  * <dt><var>JBIF</var></dt>
  * <dd><var>Header</var> <var>BayesNet</var></dd>
  * <dt><var>Header<var></dt>
- * <dd>(magicNumber: 0xBA7E5B1F) (formatVersion: 1)</dd>
+ * <dd>(magicNumber: 0xBA7E5B1F) (formatVersion: 1 | 2)</dd>
  * <dt><var>BayesNet</var></dt>
  * <dd><var>Name</var> (nodeCount: <code>int</code>) <var>NodeDeclaration</var>* <var>NodeDefinition</var>*</dd>
  * <dt><var>Name</var></dt>
@@ -50,10 +52,21 @@ import com.google.common.primitives.Shorts;
  * <dd><var>Parents</var> <var>CPT</var></dd>
  * <dt><var>Parents</var></dt>
  * <dd>(parentCount: <code>byte</code>) parentIds: (<code>int</code>...)</dd>
- * <dt><var>CPT</var></dt>
+ * <dt><var>CPT</var> (format version 1)</dt>
  * <dd>(entryCount: <code>int</code>) (probabilities: <code>double</code>...)</dd>
+ * <dt><var>CPT</var> (format version 2)</dt>
+ * <dd>(encoding: <code>byte</code>) (entryCount: <code>int</code>) (distinctRowCount: <code>int</code>)
+ * <var>Row</var>* <var>RowIndex</var>*</dd>
+ * <dt><var>Row</var></dt>
+ * <dd>(probabilities: <var>outcomeCount</var> entries encoded as specified by the {@link CptEncoding})</dd>
+ * <dt><var>RowIndex</var></dt>
+ * <dd>(index: <code>byte</code>, <code>short</code> or <code>int</code>, the smallest unsigned type that can index
+ * all distinct rows)</dd>
  * </dl>
  *
+ * In format version 2, each distinct row of a CPT is stored once. The CPT is followed by the index of the distinct row
+ * for each of its rows, unless all rows are distinct; then the rows are stored in order without indices.
+ * <p>
  * Multi-byte primitive types are serialized in network byte-order.
  */
 public class JayesBifWriter implements IBayesNetWriter {
@@ -61,9 +74,23 @@ public class JayesBifWriter implements IBayesNetWriter {
     private static final int HEADER_BYTES = 2 * Ints.BYTES;
 
     private OutputStream out;
+    private final CptEncoding cptEncoding;
 
+    /**
+     * Creates a writer for format version 1, which can be read by all versions of {@link JayesBifReader}.
+     */
     public JayesBifWriter(OutputStream out) {
         this.out = out;
+        cptEncoding = null;
+    }
+
+    /**
+     * Creates a writer for format version 2, which stores the CPT entries in the given encoding and repeated CPT rows
+     * only once.
+     */
+    public JayesBifWriter(OutputStream out, CptEncoding cptEncoding) {
+        this.out = out;
+        this.cptEncoding = Preconditions.checkNotNull(cptEncoding);
     }
 
     @Override
@@ -112,7 +139,12 @@ public class JayesBifWriter implements IBayesNetWriter {
 
         size += 1 + Ints.BYTES * node.getParents().size();
 
-        size += Ints.BYTES + Doubles.BYTES * node.getProbabilities().length;
+        if (cptEncoding == null) {
+            size += Ints.BYTES + Doubles.BYTES * node.getProbabilities().length;
+        } else {
+            size += 1 + 2 * Ints.BYTES + cptEncoding.getBytesPerEntry() * node.getProbabilities().length;
+            size += Ints.BYTES * getRowCount(node);
+        }
 
         return size;
     }
@@ -120,7 +152,7 @@ public class JayesBifWriter implements IBayesNetWriter {
     private void putHeader(ByteBuffer buffer) {
         buffer.putInt(MAGIC_NUMBER);
 
-        buffer.putInt(FORMAT_VERSION);
+        buffer.putInt(cptEncoding == null ? FORMAT_VERSION : ENCODED_CPTS_FORMAT_VERSION);
     }
 
     private void putBayesNet(BayesNet bayesNet, ByteBuffer buffer) {
@@ -159,7 +191,11 @@ public class JayesBifWriter implements IBayesNetWriter {
     private void putNodeDefinition(BayesNode node, ByteBuffer buffer) {
         putParents(node, buffer);
 
-        putCpt(node, buffer);
+        if (cptEncoding == null) {
+            putCpt(node, buffer);
+        } else {
+            putEncodedCpt(node, buffer);
+        }
     }
 
     private void putParents(BayesNode node, ByteBuffer buffer) {
@@ -180,6 +216,54 @@ public class JayesBifWriter implements IBayesNetWriter {
         buffer.position(buffer.position() + asDoubleBuffer.position() * Doubles.BYTES);
     }
 
+    private void putEncodedCpt(BayesNode node, ByteBuffer buffer) {
+        double[] probabilities = node.getProbabilities();
+        int rowLength = node.getOutcomeCount();
+        int[] rowIndices = new int[getRowCount(node)];
+
+        // ByteBuffers are equal if their remaining contents are; rows are thus compared after encoding
+        Map<ByteBuffer, Integer> distinctRows = new LinkedHashMap<>();
+        for (int row = 0; row < rowIndices.length; row++) {
+            ByteBuffer encodedRow = ByteBuffer.allocate(rowLength * cptEncoding.getBytesPerEntry());
+            for (int i = row * rowLength; i < (row + 1) * rowLength; i++) {
+                cptEncoding.put(encodedRow, probabilities[i]);
+            }
+            encodedRow.flip();
+            Integer index = distinctRows.get(encodedRow);
+            if (index == null) {
+                index = distinctRows.size();
+                distinctRows.put(encodedRow, index);
+            }
+            rowIndices[row] = index;
+        }
+
+        buffer.put(cptEncoding.getCode());
+        buffer.putInt(probabilities.length);
+        buffer.putInt(distinctRows.size());
+        for (ByteBuffer encodedRow : distinctRows.keySet()) {
+            buffer.put(encodedRow);
+        }
+        if (distinctRows.size() < rowIndices.length) {
+            for (int index : rowIndices) {
+                putRowIndex(index, distinctRows.size(), buffer);
+            }
+        }
+    }
+
+    private void putRowIndex(int index, int distinctRowCount, ByteBuffer buffer) {
+        if (distinctRowCount <= 1 << Byte.SIZE) {
+            buffer.put((byte) index);
+        } else if (distinctRowCount <= 1 << Short.SIZE) {
+            buffer.putShort((short) index);
+        } else {
+            buffer.putInt(index);
+        }
+    }
+
+    private int getRowCount(BayesNode node) {
+        return node.getOutcomeCount() == 0 ? 0 : node.getProbabilities().length / node.getOutcomeCount();
+    }
+
     @Override
     public void close() throws IOException {
         out.close();
@@ -10,29 +10,44 @@
  */
 package org.eclipse.recommenders.jayes;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 
-import org.eclipse.recommenders.internal.jayes.util.BidirectionalMap;
 import org.eclipse.recommenders.jayes.factor.AbstractFactor;
 import org.eclipse.recommenders.jayes.factor.DenseFactor;
 import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
 import org.eclipse.recommenders.jayes.util.MathUtils;
 
 public class BayesNode {
 
+    /**
+     * returned by {@link #indexOfOutcome(String)} for names that are not outcomes of the node
+     */
+    public static final int NO_OUTCOME = -1;
+
+    // nodes with at most this many outcomes look up outcome names by a linear scan instead of a hash map
+    private static final int MAX_SCANNED_OUTCOMES = 8;
+    private static final String[] NO_OUTCOMES = new String[0];
+
     private final String name;
     private final List<BayesNode> children = new ArrayList<BayesNode>();
     private final List<BayesNode> parents = new ArrayList<BayesNode>();
     private int outcomes = 0;
-    private final BidirectionalMap<String, Integer> outcomeIndices = new BidirectionalMap<String, Integer>();
+    // interned, so that the many nodes with the same outcomes, e.g., "true" and "false", share the names
+    private String[] outcomeNames = NO_OUTCOMES;
+    // created once the node has more outcomes than are scanned
+    private Map<String, Integer> outcomeIndices;
+    // created on demand
+    private List<String> outcomesView;
     private final AbstractFactor factor = new DenseFactor();
     private int id = -1;
-    private final List<String> outcomesList = new ArrayList<String>();
 
     /**
      * @deprecated use {@link BayesNet#createNode(String) BayesNet.createNode} instead
@@ -49,12 +64,21 @@ public class BayesNode {
      * Must be called after the parents and outcomes, and the outcome of the parents are set.
      */
     public void setProbabilities(final double... probabilities) {
+        setProbabilities(new DoubleArrayWrapper(probabilities));
+    }
+
+    /**
+     * Like {@link #setProbabilities(double...)}, but uses the given values as they are, e.g., a
+     * {@link org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleBufferArrayWrapper DoubleBufferArrayWrapper}
+     * viewing a memory-mapped model file.
+     */
+    public void setProbabilities(final IArrayWrapper probabilities) {
         adjustFactordimensions();
-        if (probabilities.length != MathUtils.product(factor.getDimensions())) {
+        if (probabilities.length() != MathUtils.product(factor.getDimensions())) {
             throw new IllegalArgumentException("Probability table does not have expected size. Expected: "
-                    + MathUtils.product(factor.getDimensions()) + "but got: " + probabilities.length);
+                    + MathUtils.product(factor.getDimensions()) + "but got: " + probabilities.length());
         }
-        factor.setValues(new DoubleArrayWrapper(probabilities));
+        factor.setValues(probabilities);
     }
 
     public double[] getProbabilities() {
@@ -146,13 +170,26 @@ public class BayesNode {
     }
 
     public void addOutcomes(String... names) {
-        if (!Collections.disjoint(outcomesList, Arrays.asList(names))) {
-            throw new IllegalArgumentException("Outcome already exists");
+        for (int i = 0; i < names.length; i++) {
+            if (indexOfOutcome(names[i]) != NO_OUTCOME || Arrays.asList(names).subList(0, i).contains(names[i])) {
+                throw new IllegalArgumentException("Outcome already exists");
+            }
+        }
+        if (outcomes + names.length > outcomeNames.length) {
+            outcomeNames = Arrays.copyOf(outcomeNames, outcomes + names.length);
         }
         for (String name : names) {
-            outcomeIndices.put(name, outcomes);
+            outcomeNames[outcomes] = name.intern();
+            if (outcomeIndices != null) {
+                outcomeIndices.put(outcomeNames[outcomes], outcomes);
+            }
             outcomes++;
-            outcomesList.add(name);
+        }
+        if (outcomeIndices == null && outcomes > MAX_SCANNED_OUTCOMES) {
+            outcomeIndices = new HashMap<String, Integer>();
+            for (int i = 0; i < outcomes; i++) {
+                outcomeIndices.put(outcomeNames[i], i);
+            }
         }
         adjustFactordimensions();
     }
@@ -162,16 +199,39 @@ public class BayesNode {
         return outcomes - 1;
     }
 
+    /**
+     * @throws IllegalArgumentException
+     *             if the node has no outcome of the given name
+     */
     public int getOutcomeIndex(final String name) {
-        try {
-            return outcomeIndices.get(name);
-        } catch (NullPointerException ex) {
-            throw new IllegalArgumentException(name, ex);
+        int index = indexOfOutcome(name);
+        if (index == NO_OUTCOME) {
+            throw new IllegalArgumentException(name);
         }
+        return index;
     }
 
+    /**
+     * @return the index of the outcome of the given name, or {@link #NO_OUTCOME} if the node has no such outcome
+     */
+    public int indexOfOutcome(final String name) {
+        if (outcomeIndices != null) {
+            Integer index = outcomeIndices.get(name);
+            return index == null ? NO_OUTCOME : index;
+        }
+        for (int i = 0; i < outcomes; i++) {
+            if (outcomeNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return NO_OUTCOME;
+    }
+
+    /**
+     * @return the name of the outcome, or <code>null</code> if the index is out of range
+     */
     public String getOutcomeName(final int index) {
-        return outcomeIndices.getKey(index);
+        return index >= 0 && index < outcomes ? outcomeNames[index] : null;
     }
 
     public int getOutcomeCount() {
@@ -182,8 +242,38 @@ public class BayesNode {
         return factor;
     }
 
+    /**
+     * @return an unmodifiable view of the outcome names
+     */
     public List<String> getOutcomes() {
-        return Collections.unmodifiableList(outcomesList);
+        if (outcomesView == null) {
+            outcomesView = new AbstractList<String>() {
+
+                @Override
+                public String get(int index) {
+                    if (index >= outcomes) {
+                        throw new IndexOutOfBoundsException(String.valueOf(index));
+                    }
+                    return outcomeNames[index];
+                }
+
+                @Override
+                public int size() {
+                    return outcomes;
+                }
+
+                @Override
+                public int indexOf(Object o) {
+                    return o instanceof String ? indexOfOutcome((String) o) : -1;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return indexOf(o) != -1;
+                }
+            };
+        }
+        return outcomesView;
     }
 
     public String getName() {
@@ -208,30 +208,100 @@ public abstract class AbstractFactor implements Cloneable {
         }
     }
 
+    /**
+     * performs the first <code>count</code> of the given prepared sum operations in a single pass over this factor.
+     * The results are the same as those of calling {@link #sumPrepared(IArrayWrapper, int[])} for each of them.
+     */
+    public void sumPrepared(IArrayWrapper[] compatibleFactorValues, int[][] preparedOperations, int count) {
+        validateCut();
+
+        for (int k = 0; k < count; k++) {
+            compatibleFactorValues[k].fill(0);
+        }
+
+        if (!isLogScale) {
+            sumPrepared(cut, 0, compatibleFactorValues, preparedOperations, count, 0);
+        } else {
+            double max = findFiniteMax();
+            sumPrepared(cut, 0, compatibleFactorValues, preparedOperations, count, max);
+            for (int k = 0; k < count; k++) {
+                for (int i = 0; i < compatibleFactorValues[k].length(); i++) {
+                    compatibleFactorValues[k].set(i, Math.log(compatibleFactorValues[k].getDouble(i)) + max);
+                }
+            }
+        }
+    }
+
+    private void sumPrepared(Cut cut, int offset, IArrayWrapper[] compatibleFactorValues, int[][] positions,
+            int count, double max) {
+        if (cut.getSubCut() == null) {
+            int last = cut.getEnd() + offset;
+            for (int i = cut.getStart() + offset; i < last; i += cut.getStepSize()) {
+                int j = getRealPosition(i);
+                double value = isLogScale ? Math.exp(values.getDouble(j) - max) : values.getDouble(j);
+                for (int k = 0; k < count; k++) {
+                    compatibleFactorValues[k].addAssign(positions[k][j], value);
+                }
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                sumPrepared(c, offset + i, compatibleFactorValues, positions, count, max);
+            }
+        }
+    }
+
     private void sumPreparedLog(IArrayWrapper compatibleFactorValues, int[] positions) {
-        double max = findMax(cut, 0, 0);
+        double max = findFiniteMax();
         sumPreparedLog(cut, 0, compatibleFactorValues, positions, max);
         for (int i = 0; i < compatibleFactorValues.length(); i++) {
             compatibleFactorValues.set(i, Math.log(compatibleFactorValues.getDouble(i)) + max);
         }
     }
 
+    /**
+     * @return the maximum of the (log scale) values selected by the cut, or 0 if they are all zero in linear scale.
+     *         Summing relative to the maximum keeps the largest term at 1, so the sum neither overflows nor underflows.
+     */
+    private double findFiniteMax() {
+        double max = findMax(cut, 0, Double.NEGATIVE_INFINITY);
+        return max == Double.NEGATIVE_INFINITY ? 0 : max;
+    }
+
+    /**
+     * @return the sum of the values consistent with the selections, as they are stored, i.e., without converting values
+     *         in log scale
+     */
+    public double sum() {
+        validateCut();
+        return sum(cut, 0, 0);
+    }
+
+    private double sum(Cut cut, int offset, double sum) {
+        if (cut.getSubCut() == null) {
+            int last = cut.getEnd() + offset;
+            for (int i = cut.getStart() + offset; i < last; i += cut.getStepSize()) {
+                sum += values.getDouble(getRealPosition(i));
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                sum = sum(c, offset + i, sum);
+            }
+        }
+        return sum;
+    }
+
     private double findMax(Cut cut, int offset, double max) {
         if (cut.getSubCut() == null) {
             int last = cut.getEnd() + offset;
             for (int i = cut.getStart() + offset; i < last; i += cut.getStepSize()) {
-                int j = getRealPosition(i);
-                if (values.getDouble(j) != Double.NEGATIVE_INFINITY && Math.abs(values.getDouble(j)) > Math.abs(max)) {
-                    max = values.getDouble(j);
-                }
+                max = Math.max(max, values.getDouble(getRealPosition(i)));
             }
         } else {
             Cut c = cut.getSubCut();
             for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
-                double pot = findMax(c, offset + i, max);
-                if (pot != Double.NEGATIVE_INFINITY && Math.abs(pot) > Math.abs(max)) {
-                    max = pot;
-                }
+                max = findMax(c, offset + i, max);
             }
         }
         return max;
@@ -33,6 +33,8 @@ public class Cut implements Cloneable {
     // the subtree(s); only one because of the inherent regularities of the
     // decision tree
     private Cut subCut;
+    // the instance used as subCut, kept so that re-initializing the cut does not allocate
+    private Cut reusableSubCut;
 
     public Cut(AbstractFactor factor) {
         this.factor = factor;
@@ -58,12 +60,24 @@ public class Cut implements Cloneable {
     @Override
     public Cut clone() {
         try {
-            return (Cut) super.clone();
+            Cut clone = (Cut) super.clone();
+            clone.reusableSubCut = null;
+            return clone;
         } catch (CloneNotSupportedException e) {
             throw new AssertionError(e);
         }
     }
 
+    private void copyFrom(Cut other) {
+        start = other.start;
+        stepSize = other.stepSize;
+        length = other.length;
+        subtreeStepsize = other.subtreeStepsize;
+        rootDimension = other.rootDimension;
+        leafDimension = other.leafDimension;
+        subCut = null;
+    }
+
     private void rootCut() {
         while (rootDimension < leafDimension && this.factor.selections[rootDimension] != -1) {
             descendSelectedDimension();
@@ -98,8 +112,11 @@ public class Cut implements Cloneable {
 
     private void createSubcut() {
         if (needsSplit()) {
-            subCut = null; // avoid circularity in object graph
-            subCut = clone();
+            if (reusableSubCut == null) {
+                reusableSubCut = new Cut(factor);
+            }
+            subCut = reusableSubCut;
+            subCut.copyFrom(this);
             subCut.descendUnselectedDimension();
             subCut.length = subtreeStepsize;
             subCut.rootCut(); // no leaf cut
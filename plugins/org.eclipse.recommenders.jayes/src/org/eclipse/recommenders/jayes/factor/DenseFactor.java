@@ -7,6 +7,8 @@
 package org.eclipse.recommenders.jayes.factor;
 
 import org.eclipse.recommenders.internal.jayes.util.AddressCalc;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
 import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
 import org.eclipse.recommenders.jayes.util.MathUtils;
 
@@ -46,6 +48,98 @@ public class DenseFactor extends AbstractFactor {
         return positions;
     }
 
+    /**
+     * uses the array kernels of {@link DenseKernels} if both this factor's values and the compatible values are plain
+     * double or float arrays of the same type, and the generic implementation otherwise
+     */
+    @Override
+    public void multiplyPrepared(IArrayWrapper compatibleValues, int[] positions) {
+        if (isDoubleArray(values) && isDoubleArray(compatibleValues)) {
+            validateCut();
+            if (!isLogScale()) {
+                DenseKernels.multiply(cut, 0, values.toDoubleArray(), compatibleValues.toDoubleArray(), positions);
+            } else {
+                DenseKernels.add(cut, 0, values.toDoubleArray(), compatibleValues.toDoubleArray(), positions);
+            }
+        } else if (isFloatArray(values) && isFloatArray(compatibleValues)) {
+            validateCut();
+            if (!isLogScale()) {
+                DenseKernels.multiply(cut, 0, values.toFloatArray(), compatibleValues.toFloatArray(), positions);
+            } else {
+                DenseKernels.add(cut, 0, values.toFloatArray(), compatibleValues.toFloatArray(), positions);
+            }
+        } else {
+            super.multiplyPrepared(compatibleValues, positions);
+        }
+    }
+
+    @Override
+    public void sumPrepared(IArrayWrapper compatibleFactorValues, int[] preparedOperation) {
+        // summing in log scale is dominated by the exponentiation, so it always takes the generic path
+        if (isLogScale()) {
+            super.sumPrepared(compatibleFactorValues, preparedOperation);
+        } else if (isDoubleArray(values) && isDoubleArray(compatibleFactorValues)) {
+            validateCut();
+            compatibleFactorValues.fill(0);
+            DenseKernels.sum(cut, 0, values.toDoubleArray(), compatibleFactorValues.toDoubleArray(), preparedOperation);
+        } else if (isFloatArray(values) && isFloatArray(compatibleFactorValues)) {
+            validateCut();
+            compatibleFactorValues.fill(0);
+            DenseKernels.sum(cut, 0, values.toFloatArray(), compatibleFactorValues.toFloatArray(), preparedOperation);
+        } else {
+            super.sumPrepared(compatibleFactorValues, preparedOperation);
+        }
+    }
+
+    @Override
+    public void sumPrepared(IArrayWrapper[] compatibleFactorValues, int[][] preparedOperations, int count) {
+        if (isLogScale()) {
+            super.sumPrepared(compatibleFactorValues, preparedOperations, count);
+        } else if (isDoubleArray(values) && allDoubleArrays(compatibleFactorValues, count)) {
+            validateCut();
+            for (int k = 0; k < count; k++) {
+                compatibleFactorValues[k].fill(0);
+            }
+            DenseKernels.sum(cut, 0, values.toDoubleArray(), compatibleFactorValues, preparedOperations, count);
+        } else if (isFloatArray(values) && allFloatArrays(compatibleFactorValues, count)) {
+            validateCut();
+            for (int k = 0; k < count; k++) {
+                compatibleFactorValues[k].fill(0);
+            }
+            DenseKernels.sum(cut, 0, values.toFloatArray(), compatibleFactorValues, preparedOperations, count);
+        } else {
+            super.sumPrepared(compatibleFactorValues, preparedOperations, count);
+        }
+    }
+
+    // exact class checks, as subclasses may override the element operations, and because toDoubleArray() and
+    // toFloatArray() only return the backing array of the matching wrapper
+    private static boolean isDoubleArray(IArrayWrapper wrapper) {
+        return wrapper.getClass() == DoubleArrayWrapper.class;
+    }
+
+    private static boolean isFloatArray(IArrayWrapper wrapper) {
+        return wrapper.getClass() == FloatArrayWrapper.class;
+    }
+
+    private static boolean allDoubleArrays(IArrayWrapper[] wrappers, int count) {
+        for (int k = 0; k < count; k++) {
+            if (!isDoubleArray(wrappers[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allFloatArrays(IArrayWrapper[] wrappers, int count) {
+        for (int k = 0; k < count; k++) {
+            if (!isFloatArray(wrappers[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void copyValues(IArrayWrapper arrayWrapper) {
         validateCut();
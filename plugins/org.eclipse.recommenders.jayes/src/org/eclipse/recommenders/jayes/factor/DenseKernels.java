@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.factor;
+
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+
+/**
+ * Tight loops for the prepared operations of {@link DenseFactor}s whose values are plain <code>double[]</code> or
+ * <code>float[]</code> arrays. They visit the same entries as the generic implementation in {@link AbstractFactor},
+ * but access the arrays directly instead of going through the {@link IArrayWrapper} interface per entry, which lets the
+ * JIT compiler unroll the innermost loops and hoist the bounds checks. Unselected stretches of the factor are visited
+ * with unit stride, which is the common case during inference.
+ */
+final class DenseKernels {
+
+    private DenseKernels() {
+    }
+
+    static void multiply(Cut cut, int offset, double[] values, double[] compatibleValues, int[] positions) {
+        if (cut.getSubCut() == null) {
+            int first = cut.getStart() + offset;
+            int last = cut.getEnd() + offset;
+            int step = cut.getStepSize();
+            if (step == 1) {
+                for (int i = first; i < last; i++) {
+                    values[i] *= compatibleValues[positions[i]];
+                }
+            } else {
+                for (int i = first; i < last; i += step) {
+                    values[i] *= compatibleValues[positions[i]];
+                }
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                multiply(c, offset + i, values, compatibleValues, positions);
+            }
+        }
+    }
+
+    static void multiply(Cut cut, int offset, float[] values, float[] compatibleValues, int[] positions) {
+        if (cut.getSubCut() == null) {
+            int first = cut.getStart() + offset;
+            int last = cut.getEnd() + offset;
+            int step = cut.getStepSize();
+            if (step == 1) {
+                for (int i = first; i < last; i++) {
+                    values[i] *= compatibleValues[positions[i]];
+                }
+            } else {
+                for (int i = first; i < last; i += step) {
+                    values[i] *= compatibleValues[positions[i]];
+                }
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                multiply(c, offset + i, values, compatibleValues, positions);
+            }
+        }
+    }
+
+    /**
+     * multiplication in log scale
+     */
+    static void add(Cut cut, int offset, double[] values, double[] compatibleValues, int[] positions) {
+        if (cut.getSubCut() == null) {
+            int first = cut.getStart() + offset;
+            int last = cut.getEnd() + offset;
+            int step = cut.getStepSize();
+            if (step == 1) {
+                for (int i = first; i < last; i++) {
+                    values[i] += compatibleValues[positions[i]];
+                }
+            } else {
+                for (int i = first; i < last; i += step) {
+                    values[i] += compatibleValues[positions[i]];
+                }
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                add(c, offset + i, values, compatibleValues, positions);
+            }
+        }
+    }
+
+    /**
+     * multiplication in log scale
+     */
+    static void add(Cut cut, int offset, float[] values, float[] compatibleValues, int[] positions) {
+        if (cut.getSubCut() == null) {
+            int first = cut.getStart() + offset;
+            int last = cut.getEnd() + offset;
+            int step = cut.getStepSize();
+            if (step == 1) {
+                for (int i = first; i < last; i++) {
+                    values[i] += compatibleValues[positions[i]];
+                }
+            } else {
+                for (int i = first; i < last; i += step) {
+                    values[i] += compatibleValues[positions[i]];
+                }
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                add(c, offset + i, values, compatibleValues, positions);
+            }
+        }
+    }
+
+    static void sum(Cut cut, int offset, double[] values, double[] result, int[] positions) {
+        if (cut.getSubCut() == null) {
+            int first = cut.getStart() + offset;
+            int last = cut.getEnd() + offset;
+            int step = cut.getStepSize();
+            if (step == 1) {
+                for (int i = first; i < last; i++) {
+                    result[positions[i]] += values[i];
+                }
+            } else {
+                for (int i = first; i < last; i += step) {
+                    result[positions[i]] += values[i];
+                }
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                sum(c, offset + i, values, result, positions);
+            }
+        }
+    }
+
+    static void sum(Cut cut, int offset, float[] values, float[] result, int[] positions) {
+        if (cut.getSubCut() == null) {
+            int first = cut.getStart() + offset;
+            int last = cut.getEnd() + offset;
+            int step = cut.getStepSize();
+            if (step == 1) {
+                for (int i = first; i < last; i++) {
+                    result[positions[i]] += values[i];
+                }
+            } else {
+                for (int i = first; i < last; i += step) {
+                    result[positions[i]] += values[i];
+                }
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                sum(c, offset + i, values, result, positions);
+            }
+        }
+    }
+
+    /**
+     * @param results
+     *            plain array wrappers, whose backing arrays are taken per entry rather than collected up front, so that
+     *            the batched sum does not allocate
+     */
+    static void sum(Cut cut, int offset, double[] values, IArrayWrapper[] results, int[][] positions, int count) {
+        if (cut.getSubCut() == null) {
+            int last = cut.getEnd() + offset;
+            for (int i = cut.getStart() + offset; i < last; i += cut.getStepSize()) {
+                double value = values[i];
+                for (int k = 0; k < count; k++) {
+                    results[k].toDoubleArray()[positions[k][i]] += value;
+                }
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                sum(c, offset + i, values, results, positions, count);
+            }
+        }
+    }
+
+    static void sum(Cut cut, int offset, float[] values, IArrayWrapper[] results, int[][] positions, int count) {
+        if (cut.getSubCut() == null) {
+            int last = cut.getEnd() + offset;
+            for (int i = cut.getStart() + offset; i < last; i += cut.getStepSize()) {
+                float value = values[i];
+                for (int k = 0; k < count; k++) {
+                    results[k].toFloatArray()[positions[k][i]] += value;
+                }
+            }
+        } else {
+            Cut c = cut.getSubCut();
+            for (int i = 0; i < cut.getLength(); i += cut.getSubtreeStepsize()) {
+                sum(c, offset + i, values, results, positions, count);
+            }
+        }
+    }
+}
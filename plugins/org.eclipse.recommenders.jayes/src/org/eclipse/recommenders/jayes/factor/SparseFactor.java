@@ -376,7 +376,12 @@ public class SparseFactor extends AbstractFactor implements Cloneable {
 
     @Override
     public SparseFactor clone() {
-        return (SparseFactor) super.clone();
+        SparseFactor clone = (SparseFactor) super.clone();
+        // the cache is stateful, so clones must not share it
+        if (divCache != null) {
+            clone.divCache = new DivisionCache(blockSize);
+        }
+        return clone;
     }
 
     /**
@@ -137,7 +137,12 @@ public class DoubleArrayWrapper implements IArrayWrapper {
 
     @Override
     public void arrayCopy(IArrayWrapper src, int srcOffset, int destOffset, int length) {
-        System.arraycopy(src.toDoubleArray(), srcOffset, array, destOffset, length);
+        if (src instanceof DoubleBufferArrayWrapper) {
+            // toDoubleArray() would copy all values first
+            ((DoubleBufferArrayWrapper) src).get(srcOffset, array, destOffset, length);
+        } else {
+            System.arraycopy(src.toDoubleArray(), srcOffset, array, destOffset, length);
+        }
     }
 
     @Override
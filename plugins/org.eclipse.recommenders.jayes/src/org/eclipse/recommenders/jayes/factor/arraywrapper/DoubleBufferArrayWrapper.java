@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.factor.arraywrapper;
+
+import java.nio.DoubleBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.eclipse.recommenders.internal.jayes.util.ArrayUtils;
+
+/**
+ * Wraps a {@link DoubleBuffer}, e.g., a view of a memory-mapped file, so that its contents can be used as factor values
+ * without copying them to the heap. Index 0 corresponds to the buffer's position at construction time.
+ * <p>
+ * If the buffer is read-only, modifying operations throw a {@link java.nio.ReadOnlyBufferException}. Clones are
+ * modifiable {@link DoubleArrayWrapper}s holding a copy of the values, so that, e.g., factors backed by a read-only
+ * buffer can still be cloned and worked on.
+ * <p>
+ * {@link #toDoubleArray()} and {@link #toFloatArray()} return copies of the values, as the buffer has no backing array
+ * on the heap; the dense kernels and {@link org.eclipse.recommenders.jayes.util.sharing.CanonicalArrayPool
+ * CanonicalArrayPool} therefore leave this wrapper to the generic, element-wise code paths.
+ */
+public class DoubleBufferArrayWrapper implements IArrayWrapper {
+
+    private DoubleBuffer buffer;
+
+    public DoubleBufferArrayWrapper(DoubleBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    @Override
+    public void setArray(double... array) {
+        buffer = DoubleBuffer.wrap(array);
+    }
+
+    @Override
+    public void setArray(float... array) {
+        setArray(ArrayUtils.toDoubleArray(array));
+    }
+
+    @Override
+    public double[] toDoubleArray() {
+        double[] array = new double[buffer.limit()];
+        DoubleBuffer duplicate = buffer.duplicate();
+        duplicate.rewind();
+        duplicate.get(array);
+        return array;
+    }
+
+    @Override
+    public float[] toFloatArray() {
+        return ArrayUtils.toFloatArray(toDoubleArray());
+    }
+
+    @Override
+    public void set(int index, double d) {
+        buffer.put(index, d);
+    }
+
+    @Override
+    public void set(int index, float d) {
+        set(index, (double) d);
+    }
+
+    @Override
+    public void mulAssign(int index, double d) {
+        buffer.put(index, buffer.get(index) * d);
+    }
+
+    @Override
+    public void mulAssign(int index, float d) {
+        mulAssign(index, (double) d);
+    }
+
+    @Override
+    public void mulAssign(int index, IArrayWrapper arg, int argIndex) {
+        mulAssign(index, arg.getDouble(argIndex));
+    }
+
+    @Override
+    public void addAssign(int index, double d) {
+        buffer.put(index, buffer.get(index) + d);
+    }
+
+    @Override
+    public void addAssign(int index, float d) {
+        addAssign(index, (double) d);
+    }
+
+    @Override
+    public void addAssign(int index, IArrayWrapper arg, int argIndex) {
+        addAssign(index, arg.getDouble(argIndex));
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return buffer.get(index);
+    }
+
+    @Override
+    public float getFloat(int index) {
+        return (float) buffer.get(index);
+    }
+
+    @Override
+    public int length() {
+        return buffer.limit();
+    }
+
+    @Override
+    public void copy(double... array) {
+        setArray(array.clone());
+    }
+
+    @Override
+    public void copy(float... array) {
+        setArray(ArrayUtils.toDoubleArray(array));
+    }
+
+    @Override
+    public void copy(IArrayWrapper array) {
+        copy(array.toDoubleArray());
+    }
+
+    @Override
+    public void fill(double d) {
+        for (int i = 0; i < buffer.limit(); i++) {
+            buffer.put(i, d);
+        }
+    }
+
+    @Override
+    public void fill(float d) {
+        fill((double) d);
+    }
+
+    @Override
+    public void arrayCopy(IArrayWrapper src, int srcOffset, int destOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            buffer.put(destOffset + i, src.getDouble(srcOffset + i));
+        }
+    }
+
+    /**
+     * copies values into the given array, like {@link System#arraycopy(Object, int, Object, int, int)}
+     */
+    public void get(int srcOffset, double[] dest, int destOffset, int length) {
+        DoubleBuffer duplicate = buffer.duplicate();
+        duplicate.position(srcOffset);
+        duplicate.get(dest, destOffset, length);
+    }
+
+    @Override
+    public void newArray(int capacity) {
+        buffer = DoubleBuffer.allocate(capacity);
+    }
+
+    @Override
+    public DoubleArrayWrapper clone() {
+        return new DoubleArrayWrapper(toDoubleArray());
+    }
+
+    @Override
+    public int sizeOfElement() {
+        return 8;
+    }
+
+    @Override
+    public Iterator<Number> iterator() {
+        return new Iterator<Number>() {
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < buffer.limit();
+            }
+
+            @Override
+            public Number next() {
+                if (index >= buffer.limit()) {
+                    throw new NoSuchElementException();
+                }
+
+                return buffer.get(index++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -16,8 +16,18 @@ public interface IArrayWrapper extends Cloneable, Iterable<Number> {
 
     void setArray(float... array);
 
+    /**
+     * @return the backing array if this is a {@link DoubleArrayWrapper}, otherwise a copy of the values. Only write
+     *         through the returned array after checking that this is exactly a {@link DoubleArrayWrapper}; writes to
+     *         a copy are lost.
+     */
     double[] toDoubleArray();
 
+    /**
+     * @return the backing array if this is a {@link FloatArrayWrapper}, otherwise a copy of the values. Only write
+     *         through the returned array after checking that this is exactly a {@link FloatArrayWrapper}; writes to a
+     *         copy are lost.
+     */
     float[] toFloatArray();
 
     void set(int index, double d);
@@ -10,23 +10,36 @@
  */
 package org.eclipse.recommenders.jayes.inference;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
 import org.eclipse.recommenders.jayes.factor.FactorFactory;
+import org.eclipse.recommenders.jayes.inference.jtree.InferenceSession;
 
 @SuppressWarnings("deprecation")
 public abstract class AbstractInferrer implements IBayesInferer {
 
-    protected Map<BayesNode, String> evidence = new HashMap<BayesNode, String>();
+    /**
+     * the index of the observed outcome by node id, or {@link InferenceSession#NOT_OBSERVED}
+     */
+    protected int[] evidence = new int[0];
+    private BayesNode[] evidenceNodes = new BayesNode[0];
+    // the evidence by outcome names, created on demand
+    private Map<BayesNode, String> evidenceMap;
 
     protected double[][] beliefs;
     protected boolean beliefsValid;
 
     protected FactorFactory factory = FactorFactory.defaultFactory();
 
+    protected IInferenceListener inferenceListener = IInferenceListener.NO_OP;
+
     public void setFactorFactory(FactorFactory factory) {
         this.factory = factory;
     }
@@ -35,15 +48,72 @@ public abstract class AbstractInferrer implements IBayesInferer {
         return factory;
     }
 
+    /**
+     * @param listener
+     *            the listener to report measurements of inference to, or <code>null</code> for none. Only junction tree
+     *            inference reports measurements.
+     */
+    public void setInferenceListener(IInferenceListener listener) {
+        this.inferenceListener = listener == null ? IInferenceListener.NO_OP : listener;
+    }
+
+    public IInferenceListener getInferenceListener() {
+        return inferenceListener;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the node has no outcome of the given name
+     */
     @Override
     public void addEvidence(final BayesNode node, final String outcome) {
-        evidence.put(node, outcome);
-        beliefsValid = false;
+        addEvidence(node, node.getOutcomeIndex(outcome));
+    }
+
+    /**
+     * Like {@link #addEvidence(BayesNode, String)}, but without looking up the outcome by its name.
+     */
+    public void addEvidence(final BayesNode node, final int outcomeIndex) {
+        if (outcomeIndex < 0 || outcomeIndex >= node.getOutcomeCount()) {
+            throw new IllegalArgumentException("Outcome index out of range for node " + node + ": " + outcomeIndex);
+        }
+        ensureEvidenceCapacity(node.getId() + 1);
+        evidenceNodes[node.getId()] = node;
+        evidence[node.getId()] = outcomeIndex;
+        evidenceChanged();
     }
 
     public void removeEvidence(BayesNode node) {
-        evidence.remove(node);
+        if (getObservedOutcome(node) != InferenceSession.NOT_OBSERVED) {
+            evidence[node.getId()] = InferenceSession.NOT_OBSERVED;
+            evidenceChanged();
+        }
+    }
+
+    public void clearEvidence() {
+        Arrays.fill(evidence, InferenceSession.NOT_OBSERVED);
+        evidenceChanged();
+    }
+
+    /**
+     * @return the index of the observed outcome of the node, or {@link InferenceSession#NOT_OBSERVED}
+     */
+    public int getObservedOutcome(final BayesNode node) {
+        return node.getId() < evidence.length ? evidence[node.getId()] : InferenceSession.NOT_OBSERVED;
+    }
+
+    private void ensureEvidenceCapacity(final int size) {
+        if (evidence.length < size) {
+            final int oldSize = evidence.length;
+            evidence = Arrays.copyOf(evidence, size);
+            Arrays.fill(evidence, oldSize, size, InferenceSession.NOT_OBSERVED);
+            evidenceNodes = Arrays.copyOf(evidenceNodes, size);
+        }
+    }
+
+    private void evidenceChanged() {
         beliefsValid = false;
+        evidenceMap = null;
     }
 
     @Override
@@ -55,24 +125,51 @@ public abstract class AbstractInferrer implements IBayesInferer {
         return beliefs[node.getId()];
     }
 
+    @Override
+    public Map<BayesNode, double[]> getBeliefs(final Collection<BayesNode> nodes) {
+        final Map<BayesNode, double[]> result = new LinkedHashMap<BayesNode, double[]>();
+        for (final BayesNode node : nodes) {
+            result.put(node, getBeliefs(node));
+        }
+        return result;
+    }
+
     @Override
     public void setNetwork(final BayesNet bayesNet) {
         beliefs = new double[bayesNet.getNodes().size()][];
         for (final BayesNode n : bayesNet.getNodes()) {
             beliefs[n.getId()] = new double[n.getOutcomeCount()];
         }
+        ensureEvidenceCapacity(bayesNet.getNodes().size());
         this.factory.setReferenceNetwork(bayesNet);
     }
 
+    /**
+     * Replaces all evidence by the given observations. The map is copied.
+     */
     @Override
     public void setEvidence(final Map<BayesNode, String> evidence) {
-        this.evidence = evidence;
-        beliefsValid = false;
+        clearEvidence();
+        for (final Map.Entry<BayesNode, String> observation : evidence.entrySet()) {
+            addEvidence(observation.getKey(), observation.getValue());
+        }
     }
 
+    /**
+     * @return an unmodifiable snapshot of the evidence, by outcome names
+     */
     @Override
     public Map<BayesNode, String> getEvidence() {
-        return evidence;
+        if (evidenceMap == null) {
+            final Map<BayesNode, String> map = new HashMap<BayesNode, String>();
+            for (int nodeId = 0; nodeId < evidence.length; nodeId++) {
+                if (evidence[nodeId] != InferenceSession.NOT_OBSERVED) {
+                    map.put(evidenceNodes[nodeId], evidenceNodes[nodeId].getOutcomeName(evidence[nodeId]));
+                }
+            }
+            evidenceMap = Collections.unmodifiableMap(map);
+        }
+        return evidenceMap;
     }
 
     protected abstract void updateBeliefs();
@@ -10,6 +10,7 @@
  */
 package org.eclipse.recommenders.jayes.inference;
 
+import java.util.Collection;
 import java.util.Map;
 
 import org.eclipse.recommenders.jayes.BayesNet;
@@ -26,4 +27,12 @@ public interface IBayesInferrer {
     Map<BayesNode, String> getEvidence();
 
     double[] getBeliefs(BayesNode node);
+
+    /**
+     * Computes the beliefs of several nodes at once. Implementations may use this to share work between the nodes,
+     * e.g. by computing the marginals of all nodes contained in the same factor in one pass over that factor.
+     *
+     * @return the beliefs, in the iteration order of <code>nodes</code>
+     */
+    Map<BayesNode, double[]> getBeliefs(Collection<BayesNode> nodes);
 }
@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+
+/**
+ * Receives measurements of junction tree inference, e.g., to find out which networks inference time goes to. Listeners
+ * are called on the thread doing the inference and should return quickly.
+ *
+ * @see AbstractInferrer#setInferenceListener(IInferenceListener)
+ * @see org.eclipse.recommenders.jayes.inference.jtree.InferenceSession#setInferenceListener(IInferenceListener)
+ * @see InferenceMetrics
+ */
+public interface IInferenceListener {
+
+    /**
+     * ignores all measurements; the default listener
+     */
+    IInferenceListener NO_OP = new IInferenceListener() {
+
+        @Override
+        public void networkCompiled(BayesNet net, int clusterCount, long largestClusterSize, long nanos) {
+        }
+
+        @Override
+        public void beliefsUpdated(BayesNet net, int messagePasses, int skippedMessagePasses, long nanos) {
+        }
+
+        @Override
+        public void numericalInstabilityDetected(BayesNet net, BayesNode node) {
+        }
+    };
+
+    /**
+     * @param largestClusterSize
+     *            the number of entries of the largest cluster potential
+     */
+    void networkCompiled(BayesNet net, int clusterCount, long largestClusterSize, long nanos);
+
+    /**
+     * Called whenever evidence has been propagated to answer a query. Queries answered without propagation, e.g., from
+     * a belief cache, are not reported.
+     *
+     * @param messagePasses
+     *            the number of messages passed between clusters
+     * @param skippedMessagePasses
+     *            the number of messages not passed, because the clusters on the sending side were not affected by the
+     *            new evidence, or because all variables of the sepset are observed
+     */
+    void beliefsUpdated(BayesNet net, int messagePasses, int skippedMessagePasses, long nanos);
+
+    /**
+     * the beliefs of the node could not be computed because of numerical underflow. Also reported if the session
+     * recovers by switching to log scale, see
+     * {@link org.eclipse.recommenders.jayes.inference.jtree.InferenceSession#setAdaptiveLogScale(boolean)}.
+     */
+    void numericalInstabilityDetected(BayesNet net, BayesNode node);
+}
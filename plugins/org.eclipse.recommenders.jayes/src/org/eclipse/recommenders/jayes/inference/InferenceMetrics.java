@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+
+/**
+ * An {@link IInferenceListener} that aggregates the measurements per network. One instance can be shared by all
+ * inferrers and sessions of a process; it is thread-safe and does not keep networks from being garbage collected.
+ */
+public class InferenceMetrics implements IInferenceListener {
+
+    /**
+     * the number of buckets of the latency histograms; the last bucket holds all latencies of about 16 seconds or more
+     */
+    public static final int LATENCY_BUCKETS = 25;
+
+    private static final long NANOS_PER_MICRO = 1000;
+
+    /**
+     * The measurements of a single network.
+     */
+    public static final class NetworkMetrics {
+
+        private final String name;
+
+        private long compilationNanos;
+        private int clusterCount;
+        private long largestClusterSize;
+
+        private long updateCount;
+        private long updateNanos;
+        private long maxUpdateNanos;
+        private long messagePasses;
+        private long skippedMessagePasses;
+        private final long[] latencyHistogram = new long[LATENCY_BUCKETS];
+
+        private long numericalInstabilities;
+
+        private NetworkMetrics(String name) {
+            this.name = name;
+        }
+
+        public String getNetworkName() {
+            return name;
+        }
+
+        /**
+         * @return the time the last compilation of the network took
+         */
+        public synchronized long getCompilationNanos() {
+            return compilationNanos;
+        }
+
+        public synchronized int getClusterCount() {
+            return clusterCount;
+        }
+
+        /**
+         * @return the number of entries of the largest cluster potential
+         */
+        public synchronized long getLargestClusterSize() {
+            return largestClusterSize;
+        }
+
+        /**
+         * @return the number of times evidence has been propagated
+         */
+        public synchronized long getUpdateCount() {
+            return updateCount;
+        }
+
+        public synchronized long getTotalUpdateNanos() {
+            return updateNanos;
+        }
+
+        public synchronized long getMaxUpdateNanos() {
+            return maxUpdateNanos;
+        }
+
+        public synchronized long getMessagePasses() {
+            return messagePasses;
+        }
+
+        public synchronized long getSkippedMessagePasses() {
+            return skippedMessagePasses;
+        }
+
+        /**
+         * @return the number of updates by latency: bucket 0 counts updates that took less than 2 microseconds, bucket
+         *         <code>i</code> those that took at least 2<sup>i</sup> and less than 2<sup>i+1</sup> microseconds
+         */
+        public synchronized long[] getLatencyHistogram() {
+            return latencyHistogram.clone();
+        }
+
+        public synchronized long getNumericalInstabilities() {
+            return numericalInstabilities;
+        }
+
+        private synchronized void compiled(int clusterCount, long largestClusterSize, long nanos) {
+            this.clusterCount = clusterCount;
+            this.largestClusterSize = largestClusterSize;
+            this.compilationNanos = nanos;
+        }
+
+        private synchronized void updated(int messagePasses, int skippedMessagePasses, long nanos) {
+            updateCount++;
+            updateNanos += nanos;
+            maxUpdateNanos = Math.max(maxUpdateNanos, nanos);
+            this.messagePasses += messagePasses;
+            this.skippedMessagePasses += skippedMessagePasses;
+            latencyHistogram[bucketOf(nanos)]++;
+        }
+
+        private synchronized void numericalInstabilityDetected() {
+            numericalInstabilities++;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%s: %d clusters (largest %d), compiled in %d us, %d updates (mean %d us, max %d us),"
+                    + " %d message passes, %d skipped, %d numerical instabilities", name, clusterCount,
+                    largestClusterSize, compilationNanos / NANOS_PER_MICRO, updateCount,
+                    updateCount == 0 ? 0 : updateNanos / updateCount / NANOS_PER_MICRO, maxUpdateNanos
+                            / NANOS_PER_MICRO, messagePasses, skippedMessagePasses, numericalInstabilities);
+        }
+    }
+
+    private final Map<BayesNet, NetworkMetrics> metrics = new WeakHashMap<BayesNet, NetworkMetrics>();
+
+    static int bucketOf(long nanos) {
+        long micros = nanos / NANOS_PER_MICRO;
+        int bucket = micros < 2 ? 0 : 63 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, LATENCY_BUCKETS - 1);
+    }
+
+    private synchronized NetworkMetrics metricsOf(BayesNet net) {
+        NetworkMetrics networkMetrics = metrics.get(net);
+        if (networkMetrics == null) {
+            networkMetrics = new NetworkMetrics(net.getName());
+            metrics.put(net, networkMetrics);
+        }
+        return networkMetrics;
+    }
+
+    @Override
+    public void networkCompiled(BayesNet net, int clusterCount, long largestClusterSize, long nanos) {
+        metricsOf(net).compiled(clusterCount, largestClusterSize, nanos);
+    }
+
+    @Override
+    public void beliefsUpdated(BayesNet net, int messagePasses, int skippedMessagePasses, long nanos) {
+        metricsOf(net).updated(messagePasses, skippedMessagePasses, nanos);
+    }
+
+    @Override
+    public void numericalInstabilityDetected(BayesNet net, BayesNode node) {
+        metricsOf(net).numericalInstabilityDetected();
+    }
+
+    /**
+     * @return the measurements of the network, or <code>null</code> if nothing has been measured for it
+     */
+    public synchronized NetworkMetrics getMetrics(BayesNet net) {
+        return metrics.get(net);
+    }
+
+    /**
+     * @return the measurements of all networks that are still in use
+     */
+    public synchronized List<NetworkMetrics> getAllMetrics() {
+        return new ArrayList<NetworkMetrics>(metrics.values());
+    }
+
+    public synchronized void reset() {
+        metrics.clear();
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeBuilder;
+import org.eclipse.recommenders.jayes.util.triangulation.MinFillIn;
+
+/**
+ * Creates inferrers that stay within a memory budget. The memory needed by the junction tree of a network grows
+ * exponentially with the size of its largest cliques, so while the network is triangulated, the size of its junction
+ * tree is estimated (see {@link JunctionTreeBuilder#estimateClusterTableSize(BayesNet)}) before any factors are
+ * allocated. If the
+ * junction tree would exceed the budget, an approximate inferrer whose memory grows only with the size of the network
+ * is used instead, or the network is rejected, depending on the {@link Fallback}.
+ */
+public class InferrerFactory {
+
+    public enum Fallback {
+        LOOPY_BELIEF_PROPAGATION,
+        LIKELIHOOD_WEIGHTED_SAMPLING,
+        /**
+         * throw a {@link ModelTooLargeException}
+         */
+        NONE
+    }
+
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+    private final long memoryBudget;
+    private JunctionTreeBuilder junctionTreeBuilder = JunctionTreeBuilder.forHeuristic(new MinFillIn());
+    private Fallback fallback = Fallback.LOOPY_BELIEF_PROPAGATION;
+
+    public static InferrerFactory withMemoryBudget(long bytes) {
+        return new InferrerFactory(bytes);
+    }
+
+    public static InferrerFactory defaultFactory() {
+        return withMemoryBudget(DEFAULT_MEMORY_BUDGET);
+    }
+
+    protected InferrerFactory(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void setJunctionTreeBuilder(JunctionTreeBuilder junctionTreeBuilder) {
+        this.junctionTreeBuilder = junctionTreeBuilder;
+    }
+
+    public void setFallback(Fallback fallback) {
+        this.fallback = fallback;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return an upper bound of the memory needed by the junction tree of the network, in bytes
+     */
+    public long estimateMemory(BayesNet net) {
+        return junctionTreeBuilder.estimateMemory(net);
+    }
+
+    /**
+     * Use this to guard building a junction tree directly, e.g., with
+     * {@link org.eclipse.recommenders.jayes.inference.jtree.CompiledJunctionTree#compile(BayesNet, JunctionTreeBuilder, org.eclipse.recommenders.jayes.factor.FactorFactory)
+     * CompiledJunctionTree.compile}. This triangulates the network just for the check; passing a builder
+     * {@link JunctionTreeBuilder#withMemoryBudget(long) with a memory budget} to the compilation avoids that.
+     *
+     * @throws ModelTooLargeException
+     *             if the junction tree of the network would exceed the memory budget
+     */
+    public void checkMemoryBudget(BayesNet net) {
+        long estimatedMemory = estimateMemory(net);
+        if (estimatedMemory > memoryBudget) {
+            throw new ModelTooLargeException(net, estimatedMemory, memoryBudget);
+        }
+    }
+
+    /**
+     * Creates an inferrer for the network and sets the network. This is a {@link JunctionTreeAlgorithm} if the
+     * network's junction tree fits into the memory budget, and an inferrer chosen by the fallback otherwise.
+     *
+     * @throws ModelTooLargeException
+     *             if the junction tree exceeds the memory budget and the fallback is {@link Fallback#NONE}
+     */
+    public IBayesInferrer createInferrer(BayesNet net) {
+        JunctionTreeAlgorithm junctionTree = new JunctionTreeAlgorithm();
+        // checks the budget while building the junction tree, so that the network is triangulated only once
+        junctionTree.setJunctionTreeBuilder(junctionTreeBuilder.withMemoryBudget(memoryBudget));
+        try {
+            junctionTree.setNetwork(net);
+            return junctionTree;
+        } catch (ModelTooLargeException e) {
+            IBayesInferrer inferrer;
+            switch (fallback) {
+            case LOOPY_BELIEF_PROPAGATION:
+                inferrer = new LoopyBeliefPropagation();
+                break;
+            case LIKELIHOOD_WEIGHTED_SAMPLING:
+                inferrer = new ParallelLikelihoodWeightedSampling();
+                break;
+            default:
+                throw e;
+            }
+            inferrer.setNetwork(net);
+            return inferrer;
+        }
+    }
+}
@@ -35,7 +35,7 @@ public class LikelihoodWeightedSampling extends AbstractInferer {
 
     @Override
     protected void updateBeliefs() {
-        sampler.setEvidence(evidence);
+        sampler.setEvidence(getEvidence());
         for (int i = 0; i < sampleCount; i++) {
             Map<BayesNode, String> sample = sampler.sample();
             double weight = computeEvidenceProbability(sample);
@@ -57,7 +57,7 @@ public class LikelihoodWeightedSampling extends AbstractInferer {
 
     private double computeEvidenceProbability(Map<BayesNode, String> sample) {
         double factor = 1.0;
-        for (Entry<BayesNode, String> entry : evidence.entrySet()) {
+        for (Entry<BayesNode, String> entry : getEvidence().entrySet()) {
             BayesNode n = entry.getKey();
             factor *= BayesNodeUtil.getSubCpt(n, sample)[n.getOutcomeIndex(entry.getValue())];
         }
@@ -0,0 +1,525 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.util.MathUtils;
+import org.eclipse.recommenders.jayes.util.NumericalInstabilityException;
+
+/**
+ * Approximate inference by loopy belief propagation on the factor graph of the network, which has one factor per node
+ * (its CPT) connected to the node and its parents. An update of a factor costs time linear in the size of its CPT, so
+ * unlike the junction tree algorithm the cost does not depend on the size of the cliques of a triangulation. On
+ * networks without loops, the beliefs are exact.
+ * <p>
+ * Messages are passed until no message changes by more than {@link #setThreshold(double) the threshold} or until
+ * {@link #setMaxIterations(int) the iteration limit} is reached. With the {@link Schedule#RESIDUAL residual} schedule,
+ * the factor whose incoming messages changed the most since its last update is updated next; with the
+ * {@link Schedule#SYNCHRONOUS synchronous} schedule, all factors are updated at once, optionally in parallel. To help
+ * convergence on networks with strong loops, messages can be {@link #setDamping(double) damped}.
+ */
+public class LoopyBeliefPropagation extends AbstractInferrer {
+
+    public enum Schedule {
+        /**
+         * updates one factor at a time, the one with the largest accumulated change of its incoming messages first.
+         * Usually converges in fewer updates.
+         */
+        RESIDUAL,
+        /**
+         * updates all factors in each iteration, based on the messages of the previous iteration. The factors can be
+         * updated in parallel.
+         */
+        SYNCHRONOUS
+    }
+
+    private static final double DEFAULT_THRESHOLD = 1e-6;
+    private static final int DEFAULT_MAX_ITERATIONS = 100;
+    // the number of factors below which synchronous updates are not split any further
+    private static final int FACTORS_PER_TASK = 16;
+
+    private Schedule schedule = Schedule.RESIDUAL;
+    private double damping = 0.0;
+    private double threshold = DEFAULT_THRESHOLD;
+    private int maxIterations = DEFAULT_MAX_ITERATIONS;
+    private ForkJoinPool pool;
+    private boolean converged;
+
+    private double[][] cpts;
+    private int[] outcomeCounts;
+    // the edges of factor f are firstEdge[f] .. firstEdge[f + 1] - 1, connecting it to the factor's parents and then to
+    // the node itself
+    private int[] firstEdge;
+    private int[] edgeFactor;
+    private int[] edgeVariable;
+    // the stride of the edge's variable in the factor's CPT
+    private int[] edgeStride;
+    // the start of the edge's messages in toVariable, toFactor and pending
+    private int[] messageOffset;
+    private int[][] variableEdges;
+
+    private double[] toVariable;
+    private double[] toFactor;
+    private double[] pending;
+    // per variable and outcome, the product of all non-zero incoming messages (scaled to a maximum of 1) and the number
+    // of zero incoming messages, so that the message to a factor can be computed without iterating the other factors
+    private int[] variableOffset;
+    private double[] products;
+    private int[] zeros;
+
+    // per factor, the edges to unobserved variables and the CPT offset of the observed outcomes
+    private int[][] freeEdges;
+    private int[] freeEdgeCounts;
+    private int[] baseOffsets;
+    private int[] observed;
+    private int[][] counters;
+    private double[][] prefixes;
+
+    // an indexed max-heap of the factors, ordered by the change of their incoming messages since their last update
+    private double[] priorities;
+    private int[] heap;
+    private int[] heapPositions;
+
+    @Override
+    public void setNetwork(BayesNet net) {
+        super.setNetwork(net);
+        List<BayesNode> nodes = net.getNodes();
+        int nodeCount = nodes.size();
+        cpts = new double[nodeCount][];
+        outcomeCounts = new int[nodeCount];
+        firstEdge = new int[nodeCount + 1];
+        variableOffset = new int[nodeCount];
+        int[] degrees = new int[nodeCount];
+        int edgeCount = 0;
+        int outcomeCount = 0;
+        for (BayesNode node : nodes) {
+            int id = node.getId();
+            cpts[id] = node.getProbabilities();
+            outcomeCounts[id] = node.getOutcomeCount();
+            variableOffset[id] = outcomeCount;
+            outcomeCount += node.getOutcomeCount();
+            firstEdge[id] = edgeCount;
+            edgeCount += node.getParents().size() + 1;
+        }
+        firstEdge[nodeCount] = edgeCount;
+
+        edgeFactor = new int[edgeCount];
+        edgeVariable = new int[edgeCount];
+        edgeStride = new int[edgeCount];
+        messageOffset = new int[edgeCount];
+        int messageCount = 0;
+        for (BayesNode node : nodes) {
+            int id = node.getId();
+            int[] dimensions = node.getFactor().getDimensions();
+            for (int i = 0; i < dimensions.length; i++) {
+                int edge = firstEdge[id] + i;
+                int variable = i < node.getParents().size() ? node.getParents().get(i).getId() : id;
+                edgeFactor[edge] = id;
+                edgeVariable[edge] = variable;
+                edgeStride[edge] = MathUtils.productOfRange(dimensions, i + 1, dimensions.length);
+                messageOffset[edge] = messageCount;
+                messageCount += outcomeCounts[variable];
+                degrees[variable]++;
+            }
+        }
+        variableEdges = new int[nodeCount][];
+        for (int variable = 0; variable < nodeCount; variable++) {
+            variableEdges[variable] = new int[degrees[variable]];
+            degrees[variable] = 0;
+        }
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int variable = edgeVariable[edge];
+            variableEdges[variable][degrees[variable]++] = edge;
+        }
+
+        toVariable = new double[messageCount];
+        toFactor = new double[messageCount];
+        pending = new double[messageCount];
+        products = new double[outcomeCount];
+        zeros = new int[outcomeCount];
+
+        freeEdges = new int[nodeCount][];
+        freeEdgeCounts = new int[nodeCount];
+        baseOffsets = new int[nodeCount];
+        observed = new int[nodeCount];
+        counters = new int[nodeCount][];
+        prefixes = new double[nodeCount][];
+        for (int factor = 0; factor < nodeCount; factor++) {
+            int scope = firstEdge[factor + 1] - firstEdge[factor];
+            freeEdges[factor] = new int[scope];
+            counters[factor] = new int[scope];
+            prefixes[factor] = new double[scope + 1];
+        }
+        priorities = new double[nodeCount];
+        heap = new int[nodeCount];
+        heapPositions = new int[nodeCount];
+    }
+
+    @Override
+    protected void updateBeliefs() {
+        resetMessages();
+        if (schedule == Schedule.SYNCHRONOUS) {
+            propagateSynchronously();
+        } else {
+            propagateByResidual();
+        }
+        for (int variable = 0; variable < beliefs.length; variable++) {
+            double[] belief = beliefs[variable];
+            if (observed[variable] >= 0) {
+                Arrays.fill(belief, 0.0);
+                belief[observed[variable]] = 1.0;
+                continue;
+            }
+            int offset = variableOffset[variable];
+            for (int outcome = 0; outcome < belief.length; outcome++) {
+                belief[outcome] = zeros[offset + outcome] > 0 ? 0.0 : products[offset + outcome];
+            }
+            normalize(belief, 0, belief.length);
+        }
+    }
+
+    private void resetMessages() {
+        System.arraycopy(evidence, 0, observed, 0, observed.length);
+        for (int factor = 0; factor < cpts.length; factor++) {
+            int free = 0;
+            int base = 0;
+            for (int edge = firstEdge[factor]; edge < firstEdge[factor + 1]; edge++) {
+                int outcome = observed[edgeVariable[edge]];
+                if (outcome >= 0) {
+                    base += outcome * edgeStride[edge];
+                } else {
+                    freeEdges[factor][free++] = edge;
+                }
+            }
+            freeEdgeCounts[factor] = free;
+            baseOffsets[factor] = base;
+        }
+        for (int edge = 0; edge < edgeVariable.length; edge++) {
+            int count = outcomeCounts[edgeVariable[edge]];
+            Arrays.fill(toVariable, messageOffset[edge], messageOffset[edge] + count, 1.0 / count);
+        }
+        Arrays.fill(products, 1.0);
+        Arrays.fill(zeros, 0);
+        converged = false;
+    }
+
+    private void propagateByResidual() {
+        int updates = 0;
+        for (int factor = 0; factor < cpts.length; factor++) {
+            if (freeEdgeCounts[factor] > 0) {
+                updates += maxIterations;
+                priorities[factor] = Double.POSITIVE_INFINITY;
+            } else {
+                priorities[factor] = 0.0;
+            }
+            heap[factor] = factor;
+            heapPositions[factor] = factor;
+        }
+        for (int i = heap.length / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+        while (heap.length > 0 && priorities[heap[0]] > threshold) {
+            if (updates-- == 0) {
+                return;
+            }
+            int factor = heap[0];
+            priorities[factor] = 0.0;
+            siftDown(0);
+            computeMessages(factor);
+            for (int i = 0; i < freeEdgeCounts[factor]; i++) {
+                int edge = freeEdges[factor][i];
+                double change = commitMessage(edge);
+                for (int other : variableEdges[edgeVariable[edge]]) {
+                    if (other != edge) {
+                        increasePriority(edgeFactor[other], change);
+                    }
+                }
+            }
+        }
+        converged = true;
+    }
+
+    private void propagateSynchronously() {
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            UpdateTask task = new UpdateTask(0, cpts.length);
+            double residual = pool != null && cpts.length > FACTORS_PER_TASK ? pool.invoke(task) : task.compute();
+            for (int edge = 0; edge < edgeVariable.length; edge++) {
+                if (observed[edgeVariable[edge]] < 0) {
+                    commitMessage(edge);
+                }
+            }
+            if (residual <= threshold) {
+                converged = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * computes the pending messages from the factor to its unobserved variables
+     *
+     * @return the largest difference between a pending and the current message
+     */
+    private double computeMessages(int factor) {
+        int[] free = freeEdges[factor];
+        int freeCount = freeEdgeCounts[factor];
+        for (int i = 0; i < freeCount; i++) {
+            computeMessageToFactor(free[i]);
+            int offset = messageOffset[free[i]];
+            Arrays.fill(pending, offset, offset + outcomeCounts[edgeVariable[free[i]]], 0.0);
+        }
+
+        // sum over the unobserved dimensions of the CPT, all other dimensions are fixed to the observed outcome. For
+        // each entry, the message to a variable gets the entry times the incoming messages of all other variables,
+        // which are the products of the incoming messages before and after the variable
+        double[] cpt = cpts[factor];
+        int[] counter = counters[factor];
+        double[] prefix = prefixes[factor];
+        Arrays.fill(counter, 0);
+        prefix[0] = 1.0;
+        int offset = baseOffsets[factor];
+        while (freeCount > 0) {
+            double value = cpt[offset];
+            if (value != 0.0) {
+                for (int i = 0; i < freeCount; i++) {
+                    prefix[i + 1] = prefix[i] * toFactor[messageOffset[free[i]] + counter[i]];
+                }
+                double suffix = value;
+                for (int i = freeCount - 1; i >= 0; i--) {
+                    int message = messageOffset[free[i]] + counter[i];
+                    pending[message] += prefix[i] * suffix;
+                    suffix *= toFactor[message];
+                }
+            }
+            int i = freeCount - 1;
+            while (i >= 0 && ++counter[i] == outcomeCounts[edgeVariable[free[i]]]) {
+                offset -= (counter[i] - 1) * edgeStride[free[i]];
+                counter[i] = 0;
+                i--;
+            }
+            if (i < 0) {
+                break;
+            }
+            offset += edgeStride[free[i]];
+        }
+
+        double residual = 0.0;
+        for (int i = 0; i < freeCount; i++) {
+            int start = messageOffset[free[i]];
+            int end = start + outcomeCounts[edgeVariable[free[i]]];
+            normalize(pending, start, end);
+            for (int message = start; message < end; message++) {
+                residual = Math.max(residual, Math.abs(pending[message] - toVariable[message]));
+            }
+        }
+        return residual;
+    }
+
+    /**
+     * the message from a variable to a factor is the product of the messages from all other factors to the variable
+     */
+    private void computeMessageToFactor(int edge) {
+        int variable = edgeVariable[edge];
+        int start = messageOffset[edge];
+        int count = outcomeCounts[variable];
+        int offset = variableOffset[variable];
+        double sum = 0.0;
+        for (int outcome = 0; outcome < count; outcome++) {
+            double own = toVariable[start + outcome];
+            if (own == 0.0) {
+                toFactor[start + outcome] = zeros[offset + outcome] > 1 ? 0.0 : products[offset + outcome];
+            } else {
+                toFactor[start + outcome] = zeros[offset + outcome] > 0 ? 0.0 : products[offset + outcome] / own;
+            }
+            sum += toFactor[start + outcome];
+        }
+        // a zero message means contradicting evidence, which shows when normalizing the messages to the variables
+        if (sum > 0.0) {
+            for (int outcome = 0; outcome < count; outcome++) {
+                toFactor[start + outcome] /= sum;
+            }
+        }
+    }
+
+    /**
+     * replaces the message from the factor to the variable by the (damped) pending message
+     *
+     * @return the largest change of the message
+     */
+    private double commitMessage(int edge) {
+        int variable = edgeVariable[edge];
+        int start = messageOffset[edge];
+        int offset = variableOffset[variable];
+        double change = 0.0;
+        double max = 0.0;
+        for (int outcome = 0; outcome < outcomeCounts[variable]; outcome++) {
+            double old = toVariable[start + outcome];
+            double updated = (1.0 - damping) * pending[start + outcome] + damping * old;
+            change = Math.max(change, Math.abs(updated - old));
+            toVariable[start + outcome] = updated;
+            if (old == 0.0) {
+                zeros[offset + outcome]--;
+            } else {
+                products[offset + outcome] /= old;
+            }
+            if (updated == 0.0) {
+                zeros[offset + outcome]++;
+            } else {
+                products[offset + outcome] *= updated;
+            }
+            max = Math.max(max, products[offset + outcome]);
+        }
+        // keep the products from under- or overflowing, only their ratios matter
+        if (max > 0.0) {
+            for (int outcome = 0; outcome < outcomeCounts[variable]; outcome++) {
+                products[offset + outcome] /= max;
+            }
+        }
+        return change;
+    }
+
+    private void normalize(double[] vector, int start, int end) {
+        double sum = 0.0;
+        for (int i = start; i < end; i++) {
+            sum += vector[i];
+        }
+        if (sum == 0.0) {
+            throw new NumericalInstabilityException("Numerical instability detected for evidence: " + getEvidence());
+        }
+        for (int i = start; i < end; i++) {
+            vector[i] /= sum;
+        }
+    }
+
+    private void increasePriority(int factor, double change) {
+        if (freeEdgeCounts[factor] == 0) {
+            return;
+        }
+        priorities[factor] += change;
+        int index = heapPositions[factor];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (priorities[heap[parent]] >= priorities[factor]) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int largest = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < heap.length; child++) {
+                if (priorities[heap[child]] > priorities[heap[largest]]) {
+                    largest = child;
+                }
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int factor = heap[i];
+        heap[i] = heap[j];
+        heap[j] = factor;
+        heapPositions[heap[i]] = i;
+        heapPositions[heap[j]] = j;
+    }
+
+    public void setSchedule(Schedule schedule) {
+        this.schedule = schedule;
+        beliefsValid = false;
+    }
+
+    /**
+     * Sets the weight of the old message when a message is updated. 0 (the default) means no damping.
+     */
+    public void setDamping(double damping) {
+        if (damping < 0.0 || damping >= 1.0) {
+            throw new IllegalArgumentException("damping must be in [0, 1)");
+        }
+        this.damping = damping;
+        beliefsValid = false;
+    }
+
+    /**
+     * Sets the largest change of a message at which the messages are considered to have converged.
+     */
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+        beliefsValid = false;
+    }
+
+    /**
+     * Sets the maximum number of iterations. With the residual schedule, this limits the number of updates to this
+     * many per factor.
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+        beliefsValid = false;
+    }
+
+    /**
+     * Sets the pool to update the factors in when using the synchronous schedule. By default, the factors are updated
+     * by the calling thread.
+     */
+    public void setForkJoinPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return whether the messages converged before the iteration limit was reached when the beliefs were last
+     *         computed
+     */
+    public boolean hasConverged() {
+        return converged;
+    }
+
+    private final class UpdateTask extends RecursiveTask<Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        private UpdateTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= FACTORS_PER_TASK) {
+                double residual = 0.0;
+                for (int factor = from; factor < to; factor++) {
+                    residual = Math.max(residual, computeMessages(factor));
+                }
+                return residual;
+            }
+            int middle = (from + to) >>> 1;
+            UpdateTask left = new UpdateTask(from, middle);
+            left.fork();
+            double residual = new UpdateTask(middle, to).compute();
+            return Math.max(residual, left.join());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+
+/**
+ * Thrown if exact inference in a network would need more memory than allowed.
+ *
+ * @see InferrerFactory
+ */
+public class ModelTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long estimatedMemory;
+    private final long memoryBudget;
+
+    public ModelTooLargeException(String message, long estimatedMemory, long memoryBudget) {
+        super(message);
+        this.estimatedMemory = estimatedMemory;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public ModelTooLargeException(BayesNet net, long estimatedMemory, long memoryBudget) {
+        this("The junction tree of network " + net.getName() + " would need up to " + estimatedMemory
+                + " bytes, more than the budget of " + memoryBudget + " bytes", estimatedMemory, memoryBudget);
+    }
+
+    /**
+     * @return the estimated memory needed by the junction tree of the network, in bytes. If the estimation stopped as
+     *         soon as the budget was exceeded, this is only the part estimated until then.
+     */
+    public long getEstimatedMemory() {
+        return estimatedMemory;
+    }
+
+    /**
+     * @return the memory budget that has been exceeded, in bytes
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.util.MathUtils;
+
+/**
+ * Likelihood weighted sampling that draws the samples in parallel. Like {@link LikelihoodWeightedSampling}, but
+ * samples are <code>int[]</code>s of outcome indices and CPT rows are looked up by precomputed strides, so that drawing
+ * a sample allocates nothing and leaves the network untouched.
+ * <p>
+ * The samples are split into fixed-size batches, each of which is drawn from its own random number generator. The
+ * generators are seeded from a single stream (see {@link #seed(long)}), so the beliefs only depend on the seed and the
+ * sample count, not on the number of threads.
+ */
+public class ParallelLikelihoodWeightedSampling extends AbstractInferrer {
+
+    private static final int DEFAULT_SAMPLE_COUNT = 200;
+    private static final int SAMPLES_PER_BATCH = 1024;
+    // the increment of SplitMix64, which spreads the seeds of consecutive batches
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private int sampleCount = DEFAULT_SAMPLE_COUNT;
+    private final Random seeds = new Random();
+    private ForkJoinPool pool;
+
+    private int[] topologicalOrder;
+    private int[][] parents;
+    // the offset of a node's distribution in its CPT is the sum of its parents' outcomes times these strides
+    private int[][] parentStrides;
+    private double[][] cpts;
+    // the beliefs of all nodes in a single array, starting at these offsets
+    private int[] beliefOffsets;
+    private int beliefCount;
+
+    @Override
+    public void setNetwork(BayesNet net) {
+        super.setNetwork(net);
+        List<BayesNode> nodes = net.getNodes();
+        parents = new int[nodes.size()][];
+        parentStrides = new int[nodes.size()][];
+        cpts = new double[nodes.size()][];
+        beliefOffsets = new int[nodes.size()];
+        beliefCount = 0;
+        for (BayesNode node : nodes) {
+            int id = node.getId();
+            int[] dimensions = node.getFactor().getDimensions();
+            parents[id] = new int[node.getParents().size()];
+            parentStrides[id] = new int[parents[id].length];
+            for (int i = 0; i < parents[id].length; i++) {
+                parents[id][i] = node.getParents().get(i).getId();
+                parentStrides[id][i] = MathUtils.productOfRange(dimensions, i + 1, dimensions.length);
+            }
+            cpts[id] = node.getProbabilities();
+            beliefOffsets[id] = beliefCount;
+            beliefCount += node.getOutcomeCount();
+        }
+        topologicalOrder = topsort(nodes);
+    }
+
+    private int[] topsort(List<BayesNode> nodes) {
+        int[] order = new int[nodes.size()];
+        boolean[] visited = new boolean[nodes.size()];
+        int finished = 0;
+        for (BayesNode node : nodes) {
+            finished = depthFirstSearch(node, visited, order, finished);
+        }
+        // nodes finish after their children
+        for (int i = 0; i < order.length / 2; i++) {
+            int tmp = order[i];
+            order[i] = order[order.length - 1 - i];
+            order[order.length - 1 - i] = tmp;
+        }
+        return order;
+    }
+
+    private int depthFirstSearch(BayesNode node, boolean[] visited, int[] finishOrder, int finished) {
+        if (visited[node.getId()]) {
+            return finished;
+        }
+        visited[node.getId()] = true;
+        for (BayesNode child : node.getChildren()) {
+            finished = depthFirstSearch(child, visited, finishOrder, finished);
+        }
+        finishOrder[finished] = node.getId();
+        return finished + 1;
+    }
+
+    @Override
+    protected void updateBeliefs() {
+        int[] observed = new int[cpts.length];
+        System.arraycopy(evidence, 0, observed, 0, observed.length);
+
+        int batchCount = (sampleCount + SAMPLES_PER_BATCH - 1) / SAMPLES_PER_BATCH;
+        SamplingTask task = new SamplingTask(observed, seeds.nextLong(), sampleCount, 0, batchCount);
+        // a single batch is not worth a context switch
+        double[] weights = batchCount > 1 ? getPool().invoke(task) : task.compute();
+
+        for (int node = 0; node < beliefs.length; node++) {
+            System.arraycopy(weights, beliefOffsets[node], beliefs[node], 0, beliefs[node].length);
+            beliefs[node] = MathUtils.normalize(beliefs[node]);
+        }
+    }
+
+    private double[] sampleBatch(int[] observed, long seed, int samples) {
+        Random random = new Random(seed);
+        int[] sample = new int[cpts.length];
+        double[] weights = new double[beliefCount];
+        for (int s = 0; s < samples; s++) {
+            double weight = 1.0;
+            for (int node : topologicalOrder) {
+                int offset = 0;
+                for (int i = 0; i < parents[node].length; i++) {
+                    offset += sample[parents[node][i]] * parentStrides[node][i];
+                }
+                int outcome = observed[node];
+                if (outcome >= 0) {
+                    weight *= cpts[node][offset + outcome];
+                } else {
+                    outcome = sampleOutcome(cpts[node], offset, beliefs[node].length, random.nextDouble());
+                }
+                sample[node] = outcome;
+            }
+            for (int node = 0; node < sample.length; node++) {
+                weights[beliefOffsets[node] + sample[node]] += weight;
+            }
+        }
+        return weights;
+    }
+
+    private static int sampleOutcome(double[] cpt, int offset, int outcomeCount, double random) {
+        double cumulative = 0;
+        for (int outcome = 0; outcome < outcomeCount - 1; outcome++) {
+            cumulative += cpt[offset + outcome];
+            if (random < cumulative) {
+                return outcome;
+            }
+        }
+        return outcomeCount - 1;
+    }
+
+    /**
+     * SplitMix64's output function, which turns consecutive seeds into statistically independent ones
+     */
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+
+    private ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = DefaultPool.INSTANCE;
+        }
+        return pool;
+    }
+
+    /**
+     * Sets the pool to draw samples in. By default, a pool shared by all instances with one thread per processor is
+     * used.
+     */
+    public void setForkJoinPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public void setSampleCount(int sampleCount) {
+        if (sampleCount <= 0) {
+            throw new IllegalArgumentException("sample count has to be greater than 0");
+        }
+        this.sampleCount = sampleCount;
+    }
+
+    public void seed(long seed) {
+        seeds.setSeed(seed);
+    }
+
+    private final class SamplingTask extends RecursiveTask<double[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] observed;
+        private final long seed;
+        private final int sampleCount;
+        private final int fromBatch;
+        private final int toBatch;
+
+        private SamplingTask(int[] observed, long seed, int sampleCount, int fromBatch, int toBatch) {
+            this.observed = observed;
+            this.seed = seed;
+            this.sampleCount = sampleCount;
+            this.fromBatch = fromBatch;
+            this.toBatch = toBatch;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (toBatch - fromBatch <= 1) {
+                int samples = Math.min(SAMPLES_PER_BATCH, sampleCount - fromBatch * SAMPLES_PER_BATCH);
+                return sampleBatch(observed, mix(seed + fromBatch * GOLDEN_GAMMA), samples);
+            }
+            int middle = (fromBatch + toBatch) >>> 1;
+            SamplingTask left = new SamplingTask(observed, seed, sampleCount, fromBatch, middle);
+            left.fork();
+            double[] weights = new SamplingTask(observed, seed, sampleCount, middle, toBatch).compute();
+            double[] leftWeights = left.join();
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] += leftWeights[i];
+            }
+            return weights;
+        }
+    }
+
+    private static final class DefaultPool {
+        private static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.jtree;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least-recently-used cache of the beliefs computed for a {@link CompiledJunctionTree}, keyed by the evidence they
+ * were computed for. A session using the cache (see {@link InferenceSession#setBeliefCache(BeliefCache)}) answers
+ * queries for evidence it has seen before without any inference.
+ * <p>
+ * The cache is bounded by the approximate number of bytes held by its entries and is thread-safe, so it can be shared
+ * by all sessions of the same compiled junction tree. Hits and misses are counted per node whose beliefs are looked up.
+ */
+public class BeliefCache {
+
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int ARRAY_OVERHEAD = 16;
+    private static final int DOUBLE_BYTES = 8;
+
+    /**
+     * the canonical form of an evidence set: the observed node ids and outcome indices, sorted by node id
+     */
+    static final class Signature {
+
+        private final long[] observations;
+
+        private Signature(long[] observations) {
+            this.observations = observations;
+        }
+
+        /**
+         * @param outcomes
+         *            the observed outcomes, indexed by node, or -1 for unobserved nodes
+         * @param count
+         *            the number of observed nodes
+         */
+        static Signature of(int[] outcomes, int count) {
+            long[] observations = new long[count];
+            int i = 0;
+            for (int node = 0; node < outcomes.length; node++) {
+                if (outcomes[node] != -1) {
+                    observations[i++] = (long) node << 32 | outcomes[node];
+                }
+            }
+            return new Signature(observations);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(observations);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Signature && Arrays.equals(observations, ((Signature) obj).observations);
+        }
+
+        int getSize() {
+            return ARRAY_OVERHEAD + DOUBLE_BYTES * observations.length;
+        }
+    }
+
+    private final CompiledJunctionTree tree;
+    private final long maxSize;
+
+    // beliefs indexed by node, null for nodes whose beliefs have not been computed for the evidence yet
+    private final LinkedHashMap<Signature, double[][]> entries = new LinkedHashMap<Signature, double[][]>(16, 0.75f,
+            true);
+    private long size;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param maxSize
+     *            the approximate maximum number of bytes held by the cached beliefs
+     */
+    public BeliefCache(CompiledJunctionTree tree, long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maximum size must not be negative: " + maxSize);
+        }
+        this.tree = tree;
+        this.maxSize = maxSize;
+    }
+
+    public CompiledJunctionTree getCompiledJunctionTree() {
+        return tree;
+    }
+
+    /**
+     * copies the cached beliefs of the node into <code>beliefs</code>, if present
+     *
+     * @return whether the beliefs were cached
+     */
+    synchronized boolean get(Signature signature, int node, double[] beliefs) {
+        double[][] entry = entries.get(signature);
+        if (entry == null || entry[node] == null) {
+            missCount++;
+            return false;
+        }
+        hitCount++;
+        System.arraycopy(entry[node], 0, beliefs, 0, beliefs.length);
+        return true;
+    }
+
+    /**
+     * stores copies of the beliefs of the given nodes
+     */
+    synchronized void put(Signature signature, BitSet nodes, double[][] beliefs) {
+        double[][] entry = entries.get(signature);
+        if (entry == null) {
+            entry = new double[beliefs.length][];
+            entries.put(signature, entry);
+            size += ENTRY_OVERHEAD + signature.getSize() + ARRAY_OVERHEAD + DOUBLE_BYTES * beliefs.length;
+        }
+        for (int node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+            if (entry[node] == null) {
+                entry[node] = beliefs[node].clone();
+                size += ARRAY_OVERHEAD + DOUBLE_BYTES * beliefs[node].length;
+            }
+        }
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Signature, double[][]>> it = entries.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<Signature, double[][]> eldest = it.next();
+            size -= sizeOf(eldest.getKey(), eldest.getValue());
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    private static long sizeOf(Signature signature, double[][] entry) {
+        long entrySize = ENTRY_OVERHEAD + signature.getSize() + ARRAY_OVERHEAD + DOUBLE_BYTES * entry.length;
+        for (double[] beliefs : entry) {
+            if (beliefs != null) {
+                entrySize += ARRAY_OVERHEAD + DOUBLE_BYTES * beliefs.length;
+            }
+        }
+        return entrySize;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the number of evidence sets beliefs are cached for
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * @return the approximate number of bytes held by the cached beliefs
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the ratio of hits to lookups, or 1 if there were no lookups yet
+     */
+    public synchronized double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 1.0 : (double) hitCount / lookups;
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.jtree;
+
+import java.util.Arrays;
+
+import org.eclipse.recommenders.jayes.factor.AbstractFactor;
+import org.eclipse.recommenders.jayes.factor.DenseFactor;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleBufferArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+
+/**
+ * A cluster potential physically reduced to the entries that are consistent with the observations of some of its
+ * variables, together with the prepared operations of the cluster translated to the reduced table. Operating on the
+ * slice visits exactly the entries, in the same order, that selecting the observations on the full cluster potential
+ * would visit, but in a dense, contiguous array.
+ *
+ * @see InferenceSession#setEvidenceSlicing(boolean)
+ */
+final class ClusterSlice {
+
+    /**
+     * identifies a slice by its cluster and the observed variables and outcomes of that cluster
+     */
+    static final class Key {
+
+        private final int[] signature;
+
+        private Key(int[] signature) {
+            this.signature = signature;
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(signature);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(signature, ((Key) obj).signature);
+        }
+    }
+
+    // the reduced initial potential, never modified
+    final AbstractFactor initial;
+    // the reduced potential the session works on
+    final AbstractFactor potential;
+    // indexed like the neighbors of the cluster
+    final int[][] preparedMultiplications;
+    // indexed like the query variables of the cluster; null for sliced variables
+    final int[][] preparedQueries;
+
+    private ClusterSlice(AbstractFactor initial, int[][] preparedMultiplications, int[][] preparedQueries) {
+        this.initial = initial;
+        this.potential = initial.clone();
+        this.preparedMultiplications = preparedMultiplications;
+        this.preparedQueries = preparedQueries;
+    }
+
+    /**
+     * @param outcomes
+     *            the observed outcomes, indexed by node, or -1 for unobserved nodes
+     * @return the key of the slice of the cluster for the given observations, or <code>null</code> if the cluster
+     *         cannot be sliced or none of its variables is observed
+     */
+    static Key keyOf(CompiledJunctionTree tree, int cluster, int[] outcomes) {
+        if (!(tree.clusters[cluster] instanceof DenseFactor)) {
+            return null;
+        }
+        int[] variables = tree.clusters[cluster].getDimensionIDs();
+        int[] signature = new int[1 + 2 * variables.length];
+        int length = 0;
+        signature[length++] = cluster;
+        for (int variable : variables) {
+            if (outcomes[variable] != -1) {
+                signature[length++] = variable;
+                signature[length++] = outcomes[variable];
+            }
+        }
+        return length == 1 ? null : new Key(Arrays.copyOf(signature, length));
+    }
+
+    static ClusterSlice create(CompiledJunctionTree tree, Key key) {
+        int cluster = key.signature[0];
+        AbstractFactor full = tree.clusters[cluster];
+        int[] variables = full.getDimensionIDs();
+        int[] dimensions = full.getDimensions();
+
+        int[] keptVariables = new int[variables.length];
+        int[] keptDimensions = new int[variables.length];
+        int[] keptStrides = new int[variables.length];
+        int kept = 0;
+        int start = 0;
+        int stride = 1;
+        for (int i = variables.length - 1; i >= 0; i--) {
+            int outcome = outcomeOf(key, variables[i]);
+            if (outcome == -1) {
+                kept++;
+                keptVariables[variables.length - kept] = variables[i];
+                keptDimensions[variables.length - kept] = dimensions[i];
+                keptStrides[variables.length - kept] = stride;
+            } else {
+                start += outcome * stride;
+            }
+            stride *= dimensions[i];
+        }
+        keptVariables = Arrays.copyOfRange(keptVariables, variables.length - kept, variables.length);
+        keptDimensions = Arrays.copyOfRange(keptDimensions, variables.length - kept, variables.length);
+        keptStrides = Arrays.copyOfRange(keptStrides, variables.length - kept, variables.length);
+
+        int[] positions = computePositions(start, keptDimensions, keptStrides);
+
+        IArrayWrapper values;
+        if (full.getValues() instanceof DoubleBufferArrayWrapper) {
+            // cloning would copy all values of the snapshot only to drop them
+            values = new DoubleArrayWrapper(new double[positions.length]);
+        } else {
+            values = full.getValues().clone();
+            values.newArray(positions.length);
+        }
+        for (int i = 0; i < positions.length; i++) {
+            values.set(i, full.getValue(positions[i]));
+        }
+        AbstractFactor initial = new DenseFactor();
+        initial.setDimensionIDs(keptVariables);
+        initial.setDimensions(keptDimensions);
+        initial.setValues(values);
+        initial.setLogScale(full.isLogScale());
+
+        int[] neighborEdges = tree.neighborEdges[cluster];
+        int[][] preparedMultiplications = new int[neighborEdges.length][];
+        for (int i = 0; i < neighborEdges.length; i++) {
+            int edge = neighborEdges[i];
+            int end = tree.edgeEnds[2 * edge] == cluster ? 2 * edge : 2 * edge + 1;
+            preparedMultiplications[i] = select(tree.preparedMultiplications[end], positions);
+        }
+        int[] queryVariables = tree.queryClusterReverseMapping[cluster];
+        int[][] preparedQueries = new int[queryVariables.length][];
+        for (int i = 0; i < queryVariables.length; i++) {
+            if (outcomeOf(key, queryVariables[i]) == -1) {
+                preparedQueries[i] = select(tree.preparedQueries[queryVariables[i]], positions);
+            }
+        }
+        return new ClusterSlice(initial, preparedMultiplications, preparedQueries);
+    }
+
+    private static int outcomeOf(Key key, int variable) {
+        for (int i = 1; i < key.signature.length; i += 2) {
+            if (key.signature[i] == variable) {
+                return key.signature[i + 1];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the positions of the entries of the slice in the full cluster potential, in ascending order
+     */
+    private static int[] computePositions(int start, int[] keptDimensions, int[] keptStrides) {
+        int length = 1;
+        for (int dimension : keptDimensions) {
+            length *= dimension;
+        }
+        int[] positions = new int[length];
+        int[] counter = new int[keptDimensions.length];
+        int position = start;
+        for (int i = 0; i < length; i++) {
+            positions[i] = position;
+            for (int d = keptDimensions.length - 1; d >= 0; d--) {
+                counter[d]++;
+                position += keptStrides[d];
+                if (counter[d] < keptDimensions[d]) {
+                    break;
+                }
+                position -= counter[d] * keptStrides[d];
+                counter[d] = 0;
+            }
+        }
+        return positions;
+    }
+
+    private static int[] select(int[] preparedOperation, int[] positions) {
+        int[] selected = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            selected[i] = preparedOperation[positions[i]];
+        }
+        return selected;
+    }
+
+    boolean contains(int variable) {
+        for (int id : initial.getDimensionIDs()) {
+            if (id == variable) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
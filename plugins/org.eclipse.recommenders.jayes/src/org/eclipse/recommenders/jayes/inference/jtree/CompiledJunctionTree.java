@@ -0,0 +1,612 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.jtree;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import org.eclipse.recommenders.internal.jayes.util.ArrayUtils;
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.factor.AbstractFactor;
+import org.eclipse.recommenders.jayes.factor.FactorFactory;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleBufferArrayWrapper;
+import org.eclipse.recommenders.jayes.util.Graph;
+import org.eclipse.recommenders.jayes.util.OrderIgnoringPair;
+import org.eclipse.recommenders.jayes.util.Pair;
+import org.eclipse.recommenders.jayes.util.sharing.CanonicalArrayPool;
+
+/**
+ * The result of compiling a {@link BayesNet} into a junction tree: the clusters, the sepsets, the prepared operations
+ * between them and the cluster potentials of the network without any evidence.
+ * <p>
+ * A compiled junction tree is never modified after {@link #compile(BayesNet, JunctionTreeBuilder, FactorFactory)
+ * compilation} and can thus be shared between threads. All state that changes during inference lives in the
+ * {@link InferenceSession}s created by {@link #newSession()}, which are cheap compared to compilation but must not be
+ * shared.
+ * <p>
+ * Compilation is expensive compared to reading a network. A compiled junction tree can therefore be stored with
+ * {@link #writeTo(ByteBuffer)} and later be restored with {@link #restore(BayesNet, FactorFactory, ByteBuffer)}, which
+ * skips triangulation, the preparation of operations and the initial propagation.
+ * <p>
+ * The prepared operations and initial potentials are taken from the {@link CanonicalArrayPool#getDefault() process-wide
+ * pool} of canonical arrays, so equal arrays are shared by all compiled junction trees, e.g., by the many call models
+ * that are loaded at the same time.
+ */
+public class CompiledJunctionTree {
+
+    private static final double ONE = 1.0;
+    private static final double ONE_LOG = 0.0;
+
+    private static final int INT_BYTES = Integer.SIZE / Byte.SIZE;
+    private static final int DOUBLE_BYTES = Double.SIZE / Byte.SIZE;
+
+    private final BayesNet net;
+    private final FactorFactory factory;
+
+    // edge-indexed layout of the tree: cluster c is connected to neighbors[c][i] by the edge neighborEdges[c][i]
+    int[][] neighbors;
+    int[][] neighborEdges;
+    // edge e connects the clusters edgeEnds[2 * e] and edgeEnds[2 * e + 1]
+    int[] edgeEnds;
+
+    // cluster and sepset factors holding the initial potentials; sessions work on clones of them
+    AbstractFactor[] clusters;
+    // indexed by edge
+    AbstractFactor[] sepSets;
+    // preparedMultiplications[2 * e + i] relates the cluster edgeEnds[2 * e + i] to the sepset of edge e
+    int[][] preparedMultiplications;
+
+    // mapping from variables to clusters that contain them
+    int[][] concernedClusters;
+    // the smallest cluster containing a variable, used for computing its marginal
+    int[] queryClusters;
+    int[][] preparedQueries;
+    int[][] queryClusterReverseMapping;
+
+    int scratchpadSize;
+
+    private long compilationNanos;
+
+    public static CompiledJunctionTree compile(BayesNet net, JunctionTreeBuilder builder, FactorFactory factory) {
+        long start = System.nanoTime();
+        CompiledJunctionTree tree = new CompiledJunctionTree(net, factory);
+        tree.compile(builder);
+        tree.compilationNanos = System.nanoTime() - start;
+        return tree;
+    }
+
+    /**
+     * Restores a junction tree written by {@link #writeTo(ByteBuffer)}. The network and the factory must be configured
+     * like the ones used for compiling it; the buffer is read from its current position.
+     *
+     * @throws IllegalArgumentException
+     *             if the stored junction tree does not match the network or the factory
+     */
+    public static CompiledJunctionTree restore(BayesNet net, FactorFactory factory, ByteBuffer buffer) {
+        long start = System.nanoTime();
+        CompiledJunctionTree tree = new CompiledJunctionTree(net, factory);
+        tree.restore(buffer);
+        tree.compilationNanos = System.nanoTime() - start;
+        return tree;
+    }
+
+    private CompiledJunctionTree(BayesNet net, FactorFactory factory) {
+        this.net = net;
+        this.factory = factory;
+    }
+
+    public BayesNet getNetwork() {
+        return net;
+    }
+
+    public int getClusterCount() {
+        return clusters.length;
+    }
+
+    /**
+     * @return the number of entries of the largest cluster potential
+     */
+    public long getLargestClusterSize() {
+        long largest = 0;
+        for (AbstractFactor cluster : clusters) {
+            largest = Math.max(largest, cluster.getValues().length());
+        }
+        return largest;
+    }
+
+    /**
+     * @return the number of entries of all cluster potentials, which every session holds a copy of
+     */
+    public long getTotalClusterSize() {
+        long total = 0;
+        for (AbstractFactor cluster : clusters) {
+            total += cluster.getValues().length();
+        }
+        return total;
+    }
+
+    /**
+     * @return the time compiling or restoring this junction tree took
+     */
+    public long getCompilationNanos() {
+        return compilationNanos;
+    }
+
+    /**
+     * Creates a new session with the initial (evidence-free) potentials of this junction tree.
+     */
+    public InferenceSession newSession() {
+        AbstractFactor[] nodePotentials = new AbstractFactor[clusters.length];
+        for (int i = 0; i < clusters.length; i++) {
+            nodePotentials[i] = clusters[i].clone();
+        }
+        AbstractFactor[] sessionSepSets = new AbstractFactor[sepSets.length];
+        for (int i = 0; i < sepSets.length; i++) {
+            sessionSepSets[i] = sepSets[i].clone();
+        }
+        return new InferenceSession(this, nodePotentials, sessionSepSets);
+    }
+
+    private void compile(JunctionTreeBuilder builder) {
+        factory.setReferenceNetwork(net);
+        JunctionTree jtree = builder.buildJunctionTree(net);
+        Map<AbstractFactor, Integer> homeClusters = computeHomeClusters(jtree.getClusters());
+        initializeClusterFactors(jtree.getClusters(), homeClusters);
+        initializeSepsetFactors(jtree.getSepSets());
+        initializeEdges(jtree.getGraph(), jtree.getSepSets());
+        determineConcernedClusters();
+        setQueryClusters();
+        initializePotentialValues();
+        multiplyCPTsIntoPotentials(homeClusters);
+        prepareMultiplications();
+        prepareScratch();
+        invokeInitialBeliefUpdate();
+        sharePotentials();
+    }
+
+    private void restore(ByteBuffer buffer) {
+        factory.setReferenceNetwork(net);
+        checkSnapshot(buffer.getInt() == net.getNodes().size(), "number of nodes");
+        List<List<Integer>> clusterVariables = readVariableLists(buffer, buffer.getInt());
+        List<Pair<OrderIgnoringPair<Integer>, List<Integer>>> sepSetVariables = readSepSetVariables(buffer,
+                clusterVariables.size());
+        Map<AbstractFactor, Integer> homeClusters = computeHomeClusters(clusterVariables);
+        checkSnapshot(homeClusters.size() == net.getNodes().size(), "clusters");
+        initializeClusterFactors(clusterVariables, homeClusters);
+        initializeSepsetFactors(sepSetVariables);
+        neighbors = new int[clusters.length][];
+        neighborEdges = new int[clusters.length][];
+        for (int cluster = 0; cluster < clusters.length; cluster++) {
+            neighbors[cluster] = readInts(buffer, buffer.getInt());
+            neighborEdges[cluster] = readInts(buffer, neighbors[cluster].length);
+            for (int i = 0; i < neighbors[cluster].length; i++) {
+                checkSnapshot(connects(neighborEdges[cluster][i], cluster, neighbors[cluster][i]), "neighbors");
+            }
+        }
+        determineConcernedClusters();
+        setQueryClusters();
+        readPotentials(buffer, clusters);
+        readPotentials(buffer, sepSets);
+        readPreparedOperations(buffer);
+        prepareScratch();
+        sharePotentials();
+    }
+
+    private boolean connects(int edge, int cluster, int neighbor) {
+        if (edge < 0 || edge >= sepSets.length) {
+            return false;
+        }
+        return edgeEnds[2 * edge] == cluster && edgeEnds[2 * edge + 1] == neighbor || edgeEnds[2 * edge] == neighbor
+                && edgeEnds[2 * edge + 1] == cluster;
+    }
+
+    private List<List<Integer>> readVariableLists(ByteBuffer buffer, int count) {
+        List<List<Integer>> variableLists = new ArrayList<List<Integer>>(count);
+        for (int i = 0; i < count; i++) {
+            int[] variables = readInts(buffer, buffer.getInt());
+            List<Integer> variableList = new ArrayList<Integer>(variables.length);
+            for (int variable : variables) {
+                checkSnapshot(variable >= 0 && variable < net.getNodes().size(), "variables");
+                variableList.add(variable);
+            }
+            variableLists.add(variableList);
+        }
+        return variableLists;
+    }
+
+    private List<Pair<OrderIgnoringPair<Integer>, List<Integer>>> readSepSetVariables(ByteBuffer buffer,
+            int clusterCount) {
+        int edgeCount = buffer.getInt();
+        List<Pair<OrderIgnoringPair<Integer>, List<Integer>>> sepSetVariables = new ArrayList<>(edgeCount);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            int first = buffer.getInt();
+            int second = buffer.getInt();
+            checkSnapshot(first >= 0 && first < clusterCount && second >= 0 && second < clusterCount, "sepsets");
+            sepSetVariables.add(Pair.newPair(new OrderIgnoringPair<Integer>(first, second),
+                    readVariableLists(buffer, 1).get(0)));
+        }
+        return sepSetVariables;
+    }
+
+    /**
+     * Double-precision potentials are used in place, e.g., straight from a memory-mapped snapshot; sessions copy them
+     * into their own arrays anyway. Potentials of another precision are converted.
+     */
+    private void readPotentials(ByteBuffer buffer, AbstractFactor[] factors) {
+        for (AbstractFactor factor : factors) {
+            checkSnapshot(factor.isLogScale() == (buffer.get() != 0), "log scale");
+            int length = buffer.getInt();
+            checkSnapshot(length == factor.getValues().length(), "potentials");
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+            doubles.limit(length);
+            if (factor.getValues().getClass() == DoubleArrayWrapper.class) {
+                factor.setValues(new DoubleBufferArrayWrapper(doubles));
+            } else {
+                double[] values = new double[length];
+                doubles.get(values);
+                factor.getValues().setArray(values);
+            }
+            buffer.position(buffer.position() + length * DOUBLE_BYTES);
+        }
+    }
+
+    private void readPreparedOperations(ByteBuffer buffer) {
+        int[][] distinctOperations = new int[buffer.getInt()][];
+        for (int i = 0; i < distinctOperations.length; i++) {
+            distinctOperations[i] = CanonicalArrayPool.getDefault().getInstance(readInts(buffer, buffer.getInt()));
+        }
+        preparedMultiplications = new int[edgeEnds.length][];
+        for (int i = 0; i < preparedMultiplications.length; i++) {
+            preparedMultiplications[i] = distinctOperations[buffer.getInt()];
+            checkSnapshot(preparedMultiplications[i].length == clusters[edgeEnds[i]].getValues().length(),
+                    "prepared multiplications");
+        }
+        preparedQueries = new int[queryClusters.length][];
+        for (int i = 0; i < preparedQueries.length; i++) {
+            preparedQueries[i] = distinctOperations[buffer.getInt()];
+            checkSnapshot(preparedQueries[i].length == clusters[queryClusters[i]].getValues().length(),
+                    "prepared queries");
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] ints = new int[count];
+        IntBuffer intBuffer = buffer.asIntBuffer();
+        intBuffer.get(ints);
+        buffer.position(buffer.position() + count * INT_BYTES);
+        return ints;
+    }
+
+    private static void checkSnapshot(boolean condition, String part) {
+        if (!condition) {
+            throw new IllegalArgumentException("Compiled junction tree does not match the network: " + part);
+        }
+    }
+
+    private Map<AbstractFactor, Integer> computeHomeClusters(final List<List<Integer>> clusters) {
+        Map<AbstractFactor, Integer> homeClusters = new HashMap<AbstractFactor, Integer>();
+        for (final BayesNode node : net.getNodes()) {
+            final int[] nodeAndParents = node.getFactor().getDimensionIDs();
+            for (final ListIterator<List<Integer>> clusterIt = clusters.listIterator(); clusterIt.hasNext();) {
+                if (containsAll(clusterIt.next(), nodeAndParents)) {
+                    homeClusters.put(node.getFactor(), clusterIt.nextIndex() - 1);
+                    break;
+                }
+            }
+        }
+        return homeClusters;
+    }
+
+    private boolean containsAll(List<Integer> list, int[] ints) {
+        for (int n : ints) {
+            if (!list.contains(n)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void initializeClusterFactors(final List<List<Integer>> clusterVariables,
+            Map<AbstractFactor, Integer> homeClusters) {
+        clusters = new AbstractFactor[clusterVariables.size()];
+        Map<Integer, List<AbstractFactor>> multiplicationPartners = findMultiplicationPartners(homeClusters);
+        for (final ListIterator<List<Integer>> cliqueIt = clusterVariables.listIterator(); cliqueIt.hasNext();) {
+            final List<Integer> cluster = cliqueIt.next();
+            int current = cliqueIt.nextIndex() - 1;
+            List<AbstractFactor> multiplicationPartnerList = multiplicationPartners.get(current);
+            final AbstractFactor cliqueFactor = factory.create(cluster,
+                    multiplicationPartnerList == null ? Collections.<AbstractFactor>emptyList()
+                            : multiplicationPartnerList);
+            clusters[current] = cliqueFactor;
+        }
+    }
+
+    private Map<Integer, List<AbstractFactor>> findMultiplicationPartners(Map<AbstractFactor, Integer> homeClusters) {
+        Map<Integer, List<AbstractFactor>> potentialMap = new HashMap<Integer, List<AbstractFactor>>();
+        for (final BayesNode node : net.getNodes()) {
+            final Integer nodeHome = homeClusters.get(node.getFactor());
+            if (!potentialMap.containsKey(nodeHome)) {
+                potentialMap.put(nodeHome, new ArrayList<AbstractFactor>());
+            }
+            potentialMap.get(nodeHome).add(node.getFactor());
+        }
+        return potentialMap;
+    }
+
+    private void initializeSepsetFactors(final List<Pair<OrderIgnoringPair<Integer>, List<Integer>>> sepSetVariables) {
+        sepSets = new AbstractFactor[sepSetVariables.size()];
+        edgeEnds = new int[2 * sepSets.length];
+        for (int edge = 0; edge < sepSets.length; edge++) {
+            final Pair<OrderIgnoringPair<Integer>, List<Integer>> sep = sepSetVariables.get(edge);
+            sepSets[edge] = factory.create(sep.getSecond(), Collections.<AbstractFactor>emptyList());
+            edgeEnds[2 * edge] = sep.getFirst().getFirst();
+            edgeEnds[2 * edge + 1] = sep.getFirst().getSecond();
+        }
+    }
+
+    private void initializeEdges(final Graph junctionTree,
+            final List<Pair<OrderIgnoringPair<Integer>, List<Integer>>> sepSetVariables) {
+        final Map<OrderIgnoringPair<Integer>, Integer> edgeIndices = new HashMap<OrderIgnoringPair<Integer>, Integer>();
+        for (int edge = 0; edge < sepSetVariables.size(); edge++) {
+            edgeIndices.put(sepSetVariables.get(edge).getFirst(), edge);
+        }
+        neighbors = new int[clusters.length][];
+        neighborEdges = new int[clusters.length][];
+        for (int cluster = 0; cluster < clusters.length; cluster++) {
+            neighbors[cluster] = ArrayUtils.toIntArray(junctionTree.getNeighbors(cluster));
+            neighborEdges[cluster] = new int[neighbors[cluster].length];
+            for (int i = 0; i < neighbors[cluster].length; i++) {
+                neighborEdges[cluster][i] = edgeIndices.get(new OrderIgnoringPair<Integer>(cluster,
+                        neighbors[cluster][i]));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void determineConcernedClusters() {
+        concernedClusters = new int[net.getNodes().size()][];
+        List<Integer>[] temp = new List[concernedClusters.length];
+        for (int i = 0; i < temp.length; i++) {
+            temp[i] = new ArrayList<Integer>();
+        }
+
+        for (int i = 0; i < clusters.length; i++) {
+            int[] dimensionIDs = clusters[i].getDimensionIDs();
+            for (final int var : dimensionIDs) {
+                temp[var].add(i);
+            }
+        }
+
+        for (int i = 0; i < temp.length; i++) {
+            concernedClusters[i] = ArrayUtils.toIntArray(temp[i]);
+        }
+    }
+
+    private void setQueryClusters() {
+        queryClusters = new int[concernedClusters.length];
+        for (int i = 0; i < queryClusters.length; i++) {
+            queryClusters[i] = -1;
+            for (final int f : concernedClusters[i]) {
+                final boolean isFirstOrSmallerTable = queryClusters[i] == -1
+                        || clusters[queryClusters[i]].getValues().length() > clusters[f].getValues().length();
+                if (isFirstOrSmallerTable) {
+                    queryClusters[i] = f;
+                }
+            }
+        }
+
+        queryClusterReverseMapping = new int[clusters.length][];
+        for (int i = 0; i < clusters.length; i++) {
+            List<Integer> queryVars = new ArrayList<Integer>();
+            for (int var : clusters[i].getDimensionIDs()) {
+                if (queryClusters[var] == i) {
+                    queryVars.add(var);
+                }
+            }
+            queryClusterReverseMapping[i] = ArrayUtils.toIntArray(queryVars);
+        }
+    }
+
+    private void initializePotentialValues() {
+        for (final AbstractFactor f : clusters) {
+            f.fill(f.isLogScale() ? ONE_LOG : ONE);
+        }
+
+        for (int edge = 0; edge < sepSets.length; edge++) {
+            if (!areBothEndsLogScale(edge)) {
+                // if one part is log-scale, we transform to non-log-scale
+                sepSets[edge].fill(ONE);
+            } else {
+                sepSets[edge].fill(ONE_LOG);
+            }
+        }
+    }
+
+    private void multiplyCPTsIntoPotentials(Map<AbstractFactor, Integer> homeClusters) {
+        for (final BayesNode node : net.getNodes()) {
+            final AbstractFactor nodeHome = clusters[homeClusters.get(node.getFactor())];
+            if (nodeHome.isLogScale()) {
+                nodeHome.multiplyCompatibleToLog(node.getFactor());
+            } else {
+                nodeHome.multiplyCompatible(node.getFactor());
+            }
+        }
+    }
+
+    private void prepareMultiplications() {
+        // compress by combining equal prepared statements, also with those of other networks, thus saving memory
+        final CanonicalArrayPool flyWeight = CanonicalArrayPool.getDefault();
+        prepareSepsetMultiplications(flyWeight);
+        prepareQueries(flyWeight);
+    }
+
+    private void prepareSepsetMultiplications(final CanonicalArrayPool flyWeight) {
+        preparedMultiplications = new int[edgeEnds.length][];
+        for (int i = 0; i < edgeEnds.length; i++) {
+            final int[] preparedMultiplication = clusters[edgeEnds[i]].prepareMultiplication(sepSets[i / 2]);
+            preparedMultiplications[i] = flyWeight.getInstance(preparedMultiplication);
+        }
+    }
+
+    private void prepareQueries(final CanonicalArrayPool flyWeight) {
+        preparedQueries = new int[queryClusters.length][];
+        for (int i = 0; i < queryClusters.length; i++) {
+            final AbstractFactor beliefFactor = factory.create(Arrays.asList(i),
+                    Collections.<AbstractFactor>emptyList());
+            final int[] preparedQuery = clusters[queryClusters[i]].prepareMultiplication(beliefFactor);
+            preparedQueries[i] = flyWeight.getInstance(preparedQuery);
+        }
+    }
+
+    private void prepareScratch() {
+        int maxSize = 0;
+        for (AbstractFactor sepSet : sepSets) {
+            maxSize = Math.max(maxSize, sepSet.getValues().length());
+        }
+        scratchpadSize = maxSize;
+    }
+
+    /**
+     * propagates the CPTs through the tree, so that sessions start with consistent, evidence-free potentials
+     */
+    private void invokeInitialBeliefUpdate() {
+        new InferenceSession(this, clusters, sepSets).propagateWithoutEvidence();
+    }
+
+    /**
+     * replaces the initial potentials by canonical instances, which must not be modified from now on
+     */
+    private void sharePotentials() {
+        final CanonicalArrayPool pool = CanonicalArrayPool.getDefault();
+        for (final AbstractFactor cluster : clusters) {
+            pool.share(cluster.getValues());
+        }
+        for (final AbstractFactor sepSet : sepSets) {
+            pool.share(sepSet.getValues());
+        }
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo(ByteBuffer)} will write
+     */
+    public int getSerializedSize() {
+        int size = 3 * INT_BYTES;
+        for (AbstractFactor cluster : clusters) {
+            size += INT_BYTES + INT_BYTES * cluster.getDimensionIDs().length;
+            size += 1 + INT_BYTES + DOUBLE_BYTES * cluster.getValues().length();
+        }
+        for (AbstractFactor sepSet : sepSets) {
+            size += 3 * INT_BYTES + INT_BYTES * sepSet.getDimensionIDs().length;
+            size += 1 + INT_BYTES + DOUBLE_BYTES * sepSet.getValues().length();
+        }
+        for (int[] clusterNeighbors : neighbors) {
+            size += INT_BYTES + 2 * INT_BYTES * clusterNeighbors.length;
+        }
+        size += INT_BYTES;
+        for (int[] operation : collectDistinctOperations().keySet()) {
+            size += INT_BYTES + INT_BYTES * operation.length;
+        }
+        size += INT_BYTES * (preparedMultiplications.length + preparedQueries.length);
+        return size;
+    }
+
+    /**
+     * Writes this junction tree to the given buffer, in network byte order if the buffer has not been configured
+     * otherwise. Equal prepared operations are only written once, like they are only held once in memory.
+     *
+     * @see #restore(BayesNet, FactorFactory, ByteBuffer)
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(net.getNodes().size());
+        buffer.putInt(clusters.length);
+        for (AbstractFactor cluster : clusters) {
+            putInts(buffer, cluster.getDimensionIDs(), true);
+        }
+        buffer.putInt(sepSets.length);
+        for (int edge = 0; edge < sepSets.length; edge++) {
+            buffer.putInt(edgeEnds[2 * edge]);
+            buffer.putInt(edgeEnds[2 * edge + 1]);
+            putInts(buffer, sepSets[edge].getDimensionIDs(), true);
+        }
+        for (int cluster = 0; cluster < clusters.length; cluster++) {
+            putInts(buffer, neighbors[cluster], true);
+            putInts(buffer, neighborEdges[cluster], false);
+        }
+        putPotentials(buffer, clusters);
+        putPotentials(buffer, sepSets);
+        Map<int[], Integer> distinctOperations = collectDistinctOperations();
+        int[][] operationsByIndex = new int[distinctOperations.size()][];
+        for (Map.Entry<int[], Integer> operation : distinctOperations.entrySet()) {
+            operationsByIndex[operation.getValue()] = operation.getKey();
+        }
+        buffer.putInt(operationsByIndex.length);
+        for (int[] operation : operationsByIndex) {
+            putInts(buffer, operation, true);
+        }
+        for (int[] operation : preparedMultiplications) {
+            buffer.putInt(distinctOperations.get(operation));
+        }
+        for (int[] operation : preparedQueries) {
+            buffer.putInt(distinctOperations.get(operation));
+        }
+    }
+
+    /**
+     * @return the prepared operations, which are canonicalized on compilation, mapped to consecutive indices in
+     *         order of their first use
+     */
+    private Map<int[], Integer> collectDistinctOperations() {
+        Map<int[], Integer> indices = new IdentityHashMap<int[], Integer>();
+        for (int[][] operations : Arrays.asList(preparedMultiplications, preparedQueries)) {
+            for (int[] operation : operations) {
+                if (!indices.containsKey(operation)) {
+                    indices.put(operation, indices.size());
+                }
+            }
+        }
+        return indices;
+    }
+
+    private static void putPotentials(ByteBuffer buffer, AbstractFactor[] factors) {
+        for (AbstractFactor factor : factors) {
+            buffer.put((byte) (factor.isLogScale() ? 1 : 0));
+            double[] values = factor.getValues().toDoubleArray();
+            buffer.putInt(values.length);
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+            doubles.put(values);
+            buffer.position(buffer.position() + values.length * DOUBLE_BYTES);
+        }
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] ints, boolean withLength) {
+        if (withLength) {
+            buffer.putInt(ints.length);
+        }
+        IntBuffer intBuffer = buffer.asIntBuffer();
+        intBuffer.put(ints);
+        buffer.position(buffer.position() + ints.length * INT_BYTES);
+    }
+
+    boolean areBothEndsLogScale(final int edge) {
+        return clusters[edgeEnds[2 * edge]].isLogScale() && clusters[edgeEnds[2 * edge + 1]].isLogScale();
+    }
+}
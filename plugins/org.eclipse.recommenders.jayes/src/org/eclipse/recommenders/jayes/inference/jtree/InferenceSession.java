@@ -0,0 +1,880 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.jtree;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.factor.AbstractFactor;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+import org.eclipse.recommenders.jayes.inference.IInferenceListener;
+import org.eclipse.recommenders.jayes.util.MathUtils;
+import org.eclipse.recommenders.jayes.util.NumericalInstabilityException;
+
+/**
+ * The per-query state of junction tree inference: evidence, the current potentials of clusters and sepsets, and the
+ * beliefs computed from them. The structure is taken from the {@link CompiledJunctionTree} the session was created by,
+ * so sessions are lightweight.
+ * <p>
+ * Sessions are not thread-safe. Use one session per thread; the compiled junction tree can be shared.
+ * <p>
+ * By default, evidence is propagated incrementally: if the evidence only grew since the last propagation, just the new
+ * observations are propagated, starting from the potentials computed for the previous evidence. Retracting or changing
+ * an observation still requires propagating all evidence from the initial potentials.
+ * <p>
+ * All buffers needed for propagation are allocated together with the session, so updating beliefs does not create
+ * garbage.
+ * <p>
+ * Optionally, cluster potentials can be {@link #setEvidenceSlicing(boolean) sliced} by the evidence: instead of
+ * selecting the observed outcomes in the full cluster potentials, each cluster with observed variables is replaced by
+ * a dense table holding only the entries consistent with the evidence. The slices are cached by the observations they
+ * reflect.
+ * <p>
+ * Evidence is stored as the observed outcome index per node, and can be given by outcome index as well as by outcome
+ * name, see {@link #addEvidence(BayesNode, int)}.
+ * <p>
+ * In {@link #setAdaptiveLogScale(boolean) adaptive log scale} mode, clusters whose potentials underflow are switched to
+ * logarithmic scale when a query fails, instead of failing with a {@link NumericalInstabilityException}.
+ * <p>
+ * With a {@link #setBeliefCache(BeliefCache) belief cache}, beliefs that have already been computed for the same
+ * evidence, by this or another session of the same compiled junction tree, are returned without any inference.
+ */
+public class InferenceSession {
+
+    /**
+     * returned by {@link #getObservedOutcome(BayesNode)} for nodes without evidence
+     */
+    public static final int NOT_OBSERVED = -1;
+
+    private static final int SLICE_CACHE_SIZE = 64;
+
+    private final CompiledJunctionTree tree;
+
+    // the current potentials of the clusters, which are either the full potentials or slices of them
+    private final AbstractFactor[] nodePotentials;
+    private final AbstractFactor[] fullPotentials;
+    // indexed by edge
+    private final AbstractFactor[] sepSets;
+    // the prepared operations for the current potentials, indexed like those of the compiled junction tree
+    private final int[][] preparedMultiplications;
+    private final int[][] preparedQueries;
+
+    private final double[][] beliefs;
+    private final DoubleArrayWrapper[] beliefWrappers;
+    private final boolean[] isBeliefValid;
+
+    // the outcomes the current potentials reflect, indexed by node
+    private final int[] propagatedOutcomes;
+    private int propagatedCount;
+    private boolean isIncremental = true;
+    private boolean isResetNeeded;
+
+    // the slices currently in use, indexed by cluster, null for clusters that are not sliced
+    private final ClusterSlice[] slices;
+    private boolean isSlicing;
+    private Map<ClusterSlice.Key, ClusterSlice> sliceCache;
+
+    // used for computing evidence collection and distribution skip
+    private final BitSet clustersHavingNewEvidence;
+    private final BitSet skipped;
+
+    private final double[] scratchpad;
+    private final DoubleArrayWrapper scratchpadWrapper;
+
+    // used for computing the beliefs of nodes sharing a query cluster in one pass
+    private final BitSet requestedNodes;
+    // the node whose beliefs have just been computed by getBeliefs(BayesNode), to be stored in the belief cache
+    private final BitSet computedNodes;
+    private final IArrayWrapper[] batchBeliefs;
+    private final int[][] batchQueries;
+
+    // the observed outcomes, indexed by node
+    private final int[] evidence;
+    private int evidenceCount;
+    // the evidence by outcome names, created on demand
+    private Map<BayesNode, String> evidenceMap;
+    private boolean beliefsValid;
+
+    private BeliefCache beliefCache;
+    // the signature of the current evidence, computed on demand
+    private BeliefCache.Signature evidenceSignature;
+
+    private boolean isAdaptiveLogScale;
+    // the clusters that have been switched to log scale because of numerical underflow
+    private final BitSet logScaleClusters;
+    private int logScaleFallbackCount;
+
+    private IInferenceListener listener = IInferenceListener.NO_OP;
+    // counted during propagation, for the listener
+    private int messagePasses;
+    private int skippedMessagePasses;
+
+    InferenceSession(CompiledJunctionTree tree, AbstractFactor[] nodePotentials, AbstractFactor[] sepSets) {
+        this.tree = tree;
+        this.nodePotentials = nodePotentials.clone();
+        this.fullPotentials = nodePotentials;
+        this.sepSets = sepSets;
+        this.preparedMultiplications = tree.preparedMultiplications.clone();
+        this.preparedQueries = tree.preparedQueries.clone();
+        this.slices = new ClusterSlice[nodePotentials.length];
+
+        int numNodes = tree.getNetwork().getNodes().size();
+        beliefs = new double[numNodes][];
+        beliefWrappers = new DoubleArrayWrapper[numNodes];
+        for (final BayesNode n : tree.getNetwork().getNodes()) {
+            beliefs[n.getId()] = new double[n.getOutcomeCount()];
+            beliefWrappers[n.getId()] = new DoubleArrayWrapper(beliefs[n.getId()]);
+        }
+        isBeliefValid = new boolean[numNodes];
+        propagatedOutcomes = new int[numNodes];
+        Arrays.fill(propagatedOutcomes, NOT_OBSERVED);
+        evidence = new int[numNodes];
+        Arrays.fill(evidence, NOT_OBSERVED);
+        clustersHavingNewEvidence = new BitSet(nodePotentials.length);
+        logScaleClusters = new BitSet(nodePotentials.length);
+        skipped = new BitSet(nodePotentials.length);
+        scratchpad = new double[tree.scratchpadSize];
+        scratchpadWrapper = new DoubleArrayWrapper(scratchpad);
+
+        requestedNodes = new BitSet(numNodes);
+        computedNodes = new BitSet(numNodes);
+        int maxQueryVariables = 0;
+        for (final int[] queryVariables : tree.queryClusterReverseMapping) {
+            maxQueryVariables = Math.max(maxQueryVariables, queryVariables.length);
+        }
+        batchBeliefs = new IArrayWrapper[maxQueryVariables];
+        batchQueries = new int[maxQueryVariables][];
+    }
+
+    public CompiledJunctionTree getCompiledJunctionTree() {
+        return tree;
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the node has no outcome of the given name
+     */
+    public void addEvidence(final BayesNode node, final String outcome) {
+        addEvidence(node, node.getOutcomeIndex(outcome));
+    }
+
+    /**
+     * Like {@link #addEvidence(BayesNode, String)}, but without looking up the outcome by its name.
+     */
+    public void addEvidence(final BayesNode node, final int outcomeIndex) {
+        if (outcomeIndex < 0 || outcomeIndex >= node.getOutcomeCount()) {
+            throw new IllegalArgumentException("Outcome index out of range for node " + node + ": " + outcomeIndex);
+        }
+        final int nodeId = node.getId();
+        if (evidence[nodeId] == outcomeIndex) {
+            return;
+        }
+        if (evidence[nodeId] == NOT_OBSERVED) {
+            evidenceCount++;
+        }
+        evidence[nodeId] = outcomeIndex;
+        evidenceChanged();
+    }
+
+    public void removeEvidence(final BayesNode node) {
+        final int nodeId = node.getId();
+        if (evidence[nodeId] != NOT_OBSERVED) {
+            evidence[nodeId] = NOT_OBSERVED;
+            evidenceCount--;
+            evidenceChanged();
+        }
+    }
+
+    /**
+     * Replaces all evidence by the given observations. The map is copied.
+     */
+    public void setEvidence(final Map<BayesNode, String> evidence) {
+        clearEvidence();
+        for (final Map.Entry<BayesNode, String> observation : evidence.entrySet()) {
+            addEvidence(observation.getKey(), observation.getValue());
+        }
+    }
+
+    public void clearEvidence() {
+        Arrays.fill(evidence, NOT_OBSERVED);
+        evidenceCount = 0;
+        evidenceChanged();
+    }
+
+    private void evidenceChanged() {
+        beliefsValid = false;
+        evidenceSignature = null;
+        evidenceMap = null;
+    }
+
+    /**
+     * @return an unmodifiable snapshot of the evidence, by outcome names
+     */
+    public Map<BayesNode, String> getEvidence() {
+        if (evidenceMap == null) {
+            final Map<BayesNode, String> map = new HashMap<BayesNode, String>();
+            for (int nodeId = 0; nodeId < evidence.length; nodeId++) {
+                if (evidence[nodeId] != NOT_OBSERVED) {
+                    final BayesNode node = tree.getNetwork().getNode(nodeId);
+                    map.put(node, node.getOutcomeName(evidence[nodeId]));
+                }
+            }
+            evidenceMap = Collections.unmodifiableMap(map);
+        }
+        return evidenceMap;
+    }
+
+    /**
+     * @return the index of the observed outcome of the node, or {@link #NOT_OBSERVED}
+     */
+    public int getObservedOutcome(final BayesNode node) {
+        return evidence[node.getId()];
+    }
+
+    public boolean hasEvidence(final BayesNode node) {
+        return evidence[node.getId()] != NOT_OBSERVED;
+    }
+
+    /**
+     * @return the number of observed nodes
+     */
+    public int getEvidenceCount() {
+        return evidenceCount;
+    }
+
+    /**
+     * @param isIncremental
+     *            whether to only propagate new observations if the evidence grew since the last propagation. Disable
+     *            this to always propagate all evidence from the initial potentials.
+     */
+    public void setIncrementalPropagation(final boolean isIncremental) {
+        this.isIncremental = isIncremental;
+        beliefsValid = false;
+    }
+
+    public boolean isIncrementalPropagation() {
+        return isIncremental;
+    }
+
+    /**
+     * @param isSlicing
+     *            whether to physically reduce the potentials of clusters with observed variables to the entries
+     *            consistent with the evidence whenever all evidence is propagated, so that message passes run over
+     *            dense, contiguous tables. This pays off if several variables of large clusters are observed. Evidence
+     *            added by incremental propagation is selected in the slices as usual.
+     */
+    public void setEvidenceSlicing(final boolean isSlicing) {
+        this.isSlicing = isSlicing;
+        isResetNeeded = true;
+        beliefsValid = false;
+    }
+
+    public boolean isEvidenceSlicing() {
+        return isSlicing;
+    }
+
+    /**
+     * @param isAdaptive
+     *            whether to switch the clusters whose potentials underflow to logarithmic scale if beliefs cannot be
+     *            computed because of numerical underflow, and to propagate the evidence again. The clusters stay in log
+     *            scale until adaptive mode is disabled, so only the parts of the network that need it pay for the
+     *            slower log scale computation. Evidence of probability zero still fails, but only after all clusters
+     *            involved have been switched.
+     */
+    public void setAdaptiveLogScale(final boolean isAdaptive) {
+        this.isAdaptiveLogScale = isAdaptive;
+        if (!isAdaptive && !logScaleClusters.isEmpty()) {
+            for (int cluster = logScaleClusters.nextSetBit(0); cluster >= 0; cluster = logScaleClusters
+                    .nextSetBit(cluster + 1)) {
+                fullPotentials[cluster].setLogScale(false);
+            }
+            logScaleClusters.clear();
+            isResetNeeded = true;
+            beliefsValid = false;
+        }
+    }
+
+    public boolean isAdaptiveLogScale() {
+        return isAdaptiveLogScale;
+    }
+
+    /**
+     * @return the number of clusters switched to log scale in adaptive log scale mode
+     */
+    public int getLogScaleClusterCount() {
+        return logScaleClusters.cardinality();
+    }
+
+    /**
+     * @return how often evidence has been propagated again after switching clusters to log scale
+     */
+    public int getLogScaleFallbackCount() {
+        return logScaleFallbackCount;
+    }
+
+    /**
+     * @param beliefCache
+     *            the cache to look up beliefs in before computing them, and to store computed beliefs in, or
+     *            <code>null</code> to always compute beliefs
+     * @throws IllegalArgumentException
+     *             if the cache belongs to another compiled junction tree
+     */
+    public void setBeliefCache(final BeliefCache beliefCache) {
+        if (beliefCache != null && beliefCache.getCompiledJunctionTree() != tree) {
+            throw new IllegalArgumentException("The belief cache belongs to another compiled junction tree");
+        }
+        this.beliefCache = beliefCache;
+    }
+
+    public BeliefCache getBeliefCache() {
+        return beliefCache;
+    }
+
+    /**
+     * @param listener
+     *            the listener to report propagations and numerical instabilities to, or <code>null</code> for none
+     */
+    public void setInferenceListener(final IInferenceListener listener) {
+        this.listener = listener == null ? IInferenceListener.NO_OP : listener;
+    }
+
+    public IInferenceListener getInferenceListener() {
+        return listener;
+    }
+
+    public double[] getBeliefs(final BayesNode node) {
+        final int nodeId = node.getId();
+        if (evidence[nodeId] != NOT_OBSERVED) {
+            Arrays.fill(beliefs[nodeId], 0);
+            beliefs[nodeId][evidence[nodeId]] = 1;
+        } else if (beliefCache != null && !isBeliefUpToDate(nodeId)) {
+            if (!beliefCache.get(getEvidenceSignature(), nodeId, beliefs[nodeId])) {
+                computeBelief(node);
+                computedNodes.clear();
+                computedNodes.set(nodeId);
+                beliefCache.put(getEvidenceSignature(), computedNodes, beliefs);
+            }
+        } else {
+            computeBelief(node);
+        }
+        return beliefs[nodeId];
+    }
+
+    private boolean isBeliefUpToDate(final int nodeId) {
+        return beliefsValid && isBeliefValid[nodeId];
+    }
+
+    private BeliefCache.Signature getEvidenceSignature() {
+        if (evidenceSignature == null) {
+            evidenceSignature = BeliefCache.Signature.of(evidence, evidenceCount);
+        }
+        return evidenceSignature;
+    }
+
+    private void computeBelief(final BayesNode node) {
+        if (!beliefsValid) {
+            beliefsValid = true;
+            updateBeliefs();
+        }
+        final int nodeId = node.getId();
+        if (!isBeliefValid[nodeId]) {
+            isBeliefValid[nodeId] = true;
+            validateBelief(nodeId);
+        }
+    }
+
+    /**
+     * Computes the beliefs of all given nodes. Nodes that share a query cluster have their beliefs computed in a single
+     * pass over that cluster, which is considerably cheaper than calling {@link #getBeliefs(BayesNode)} for each of
+     * them if many nodes are queried.
+     *
+     * @return the beliefs, in the iteration order of <code>nodes</code>. The arrays are owned by this session, as
+     *         those returned by {@link #getBeliefs(BayesNode)}.
+     */
+    public Map<BayesNode, double[]> getBeliefs(final Collection<BayesNode> nodes) {
+        computeBeliefs(nodes);
+        final Map<BayesNode, double[]> result = new LinkedHashMap<BayesNode, double[]>();
+        for (final BayesNode node : nodes) {
+            result.put(node, beliefs[node.getId()]);
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link #getBeliefs(Collection)}, but does not collect the beliefs in a map. Subsequent calls of
+     * {@link #getBeliefs(BayesNode)} for the given nodes return them without further inference, as long as the
+     * evidence does not change.
+     */
+    public void computeBeliefs(final Collection<BayesNode> nodes) {
+        requestedNodes.clear();
+        for (final BayesNode node : nodes) {
+            final int nodeId = node.getId();
+            if (evidence[nodeId] != NOT_OBSERVED) {
+                getBeliefs(node);
+            } else if (!isBeliefUpToDate(nodeId)
+                    && (beliefCache == null || !beliefCache.get(getEvidenceSignature(), nodeId, beliefs[nodeId]))) {
+                requestedNodes.set(nodeId);
+            }
+        }
+        if (!requestedNodes.isEmpty()) {
+            if (!beliefsValid) {
+                beliefsValid = true;
+                updateBeliefs();
+            }
+            int fallbackCount;
+            do {
+                // a fallback to log scale invalidates the beliefs computed before
+                fallbackCount = logScaleFallbackCount;
+                for (int nodeId = requestedNodes.nextSetBit(0); nodeId >= 0; nodeId = requestedNodes
+                        .nextSetBit(nodeId + 1)) {
+                    if (!isBeliefValid[nodeId]) {
+                        validateBeliefsOfQueryCluster(tree.queryClusters[nodeId]);
+                    }
+                }
+            } while (fallbackCount != logScaleFallbackCount);
+            if (beliefCache != null) {
+                beliefCache.put(getEvidenceSignature(), requestedNodes, beliefs);
+            }
+        }
+    }
+
+    private void validateBeliefsOfQueryCluster(final int cluster) {
+        final int[] queryVariables = tree.queryClusterReverseMapping[cluster];
+        if (queryVariables.length == 1) {
+            isBeliefValid[queryVariables[0]] = true;
+            validateBelief(queryVariables[0]);
+            return;
+        }
+        int count = 0;
+        for (final int nodeId : queryVariables) {
+            if (requestedNodes.get(nodeId)) {
+                batchBeliefs[count] = beliefWrappers[nodeId];
+                batchQueries[count] = preparedQueries[nodeId];
+                count++;
+            }
+        }
+        final AbstractFactor f = nodePotentials[cluster];
+        f.sumPrepared(batchBeliefs, batchQueries, count);
+        for (final int nodeId : queryVariables) {
+            if (requestedNodes.get(nodeId)) {
+                isBeliefValid[nodeId] = true;
+                if (!finishBelief(nodeId, f.isLogScale())) {
+                    recoverFromUnderflow(nodeId);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void validateBelief(final int nodeId) {
+        while (true) {
+            final AbstractFactor f = nodePotentials[tree.queryClusters[nodeId]];
+            f.sumPrepared(beliefWrappers[nodeId], preparedQueries[nodeId]);
+            if (finishBelief(nodeId, f.isLogScale())) {
+                return;
+            }
+            recoverFromUnderflow(nodeId);
+            isBeliefValid[nodeId] = true;
+        }
+    }
+
+    /**
+     * @return whether the beliefs could be normalized
+     */
+    private boolean finishBelief(final int nodeId, final boolean isLogScale) {
+        final double[] belief = beliefs[nodeId];
+        if (isLogScale) {
+            // relative to the maximum, so that beliefs whose logarithms are all very small do not underflow
+            double max = Double.NEGATIVE_INFINITY;
+            for (final double value : belief) {
+                max = Math.max(max, value);
+            }
+            for (int i = 0; i < belief.length; i++) {
+                belief[i] = max == Double.NEGATIVE_INFINITY ? 0 : Math.exp(belief[i] - max);
+            }
+        }
+        if (MathUtils.sum(belief) == 0) {
+            return false;
+        }
+        MathUtils.normalize(belief);
+        return true;
+    }
+
+    /**
+     * switches the clusters whose potentials underflowed to log scale and propagates the evidence again, or fails if
+     * that is not possible
+     */
+    private void recoverFromUnderflow(final int nodeId) {
+        listener.numericalInstabilityDetected(tree.getNetwork(), tree.getNetwork().getNode(nodeId));
+        if (!isAdaptiveLogScale || !switchUnderflowedClustersToLogScale(tree.queryClusters[nodeId])) {
+            throw new NumericalInstabilityException("Numerical instability detected for evidence: " + getEvidence()
+                    + " and node : " + nodeId + ", consider using logarithmic scale computation (configurable in"
+                    + " FactorFactory) or adaptive log scale");
+        }
+        logScaleFallbackCount++;
+        isResetNeeded = true;
+        updateBeliefs();
+    }
+
+    /**
+     * @return whether any cluster has been switched
+     */
+    private boolean switchUnderflowedClustersToLogScale(final int queryCluster) {
+        boolean isSwitched = false;
+        for (int cluster = 0; cluster < nodePotentials.length; cluster++) {
+            if (!nodePotentials[cluster].isLogScale() && hasUnderflowed(nodePotentials[cluster])) {
+                switchToLogScale(cluster);
+                isSwitched = true;
+            }
+        }
+        if (!isSwitched && !nodePotentials[queryCluster].isLogScale()) {
+            switchToLogScale(queryCluster);
+            isSwitched = true;
+        }
+        return isSwitched;
+    }
+
+    /**
+     * @return whether all entries consistent with the evidence are zero
+     */
+    private static boolean hasUnderflowed(final AbstractFactor potential) {
+        return potential.sum() == 0;
+    }
+
+    private void switchToLogScale(final int cluster) {
+        logScaleClusters.set(cluster);
+        fullPotentials[cluster].setLogScale(true);
+    }
+
+    private boolean isSwitchedToLogScale(final int edge) {
+        return logScaleClusters.get(tree.edgeEnds[2 * edge]) || logScaleClusters.get(tree.edgeEnds[2 * edge + 1]);
+    }
+
+    private void updateBeliefs() {
+        final long start = System.nanoTime();
+        messagePasses = 0;
+        skippedMessagePasses = 0;
+        Arrays.fill(isBeliefValid, false);
+
+        // when slicing, the first evidence is propagated from scratch, so that the clusters get sliced by it
+        if (isResetNeeded || !isIncremental || !isExtensionOfPropagatedEvidence() || isSlicing
+                && propagatedCount == 0) {
+            resetPotentials();
+        }
+        propagateNewEvidence();
+        listener.beliefsUpdated(tree.getNetwork(), messagePasses, skippedMessagePasses, System.nanoTime() - start);
+    }
+
+    private boolean isExtensionOfPropagatedEvidence() {
+        if (propagatedCount > evidenceCount) {
+            return false;
+        }
+        for (int node = 0; node < evidence.length; node++) {
+            if (isObserved(node) && propagatedOutcomes[node] != evidence[node]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void propagateNewEvidence() {
+        clustersHavingNewEvidence.clear();
+        if (propagatedCount == evidenceCount) {
+            return;
+        }
+        int propagationRoot = 0;
+        for (int node = 0; node < evidence.length; node++) {
+            if (evidence[node] != NOT_OBSERVED && !isObserved(node)) {
+                incorporateEvidence(node, evidence[node]);
+                propagationRoot = tree.concernedClusters[node][0];
+            }
+        }
+        if (clustersHavingNewEvidence.isEmpty()) {
+            return;
+        }
+
+        // clusters skipped by earlier distributions are not up to date, but the sepsets still hold the last message
+        // they sent, so dividing by the sepsets cancels out what they missed
+        skipCollection(propagationRoot);
+        collectEvidence(propagationRoot, -1);
+        skipDistribution(propagationRoot);
+        distributeEvidence(propagationRoot, -1);
+    }
+
+    /**
+     * used during compilation, when the potentials of the session are those of the compiled junction tree
+     */
+    void propagateWithoutEvidence() {
+        skipped.clear();
+        collectEvidence(0, -1);
+        distributeEvidence(0, -1);
+    }
+
+    private void resetPotentials() {
+        isResetNeeded = false;
+        sliceClusters();
+        for (AbstractFactor f : nodePotentials) {
+            f.resetSelections();
+        }
+        for (AbstractFactor f : sepSets) {
+            f.resetSelections();
+        }
+        Arrays.fill(propagatedOutcomes, NOT_OBSERVED);
+        propagatedCount = 0;
+        replayFactorInitializations();
+    }
+
+    private void replayFactorInitializations() {
+        for (int i = 0; i < nodePotentials.length; i++) {
+            AbstractFactor initial = slices[i] == null ? tree.clusters[i] : slices[i].initial;
+            nodePotentials[i].copyValues(initial.getValues());
+            if (logScaleClusters.get(i)) {
+                MathUtils.log(nodePotentials[i].getValues());
+            }
+        }
+        for (int i = 0; i < sepSets.length; i++) {
+            sepSets[i].copyValues(tree.sepSets[i].getValues());
+            // sepsets are in log scale if both their clusters are
+            if (isSwitchedToLogScale(i) && areBothEndsLogScale(i)) {
+                MathUtils.log(sepSets[i].getValues());
+            }
+        }
+    }
+
+    private void sliceClusters() {
+        if (isSlicing) {
+            if (sliceCache == null) {
+                sliceCache = new LinkedHashMap<ClusterSlice.Key, ClusterSlice>(16, 0.75f, true) {
+
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(final Map.Entry<ClusterSlice.Key, ClusterSlice> eldest) {
+                        return size() > SLICE_CACHE_SIZE;
+                    }
+                };
+            }
+        }
+        for (int cluster = 0; cluster < nodePotentials.length; cluster++) {
+            final ClusterSlice slice = isSlicing ? findSlice(cluster) : null;
+            if (slice != slices[cluster]) {
+                useSlice(cluster, slice);
+            }
+        }
+    }
+
+    private ClusterSlice findSlice(final int cluster) {
+        if (logScaleClusters.get(cluster)) {
+            return null;
+        }
+        final ClusterSlice.Key key = ClusterSlice.keyOf(tree, cluster, evidence);
+        if (key == null) {
+            return null;
+        }
+        ClusterSlice slice = sliceCache.get(key);
+        if (slice == null) {
+            slice = ClusterSlice.create(tree, key);
+            sliceCache.put(key, slice);
+        }
+        return slice;
+    }
+
+    private void useSlice(final int cluster, final ClusterSlice slice) {
+        slices[cluster] = slice;
+        nodePotentials[cluster] = slice == null ? fullPotentials[cluster] : slice.potential;
+        final int[] neighborEdges = tree.neighborEdges[cluster];
+        for (int i = 0; i < neighborEdges.length; i++) {
+            final int edge = neighborEdges[i];
+            final int end = tree.edgeEnds[2 * edge] == cluster ? 2 * edge : 2 * edge + 1;
+            preparedMultiplications[end] = slice == null ? tree.preparedMultiplications[end]
+                    : slice.preparedMultiplications[i];
+        }
+        final int[] queryVariables = tree.queryClusterReverseMapping[cluster];
+        for (int i = 0; i < queryVariables.length; i++) {
+            final int variable = queryVariables[i];
+            preparedQueries[variable] = slice == null ? tree.preparedQueries[variable] : slice.preparedQueries[i];
+        }
+    }
+
+    private void incorporateEvidence(final int node, final int outcome) {
+        propagatedOutcomes[node] = outcome;
+        propagatedCount++;
+        // get evidence to all concerned factors (includes home cluster)
+        for (final int concernedCluster : tree.concernedClusters[node]) {
+            // slices only contain the variables that were not observed when they were sliced
+            if (slices[concernedCluster] == null || slices[concernedCluster].contains(node)) {
+                nodePotentials[concernedCluster].select(node, outcome);
+            }
+            clustersHavingNewEvidence.set(concernedCluster);
+        }
+    }
+
+    private boolean isObserved(final int node) {
+        return propagatedOutcomes[node] != NOT_OBSERVED;
+    }
+
+    /**
+     * checks which nodes need not be processed during collectEvidence (because of preprocessing). These are those nodes
+     * without new evidence which are leaves or which only have descendants without new evidence. Their potentials are
+     * consistent with the sepset towards the root, so their messages would not change anything. The result is stored
+     * in {@link #skipped}.
+     *
+     * @param root
+     *            the node to start the check from
+     */
+    private void skipCollection(final int root) {
+        skipped.clear();
+        recursiveSkipCollection(root, -1);
+    }
+
+    private void recursiveSkipCollection(final int node, final int parent) {
+        boolean areAllDescendantsSkipped = true;
+        for (final int neighbor : tree.neighbors[node]) {
+            if (neighbor != parent) {
+                recursiveSkipCollection(neighbor, node);
+                if (!skipped.get(neighbor)) {
+                    areAllDescendantsSkipped = false;
+                }
+            }
+        }
+        if (areAllDescendantsSkipped && !clustersHavingNewEvidence.get(node)) {
+            skipped.set(node);
+        }
+    }
+
+    /**
+     * checks which nodes do not need to be visited during evidence distribution. These are exactly those nodes which
+     * are
+     * <ul>
+     * <li>not the query factor of a non-evidence variable</li>
+     * <li>AND have no descendants that cannot be skipped</li>
+     * </ul>
+     * The result is stored in {@link #skipped}.
+     *
+     * @param distNode
+     */
+    private void skipDistribution(final int distNode) {
+        skipped.clear();
+        recursiveSkipDistribution(distNode, -1);
+    }
+
+    private void recursiveSkipDistribution(final int node, final int parent) {
+        boolean areAllDescendantsSkipped = true;
+        for (final int neighbor : tree.neighbors[node]) {
+            if (neighbor != parent) {
+                recursiveSkipDistribution(neighbor, node);
+                if (!skipped.get(neighbor)) {
+                    areAllDescendantsSkipped = false;
+                }
+            }
+        }
+        if (areAllDescendantsSkipped && !isQueryFactorOfUnobservedVariable(node)) {
+            skipped.set(node);
+        }
+    }
+
+    private boolean isQueryFactorOfUnobservedVariable(final int node) {
+        for (int i : tree.queryClusterReverseMapping[node]) {
+            if (!isObserved(i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void collectEvidence(final int cluster, final int parent) {
+        final int[] neighbors = tree.neighbors[cluster];
+        for (int i = 0; i < neighbors.length; i++) {
+            final int n = neighbors[i];
+            if (n != parent) {
+                if (skipped.get(n)) {
+                    skippedMessagePasses++;
+                } else {
+                    collectEvidence(n, cluster);
+                    messagePass(n, cluster, tree.neighborEdges[cluster][i]);
+                }
+            }
+        }
+    }
+
+    private void distributeEvidence(final int cluster, final int parent) {
+        final int[] neighbors = tree.neighbors[cluster];
+        for (int i = 0; i < neighbors.length; i++) {
+            final int n = neighbors[i];
+            if (n != parent) {
+                if (skipped.get(n)) {
+                    skippedMessagePasses++;
+                } else {
+                    messagePass(cluster, n, tree.neighborEdges[cluster][i]);
+                    distributeEvidence(n, cluster);
+                }
+            }
+        }
+    }
+
+    private void messagePass(final int from, final int to, final int edge) {
+        final AbstractFactor sepSet = sepSets[edge];
+        if (!needMessagePass(sepSet)) {
+            skippedMessagePasses++;
+            return;
+        }
+        messagePasses++;
+
+        final IArrayWrapper newSepValues = sepSet.getValues();
+        for (int i = 0; i < newSepValues.length(); i++) {
+            scratchpad[i] = newSepValues.getDouble(i);
+        }
+
+        final int fromEnd = tree.edgeEnds[2 * edge] == from ? 2 * edge : 2 * edge + 1;
+        final int toEnd = fromEnd ^ 1;
+        nodePotentials[from].sumPrepared(newSepValues, preparedMultiplications[fromEnd]);
+
+        final boolean isFromLogScale = nodePotentials[from].isLogScale();
+        final boolean isToLogScale = nodePotentials[to].isLogScale();
+        if (isFromLogScale && !isToLogScale) {
+            MathUtils.exp(newSepValues);
+        }
+        if (isFromLogScale && isToLogScale) {
+            MathUtils.secureSubtract(newSepValues, scratchpad, scratchpad);
+        } else {
+            MathUtils.secureDivide(newSepValues, scratchpad, scratchpad);
+        }
+
+        if (!isFromLogScale && isToLogScale) {
+            MathUtils.log(scratchpad);
+        }
+        nodePotentials[to].multiplyPrepared(scratchpadWrapper, preparedMultiplications[toEnd]);
+    }
+
+    /*
+     * we don't get additional information if all variables in the sepSet are observed, so skip message pass
+     */
+    private boolean needMessagePass(final AbstractFactor sepSet) {
+        for (final int var : sepSet.getDimensionIDs()) {
+            if (!isObserved(var)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean areBothEndsLogScale(final int edge) {
+        return fullPotentials[tree.edgeEnds[2 * edge]].isLogScale()
+                && fullPotentials[tree.edgeEnds[2 * edge + 1]].isLogScale();
+    }
+}
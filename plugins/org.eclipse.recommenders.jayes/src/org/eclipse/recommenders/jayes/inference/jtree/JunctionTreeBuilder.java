@@ -17,6 +17,7 @@ import java.util.ListIterator;
 
 import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.ModelTooLargeException;
 import org.eclipse.recommenders.jayes.util.Graph;
 import org.eclipse.recommenders.jayes.util.OrderIgnoringPair;
 import org.eclipse.recommenders.jayes.util.Pair;
@@ -25,7 +26,12 @@ import org.eclipse.recommenders.jayes.util.triangulation.IEliminationHeuristic;
 
 public class JunctionTreeBuilder {
 
+    // each entry of a cluster factor needs a double for its value and, on average, about two ints for its indices in
+    // the prepared multiplications and queries
+    private static final int BYTES_PER_ENTRY = 16;
+
     private final IEliminationHeuristic heuristic;
+    private long memoryBudget = Long.MAX_VALUE;
 
     public static JunctionTreeBuilder forHeuristic(IEliminationHeuristic heuristic) {
         return new JunctionTreeBuilder(heuristic);
@@ -35,14 +41,64 @@ public class JunctionTreeBuilder {
         this.heuristic = heuristic;
     }
 
+    /**
+     * @return a builder using the same heuristic, whose {@link #buildJunctionTree(BayesNet)} fails as soon as the
+     *         {@link #estimateMemory(BayesNet) estimated memory} of the junction tree exceeds the given budget. The
+     *         check is done while triangulating, so the graph is triangulated only once and no factors are allocated
+     *         for networks that are too large.
+     */
+    public JunctionTreeBuilder withMemoryBudget(long bytes) {
+        JunctionTreeBuilder builder = new JunctionTreeBuilder(heuristic);
+        builder.memoryBudget = bytes;
+        return builder;
+    }
+
+    /**
+     * @throws ModelTooLargeException
+     *             if the junction tree exceeds the {@link #withMemoryBudget(long) memory budget}. The estimated memory
+     *             reported is the part found before triangulation was stopped.
+     */
     public JunctionTree buildJunctionTree(BayesNet net) {
         JunctionTree junctionTree = new JunctionTree();
-        junctionTree.setClusters(triangulateGraphAndFindCliques(buildMoralGraph(net), weightNodesByOutcomes(net),
+        junctionTree.setClusters(triangulateGraphAndFindCliques(net, buildMoralGraph(net), weightNodesByOutcomes(net),
                 heuristic));
         junctionTree.setSepSets(computeSepsets(junctionTree, net));
         return junctionTree;
     }
 
+    /**
+     * Estimates the total number of entries of the cluster factors of the junction tree for the given network, without
+     * allocating any factors. As the sizes of all cliques produced by the graph elimination are summed up, including
+     * those contained in other cliques, this is an upper bound. The estimate saturates at {@link Long#MAX_VALUE}.
+     */
+    public long estimateClusterTableSize(BayesNet net) {
+        long total = 0;
+        for (List<Integer> clique : new GraphElimination(buildMoralGraph(net), weightNodesByOutcomes(net), heuristic)) {
+            total = addTableSize(total, net, clique);
+        }
+        return total;
+    }
+
+    /**
+     * @return an upper bound of the memory needed by the junction tree of the network, in bytes
+     */
+    public long estimateMemory(BayesNet net) {
+        return toBytes(estimateClusterTableSize(net));
+    }
+
+    private static long addTableSize(long total, BayesNet net, List<Integer> clique) {
+        long size = 1;
+        for (int node : clique) {
+            int outcomes = net.getNode(node).getOutcomeCount();
+            size = size > Long.MAX_VALUE / outcomes ? Long.MAX_VALUE : size * outcomes;
+        }
+        return total > Long.MAX_VALUE - size ? Long.MAX_VALUE : total + size;
+    }
+
+    private static long toBytes(long entries) {
+        return entries > Long.MAX_VALUE / BYTES_PER_ENTRY ? Long.MAX_VALUE : entries * BYTES_PER_ENTRY;
+    }
+
     private Graph buildMoralGraph(BayesNet net) {
         Graph moral = new Graph(net.getNodes().size());
         for (final BayesNode node : net.getNodes()) {
@@ -64,12 +120,18 @@ public class JunctionTreeBuilder {
         }
     }
 
-    private List<List<Integer>> triangulateGraphAndFindCliques(Graph graph, double[] weights,
+    private List<List<Integer>> triangulateGraphAndFindCliques(BayesNet net, Graph graph, double[] weights,
             IEliminationHeuristic eliminationHeuristic) {
         GraphElimination triangulate = new GraphElimination(graph, weights, eliminationHeuristic);
 
         final List<List<Integer>> cliques = new ArrayList<List<Integer>>();
+        long tableSize = 0;
         for (List<Integer> nextClique : triangulate) {
+            // sums up all cliques like estimateClusterTableSize, so that the budget is checked against the same bound
+            tableSize = addTableSize(tableSize, net, nextClique);
+            if (toBytes(tableSize) > memoryBudget) {
+                throw new ModelTooLargeException(net, toBytes(tableSize), memoryBudget);
+            }
             if (!containsSuperset(cliques, nextClique)) {
                 cliques.add(nextClique);
             }
@@ -77,6 +77,14 @@ public final class MathUtils {
         }
     }
 
+    public static void secureDivide(IArrayWrapper a, double[] b, double[] c) {
+        for (int i = 0; i < a.length(); i++) {
+            if (b[i] != 0) {
+                c[i] = a.getDouble(i) / b[i];
+            }
+        }
+    }
+
     public static void secureSubtract(double[] a, double[] b, double[] c) {
         for (int i = 0; i < a.length; i++) {
             if (b[i] != Double.NEGATIVE_INFINITY) {
@@ -85,6 +93,14 @@ public final class MathUtils {
         }
     }
 
+    public static void secureSubtract(IArrayWrapper a, double[] b, double[] c) {
+        for (int i = 0; i < a.length(); i++) {
+            if (b[i] != Double.NEGATIVE_INFINITY) {
+                c[i] = a.getDouble(i) - b[i];
+            }
+        }
+    }
+
     public static double[] normalizeLog(double[] vector) {
         double normFactor = MathUtils.logsumexp(vector);
         if (normFactor == Double.NEGATIVE_INFINITY) {
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.util.sharing;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+
+/**
+ * Canonical instances of arrays, shared by all networks loaded in the process. Unlike {@link CanonicalIntArrayManager},
+ * which only deduplicates the arrays of a single network, the pool holds its canonical instances weakly, so that an
+ * array is dropped from the pool once no network uses it anymore.
+ * <p>
+ * Arrays must not be modified once they have been added to the pool. The pool is thread-safe.
+ */
+public final class CanonicalArrayPool {
+
+    private static final CanonicalArrayPool DEFAULT = new CanonicalArrayPool();
+
+    private static final int ARRAY_OVERHEAD = 16;
+
+    private static final class CanonicalReference extends WeakReference<Object> {
+
+        private final int hash;
+        private final long bytes;
+        // the next reference with the same hash
+        private CanonicalReference next;
+
+        private CanonicalReference(Object array, int hash, long bytes, ReferenceQueue<Object> queue) {
+            super(array, queue);
+            this.hash = hash;
+            this.bytes = bytes;
+        }
+    }
+
+    private final Map<Integer, CanonicalReference> buckets = new HashMap<Integer, CanonicalReference>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    private int entryCount;
+    private long pooledBytes;
+    private long hitCount;
+    private long missCount;
+    private long savedBytes;
+
+    /**
+     * @return the pool shared by all networks of the process
+     */
+    public static CanonicalArrayPool getDefault() {
+        return DEFAULT;
+    }
+
+    public int[] getInstance(int[] array) {
+        return (int[]) getInstance(array, Arrays.hashCode(array), ARRAY_OVERHEAD + (long) array.length * 4);
+    }
+
+    public double[] getInstance(double[] array) {
+        return (double[]) getInstance(array, Arrays.hashCode(array), ARRAY_OVERHEAD + (long) array.length * 8);
+    }
+
+    public float[] getInstance(float[] array) {
+        return (float[]) getInstance(array, Arrays.hashCode(array), ARRAY_OVERHEAD + (long) array.length * 4);
+    }
+
+    /**
+     * Makes the wrapper hold the canonical instance of its array. Values that are not held in a heap array, e.g.,
+     * those of a memory-mapped model file, are left as they are.
+     */
+    public void share(IArrayWrapper values) {
+        if (values.getClass() == DoubleArrayWrapper.class) {
+            values.setArray(getInstance(values.toDoubleArray()));
+        } else if (values.getClass() == FloatArrayWrapper.class) {
+            values.setArray(getInstance(values.toFloatArray()));
+        }
+    }
+
+    private synchronized Object getInstance(Object array, int hash, long bytes) {
+        expungeStaleEntries();
+        CanonicalReference head = buckets.get(hash);
+        for (CanonicalReference ref = head; ref != null; ref = ref.next) {
+            Object canonical = ref.get();
+            if (canonical != null && contentEquals(canonical, array)) {
+                hitCount++;
+                if (canonical != array) {
+                    savedBytes += bytes;
+                }
+                return canonical;
+            }
+        }
+        CanonicalReference ref = new CanonicalReference(array, hash, bytes, queue);
+        ref.next = head;
+        buckets.put(hash, ref);
+        entryCount++;
+        pooledBytes += bytes;
+        missCount++;
+        return array;
+    }
+
+    private static boolean contentEquals(Object canonical, Object array) {
+        if (canonical.getClass() != array.getClass()) {
+            return false;
+        }
+        if (array instanceof int[]) {
+            return Arrays.equals((int[]) canonical, (int[]) array);
+        }
+        if (array instanceof double[]) {
+            return Arrays.equals((double[]) canonical, (double[]) array);
+        }
+        return Arrays.equals((float[]) canonical, (float[]) array);
+    }
+
+    private void expungeStaleEntries() {
+        for (Object stale; (stale = queue.poll()) != null;) {
+            CanonicalReference ref = (CanonicalReference) stale;
+            CanonicalReference head = buckets.get(ref.hash);
+            if (head == ref) {
+                if (ref.next == null) {
+                    buckets.remove(ref.hash);
+                } else {
+                    buckets.put(ref.hash, ref.next);
+                }
+            } else {
+                CanonicalReference previous = head;
+                while (previous != null && previous.next != ref) {
+                    previous = previous.next;
+                }
+                if (previous == null) {
+                    continue;
+                }
+                previous.next = ref.next;
+            }
+            entryCount--;
+            pooledBytes -= ref.bytes;
+        }
+    }
+
+    /**
+     * @return the number of canonical arrays that are still in use
+     */
+    public synchronized int getEntryCount() {
+        expungeStaleEntries();
+        return entryCount;
+    }
+
+    /**
+     * @return the approximate number of bytes of the canonical arrays that are still in use
+     */
+    public synchronized long getPooledBytes() {
+        expungeStaleEntries();
+        return pooledBytes;
+    }
+
+    /**
+     * @return the number of lookups answered by an existing canonical array
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups that added an array to the pool
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the approximate number of bytes of all arrays that have been replaced by an equal canonical array since
+     *         the pool was created. Replaced arrays can be garbage collected, unless referenced elsewhere.
+     */
+    public synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+}
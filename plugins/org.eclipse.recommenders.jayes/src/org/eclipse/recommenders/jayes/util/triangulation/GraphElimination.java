@@ -12,7 +12,6 @@ package org.eclipse.recommenders.jayes.util.triangulation;
 
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.eclipse.recommenders.jayes.util.Graph;
@@ -20,6 +19,10 @@ import org.eclipse.recommenders.jayes.util.Graph;
 /**
  * Graph elimination based on greedy minimum fill-in heuristic. Tie-breaking is done by using weights on the nodes. On
  * tie, the node is chosen that will result in the cluster with a minimal sum of node weights
+ * <p>
+ * The remaining nodes are kept in a priority queue. After each elimination, only the nodes whose heuristic value may
+ * have changed are re-evaluated: for {@link MinDegree}, the neighbors of the eliminated node, for {@link MinFillIn}, also
+ * the nodes adjacent to at least two of these neighbors. For other heuristics, all remaining nodes are re-evaluated.
  */
 public class GraphElimination implements Iterable<List<Integer>> {
 
@@ -33,77 +36,178 @@ public class GraphElimination implements Iterable<List<Integer>> {
         this.heuristic = heuristic;
     }
 
-    private List<Integer> getNodeList() {
-        final List<Integer> moralNodes = new LinkedList<Integer>();
-        for (int i = 0; i < graph.numberOfVertices(); i++) {
-            moralNodes.add(i);
-        }
-        return moralNodes;
-    }
-
     @Override
     public Iterator<List<Integer>> iterator() {
-        return new Iterator<List<Integer>>() {
-
-            private List<Integer> nodes = getNodeList();
-            private QuotientGraph graph = new QuotientGraph(GraphElimination.this.graph);
+        return new EliminationIterator();
+    }
 
-            @Override
-            public boolean hasNext() {
-                return !nodes.isEmpty();
+    private final class EliminationIterator implements Iterator<List<Integer>> {
+
+        private final QuotientGraph graph = new QuotientGraph(GraphElimination.this.graph);
+        private final int[] costs;
+        private final double[] clusterWeights;
+        // counts, per node, the neighbors of the eliminated node it is adjacent to
+        private final int[] sharedNeighbors;
+
+        // an indexed min-heap of the remaining nodes, ordered by cost, then cluster weight, then node
+        private final int[] heap;
+        private final int[] heapPositions;
+        private int size;
+
+        private EliminationIterator() {
+            size = GraphElimination.this.graph.numberOfVertices();
+            costs = new int[size];
+            clusterWeights = new double[size];
+            sharedNeighbors = new int[size];
+            heap = new int[size];
+            heapPositions = new int[size];
+            for (int node = 0; node < size; node++) {
+                heap[node] = node;
+                heapPositions[node] = node;
+                evaluate(node);
             }
+            heapify();
+        }
 
-            @Override
-            public List<Integer> next() {
-                int next = nextTriangulationNode();
-                nodes.remove(Integer.valueOf(next));
-                List<Integer> result = createClique(next);
-                graph.eliminate(next);
-                return result;
+        @Override
+        public boolean hasNext() {
+            return size > 0;
+        }
+
+        @Override
+        public List<Integer> next() {
+            int next = heap[0];
+            size--;
+            if (size > 0) {
+                swap(0, size);
+                siftDown(0);
             }
+            List<Integer> result = createClique(next);
+            graph.eliminate(next);
+            reevaluateAffectedNodes(result);
+            return result;
+        }
 
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
 
-            }
+        }
 
-            private int nextTriangulationNode() {
-                int minCost = Integer.MAX_VALUE;
-                Double nextClusterWeight = Double.MAX_VALUE;
-                int returnNode = 0;
-
-                for (final int node : nodes) {
-                    final int predictedCost = heuristic.getHeuristicValue(graph, node);
-                    if (predictedCost <= minCost) {
-                        final double clusterWeight = computeClusterWeight(node);
-                        if (predictedCost < minCost || clusterWeight < nextClusterWeight) {
-                            returnNode = node;
-                            minCost = predictedCost;
-                            nextClusterWeight = clusterWeight;
+        private void reevaluateAffectedNodes(List<Integer> clique) {
+            if (heuristic.getClass() != MinDegree.class && heuristic.getClass() != MinFillIn.class) {
+                for (int i = 0; i < size; i++) {
+                    evaluate(heap[i]);
+                }
+                heapify();
+                return;
+            }
+            List<Integer> neighbors = clique.subList(1, clique.size());
+            for (int neighbor : neighbors) {
+                reevaluate(neighbor);
+            }
+            if (heuristic.getClass() == MinFillIn.class) {
+                // the neighbors became a clique, which changes the fill-in of all nodes adjacent to two of them
+                for (int neighbor : neighbors) {
+                    sharedNeighbors[neighbor] = -1;
+                }
+                List<Integer> candidates = new ArrayList<Integer>();
+                for (int neighbor : neighbors) {
+                    for (int node : graph.getNeighbors(neighbor)) {
+                        if (sharedNeighbors[node] >= 0 && ++sharedNeighbors[node] == 2) {
+                            candidates.add(node);
                         }
                     }
                 }
+                for (int neighbor : neighbors) {
+                    sharedNeighbors[neighbor] = 0;
+                    for (int node : graph.getNeighbors(neighbor)) {
+                        sharedNeighbors[node] = 0;
+                    }
+                }
+                for (int node : candidates) {
+                    reevaluate(node);
+                }
+            }
+        }
 
-                return returnNode;
+        private void evaluate(int node) {
+            costs[node] = heuristic.getHeuristicValue(graph, node);
+            clusterWeights[node] = computeClusterWeight(node);
+        }
+
+        private void reevaluate(int node) {
+            evaluate(node);
+            siftUp(heapPositions[node]);
+            siftDown(heapPositions[node]);
+        }
+
+        private double computeClusterWeight(final int node) {
+            double clSize = nodeWeights[node];
+            for (final int neighbor : graph.getNeighbors(node)) {
+                clSize += nodeWeights[neighbor];
+            }
+            return clSize;
+        }
+
+        private List<Integer> createClique(final int centerNode) {
+            final List<Integer> clique = new ArrayList<Integer>();
+            clique.add(centerNode);
+            for (final int neighbor : graph.getNeighbors(centerNode)) {
+                clique.add(neighbor);
+            }
+            return clique;
+        }
+
+        private boolean precedes(int node, int other) {
+            if (costs[node] != costs[other]) {
+                return costs[node] < costs[other];
+            }
+            if (clusterWeights[node] != clusterWeights[other]) {
+                return clusterWeights[node] < clusterWeights[other];
             }
+            return node < other;
+        }
 
-            private double computeClusterWeight(final int node) {
-                double clSize = nodeWeights[node];
-                for (final int neighbor : graph.getNeighbors(node)) {
-                    clSize += nodeWeights[neighbor];
+        private void heapify() {
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!precedes(heap[index], heap[parent])) {
+                    return;
                 }
-                return clSize;
+                swap(index, parent);
+                index = parent;
             }
+        }
 
-            private List<Integer> createClique(final int centerNode) {
-                final List<Integer> clique = new ArrayList<Integer>();
-                clique.add(centerNode);
-                for (final int neighbor : graph.getNeighbors(centerNode)) {
-                    clique.add(neighbor);
+        private void siftDown(int index) {
+            while (true) {
+                int smallest = index;
+                for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                    if (precedes(heap[child], heap[smallest])) {
+                        smallest = child;
+                    }
+                }
+                if (smallest == index) {
+                    return;
                 }
-                return clique;
+                swap(index, smallest);
+                index = smallest;
             }
-        };
+        }
+
+        private void swap(int i, int j) {
+            int node = heap[i];
+            heap[i] = heap[j];
+            heap[j] = node;
+            heapPositions[heap[i]] = i;
+            heapPositions[heap[j]] = j;
+        }
     }
 }
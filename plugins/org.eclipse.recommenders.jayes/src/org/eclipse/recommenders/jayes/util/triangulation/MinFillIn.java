@@ -10,7 +10,6 @@
  ******************************************************************************/
 package org.eclipse.recommenders.jayes.util.triangulation;
 
-import java.util.HashSet;
 import java.util.Set;
 
 public class MinFillIn implements IEliminationHeuristic {
@@ -20,14 +19,24 @@ public class MinFillIn implements IEliminationHeuristic {
         int fillIn = 0;
         Set<Integer> neighborsOfNode = graph.getNeighbors(node);
         for (final int neighbor : neighborsOfNode) {
-            final Set<Integer> neighbors2 = new HashSet<Integer>(graph.getNeighbors(neighbor));
-
-            neighbors2.retainAll(neighborsOfNode);
-            fillIn += neighborsOfNode.size() - 1 - neighbors2.size();
+            fillIn += neighborsOfNode.size() - 1 - countCommon(graph.getNeighbors(neighbor), neighborsOfNode);
             // Edges are counted twice, but this is okay, since the
             // ordering is maintained
 
         }
         return fillIn;
     }
+
+    private static int countCommon(Set<Integer> set, Set<Integer> other) {
+        if (set.size() > other.size()) {
+            return countCommon(other, set);
+        }
+        int common = 0;
+        for (int element : set) {
+            if (other.contains(element)) {
+                common++;
+            }
+        }
+        return common;
+    }
 }
@@ -23,4 +23,8 @@ public final class Constants {
     public static final String PREF_IGNORE_DOWNLOAD_FAILURES = "ignore.download.failures"; //$NON-NLS-1$
     public static final String PREF_REPOSITORY_USERNAME = "username"; //$NON-NLS-1$
     public static final String PREF_REPOSITORY_PASSWORD = "password"; //$NON-NLS-1$
+    public static final String PREF_PREWARMING_ENABLE = "prewarming.enable"; //$NON-NLS-1$
+    public static final String PREF_PREWARMING_MODEL_COUNT = "prewarming.model.count"; //$NON-NLS-1$
+    public static final String PREF_PREWARMING_CPU_PERCENT = "prewarming.cpu.percent"; //$NON-NLS-1$
+    public static final String PREF_PREWARMING_MIN_FREE_MEMORY = "prewarming.min.free.memory"; //$NON-NLS-1$
 }
@@ -0,0 +1,321 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.internal.models.rcp;
+
+import static org.eclipse.recommenders.internal.models.rcp.ModelsRcpModule.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.recommenders.coordinates.DependencyInfo;
+import org.eclipse.recommenders.coordinates.IDependencyListener;
+import org.eclipse.recommenders.coordinates.ProjectCoordinate;
+import org.eclipse.recommenders.internal.models.rcp.l10n.LogMessages;
+import org.eclipse.recommenders.internal.models.rcp.l10n.Messages;
+import org.eclipse.recommenders.models.IModelArchiveCoordinateAdvisor;
+import org.eclipse.recommenders.models.IModelProvider;
+import org.eclipse.recommenders.models.IModelRepository;
+import org.eclipse.recommenders.models.ModelCoordinate;
+import org.eclipse.recommenders.models.UniqueTypeName;
+import org.eclipse.recommenders.models.rcp.IModelPrewarmer;
+import org.eclipse.recommenders.models.rcp.IProjectCoordinateProvider;
+import org.eclipse.recommenders.rcp.IRcpService;
+import org.eclipse.recommenders.rcp.JavaModelEvents.JarPackageFragmentRootAdded;
+import org.eclipse.recommenders.rcp.JavaModelEvents.JavaProjectOpened;
+import org.eclipse.recommenders.utils.Logs;
+import org.eclipse.recommenders.utils.Nullable;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.ui.PlatformUI;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Provider;
+
+/**
+ * Prewarms models in a low-priority background job. A run first creates the model providers contributed to
+ * {@link ModelsRcpModule#PREWARMED_MODEL_PROVIDERS}, which register with the prewarmer when they are opened. It then
+ * downloads the model archives of all dependencies known to the {@link IDependencyListener} and loads the most
+ * frequently used models of each registered provider. Archives and models handled once are not handled again, so later
+ * runs, e.g., after a project has been opened, only cover what is new. Each run also saves the usage recorded so far.
+ * <p>
+ * The job only runs in a running workbench, as it needs the display to notice user activity. A run yields to the
+ * user: it is canceled on any key or mouse button press in the workbench and resumed once the user has been idle for a
+ * while. It also pauses between models to stay within the configured share of a CPU, and stops loading models when the
+ * free heap falls below the configured reserve.
+ */
+public class ModelPrewarmer implements IModelPrewarmer, IRcpService {
+
+    private static final long START_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long IDLE_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final long MAX_PAUSE_MILLIS = 100;
+
+    private final IModelRepository repository;
+    private final IModelArchiveCoordinateAdvisor index;
+    private final IDependencyListener dependencyListener;
+    private final IProjectCoordinateProvider pcProvider;
+    private final ModelsRcpPreferences prefs;
+    private final RecentlyUsedTypes recentlyUsedTypes;
+    @SuppressWarnings("rawtypes")
+    private final Map<String, Provider<IModelProvider>> modelProviders;
+
+    private final Map<String, IModelProvider<? super UniqueTypeName, ?>> providers = new ConcurrentHashMap<>();
+    private final Set<ModelCoordinate> resolvedArchives = Collections
+            .newSetFromMap(new ConcurrentHashMap<ModelCoordinate, Boolean>());
+    private final SetMultimap<String, UniqueTypeName> prewarmedModels = Multimaps
+            .synchronizedSetMultimap(HashMultimap.<String, UniqueTypeName>create());
+
+    private final PrewarmingJob job = new PrewarmingJob();
+    private final Listener userActivityListener = new Listener() {
+
+        @Override
+        public void handleEvent(Event event) {
+            if (job.getState() == Job.RUNNING) {
+                job.cancel();
+            }
+        }
+    };
+
+    @Nullable
+    private volatile Display display;
+    private volatile boolean isClosed;
+
+    @Inject
+    @SuppressWarnings("rawtypes")
+    public ModelPrewarmer(IModelRepository repository, IModelArchiveCoordinateAdvisor index,
+            IDependencyListener dependencyListener, IProjectCoordinateProvider pcProvider, ModelsRcpPreferences prefs,
+            @Named(RECENTLY_USED_TYPES_FILE) File recentlyUsedTypesFile,
+            @Named(PREWARMED_MODEL_PROVIDERS) Map<String, Provider<IModelProvider>> modelProviders) {
+        this.repository = repository;
+        this.index = index;
+        this.dependencyListener = dependencyListener;
+        this.pcProvider = pcProvider;
+        this.prefs = prefs;
+        recentlyUsedTypes = new RecentlyUsedTypes(recentlyUsedTypesFile);
+        this.modelProviders = modelProviders;
+    }
+
+    @PostConstruct
+    public void open() {
+        try {
+            recentlyUsedTypes.load();
+        } catch (IOException e) {
+            Logs.log(LogMessages.ERROR_FAILED_TO_LOAD_RECENTLY_USED_TYPES, e);
+        }
+        if (!PlatformUI.isWorkbenchRunning()) {
+            // e.g., in a headless application
+            return;
+        }
+        final Display display = PlatformUI.getWorkbench().getDisplay();
+        display.asyncExec(new Runnable() {
+
+            @Override
+            public void run() {
+                display.addFilter(SWT.KeyDown, userActivityListener);
+                display.addFilter(SWT.MouseDown, userActivityListener);
+            }
+        });
+        this.display = display;
+        scheduleRun(START_DELAY_MILLIS);
+    }
+
+    @PreDestroy
+    public void close() {
+        isClosed = true;
+        job.cancel();
+        final Display display = this.display;
+        if (display != null && !display.isDisposed()) {
+            display.asyncExec(new Runnable() {
+
+                @Override
+                public void run() {
+                    display.removeFilter(SWT.KeyDown, userActivityListener);
+                    display.removeFilter(SWT.MouseDown, userActivityListener);
+                }
+            });
+        }
+        saveRecentlyUsedTypes();
+    }
+
+    @Override
+    public void register(String modelType, IModelProvider<? super UniqueTypeName, ?> provider) {
+        providers.put(modelType, provider);
+        // a new provider does not have the models prewarmed for its predecessor
+        prewarmedModels.removeAll(modelType);
+        scheduleRun(START_DELAY_MILLIS);
+    }
+
+    @Override
+    public void recordUsage(String modelType, UniqueTypeName name) {
+        if (!ProjectCoordinate.UNKNOWN.equals(name.getProjectCoordinate())) {
+            recentlyUsedTypes.record(modelType, name);
+        }
+    }
+
+    @Subscribe
+    public void onEvent(JavaProjectOpened e) {
+        scheduleRun(START_DELAY_MILLIS);
+    }
+
+    @Subscribe
+    public void onEvent(JarPackageFragmentRootAdded e) {
+        scheduleRun(START_DELAY_MILLIS);
+    }
+
+    private void scheduleRun(long delayMillis) {
+        if (display != null && !isClosed) {
+            job.schedule(delayMillis);
+        }
+    }
+
+    /**
+     * Creates the model providers not needed so far; they register with the prewarmer when they are opened.
+     */
+    @SuppressWarnings("rawtypes")
+    private void createModelProviders() {
+        for (Provider<IModelProvider> modelProvider : modelProviders.values()) {
+            modelProvider.get();
+        }
+    }
+
+    private void saveRecentlyUsedTypes() {
+        try {
+            recentlyUsedTypes.save();
+        } catch (IOException e) {
+            Logs.log(LogMessages.ERROR_FAILED_TO_SAVE_RECENTLY_USED_TYPES, e);
+        }
+    }
+
+    private void resolveArchives(IProgressMonitor monitor) {
+        for (DependencyInfo dependency : dependencyListener.getDependencies()) {
+            long start = System.nanoTime();
+            ProjectCoordinate pc = pcProvider.resolve(dependency).orNull();
+            if (pc != null) {
+                for (String modelType : providers.keySet()) {
+                    ModelCoordinate mc = index.suggest(pc, modelType).orNull();
+                    if (mc != null && prefs.autoDownloadEnabled && resolvedArchives.add(mc)
+                            && !repository.getLocation(mc, false).isPresent()) {
+                        repository.resolve(mc, false);
+                    }
+                }
+            }
+            pause(start, monitor);
+        }
+    }
+
+    private void prewarmModels(IProgressMonitor monitor) {
+        for (Entry<String, IModelProvider<? super UniqueTypeName, ?>> entry : providers.entrySet()) {
+            String modelType = entry.getKey();
+            for (UniqueTypeName name : recentlyUsedTypes.getMostFrequentlyUsed(modelType,
+                    prefs.prewarmingModelCount)) {
+                if (!isMemoryAvailable()) {
+                    return;
+                }
+                if (!prewarmedModels.containsEntry(modelType, name)) {
+                    long start = System.nanoTime();
+                    // models that could not be loaded are tried again in the next run
+                    if (prewarm(entry.getValue(), name)) {
+                        prewarmedModels.put(modelType, name);
+                    }
+                    pause(start, monitor);
+                }
+            }
+        }
+    }
+
+    private static <M> boolean prewarm(IModelProvider<? super UniqueTypeName, M> provider, UniqueTypeName name) {
+        M model = provider.acquireModel(name).orNull();
+        if (model == null) {
+            return false;
+        }
+        provider.releaseModel(model);
+        return true;
+    }
+
+    private boolean isMemoryAvailable() {
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        return free >= prefs.prewarmingMinFreeMemory * 1024L * 1024L;
+    }
+
+    /**
+     * Pauses in proportion to the time spent since start, so that prewarming uses at most the configured share of a
+     * CPU.
+     */
+    private void pause(long start, IProgressMonitor monitor) {
+        int cpuPercent = Math.max(1, Math.min(100, prefs.prewarmingCpuPercent));
+        long busyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long pauseEnd = System.currentTimeMillis() + busyMillis * (100 - cpuPercent) / cpuPercent;
+        do {
+            if (monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            long remaining = pauseEnd - System.currentTimeMillis();
+            if (remaining > 0) {
+                try {
+                    Thread.sleep(Math.min(remaining, MAX_PAUSE_MILLIS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OperationCanceledException();
+                }
+            }
+        } while (System.currentTimeMillis() < pauseEnd);
+    }
+
+    private final class PrewarmingJob extends Job {
+
+        private PrewarmingJob() {
+            super(Messages.JOB_NAME_PREWARMING_MODELS);
+            setSystem(true);
+            setPriority(DECORATE);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            if (!prefs.prewarmingEnabled) {
+                return Status.OK_STATUS;
+            }
+            saveRecentlyUsedTypes();
+            try {
+                createModelProviders();
+                resolveArchives(monitor);
+                prewarmModels(monitor);
+                return Status.OK_STATUS;
+            } catch (OperationCanceledException e) {
+                if (!isClosed) {
+                    // interrupted by the user; resume once idle
+                    schedule(IDLE_DELAY_MILLIS);
+                }
+                return Status.CANCEL_STATUS;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.internal.models.rcp;
+
+import static org.eclipse.recommenders.internal.models.rcp.Constants.*;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.recommenders.injection.InjectionService;
+import org.eclipse.recommenders.models.rcp.IModelPrewarmer;
+import org.eclipse.ui.IStartup;
+
+/**
+ * Starts the {@link IModelPrewarmer} together with the workbench rather than on the first code completion. The
+ * prewarmer creates the model providers in its background job.
+ */
+public class ModelPrewarmingStartup implements IStartup {
+
+    @Override
+    public void earlyStartup() {
+        if (Platform.getPreferencesService().getBoolean(BUNDLE_ID, PREF_PREWARMING_ENABLE, true, null)) {
+            InjectionService.getInstance().requestInstance(IModelPrewarmer.class);
+        }
+    }
+}
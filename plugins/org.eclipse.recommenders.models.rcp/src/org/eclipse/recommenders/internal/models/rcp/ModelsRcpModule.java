@@ -30,9 +30,11 @@ import org.eclipse.recommenders.internal.models.rcp.l10n.LogMessages;
 import org.eclipse.recommenders.models.IInputStreamTransformer;
 import org.eclipse.recommenders.models.IModelArchiveCoordinateAdvisor;
 import org.eclipse.recommenders.models.IModelIndex;
+import org.eclipse.recommenders.models.IModelProvider;
 import org.eclipse.recommenders.models.IModelRepository;
 import org.eclipse.recommenders.models.advisors.ModelIndexBundleSymbolicNameAdvisor;
 import org.eclipse.recommenders.models.advisors.SharedManualMappingsAdvisor;
+import org.eclipse.recommenders.models.rcp.IModelPrewarmer;
 import org.eclipse.recommenders.models.rcp.IProjectCoordinateProvider;
 import org.eclipse.recommenders.utils.Logs;
 import org.eclipse.ui.IWorkbench;
@@ -44,6 +46,7 @@ import com.google.common.eventbus.EventBus;
 import com.google.common.io.Files;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
+import com.google.inject.multibindings.MapBinder;
 import com.google.inject.name.Names;
 
 public class ModelsRcpModule extends AbstractModule {
@@ -58,8 +61,11 @@ public class ModelsRcpModule extends AbstractModule {
     public static final String MODEL_CLASSIFIER = "MODEL_CLASSIFIER"; //$NON-NLS-1$
     public static final String REPOSITORY_BASEDIR = "REPOSITORY_BASEDIR"; //$NON-NLS-1$
     public static final String INDEX_BASEDIR = "INDEX_BASEDIR"; //$NON-NLS-1$
+    public static final String RECENTLY_USED_TYPES_FILE = "RECENTLY_USED_TYPES_FILE"; //$NON-NLS-1$
+    public static final String PREWARMED_MODEL_PROVIDERS = "PREWARMED_MODEL_PROVIDERS"; //$NON-NLS-1$
 
     @Override
+    @SuppressWarnings("rawtypes")
     protected void configure() {
         bind(IProjectCoordinateProvider.class).to(ProjectCoordinateProvider.class).in(SINGLETON);
 
@@ -73,6 +79,11 @@ public class ModelsRcpModule extends AbstractModule {
         bind(EclipseModelRepository.class).in(SINGLETON);
         bind(IModelRepository.class).to(EclipseModelRepository.class);
         createAndBindPerUserNamedFile("repository", REPOSITORY_BASEDIR); //$NON-NLS-1$
+
+        bind(IModelPrewarmer.class).to(ModelPrewarmer.class).in(SINGLETON);
+        createAndBindPerWorkspaceNamedFile("recently-used-types.txt", RECENTLY_USED_TYPES_FILE); //$NON-NLS-1$
+        // the model providers created by the prewarmer, by model type; the bundles of the providers add to it
+        MapBinder.newMapBinder(binder(), String.class, IModelProvider.class, Names.named(PREWARMED_MODEL_PROVIDERS));
     }
 
     private void createAndBindPerUserNamedFile(String fileName, String name) {
@@ -11,7 +11,7 @@
 package org.eclipse.recommenders.internal.models.rcp;
 
 import static org.apache.commons.lang3.ArrayUtils.isEquals;
-import static org.eclipse.recommenders.internal.models.rcp.Constants.PREF_REPOSITORY_ENABLE_AUTO_DOWNLOAD;
+import static org.eclipse.recommenders.internal.models.rcp.Constants.*;
 
 import java.io.IOException;
 
@@ -40,6 +40,31 @@ public class ModelsRcpPreferences {
     @Preference(PREF_REPOSITORY_ENABLE_AUTO_DOWNLOAD)
     public boolean autoDownloadEnabled;
 
+    @Inject
+    @Preference(PREF_PREWARMING_ENABLE)
+    public boolean prewarmingEnabled;
+
+    /**
+     * The number of models prewarmed per model type.
+     */
+    @Inject
+    @Preference(PREF_PREWARMING_MODEL_COUNT)
+    public int prewarmingModelCount;
+
+    /**
+     * The share of a CPU prewarming may use, in percent.
+     */
+    @Inject
+    @Preference(PREF_PREWARMING_CPU_PERCENT)
+    public int prewarmingCpuPercent;
+
+    /**
+     * The free heap in megabytes below which no more models are prewarmed.
+     */
+    @Inject
+    @Preference(PREF_PREWARMING_MIN_FREE_MEMORY)
+    public int prewarmingMinFreeMemory;
+
     public String[] remotes;
 
     private final EventBus bus;
@@ -25,5 +25,10 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer {
         IEclipsePreferences s = DefaultScope.INSTANCE.getNode(BUNDLE_ID);
         s.put(PREF_REPOSITORY_URL_LIST, REPOSITORY_URL_LIST);
         s.putBoolean(PREF_REPOSITORY_ENABLE_AUTO_DOWNLOAD, true);
+        s.putBoolean(PREF_PREWARMING_ENABLE, true);
+        s.putInt(PREF_PREWARMING_MODEL_COUNT, 20);
+        s.putInt(PREF_PREWARMING_CPU_PERCENT, 25);
+        // in megabytes
+        s.putInt(PREF_PREWARMING_MIN_FREE_MEMORY, 256);
     }
 }
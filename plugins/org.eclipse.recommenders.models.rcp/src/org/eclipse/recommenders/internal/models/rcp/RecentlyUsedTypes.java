@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.internal.models.rcp;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.recommenders.coordinates.ProjectCoordinate;
+import org.eclipse.recommenders.models.UniqueTypeName;
+import org.eclipse.recommenders.utils.names.VmTypeName;
+
+import com.google.common.base.Splitter;
+import com.google.common.primitives.Doubles;
+import com.google.common.util.concurrent.AtomicDouble;
+
+/**
+ * Counts how often the models of a type have been acquired, per model type, e.g., call or override models. The counts
+ * are persisted across restarts; they are halved whenever they are loaded, so that types not used for several sessions
+ * are eventually forgotten. Counts are kept as fractions, so that a type used only once survives a few sessions.
+ */
+public class RecentlyUsedTypes {
+
+    static final int MAX_TYPES_PER_MODEL_TYPE = 200;
+
+    private static final double DECAY = 0.5;
+    // a type used once is forgotten after four sessions without use
+    private static final double MIN_COUNT = 0.1;
+
+    private static final char SEPARATOR = '\t';
+
+    private final File file;
+
+    private final ConcurrentMap<String, ConcurrentMap<UniqueTypeName, AtomicDouble>> counts =
+            new ConcurrentHashMap<>();
+
+    public RecentlyUsedTypes(File file) {
+        this.file = file;
+    }
+
+    public void record(String modelType, UniqueTypeName name) {
+        ConcurrentMap<UniqueTypeName, AtomicDouble> countsOfModelType = getCounts(modelType);
+        AtomicDouble count = countsOfModelType.get(name);
+        if (count == null) {
+            AtomicDouble newCount = new AtomicDouble();
+            count = countsOfModelType.putIfAbsent(name, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.addAndGet(1);
+    }
+
+    /**
+     * @return the types of the given model type with the highest counts, most frequently used first
+     */
+    public List<UniqueTypeName> getMostFrequentlyUsed(String modelType, int limit) {
+        List<Entry<UniqueTypeName, Double>> ranking = rank(getCounts(modelType));
+        List<UniqueTypeName> result = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (Entry<UniqueTypeName, Double> entry : ranking.subList(0, Math.min(limit, ranking.size()))) {
+            result.add(entry.getKey());
+        }
+        return result;
+    }
+
+    public void load() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        Splitter splitter = Splitter.on(SEPARATOR);
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                List<String> fields = splitter.splitToList(line);
+                if (fields.size() != 4) {
+                    continue;
+                }
+                double count;
+                UniqueTypeName name;
+                try {
+                    count = Double.parseDouble(fields.get(1)) * DECAY;
+                    name = new UniqueTypeName(ProjectCoordinate.valueOf(fields.get(2)), VmTypeName.get(fields.get(3)));
+                } catch (IllegalArgumentException e) {
+                    // skip malformed lines
+                    continue;
+                }
+                if (Doubles.isFinite(count) && count >= MIN_COUNT) {
+                    getCounts(fields.get(0)).put(name, new AtomicDouble(count));
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the {@value #MAX_TYPES_PER_MODEL_TYPE} most frequently used types of each model type.
+     */
+    public void save() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), UTF_8)) {
+            for (Entry<String, ConcurrentMap<UniqueTypeName, AtomicDouble>> countsOfModelType : counts.entrySet()) {
+                List<Entry<UniqueTypeName, Double>> ranking = rank(countsOfModelType.getValue());
+                for (Entry<UniqueTypeName, Double> entry : ranking.subList(0,
+                        Math.min(MAX_TYPES_PER_MODEL_TYPE, ranking.size()))) {
+                    UniqueTypeName name = entry.getKey();
+                    writer.append(countsOfModelType.getKey()).append(SEPARATOR).append(entry.getValue().toString())
+                            .append(SEPARATOR).append(name.getProjectCoordinate().toString()).append(SEPARATOR)
+                            .append(name.getName().getIdentifier());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    private ConcurrentMap<UniqueTypeName, AtomicDouble> getCounts(String modelType) {
+        ConcurrentMap<UniqueTypeName, AtomicDouble> countsOfModelType = counts.get(modelType);
+        if (countsOfModelType == null) {
+            ConcurrentMap<UniqueTypeName, AtomicDouble> newCounts = new ConcurrentHashMap<>();
+            countsOfModelType = counts.putIfAbsent(modelType, newCounts);
+            if (countsOfModelType == null) {
+                countsOfModelType = newCounts;
+            }
+        }
+        return countsOfModelType;
+    }
+
+    private static List<Entry<UniqueTypeName, Double>> rank(Map<UniqueTypeName, AtomicDouble> counts) {
+        // take a snapshot, as the counts may change while sorting
+        Map<UniqueTypeName, Double> snapshot = new HashMap<>();
+        for (Entry<UniqueTypeName, AtomicDouble> entry : counts.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().get());
+        }
+        List<Entry<UniqueTypeName, Double>> ranking = new ArrayList<>(snapshot.entrySet());
+        Collections.sort(ranking, new Comparator<Entry<UniqueTypeName, Double>>() {
+
+            @Override
+            public int compare(Entry<UniqueTypeName, Double> o1, Entry<UniqueTypeName, Double> o2) {
+                return o2.getValue().compareTo(o1.getValue());
+            }
+        });
+        return ranking;
+    }
+}
@@ -76,6 +76,7 @@ public final class Messages extends NLS {
     public static String JOB_NAME_DELETING_MODEL_CACHE;
     public static String JOB_NAME_DOWNLOADING_MODELS;
     public static String JOB_NAME_PREFETCHING_MODEL_ARCHIVE;
+    public static String JOB_NAME_PREWARMING_MODELS;
     public static String JOB_NAME_REFRESHING_DEPENDENCY_OVERVIEW_VIEW;
     public static String JOB_NAME_REFRESHING_MODEL_REPOSITORIES_VIEW;
     public static String JOB_NAME_RESOLVING_MODEL;
@@ -92,6 +93,8 @@ public final class Messages extends NLS {
     public static String LOG_ERROR_FAILED_TO_DELETE_MODEL_CACHE;
     public static String LOG_ERROR_FAILED_TO_LOAD_SECURE_PREFERENCES;
     public static String LOG_ERROR_FAILED_TO_STORE_SECURE_PREFERENCES;
+    public static String LOG_ERROR_FAILED_TO_LOAD_RECENTLY_USED_TYPES;
+    public static String LOG_ERROR_FAILED_TO_SAVE_RECENTLY_USED_TYPES;
     public static String LOG_ERROR_FAILED_TO_OPEN_ECLIPSE_MODEL_REPOSITORY_FOLLOWING_MODEL_DELETION;
     public static String LOG_ERROR_FAILED_TO_STORE_REMOTE_REPOSITORY_PREFERENCES;
     public static String LOG_ERROR_FAILED_TO_GET_CLASSPATH_ENTRY;
@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models.rcp;
+
+import org.eclipse.recommenders.models.IModelProvider;
+import org.eclipse.recommenders.models.UniqueTypeName;
+
+/**
+ * Prepares models in the background before they are needed: it downloads the model archives of the workspace's
+ * dependencies and loads the models of the types used most frequently, so that the first code completion after a
+ * restart need not wait for them.
+ */
+public interface IModelPrewarmer {
+
+    /**
+     * Registers the provider whose models of the given model type are to be prewarmed, replacing a provider registered
+     * earlier for the same model type. Models are prewarmed by acquiring and releasing them, so the provider should
+     * keep released models, e.g., by pooling them, and should not record its usage through
+     * {@link #recordUsage(String, UniqueTypeName)} itself.
+     *
+     * @param modelType
+     *            the classifier of the model archives, e.g., {@code call}
+     */
+    void register(String modelType, IModelProvider<? super UniqueTypeName, ?> provider);
+
+    /**
+     * Records that the model of the given type has been requested, to rank the types whose models are prewarmed.
+     */
+    void recordUsage(String modelType, UniqueTypeName name);
+}
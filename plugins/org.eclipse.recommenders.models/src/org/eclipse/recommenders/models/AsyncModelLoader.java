@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models;
+
+import static com.google.common.base.Optional.absent;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.utils.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Acquires models from a provider on loader threads shared by all providers, for
+ * {@link IAsyncModelProvider#acquireModelAsync(IUniqueName, long, TimeUnit)}.
+ * <p>
+ * At most one model per key is loaded at a time. When it has been loaded, the model is handed to the longest waiting
+ * client whose deadline has not passed yet; if other clients are still waiting, the next model of the key is loaded
+ * for them. If no client is waiting anymore, the model is kept as a late model for the next request of its key, and
+ * released to the provider if not requested within a minute. As the cache of late models evicts expired models only
+ * when accessed, it is cleaned up periodically while it holds models.
+ */
+final class AsyncModelLoader<K extends IUniqueName<?>, M> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncModelLoader.class);
+
+    private static final int LOADER_THREADS = 2;
+    private static final int MAX_LATE_MODELS = 10;
+
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(LOADER_THREADS,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Recommenders-Model-Loader-%d").build()); //$NON-NLS-1$
+
+    private static final ScheduledThreadPoolExecutor DEADLINES = new ScheduledThreadPoolExecutor(1,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("Recommenders-Model-Loader-Deadlines").build()); //$NON-NLS-1$
+
+    static {
+        DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+
+    private final IModelProvider<K, M> provider;
+
+    // the clients waiting for the model being loaded, by key; a key is present while its model is being loaded
+    private final Map<K, Deque<SettableFuture<Optional<M>>>> waiting = new HashMap<>();
+
+    private final Cache<K, M> lateModels;
+    private final long lateModelLifetimeNanos;
+
+    // guarded by lateModels
+    @Nullable
+    private ScheduledFuture<?> lateModelsCleanUp;
+
+    AsyncModelLoader(IModelProvider<K, M> provider) {
+        this(provider, 1, MINUTES);
+    }
+
+    @VisibleForTesting
+    AsyncModelLoader(IModelProvider<K, M> provider, long lateModelLifetime, TimeUnit unit) {
+        this.provider = provider;
+        lateModelLifetimeNanos = unit.toNanos(lateModelLifetime);
+        lateModels = CacheBuilder.newBuilder().maximumSize(MAX_LATE_MODELS)
+                .expireAfterWrite(lateModelLifetime, unit).removalListener(new LateModelRemovalListener()).build();
+    }
+
+    ListenableFuture<Optional<M>> acquire(@Nullable K key, long timeout, TimeUnit unit) {
+        if (key == null) {
+            return Futures.immediateFuture(Optional.<M>absent());
+        }
+        M lateModel = lateModels.asMap().remove(key);
+        if (lateModel != null) {
+            return Futures.immediateFuture(Optional.of(lateModel));
+        }
+
+        final SettableFuture<Optional<M>> result = SettableFuture.create();
+        synchronized (waiting) {
+            Deque<SettableFuture<Optional<M>>> waiters = waiting.get(key);
+            if (waiters == null) {
+                waiters = new ArrayDeque<>();
+                waiting.put(key, waiters);
+                startLoading(key);
+            }
+            waiters.add(result);
+        }
+        final ScheduledFuture<?> deadline = DEADLINES.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                result.set(Optional.<M>absent());
+            }
+        }, timeout, unit);
+        result.addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                deadline.cancel(false);
+            }
+        }, MoreExecutors.sameThreadExecutor());
+        return result;
+    }
+
+    private void startLoading(final K key) {
+        LOADER.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                Optional<M> model;
+                try {
+                    model = provider.acquireModel(key);
+                } catch (RuntimeException e) {
+                    LOG.error("Exception while loading model " + key, e); //$NON-NLS-1$
+                    model = absent();
+                }
+                deliver(key, model);
+            }
+        });
+    }
+
+    private void deliver(K key, Optional<M> model) {
+        boolean isHandedOut = false;
+        synchronized (waiting) {
+            Deque<SettableFuture<Optional<M>>> waiters = waiting.get(key);
+            if (model.isPresent()) {
+                // set fails for clients whose deadline has passed
+                while (!isHandedOut && !waiters.isEmpty()) {
+                    isHandedOut = waiters.poll().set(model);
+                }
+            } else {
+                for (SettableFuture<Optional<M>> waiter : waiters) {
+                    waiter.set(model);
+                }
+                waiters.clear();
+            }
+            for (Iterator<SettableFuture<Optional<M>>> it = waiters.iterator(); it.hasNext();) {
+                if (it.next().isDone()) {
+                    it.remove();
+                }
+            }
+            if (waiters.isEmpty()) {
+                waiting.remove(key);
+            } else {
+                startLoading(key);
+            }
+        }
+        if (model.isPresent() && !isHandedOut) {
+            keepLateModel(key, model.get());
+        }
+    }
+
+    private void keepLateModel(K key, M model) {
+        lateModels.put(key, model);
+        synchronized (lateModels) {
+            if (lateModelsCleanUp == null) {
+                lateModelsCleanUp = DEADLINES.scheduleWithFixedDelay(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        lateModels.cleanUp();
+                    }
+                }, lateModelLifetimeNanos, lateModelLifetimeNanos, NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * releases the late models to the provider
+     */
+    void releaseLateModels() {
+        synchronized (lateModels) {
+            if (lateModelsCleanUp != null) {
+                lateModelsCleanUp.cancel(false);
+                lateModelsCleanUp = null;
+            }
+        }
+        for (K key : new ArrayList<>(lateModels.asMap().keySet())) {
+            M lateModel = lateModels.asMap().remove(key);
+            if (lateModel != null) {
+                provider.releaseModel(lateModel);
+            }
+        }
+    }
+
+    private final class LateModelRemovalListener implements RemovalListener<K, M> {
+        @Override
+        public void onRemoval(RemovalNotification<K, M> notification) {
+            // explicitly removed models have been handed out to a client or released already
+            if (notification.getCause() != RemovalCause.EXPLICIT) {
+                provider.releaseModel(notification.getValue());
+            }
+        }
+    }
+}
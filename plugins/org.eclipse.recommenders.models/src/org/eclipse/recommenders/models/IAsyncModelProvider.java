@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A model provider that loads models in the background, so that clients on latency-sensitive threads, e.g., code
+ * completion, need not block while a model archive is opened and a model is parsed.
+ */
+public interface IAsyncModelProvider<K extends IUniqueName<?>, M> extends IModelProvider<K, M> {
+
+    /**
+     * Acquires a model on a loader thread. Concurrent requests for the same key share a single load. A model that is
+     * loaded only after the deadline has passed is kept for the next request of its key, so a client that gave up
+     * waiting may find the model ready the next time it asks.
+     * <p>
+     * Models obtained from the future must be released with {@link #releaseModel(Object)}, just like those acquired
+     * synchronously.
+     *
+     * @param timeout
+     *            how long to wait for the model; with 0, the model is only loaded for later requests
+     * @return a future that never fails; it is completed with {@link Optional#absent()} if there is no model for the
+     *         key or the deadline has passed before the model was loaded
+     */
+    ListenableFuture<Optional<M>> acquireModelAsync(K key, long timeout, TimeUnit unit);
+}
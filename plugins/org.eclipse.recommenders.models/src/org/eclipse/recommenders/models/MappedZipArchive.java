@@ -0,0 +1,469 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models;
+
+import static com.google.common.base.Optional.absent;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import org.eclipse.recommenders.utils.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Optional;
+
+/**
+ * A read-only ZIP archive that is memory-mapped once and served from the mapping. Stored entries are streamed directly
+ * from the mapping, deflated ones are inflated with {@link Inflater}s shared by all archives.
+ * <p>
+ * Entries are looked up in an index of the central directory sorted by entry name, which refers to the names in the
+ * mapping rather than holding them as strings. Opening an archive thus costs a single allocation, independent of the
+ * number of entries. The index can be cached in a file of its own, so that the central directory need not be sorted
+ * again when the archive is opened the next time.
+ * <p>
+ * There is no need to close the archive: the mapping is released once the archive and the streams opened from it are
+ * no longer referenced. ZIP64 archives and encrypted entries are not supported. The archive is thread-safe.
+ */
+public final class MappedZipArchive {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedZipArchive.class);
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int FLAG_ENCRYPTED = 1;
+
+    private static final String INDEX_FILE_SUFFIX = ".idx"; //$NON-NLS-1$
+    private static final int INDEX_FILE_MAGIC = 0x5a495058;
+    private static final int INDEX_FILE_VERSION = 1;
+
+    private static final int MAX_POOLED_INFLATERS = 8;
+    private static final int INFLATER_BUFFER_SIZE = 8192;
+
+    private static final ArrayDeque<Inflater> INFLATERS = new ArrayDeque<>();
+
+    private final File file;
+    private final long lastModified;
+    private final ByteBuffer mapping;
+    // the positions of the central directory headers, sorted by entry name
+    private final int[] index;
+
+    private MappedZipArchive(File file, long lastModified, ByteBuffer mapping, int[] index) {
+        this.file = file;
+        this.lastModified = lastModified;
+        this.mapping = mapping;
+        this.index = index;
+    }
+
+    /**
+     * Maps the archive and indexes its central directory. The file is not kept open.
+     */
+    public static MappedZipArchive open(File file) throws IOException {
+        return open(file, null);
+    }
+
+    /**
+     * Maps the archive and reads the index of its central directory from the given index file. If the index file does
+     * not exist or does not match the archive, the central directory is indexed and the index file is written, if
+     * possible.
+     *
+     * @see #getIndexFile(File)
+     */
+    public static MappedZipArchive open(File file, @Nullable File indexFile) throws IOException {
+        long lastModified = file.lastModified();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ZipException("Archive too large to map: " + file); //$NON-NLS-1$
+            }
+            MappedByteBuffer mapping = channel.map(MapMode.READ_ONLY, 0, size);
+            mapping.order(ByteOrder.LITTLE_ENDIAN);
+            int[] index = indexFile == null ? null : readIndex(indexFile, size, lastModified);
+            if (index == null) {
+                index = createIndex(mapping, file);
+                if (indexFile != null) {
+                    writeIndex(indexFile, index, size, lastModified);
+                }
+            }
+            return new MappedZipArchive(file, lastModified, mapping, index);
+        }
+    }
+
+    /**
+     * @return the file next to the archive in which {@link #open(File, File)} caches its index
+     */
+    public static File getIndexFile(File file) {
+        return new File(file.getPath() + INDEX_FILE_SUFFIX);
+    }
+
+    @Nullable
+    private static int[] readIndex(File indexFile, long size, long lastModified) {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != INDEX_FILE_MAGIC || in.readInt() != INDEX_FILE_VERSION || in.readLong() != size
+                    || in.readLong() != lastModified) {
+                return null;
+            }
+            int[] index = new int[in.readInt()];
+            for (int i = 0; i < index.length; i++) {
+                index[i] = in.readInt();
+                if (index[i] < 0 || index[i] > size - CENTRAL_HEADER_SIZE) {
+                    return null;
+                }
+            }
+            return index;
+        } catch (IOException e) {
+            LOG.debug("Failed to read index file " + indexFile, e); //$NON-NLS-1$
+            return null;
+        }
+    }
+
+    private static void writeIndex(File indexFile, int[] index, long size, long lastModified) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)))) {
+            out.writeInt(INDEX_FILE_MAGIC);
+            out.writeInt(INDEX_FILE_VERSION);
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeInt(index.length);
+            for (int position : index) {
+                out.writeInt(position);
+            }
+        } catch (IOException e) {
+            // the index is merely created again next time
+            LOG.debug("Failed to write index file " + indexFile, e); //$NON-NLS-1$
+        }
+    }
+
+    private static int[] createIndex(ByteBuffer mapping, File file) throws IOException {
+        int end = findEndOfCentralDirectory(mapping, file);
+        int entryCount = mapping.getShort(end + 10) & 0xFFFF;
+        long directoryOffset = mapping.getInt(end + 16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || directoryOffset == 0xFFFFFFFFL) {
+            throw new ZipException("ZIP64 archives are not supported: " + file); //$NON-NLS-1$
+        }
+
+        int[] index = new int[entryCount];
+        int position = (int) directoryOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (position + CENTRAL_HEADER_SIZE > end || mapping.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new ZipException("Invalid central directory in " + file); //$NON-NLS-1$
+            }
+            index[i] = position;
+            int nameLength = mapping.getShort(position + 28) & 0xFFFF;
+            int extraLength = mapping.getShort(position + 30) & 0xFFFF;
+            int commentLength = mapping.getShort(position + 32) & 0xFFFF;
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        sort(mapping, index, index.clone(), 0, entryCount);
+        return index;
+    }
+
+    /**
+     * Sorts the headers by name with a merge sort, as the JDK does not sort primitives with a comparator.
+     */
+    private static void sort(ByteBuffer mapping, int[] headers, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        // the halves are sorted in buffer and merged into headers
+        sort(mapping, buffer, headers, from, middle);
+        sort(mapping, buffer, headers, middle, to);
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right >= to || left < middle && compareNames(mapping, buffer[left], buffer[right]) <= 0) {
+                headers[i] = buffer[left++];
+            } else {
+                headers[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static int compareNames(ByteBuffer mapping, int header, int otherHeader) {
+        int length = mapping.getShort(header + 28) & 0xFFFF;
+        int otherLength = mapping.getShort(otherHeader + 28) & 0xFFFF;
+        int name = header + CENTRAL_HEADER_SIZE;
+        int otherName = otherHeader + CENTRAL_HEADER_SIZE;
+        for (int i = 0; i < Math.min(length, otherLength); i++) {
+            int difference = (mapping.get(name + i) & 0xFF) - (mapping.get(otherName + i) & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - otherLength;
+    }
+
+    private int compareName(int header, byte[] name) {
+        int length = mapping.getShort(header + 28) & 0xFFFF;
+        int position = header + CENTRAL_HEADER_SIZE;
+        for (int i = 0; i < Math.min(length, name.length); i++) {
+            int difference = (mapping.get(position + i) & 0xFF) - (name[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - name.length;
+    }
+
+    /**
+     * @return the position of the central directory header of the entry, or -1 if there is no such entry
+     */
+    private int findHeader(String path) {
+        byte[] name = path.getBytes(UTF_8);
+        int low = 0;
+        int high = index.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareName(index[middle], name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return index[middle];
+            }
+        }
+        return -1;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer mapping, File file) throws ZipException {
+        int last = mapping.capacity() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT_SIZE);
+        for (int position = last; position >= first; position--) {
+            if (mapping.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                return position;
+            }
+        }
+        throw new ZipException("Not a ZIP archive: " + file); //$NON-NLS-1$
+    }
+
+    private String readName(int header) {
+        byte[] name = new byte[mapping.getShort(header + 28) & 0xFFFF];
+        ByteBuffer view = mapping.duplicate();
+        view.position(header + CENTRAL_HEADER_SIZE);
+        view.get(name);
+        return new String(name, UTF_8);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return whether the file has been modified or replaced since it was mapped; the archive still serves the old
+     *         contents
+     */
+    public boolean isStale() {
+        return file.lastModified() != lastModified || file.length() != mapping.capacity();
+    }
+
+    /**
+     * @return the number of bytes mapped
+     */
+    public int getMappedSize() {
+        return mapping.capacity();
+    }
+
+    public int getEntryCount() {
+        return index.length;
+    }
+
+    public boolean hasEntry(String path) {
+        return findHeader(path) >= 0;
+    }
+
+    /**
+     * Note that the names are created on every call; prefer {@link #hasEntry(String)} where possible.
+     *
+     * @return the names of all entries, sorted by their UTF-8 encoding
+     */
+    public List<String> getEntryNames() {
+        List<String> names = new ArrayList<>(index.length);
+        for (int header : index) {
+            names.add(readName(header));
+        }
+        return names;
+    }
+
+    /**
+     * @return a stream of the uncompressed contents of the entry, or absent if there is no such entry
+     */
+    public Optional<InputStream> getInputStream(String path) throws IOException {
+        int header = findHeader(path);
+        if (header < 0) {
+            return absent();
+        }
+        if (mapping.getInt(header) != CENTRAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid central directory in " + file); //$NON-NLS-1$
+        }
+        int flags = mapping.getShort(header + 8) & 0xFFFF;
+        int method = mapping.getShort(header + 10) & 0xFFFF;
+        if ((flags & FLAG_ENCRYPTED) != 0 || method != STORED && method != DEFLATED) {
+            throw new ZipException("Unsupported compression method or encryption of entry " + path + " in " + file); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        ByteBuffer data = getData(path, header);
+        if (method == STORED) {
+            return Optional.<InputStream>of(new ByteBufferInputStream(data));
+        } else {
+            return Optional.<InputStream>of(new EntryInflaterInputStream(new ByteBufferInputStream(data)));
+        }
+    }
+
+    private ByteBuffer getData(String path, int header) throws ZipException {
+        long compressedSize = mapping.getInt(header + 20) & 0xFFFFFFFFL;
+        long localHeader = mapping.getInt(header + 42) & 0xFFFFFFFFL;
+        if (localHeader + LOCAL_HEADER_SIZE > mapping.capacity()
+                || mapping.getInt((int) localHeader) != LOCAL_HEADER_SIGNATURE) {
+            throw new ZipException("Invalid local header of entry " + path + " in " + file); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        int nameLength = mapping.getShort((int) localHeader + 26) & 0xFFFF;
+        int extraLength = mapping.getShort((int) localHeader + 28) & 0xFFFF;
+        long dataOffset = localHeader + LOCAL_HEADER_SIZE + nameLength + extraLength;
+        if (dataOffset + compressedSize > mapping.capacity()) {
+            throw new ZipException("Truncated entry " + path + " in " + file); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        ByteBuffer data = mapping.duplicate();
+        data.limit((int) (dataOffset + compressedSize));
+        data.position((int) dataOffset);
+        return data.slice();
+    }
+
+    private static Inflater acquireInflater() {
+        synchronized (INFLATERS) {
+            Inflater inflater = INFLATERS.poll();
+            if (inflater != null) {
+                return inflater;
+            }
+        }
+        return new Inflater(true);
+    }
+
+    private static void releaseInflater(Inflater inflater) {
+        inflater.reset();
+        synchronized (INFLATERS) {
+            if (INFLATERS.size() < MAX_POOLED_INFLATERS) {
+                INFLATERS.push(inflater);
+                return;
+            }
+        }
+        inflater.end();
+    }
+
+    /**
+     * Reads a buffer without copying it first.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Inflates raw deflate data with a pooled inflater, which is returned to the pool on close.
+     */
+    private static final class EntryInflaterInputStream extends InflaterInputStream {
+
+        private boolean isEndOfInput;
+        private boolean isClosed;
+
+        private EntryInflaterInputStream(InputStream in) {
+            super(in, acquireInflater(), INFLATER_BUFFER_SIZE);
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (isEndOfInput) {
+                throw new EOFException("Unexpected end of deflated entry"); //$NON-NLS-1$
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                // an inflater without zlib header may need an extra dummy byte to detect the end of the data
+                buf[0] = 0;
+                len = 1;
+                isEndOfInput = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!isClosed) {
+                isClosed = true;
+                super.close();
+                releaseInflater(inf);
+            }
+        }
+    }
+}
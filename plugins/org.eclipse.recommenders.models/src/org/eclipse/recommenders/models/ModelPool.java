@@ -0,0 +1,484 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models;
+
+import static java.util.concurrent.TimeUnit.*;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.pool.KeyedPoolableObjectFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Weigher;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * An elastic keyed pool of models, limited by the total weight of its models rather than by their number. See
+ * {@link ModelPoolConfiguration} for the limits.
+ * <p>
+ * Models are created, activated, passivated, validated, and destroyed by a commons-pool
+ * {@link KeyedPoolableObjectFactory}. Factory methods are never called while holding the lock of the pool. Idle models
+ * are validated and expired by a background thread of the pool, which is stopped when the pool is closed.
+ * <p>
+ * The weight of a model is known only once it has been created, so models created concurrently may exceed the weight
+ * budget; the excess is evicted from the idle models as soon as models are released.
+ */
+final class ModelPool<K, M> implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ModelPool.class);
+
+    private static final class PooledModel<K, M> {
+
+        private final K key;
+        private final M model;
+        private final int weight;
+        private long idleSinceNanos;
+        private boolean isIdle;
+
+        private PooledModel(K key, M model, int weight) {
+            this.key = key;
+            this.model = model;
+            this.weight = weight;
+        }
+    }
+
+    private final KeyedPoolableObjectFactory<K, M> factory;
+    private final Weigher<? super K, ? super M> weigher;
+
+    private final int softMaxModelsPerKey;
+    private final int maxIdleModelsPerKey;
+    private final long maxTotalWeight;
+    private final long maxWaitNanos;
+    private final long minEvictableIdleNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    // idle models by key, most recently released first
+    private final Map<K, Deque<PooledModel<K, M>>> idle = new HashMap<>();
+    // the number of borrowed models per key, including those being created
+    private final Multiset<K> active = HashMultiset.create();
+    private final IdentityHashMap<M, PooledModel<K, M>> borrowed = new IdentityHashMap<>();
+    private int idleCount;
+    private long totalWeight;
+    private boolean isClosed;
+
+    private long borrowCount;
+    private long totalBorrowWaitNanos;
+    private long maxBorrowWaitNanos;
+    private long creationCount;
+    private long elasticCreationCount;
+    private long evictionCount;
+    private long exhaustionCount;
+
+    private final ScheduledExecutorService maintenance;
+
+    ModelPool(KeyedPoolableObjectFactory<K, M> factory, Weigher<? super K, ? super M> weigher,
+            ModelPoolConfiguration configuration) {
+        this.factory = factory;
+        this.weigher = weigher;
+        softMaxModelsPerKey = configuration.getSoftMaxModelsPerKey();
+        maxIdleModelsPerKey = configuration.getMaxIdleModelsPerKey();
+        maxTotalWeight = configuration.getMaxTotalWeight();
+        maxWaitNanos = MILLISECONDS.toNanos(configuration.getMaxWaitMillis());
+        minEvictableIdleNanos = MILLISECONDS.toNanos(configuration.getMinEvictableIdleTimeMillis());
+        long period = configuration.getTimeBetweenMaintenanceRunsMillis();
+        maintenance = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("Recommenders-Model-Pool-Maintenance-%d").build()); //$NON-NLS-1$
+        maintenance.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                maintain();
+            }
+        }, period, period, MILLISECONDS);
+    }
+
+    /**
+     * @throws NoSuchElementException
+     *             if the weight budget is used up by borrowed models, even after waiting
+     * @throws Exception
+     *             if the factory fails to create or activate a model
+     */
+    M borrow(K key) throws Exception {
+        long start = System.nanoTime();
+        long remaining = maxWaitNanos;
+        List<PooledModel<K, M>> evicted = new ArrayList<>();
+        PooledModel<K, M> reused = null;
+        boolean isElastic = false;
+        lock.lock();
+        try {
+            while (true) {
+                if (isClosed) {
+                    throw new IllegalStateException("Pool has been closed"); //$NON-NLS-1$
+                }
+                reused = pollIdle(key);
+                if (reused != null) {
+                    borrowed.put(reused.model, reused);
+                    break;
+                }
+                boolean isPastDeadline = remaining <= 0;
+                if ((active.count(key) < softMaxModelsPerKey || isPastDeadline) && makeRoom(evicted)) {
+                    isElastic = active.count(key) >= softMaxModelsPerKey;
+                    break;
+                }
+                if (isPastDeadline) {
+                    exhaustionCount++;
+                    throw new NoSuchElementException("Pool exhausted; no model available for key " + key); //$NON-NLS-1$
+                }
+                remaining = released.awaitNanos(remaining);
+            }
+            active.add(key);
+            long wait = System.nanoTime() - start;
+            borrowCount++;
+            totalBorrowWaitNanos += wait;
+            maxBorrowWaitNanos = Math.max(maxBorrowWaitNanos, wait);
+        } finally {
+            lock.unlock();
+            destroyAll(evicted);
+        }
+        return reused != null ? activate(reused) : create(key, isElastic);
+    }
+
+    private M activate(PooledModel<K, M> pooled) throws Exception {
+        try {
+            factory.activateObject(pooled.key, pooled.model);
+            return pooled.model;
+        } catch (Exception e) {
+            invalidate(pooled);
+            throw e;
+        }
+    }
+
+    private M create(K key, boolean isElastic) throws Exception {
+        M model;
+        try {
+            model = factory.makeObject(key);
+        } catch (Exception e) {
+            lock.lock();
+            try {
+                active.remove(key);
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+        PooledModel<K, M> pooled = new PooledModel<>(key, model, Math.max(weigher.weigh(key, model), 0));
+        lock.lock();
+        try {
+            borrowed.put(model, pooled);
+            totalWeight += pooled.weight;
+            creationCount++;
+            if (isElastic) {
+                elasticCreationCount++;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return activate(pooled);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the model has not been borrowed from this pool
+     * @throws Exception
+     *             if the factory fails to passivate the model; the model is destroyed then
+     */
+    void release(M model) throws Exception {
+        PooledModel<K, M> pooled;
+        lock.lock();
+        try {
+            pooled = borrowed.remove(model);
+        } finally {
+            lock.unlock();
+        }
+        if (pooled == null) {
+            throw new IllegalArgumentException("Model has not been borrowed from this pool: " + model); //$NON-NLS-1$
+        }
+        try {
+            factory.passivateObject(pooled.key, model);
+        } catch (Exception e) {
+            discard(pooled);
+            throw e;
+        }
+        List<PooledModel<K, M>> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            active.remove(pooled.key);
+            if (isClosed) {
+                totalWeight -= pooled.weight;
+                evicted.add(pooled);
+            } else {
+                pooled.idleSinceNanos = System.nanoTime();
+                Deque<PooledModel<K, M>> models = getIdleModels(pooled.key);
+                models.addFirst(pooled);
+                addIdle(pooled);
+                trimIdle(models, evicted);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+            destroyAll(evicted);
+        }
+    }
+
+    private void invalidate(PooledModel<K, M> pooled) {
+        lock.lock();
+        try {
+            borrowed.remove(pooled.model);
+        } finally {
+            lock.unlock();
+        }
+        discard(pooled);
+    }
+
+    /**
+     * destroys a model that is neither borrowed nor idle anymore
+     */
+    private void discard(PooledModel<K, M> pooled) {
+        lock.lock();
+        try {
+            active.remove(pooled.key);
+            totalWeight -= pooled.weight;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        destroy(pooled);
+    }
+
+    private PooledModel<K, M> pollIdle(K key) {
+        Deque<PooledModel<K, M>> models = idle.get(key);
+        return models == null || models.isEmpty() ? null : removeIdle(models, models.peekFirst());
+    }
+
+    private Deque<PooledModel<K, M>> getIdleModels(K key) {
+        Deque<PooledModel<K, M>> models = idle.get(key);
+        if (models == null) {
+            models = new ArrayDeque<>();
+            idle.put(key, models);
+        }
+        return models;
+    }
+
+    /**
+     * accounts for a model that has just been added to the idle models of its key
+     */
+    private void addIdle(PooledModel<K, M> pooled) {
+        pooled.isIdle = true;
+        idleCount++;
+    }
+
+    private PooledModel<K, M> removeIdle(Deque<PooledModel<K, M>> models, PooledModel<K, M> pooled) {
+        models.remove(pooled);
+        if (models.isEmpty()) {
+            idle.remove(pooled.key);
+        }
+        pooled.isIdle = false;
+        idleCount--;
+        return pooled;
+    }
+
+    /**
+     * evicts the least recently released idle models of a key beyond the per-key limit, and then the heaviest idle
+     * models until the pool is within its weight budget
+     */
+    private void trimIdle(Deque<PooledModel<K, M>> models, List<PooledModel<K, M>> evicted) {
+        int evictedBefore = evicted.size();
+        while (models.size() > maxIdleModelsPerKey) {
+            PooledModel<K, M> eldest = removeIdle(models, models.peekLast());
+            totalWeight -= eldest.weight;
+            evicted.add(eldest);
+        }
+        while (totalWeight > maxTotalWeight && idleCount > 0) {
+            evicted.add(removeHeaviestIdle());
+        }
+        evictionCount += evicted.size() - evictedBefore;
+    }
+
+    /**
+     * evicts idle models, heaviest first, until there is room for another model
+     *
+     * @return whether there is room for another model
+     */
+    private boolean makeRoom(List<PooledModel<K, M>> evicted) {
+        while (totalWeight >= maxTotalWeight && idleCount > 0) {
+            evicted.add(removeHeaviestIdle());
+            evictionCount++;
+        }
+        return totalWeight < maxTotalWeight;
+    }
+
+    /**
+     * removes the heaviest idle model, the one idle for the longest time among equally heavy ones, and subtracts its
+     * weight
+     */
+    private PooledModel<K, M> removeHeaviestIdle() {
+        PooledModel<K, M> heaviest = null;
+        for (Deque<PooledModel<K, M>> models : idle.values()) {
+            for (PooledModel<K, M> pooled : models) {
+                if (heaviest == null || pooled.weight > heaviest.weight || pooled.weight == heaviest.weight
+                        && pooled.idleSinceNanos < heaviest.idleSinceNanos) {
+                    heaviest = pooled;
+                }
+            }
+        }
+        totalWeight -= heaviest.weight;
+        return removeIdle(idle.get(heaviest.key), heaviest);
+    }
+
+    /**
+     * Evicts the models that have been idle for too long and validates the others. Models are validated one at a time,
+     * so that the other idle models remain available to borrowers meanwhile.
+     */
+    private void maintain() {
+        List<PooledModel<K, M>> expired = new ArrayList<>();
+        List<PooledModel<K, M>> candidates = new ArrayList<>();
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (isClosed) {
+                return;
+            }
+            for (Deque<PooledModel<K, M>> models : new ArrayList<>(idle.values())) {
+                for (PooledModel<K, M> pooled : new ArrayList<>(models)) {
+                    if (now - pooled.idleSinceNanos >= minEvictableIdleNanos) {
+                        expired.add(removeIdle(models, pooled));
+                        totalWeight -= pooled.weight;
+                    } else {
+                        candidates.add(pooled);
+                    }
+                }
+            }
+            evictionCount += expired.size();
+        } finally {
+            lock.unlock();
+        }
+        destroyAll(expired);
+
+        for (PooledModel<K, M> pooled : candidates) {
+            validate(pooled);
+        }
+    }
+
+    /**
+     * validates an idle model, unless it has been borrowed or evicted in the meantime. The model is taken out of the
+     * pool while it is validated; its weight still counts towards the budget, though.
+     */
+    private void validate(PooledModel<K, M> pooled) {
+        lock.lock();
+        try {
+            if (isClosed || !pooled.isIdle) {
+                return;
+            }
+            removeIdle(idle.get(pooled.key), pooled);
+        } finally {
+            lock.unlock();
+        }
+        boolean isValid = isValid(pooled);
+        List<PooledModel<K, M>> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            if (isClosed) {
+                totalWeight -= pooled.weight;
+                evicted.add(pooled);
+            } else if (!isValid) {
+                totalWeight -= pooled.weight;
+                evicted.add(pooled);
+                evictionCount++;
+            } else {
+                // models released during the validation are more recent
+                Deque<PooledModel<K, M>> models = getIdleModels(pooled.key);
+                models.addLast(pooled);
+                addIdle(pooled);
+                trimIdle(models, evicted);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+            destroyAll(evicted);
+        }
+    }
+
+    private boolean isValid(PooledModel<K, M> pooled) {
+        try {
+            return factory.validateObject(pooled.key, pooled.model);
+        } catch (RuntimeException e) {
+            LOG.warn("Exception while validating model " + pooled.model, e); //$NON-NLS-1$
+            return false;
+        }
+    }
+
+    private void destroyAll(List<PooledModel<K, M>> models) {
+        for (PooledModel<K, M> pooled : models) {
+            destroy(pooled);
+        }
+    }
+
+    private void destroy(PooledModel<K, M> pooled) {
+        try {
+            factory.destroyObject(pooled.key, pooled.model);
+        } catch (Exception e) {
+            LOG.warn("Exception while destroying model " + pooled.model, e); //$NON-NLS-1$
+        }
+    }
+
+    ModelPoolStatistics getStatistics() {
+        lock.lock();
+        try {
+            return new ModelPoolStatistics(borrowCount, totalBorrowWaitNanos, maxBorrowWaitNanos, creationCount,
+                    elasticCreationCount, evictionCount, exhaustionCount, borrowed.size(), idleCount, totalWeight);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Destroys the idle models. Borrowed models are destroyed when they are released.
+     */
+    @Override
+    public void close() {
+        maintenance.shutdown();
+        List<PooledModel<K, M>> models = new ArrayList<>();
+        lock.lock();
+        try {
+            isClosed = true;
+            for (Deque<PooledModel<K, M>> idleModels : idle.values()) {
+                for (PooledModel<K, M> pooled : idleModels) {
+                    pooled.isIdle = false;
+                    totalWeight -= pooled.weight;
+                    models.add(pooled);
+                }
+            }
+            idle.clear();
+            idleCount = 0;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        destroyAll(models);
+    }
+}
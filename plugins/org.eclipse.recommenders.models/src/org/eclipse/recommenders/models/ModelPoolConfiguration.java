@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * The limits of the model pool of a {@link PoolingModelProvider}.
+ * <p>
+ * The pool is elastic: it creates up to {@link #getSoftMaxModelsPerKey()} models per key right away. Beyond that, a
+ * client waits up to {@link #getMaxWaitMillis()} for another client to release a model of the same key; if none is
+ * released in time, another model is created anyway, as long as the total weight of all models is below
+ * {@link #getMaxTotalWeight()}. Only if the weight budget is used up by borrowed models does acquiring a model fail.
+ */
+public class ModelPoolConfiguration {
+
+    public static final int DEFAULT_SOFT_MAX_MODELS_PER_KEY = 8;
+    public static final int DEFAULT_MAX_IDLE_MODELS_PER_KEY = 5;
+    public static final long DEFAULT_MAX_TOTAL_WEIGHT = 30;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 500;
+    public static final long DEFAULT_TIME_BETWEEN_MAINTENANCE_RUNS_MILLIS = MINUTES.toMillis(5);
+    public static final long DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS = MINUTES.toMillis(5);
+
+    private int softMaxModelsPerKey = DEFAULT_SOFT_MAX_MODELS_PER_KEY;
+    private int maxIdleModelsPerKey = DEFAULT_MAX_IDLE_MODELS_PER_KEY;
+    private long maxTotalWeight = DEFAULT_MAX_TOTAL_WEIGHT;
+    private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+    private long timeBetweenMaintenanceRunsMillis = DEFAULT_TIME_BETWEEN_MAINTENANCE_RUNS_MILLIS;
+    private long minEvictableIdleTimeMillis = DEFAULT_MIN_EVICTABLE_IDLE_TIME_MILLIS;
+
+    public int getSoftMaxModelsPerKey() {
+        return softMaxModelsPerKey;
+    }
+
+    /**
+     * @param softMaxModelsPerKey
+     *            the number of models per key created without waiting for a model of the same key to be released
+     */
+    public void setSoftMaxModelsPerKey(int softMaxModelsPerKey) {
+        checkPositive(softMaxModelsPerKey);
+        this.softMaxModelsPerKey = softMaxModelsPerKey;
+    }
+
+    public int getMaxIdleModelsPerKey() {
+        return maxIdleModelsPerKey;
+    }
+
+    /**
+     * @param maxIdleModelsPerKey
+     *            the number of released models kept per key; models released beyond that are destroyed
+     */
+    public void setMaxIdleModelsPerKey(int maxIdleModelsPerKey) {
+        checkNotNegative(maxIdleModelsPerKey);
+        this.maxIdleModelsPerKey = maxIdleModelsPerKey;
+    }
+
+    public long getMaxTotalWeight() {
+        return maxTotalWeight;
+    }
+
+    /**
+     * @param maxTotalWeight
+     *            the total weight of borrowed and idle models, in the unit of
+     *            {@link PoolingModelProvider#getModelWeight(IUniqueName, Object)}. When it is exceeded, idle models are
+     *            evicted, heaviest first.
+     */
+    public void setMaxTotalWeight(long maxTotalWeight) {
+        checkPositive(maxTotalWeight);
+        this.maxTotalWeight = maxTotalWeight;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+
+    /**
+     * @param maxWaitMillis
+     *            how long to wait for a model of the same key to be released once the soft limit of the key is
+     *            reached, or for the weight budget to be freed
+     */
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        checkNotNegative(maxWaitMillis);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public long getTimeBetweenMaintenanceRunsMillis() {
+        return timeBetweenMaintenanceRunsMillis;
+    }
+
+    /**
+     * @param timeBetweenMaintenanceRunsMillis
+     *            how often idle models are validated and evicted if idle for too long. Maintenance runs in a background
+     *            thread, never on the threads acquiring models.
+     */
+    public void setTimeBetweenMaintenanceRunsMillis(long timeBetweenMaintenanceRunsMillis) {
+        checkPositive(timeBetweenMaintenanceRunsMillis);
+        this.timeBetweenMaintenanceRunsMillis = timeBetweenMaintenanceRunsMillis;
+    }
+
+    public long getMinEvictableIdleTimeMillis() {
+        return minEvictableIdleTimeMillis;
+    }
+
+    public void setMinEvictableIdleTimeMillis(long minEvictableIdleTimeMillis) {
+        checkNotNegative(minEvictableIdleTimeMillis);
+        this.minEvictableIdleTimeMillis = minEvictableIdleTimeMillis;
+    }
+
+    private static void checkPositive(long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException("value must be positive: " + value);
+        }
+    }
+
+    private static void checkNotNegative(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+    }
+}
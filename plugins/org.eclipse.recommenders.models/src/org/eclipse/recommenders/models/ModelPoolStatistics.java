@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models;
+
+/**
+ * A snapshot of the statistics of the model pool of a {@link PoolingModelProvider}.
+ *
+ * @see PoolingModelProvider#getPoolStatistics()
+ */
+public final class ModelPoolStatistics {
+
+    private final long borrowCount;
+    private final long totalBorrowWaitNanos;
+    private final long maxBorrowWaitNanos;
+    private final long creationCount;
+    private final long elasticCreationCount;
+    private final long evictionCount;
+    private final long exhaustionCount;
+    private final int borrowedCount;
+    private final int idleCount;
+    private final long totalWeight;
+
+    ModelPoolStatistics(long borrowCount, long totalBorrowWaitNanos, long maxBorrowWaitNanos, long creationCount,
+            long elasticCreationCount, long evictionCount, long exhaustionCount, int borrowedCount, int idleCount,
+            long totalWeight) {
+        this.borrowCount = borrowCount;
+        this.totalBorrowWaitNanos = totalBorrowWaitNanos;
+        this.maxBorrowWaitNanos = maxBorrowWaitNanos;
+        this.creationCount = creationCount;
+        this.elasticCreationCount = elasticCreationCount;
+        this.evictionCount = evictionCount;
+        this.exhaustionCount = exhaustionCount;
+        this.borrowedCount = borrowedCount;
+        this.idleCount = idleCount;
+        this.totalWeight = totalWeight;
+    }
+
+    /**
+     * @return the number of models handed out, reused or newly created
+     */
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    /**
+     * @return the total time clients waited for a model to be released or for the weight budget to be freed. The time
+     *         it takes to create a model is not included.
+     */
+    public long getTotalBorrowWaitNanos() {
+        return totalBorrowWaitNanos;
+    }
+
+    public long getMaxBorrowWaitNanos() {
+        return maxBorrowWaitNanos;
+    }
+
+    public long getMeanBorrowWaitNanos() {
+        return borrowCount == 0 ? 0 : totalBorrowWaitNanos / borrowCount;
+    }
+
+    public long getCreationCount() {
+        return creationCount;
+    }
+
+    /**
+     * @return the number of models created beyond the soft limit of their key, after waiting in vain for a model of the
+     *         key to be released
+     */
+    public long getElasticCreationCount() {
+        return elasticCreationCount;
+    }
+
+    /**
+     * @return the number of idle models destroyed, because they have been idle for too long, failed validation,
+     *         exceeded the number of idle models per key, or to free the weight budget
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the number of times a model could not be handed out, because the weight budget was used up by borrowed
+     *         models
+     */
+    public long getExhaustionCount() {
+        return exhaustionCount;
+    }
+
+    public int getBorrowedCount() {
+        return borrowedCount;
+    }
+
+    public int getIdleCount() {
+        return idleCount;
+    }
+
+    /**
+     * @return the total weight of borrowed and idle models
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d borrows (mean wait %d us, max %d us), %d creations (%d elastic), %d evictions,"
+                + " %d exhaustions, %d borrowed, %d idle, total weight %d", borrowCount,
+                getMeanBorrowWaitNanos() / 1000, maxBorrowWaitNanos / 1000, creationCount, elasticCreationCount,
+                evictionCount, exhaustionCount, borrowedCount, idleCount, totalWeight);
+    }
+}
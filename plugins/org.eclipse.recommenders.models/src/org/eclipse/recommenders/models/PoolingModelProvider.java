@@ -11,62 +11,59 @@
 package org.eclipse.recommenders.models;
 
 import static com.google.common.base.Optional.*;
-import static java.util.concurrent.TimeUnit.MINUTES;
 
 import java.io.IOException;
-import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 import org.apache.commons.pool.BaseKeyedPoolableObjectFactory;
-import org.apache.commons.pool.impl.GenericKeyedObjectPool;
 import org.eclipse.recommenders.utils.Nullable;
 import org.eclipse.recommenders.utils.Throws;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Optional;
+import com.google.common.cache.Weigher;
 
 /**
  * A model provider implementation that pools recommendation models to further improve performance. Note that models
  * need to be release by clients. Otherwise the pool may be exhausted quickly.
+ * <p>
+ * The pool is elastic; see {@link ModelPoolConfiguration} for its limits and {@link #getPoolStatistics()} for how it
+ * copes with the load.
  */
 public abstract class PoolingModelProvider<K extends IUniqueName<?>, M> extends SimpleModelProvider<K, M> {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
-    // which models are currently borrowed to someone?
-    // we need this mapping for implementing releaseModel properly so that clients don't have to submit their keys too.
-    private final IdentityHashMap<M, K> borrowedModels = new IdentityHashMap<>();
-    // model pool
-    // REVIEW: we may want to make pool creation configurable later?
-    private GenericKeyedObjectPool<K, M> pool = createModelPool();
+    // model pool; it also knows which models are currently borrowed to someone, so that clients don't have to submit
+    // their keys on release too.
+    private final ModelPool<K, M> pool;
 
     public PoolingModelProvider(IModelRepository repository, IModelArchiveCoordinateAdvisor index, String modelType,
             Map<String, IInputStreamTransformer> transformers) {
-        super(repository, index, modelType, transformers);
+        this(repository, index, modelType, transformers, new ModelPoolConfiguration());
     }
 
-    private GenericKeyedObjectPool<K, M> createModelPool() {
-        GenericKeyedObjectPool<K, M> pool = new GenericKeyedObjectPool<K, M>(new ModelPoolFactoryMediator());
-        pool.setMaxTotal(30);
-        pool.setMaxIdle(5);
-        pool.setWhenExhaustedAction(GenericKeyedObjectPool.WHEN_EXHAUSTED_FAIL);
-        // run clean up every 5 minutes:
-        pool.setTimeBetweenEvictionRunsMillis(MINUTES.toMillis(5));
-        // models are evictable after 5 minutes
-        pool.setMinEvictableIdleTimeMillis(MINUTES.toMillis(5));
-        return pool;
+    public PoolingModelProvider(IModelRepository repository, IModelArchiveCoordinateAdvisor index, String modelType,
+            Map<String, IInputStreamTransformer> transformers, ModelPoolConfiguration poolConfiguration) {
+        super(repository, index, modelType, transformers);
+        pool = new ModelPool<K, M>(new ModelPoolFactoryMediator(), new ModelWeigher(), poolConfiguration);
     }
 
+    /**
+     * May block for up to {@link ModelPoolConfiguration#getMaxWaitMillis()} if many models of the key are in use.
+     */
     @Override
     public Optional<M> acquireModel(@Nullable K key) {
         if (key == null) {
             return absent();
         }
         try {
-            M model = pool.borrowObject(key);
-            borrowedModels.put(model, key);
-            return of(model);
+            return of(pool.borrow(key));
+        } catch (NoSuchElementException e) {
+            log.debug("Model pool exhausted; no model for " + key, e);
+            return absent();
         } catch (Exception e) {
             // Model provider could not find a model for the given key.
             return absent();
@@ -79,13 +76,16 @@ public abstract class PoolingModelProvider<K extends IUniqueName<?>, M> extends
             return;
         }
         try {
-            K key = borrowedModels.remove(model);
-            pool.returnObject(key, model);
+            pool.release(model);
         } catch (Exception e) {
             log.error("Exception while releasing. Couldn't release model " + model, e);
         }
     }
 
+    public ModelPoolStatistics getPoolStatistics() {
+        return pool.getStatistics();
+    }
+
     /**
      * Mediates calls from Apache Commons Pool implementation to our {create,destroy,passivate}Model() methods above.
      */
@@ -114,6 +114,18 @@ public abstract class PoolingModelProvider<K extends IUniqueName<?>, M> extends
         public void destroyObject(K key, M obj) throws Exception {
             PoolingModelProvider.this.destroyModel(obj);
         }
+
+        @Override
+        public boolean validateObject(K key, M obj) {
+            return PoolingModelProvider.this.validateModel(obj);
+        }
+    }
+
+    private final class ModelWeigher implements Weigher<K, M> {
+        @Override
+        public int weigh(K key, M model) {
+            return getModelWeight(key, model);
+        }
     }
 
     @Override
@@ -144,4 +156,21 @@ public abstract class PoolingModelProvider<K extends IUniqueName<?>, M> extends
     protected void destroyModel(M model) {
     }
 
+    /**
+     * Invoked for idle models by a background thread; invalid models are removed from the pool.
+     */
+    protected boolean validateModel(M model) {
+        return true;
+    }
+
+    /**
+     * Invoked once after the model has been created. The weights of all pooled models are limited by
+     * {@link ModelPoolConfiguration#getMaxTotalWeight()}; by default, every model weighs 1.
+     *
+     * @return the approximate memory footprint of the model, in a unit of the subclass' choice
+     */
+    protected int getModelWeight(K key, M model) {
+        return 1;
+    }
+
 }
@@ -11,18 +11,13 @@
 package org.eclipse.recommenders.models;
 
 import static com.google.common.base.Optional.absent;
-import static com.google.common.io.ByteStreams.toByteArray;
-import static com.google.common.io.Files.newInputStreamSupplier;
-import static java.util.concurrent.TimeUnit.MINUTES;
-import static org.eclipse.recommenders.utils.Zips.closeQuietly;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.recommenders.utils.IOUtils;
 import org.slf4j.Logger;
@@ -33,27 +28,38 @@ import com.google.common.base.Optional;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
- * A non-thread-safe implementation of {@link IModelProvider} that loads models from model ZIP files using a
- * {@link ModelRepository}. Note that {@link #acquireModel(IUniqueName)} attempts to download matching model archives
- * immediately and thus blocks until the download is completed.
+ * An implementation of {@link IModelProvider} that loads models from model ZIP files using a {@link ModelRepository}.
+ * Note that {@link #acquireModel(IUniqueName)} attempts to download matching model archives immediately and thus
+ * blocks until the download is completed; {@link #acquireModelAsync(IUniqueName, long, TimeUnit)} does so on a loader
+ * thread.
+ * <p>
+ * {@link #acquireModel(IUniqueName)} is thread-safe, as the loader threads call it concurrently with the clients of the
+ * provider: the mapped archives are shared through a thread-safe {@link LoadingCache}, and each call reads its model
+ * from the archive independently. Subclasses must keep {@link #loadModel(InputStream, IUniqueName)} thread-safe, too.
+ * {@link #open()} and {@link #close()} must not be called concurrently with acquiring models.
+ * <p>
+ * Model archives are memory-mapped (see {@link MappedZipArchive}) and cached until their total size exceeds
+ * 256 MB; then the least recently used archives are dropped. Archives that have been replaced on disk, e.g., by a model
+ * update, are mapped anew.
  */
-public abstract class SimpleModelProvider<K extends IUniqueName<?>, M> implements IModelProvider<K, M> {
+public abstract class SimpleModelProvider<K extends IUniqueName<?>, M> implements IAsyncModelProvider<K, M> {
 
     private static final Logger LOG = LoggerFactory.getLogger(SimpleModelProvider.class);
 
-    private static final int CACHE_SIZE = 10;
+    private static final long MAX_MAPPED_BYTES = 256 * 1024 * 1024;
 
-    private final LoadingCache<ModelCoordinate, ZipFile> openZips = CacheBuilder.newBuilder().maximumSize(CACHE_SIZE)
-            .expireAfterAccess(1, MINUTES).removalListener(new ZipRemovalListener()).build(new ZipCacheLoader());
+    private final LoadingCache<ModelCoordinate, MappedZipArchive> openZips = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_MAPPED_BYTES).weigher(new MappedSizeWeigher()).build(new ZipCacheLoader());
     private final IModelRepository repository;
     private final IModelArchiveCoordinateAdvisor index;
     private final String modelType;
     private final Map<String, IInputStreamTransformer> transformers;
+    private final AsyncModelLoader<K, M> asyncLoader = new AsyncModelLoader<>(this);
 
     public SimpleModelProvider(IModelRepository cache, IModelArchiveCoordinateAdvisor index, String modelType,
             Map<String, IInputStreamTransformer> transformers) {
@@ -72,9 +78,13 @@ public abstract class SimpleModelProvider<K extends IUniqueName<?>, M> implement
                 return absent();
             }
 
-            final ZipFile zip;
+            MappedZipArchive zip;
             try {
                 zip = openZips.get(mc);
+                if (zip.isStale()) {
+                    openZips.invalidate(mc);
+                    zip = openZips.get(mc);
+                }
             } catch (UncheckedExecutionException e) {
                 if (IllegalStateException.class.equals(e.getCause().getClass())) {
                     // repository.getLocation(..) returned absent. Try to load ZIP file again next time.
@@ -92,8 +102,13 @@ public abstract class SimpleModelProvider<K extends IUniqueName<?>, M> implement
         }
     }
 
+    @Override
+    public ListenableFuture<Optional<M>> acquireModelAsync(K key, long timeout, TimeUnit unit) {
+        return asyncLoader.acquire(key, timeout, unit);
+    }
+
     @VisibleForTesting
-    protected Optional<M> doAcquireModel(K key, ZipFile zip) throws IOException {
+    protected Optional<M> doAcquireModel(K key, MappedZipArchive zip) throws IOException {
         InputStream in = null;
         try {
             String basePath = getBasePath(key);
@@ -118,18 +133,14 @@ public abstract class SimpleModelProvider<K extends IUniqueName<?>, M> implement
     protected abstract String getBasePath(K key);
 
     @VisibleForTesting
-    protected Optional<InputStream> getInputStream(ZipFile zip, String basePath) throws IOException {
+    protected Optional<InputStream> getInputStream(MappedZipArchive zip, String basePath) throws IOException {
         for (Entry<String, IInputStreamTransformer> transformer : transformers.entrySet()) {
-            ZipEntry toTransform = zip.getEntry(basePath + "." + transformer.getKey()); //$NON-NLS-1$
+            InputStream toTransform = zip.getInputStream(basePath + "." + transformer.getKey()).orNull(); //$NON-NLS-1$
             if (toTransform != null) {
-                return Optional.of(transformer.getValue().transform(zip.getInputStream(toTransform)));
+                return Optional.of(transformer.getValue().transform(toTransform));
             }
         }
-        ZipEntry entry = zip.getEntry(basePath);
-        if (entry == null) {
-            return absent();
-        }
-        return Optional.of(zip.getInputStream(entry));
+        return zip.getInputStream(basePath);
     }
 
     protected abstract M loadModel(InputStream stream, K key) throws IOException;
@@ -144,30 +155,27 @@ public abstract class SimpleModelProvider<K extends IUniqueName<?>, M> implement
 
     @Override
     public void close() throws IOException {
+        asyncLoader.releaseLateModels();
         openZips.invalidateAll();
     }
 
     /**
-     * Resolves the given model archive coordinate from models store, puts the zip file into the cache, and loads the
-     * file contents completely in memory for faster data access.
+     * Resolves the given model archive coordinate from models store, maps the zip file, and puts it into the cache. The
+     * index of the archive is kept next to it in the models store.
      */
-    private final class ZipCacheLoader extends CacheLoader<ModelCoordinate, ZipFile> {
+    private final class ZipCacheLoader extends CacheLoader<ModelCoordinate, MappedZipArchive> {
         @Override
-        public ZipFile load(ModelCoordinate key) throws Exception {
+        public MappedZipArchive load(ModelCoordinate key) throws Exception {
             File location = repository.getLocation(key, true).get();
-            // read file in memory to speed up access
-            toByteArray(newInputStreamSupplier(location));
-            return new ZipFile(location);
+            return MappedZipArchive.open(location, MappedZipArchive.getIndexFile(location));
         }
     }
 
-    /**
-     * Closes an zip file evicted from the cache.
-     */
-    private final class ZipRemovalListener implements RemovalListener<ModelCoordinate, ZipFile> {
+    private static final class MappedSizeWeigher implements Weigher<ModelCoordinate, MappedZipArchive> {
         @Override
-        public void onRemoval(RemovalNotification<ModelCoordinate, ZipFile> notification) {
-            closeQuietly(notification.getValue());
+        public int weigh(ModelCoordinate key, MappedZipArchive zip) {
+            return zip.getMappedSize();
         }
     }
+
 }
@@ -10,16 +10,22 @@
  */
 package org.eclipse.recommenders.internal.overrides.rcp;
 
+import static org.eclipse.recommenders.internal.models.rcp.ModelsRcpModule.PREWARMED_MODEL_PROVIDERS;
+import static org.eclipse.recommenders.utils.Constants.CLASS_OVRM_MODEL;
+
 import javax.inject.Singleton;
 
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.recommenders.models.IModelProvider;
 import org.eclipse.recommenders.overrides.IOverrideModelProvider;
 import org.eclipse.ui.IWorkbench;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
+import com.google.inject.multibindings.MapBinder;
+import com.google.inject.name.Names;
 
 public class OverridesRcpModule extends AbstractModule {
 
@@ -27,8 +33,11 @@ public class OverridesRcpModule extends AbstractModule {
     }
 
     @Override
+    @SuppressWarnings("rawtypes")
     protected void configure() {
         bind(IOverrideModelProvider.class).to(RcpOverrideModelProvider.class).in(Scopes.SINGLETON);
+        MapBinder.newMapBinder(binder(), String.class, IModelProvider.class, Names.named(PREWARMED_MODEL_PROVIDERS))
+                .addBinding(CLASS_OVRM_MODEL).to(IOverrideModelProvider.class);
     }
 
     @Provides
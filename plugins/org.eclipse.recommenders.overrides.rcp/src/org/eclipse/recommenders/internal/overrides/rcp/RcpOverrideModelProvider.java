@@ -10,6 +10,8 @@
  */
 package org.eclipse.recommenders.internal.overrides.rcp;
 
+import static org.eclipse.recommenders.utils.Constants.CLASS_OVRM_MODEL;
+
 import java.io.IOException;
 import java.util.Map;
 
@@ -21,6 +23,8 @@ import org.eclipse.recommenders.models.IInputStreamTransformer;
 import org.eclipse.recommenders.models.IModelArchiveCoordinateAdvisor;
 import org.eclipse.recommenders.models.IModelRepository;
 import org.eclipse.recommenders.models.IUniqueName;
+import org.eclipse.recommenders.models.UniqueTypeName;
+import org.eclipse.recommenders.models.rcp.IModelPrewarmer;
 import org.eclipse.recommenders.models.rcp.ModelEvents.ModelRepositoryClosedEvent;
 import org.eclipse.recommenders.models.rcp.ModelEvents.ModelRepositoryOpenedEvent;
 import org.eclipse.recommenders.overrides.IOverrideModel;
@@ -37,15 +41,17 @@ public class RcpOverrideModelProvider implements IOverrideModelProvider, IRcpSer
     private final IModelRepository repository;
     private final IModelArchiveCoordinateAdvisor index;
     private Map<String, IInputStreamTransformer> transformers;
+    private final IModelPrewarmer prewarmer;
 
     private PoolingOverrideModelProvider delegate;
 
     @Inject
     public RcpOverrideModelProvider(IModelRepository repository, IModelArchiveCoordinateAdvisor index,
-            Map<String, IInputStreamTransformer> transformers) {
+            Map<String, IInputStreamTransformer> transformers, IModelPrewarmer prewarmer) {
         this.repository = repository;
         this.index = index;
         this.transformers = transformers;
+        this.prewarmer = prewarmer;
     }
 
     @Override
@@ -53,6 +59,7 @@ public class RcpOverrideModelProvider implements IOverrideModelProvider, IRcpSer
     public void open() throws IOException {
         delegate = new PoolingOverrideModelProvider(repository, index, transformers);
         delegate.open();
+        prewarmer.register(CLASS_OVRM_MODEL, delegate);
     }
 
     @Override
@@ -63,6 +70,7 @@ public class RcpOverrideModelProvider implements IOverrideModelProvider, IRcpSer
 
     @Override
     public Optional<IOverrideModel> acquireModel(IUniqueName<ITypeName> key) {
+        prewarmer.recordUsage(CLASS_OVRM_MODEL, new UniqueTypeName(key.getProjectCoordinate(), key.getName()));
         return delegate.acquireModel(key);
     }
 
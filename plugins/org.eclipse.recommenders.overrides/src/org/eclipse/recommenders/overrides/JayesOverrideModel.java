@@ -22,7 +22,8 @@ import java.util.Map;
 
 import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
-import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.inference.IBayesInferrer;
+import org.eclipse.recommenders.jayes.inference.InferrerFactory;
 import org.eclipse.recommenders.utils.Recommendation;
 import org.eclipse.recommenders.utils.gson.GsonUtil;
 import org.eclipse.recommenders.utils.names.IMethodName;
@@ -48,7 +49,7 @@ public class JayesOverrideModel implements IOverrideModel {
         return network;
     }
 
-    private JunctionTreeAlgorithm junctionTreeAlgorithm;
+    private IBayesInferrer inferrer;
     private ITypeName typeName;
     private BayesNode patternNode;
     private Map<IMethodName, BayesNode> methodNodes;
@@ -57,8 +58,7 @@ public class JayesOverrideModel implements IOverrideModel {
             final List<BayesNode> methodNodes) {
         this.typeName = typeName;
         this.patternNode = patternNode;
-        junctionTreeAlgorithm = new JunctionTreeAlgorithm();
-        junctionTreeAlgorithm.setNetwork(network);
+        inferrer = InferrerFactory.defaultFactory().createInferrer(network);
         createMethodNameMapping(methodNodes);
     }
 
@@ -71,7 +71,7 @@ public class JayesOverrideModel implements IOverrideModel {
 
     @Override
     public void reset() {
-        junctionTreeAlgorithm.setEvidence(new HashMap<BayesNode, String>());
+        inferrer.setEvidence(new HashMap<BayesNode, String>());
     }
 
     @Override
@@ -93,7 +93,7 @@ public class JayesOverrideModel implements IOverrideModel {
     public void setObservedMethod(final IMethodName methodName) {
         final BayesNode methodNode = methodNodes.get(methodName);
         if (methodNode != null) {
-            junctionTreeAlgorithm.addEvidence(methodNode, "true");
+            inferrer.addEvidence(methodNode, "true");
         }
     }
 
@@ -101,10 +101,10 @@ public class JayesOverrideModel implements IOverrideModel {
     public List<Recommendation<IMethodName>> recommendOverrides() {
         final List<Recommendation<IMethodName>> recommendations = new LinkedList<>();
         for (final BayesNode node : methodNodes.values()) {
-            if (junctionTreeAlgorithm.getEvidence().containsKey(node)) {
+            if (inferrer.getEvidence().containsKey(node)) {
                 continue;
             }
-            final double probability = junctionTreeAlgorithm.getBeliefs(node)[0];
+            final double probability = inferrer.getBeliefs(node)[0];
             final IMethodName method = VmMethodName.get(node.getName());
             recommendations.add(Recommendation.newRecommendation(method, probability));
         }
@@ -11,19 +11,18 @@
 package org.eclipse.recommenders.overrides;
 
 import static org.eclipse.recommenders.utils.Constants.DOT_JSON;
-import static org.eclipse.recommenders.utils.Zips.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 import org.eclipse.recommenders.models.IInputStreamTransformer;
 import org.eclipse.recommenders.models.IUniqueName;
+import org.eclipse.recommenders.models.MappedZipArchive;
 import org.eclipse.recommenders.models.UniqueTypeName;
 import org.eclipse.recommenders.utils.IOUtils;
 import org.eclipse.recommenders.utils.Openable;
@@ -42,7 +41,7 @@ import com.google.common.base.Optional;
 public class SingleZipOverrideModelProvider implements IOverrideModelProvider, Openable {
 
     private final File models;
-    private ZipFile zip;
+    private MappedZipArchive zip;
     private Map<String, IInputStreamTransformer> transformers;
 
     public SingleZipOverrideModelProvider(File models, Map<String, IInputStreamTransformer> transformers) {
@@ -52,20 +51,21 @@ public class SingleZipOverrideModelProvider implements IOverrideModelProvider, O
 
     @Override
     public void open() throws IOException {
-        readFully(models);
-        zip = new ZipFile(models);
+        zip = MappedZipArchive.open(models, MappedZipArchive.getIndexFile(models));
     }
 
     @Override
     public void close() throws IOException {
-        closeQuietly(zip);
+        // the archive is unmapped once it is no longer referenced
+        zip = null;
     }
 
     public Set<ITypeName> acquireableTypes() {
-        Set<ITypeName> acquireableTypesSet = Zips.types(zip.entries(), DOT_JSON);
+        List<String> entryNames = zip.getEntryNames();
+        Set<ITypeName> acquireableTypesSet = Zips.types(entryNames, DOT_JSON);
 
         for (Entry<String, IInputStreamTransformer> transformer : transformers.entrySet()) {
-            acquireableTypesSet.addAll(Zips.types(zip.entries(), DOT_JSON + "." + transformer.getKey())); //$NON-NLS-1$
+            acquireableTypesSet.addAll(Zips.types(entryNames, DOT_JSON + "." + transformer.getKey())); //$NON-NLS-1$
         }
 
         return acquireableTypesSet;
@@ -93,18 +93,13 @@ public class SingleZipOverrideModelProvider implements IOverrideModelProvider, O
         }
     }
 
-    private Optional<InputStream> getInputStream(ZipFile zip, String path) throws IOException {
+    private Optional<InputStream> getInputStream(MappedZipArchive zip, String path) throws IOException {
         for (Entry<String, IInputStreamTransformer> transformer : transformers.entrySet()) {
-            ZipEntry toTransform = zip.getEntry(path + "." + transformer.getKey()); //$NON-NLS-1$
-            if (toTransform == null) {
-                continue;
+            InputStream toTransform = zip.getInputStream(path + "." + transformer.getKey()).orNull(); //$NON-NLS-1$
+            if (toTransform != null) {
+                return Optional.of(transformer.getValue().transform(toTransform));
             }
-            return Optional.of(transformer.getValue().transform(zip.getInputStream(toTransform)));
         }
-        ZipEntry entry = zip.getEntry(path);
-        if (entry == null) {
-            return Optional.absent();
-        }
-        return Optional.of(zip.getInputStream(entry));
+        return zip.getInputStream(path);
     }
 }
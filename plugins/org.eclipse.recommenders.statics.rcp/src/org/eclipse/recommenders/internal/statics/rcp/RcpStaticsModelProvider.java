@@ -7,6 +7,8 @@
  */
 package org.eclipse.recommenders.internal.statics.rcp;
 
+import static org.eclipse.recommenders.utils.Constants.CLASS_STATICS_MODEL;
+
 import java.io.IOException;
 import java.util.Map;
 
@@ -18,6 +20,7 @@ import org.eclipse.recommenders.models.IInputStreamTransformer;
 import org.eclipse.recommenders.models.IModelArchiveCoordinateAdvisor;
 import org.eclipse.recommenders.models.IModelRepository;
 import org.eclipse.recommenders.models.UniqueTypeName;
+import org.eclipse.recommenders.models.rcp.IModelPrewarmer;
 import org.eclipse.recommenders.models.rcp.ModelEvents.ModelRepositoryClosedEvent;
 import org.eclipse.recommenders.models.rcp.ModelEvents.ModelRepositoryOpenedEvent;
 import org.eclipse.recommenders.rcp.IRcpService;
@@ -33,15 +36,17 @@ public class RcpStaticsModelProvider implements IStaticsModelProvider, IRcpServi
     private final IModelRepository repository;
     private final IModelArchiveCoordinateAdvisor index;
     private final Map<String, IInputStreamTransformer> transformers;
+    private final IModelPrewarmer prewarmer;
 
     private IStaticsModelProvider delegate;
 
     @Inject
     public RcpStaticsModelProvider(IModelRepository repository, IModelArchiveCoordinateAdvisor index,
-            Map<String, IInputStreamTransformer> transformers) {
+            Map<String, IInputStreamTransformer> transformers, IModelPrewarmer prewarmer) {
         this.repository = repository;
         this.index = index;
         this.transformers = transformers;
+        this.prewarmer = prewarmer;
     }
 
     @Override
@@ -49,6 +54,7 @@ public class RcpStaticsModelProvider implements IStaticsModelProvider, IRcpServi
     public void open() throws IOException {
         delegate = new PoolingStaticsModelProvider(repository, index, transformers);
         delegate.open();
+        prewarmer.register(CLASS_STATICS_MODEL, delegate);
     }
 
     @Override
@@ -59,6 +65,7 @@ public class RcpStaticsModelProvider implements IStaticsModelProvider, IRcpServi
 
     @Override
     public Optional<IStaticsModel> acquireModel(UniqueTypeName key) {
+        prewarmer.recordUsage(CLASS_STATICS_MODEL, key);
         return delegate.acquireModel(key);
     }
 
@@ -7,22 +7,31 @@
  */
 package org.eclipse.recommenders.internal.statics.rcp;
 
+import static org.eclipse.recommenders.internal.models.rcp.ModelsRcpModule.PREWARMED_MODEL_PROVIDERS;
+import static org.eclipse.recommenders.utils.Constants.CLASS_STATICS_MODEL;
+
 import javax.inject.Singleton;
 
 import org.eclipse.e4.core.contexts.ContextInjectionFactory;
 import org.eclipse.e4.core.contexts.IEclipseContext;
+import org.eclipse.recommenders.models.IModelProvider;
 import org.eclipse.recommenders.statics.IStaticsModelProvider;
 import org.eclipse.ui.IWorkbench;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
+import com.google.inject.multibindings.MapBinder;
+import com.google.inject.name.Names;
 
 public class StaticsRcpModule extends AbstractModule {
 
     @Override
+    @SuppressWarnings("rawtypes")
     protected void configure() {
         bind(IStaticsModelProvider.class).to(RcpStaticsModelProvider.class).in(Scopes.SINGLETON);
+        MapBinder.newMapBinder(binder(), String.class, IModelProvider.class, Names.named(PREWARMED_MODEL_PROVIDERS))
+                .addBinding(CLASS_STATICS_MODEL).to(IStaticsModelProvider.class);
     }
 
     @Provides
@@ -12,13 +12,15 @@ import static org.eclipse.recommenders.utils.Recommendation.newRecommendation;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.recommenders.jayes.BayesNet;
 import org.eclipse.recommenders.jayes.BayesNode;
-import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.inference.IBayesInferrer;
+import org.eclipse.recommenders.jayes.inference.InferrerFactory;
 import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeBuilder;
 import org.eclipse.recommenders.jayes.io.IBayesNetReader;
 import org.eclipse.recommenders.jayes.io.jbif.JayesBifReader;
@@ -56,17 +58,16 @@ public class JayesStaticsModel implements IStaticsModel {
 
     private final BayesNet net;
     private final BayesNode verbNode;
-    private final JunctionTreeAlgorithm junctionTree;
+    private final IBayesInferrer inferrer;
 
     private final ITypeName declaringType;
 
     public JayesStaticsModel(final ITypeName name, final BayesNet net) {
         this.net = net;
         this.declaringType = name;
-        this.junctionTree = new JunctionTreeAlgorithm();
-
-        junctionTree.setJunctionTreeBuilder(JunctionTreeBuilder.forHeuristic(new MinDegree()));
-        junctionTree.setNetwork(net);
+        InferrerFactory inferrerFactory = InferrerFactory.defaultFactory();
+        inferrerFactory.setJunctionTreeBuilder(JunctionTreeBuilder.forHeuristic(new MinDegree()));
+        this.inferrer = inferrerFactory.createInferrer(net);
 
         verbNode = net.getNode(VERBS_NODE_NAME);
     }
@@ -74,18 +75,18 @@ public class JayesStaticsModel implements IStaticsModel {
     @Override
     public boolean setEnclosingMethod(IMethodName context) {
         if (context == null) {
-            junctionTree.addEvidence(verbNode, VERB_OUTCOME_PRIOR);
+            inferrer.addEvidence(verbNode, VERB_OUTCOME_PRIOR);
             return false;
         }
         String verb = MethodNameUtils.extractVerb(context.getName()).orNull();
         if (verb == null) {
-            junctionTree.addEvidence(verbNode, VERB_OUTCOME_PRIOR);
+            inferrer.addEvidence(verbNode, VERB_OUTCOME_PRIOR);
             return false;
         } else if (verbNode.getOutcomes().contains(verb)) {
-            junctionTree.addEvidence(verbNode, verb);
+            inferrer.addEvidence(verbNode, verb);
             return true;
         } else {
-            junctionTree.addEvidence(verbNode, VERB_OUTCOME_PRIOR);
+            inferrer.addEvidence(verbNode, VERB_OUTCOME_PRIOR);
             return false;
         }
     }
@@ -93,7 +94,7 @@ public class JayesStaticsModel implements IStaticsModel {
     @Override
     public List<Recommendation<IMethodName>> recommendCalls() {
         List<Recommendation<IMethodName>> recommendations = new LinkedList<>();
-        Map<BayesNode, String> evidence = junctionTree.getEvidence();
+        Map<BayesNode, String> evidence = inferrer.getEvidence();
         for (BayesNode node : net.getNodes()) {
             if (node == verbNode) {
                 continue;
@@ -101,7 +102,7 @@ public class JayesStaticsModel implements IStaticsModel {
             boolean isAlreadyUsedAsEvidence = evidence.containsKey(node);
             if (!isAlreadyUsedAsEvidence) {
                 int indexForTrue = node.getOutcomeIndex(N_STATE_TRUE);
-                double[] probabilities = junctionTree.getBeliefs(node);
+                double[] probabilities = inferrer.getBeliefs(node);
                 double probability = probabilities[indexForTrue];
                 IMethodName method = VmMethodName.get(node.getName());
                 recommendations.add(newRecommendation(method, probability));
@@ -117,7 +118,7 @@ public class JayesStaticsModel implements IStaticsModel {
 
     @Override
     public void reset() {
-        junctionTree.getEvidence().clear();
+        inferrer.setEvidence(new HashMap<BayesNode, String>());
     }
 
     @Override
@@ -127,7 +128,7 @@ public class JayesStaticsModel implements IStaticsModel {
             return 0;
         }
         int indexForTrue = node.getOutcomeIndex(N_STATE_TRUE);
-        double[] probabilities = junctionTree.getBeliefs(node);
+        double[] probabilities = inferrer.getBeliefs(node);
         return probabilities[indexForTrue];
     }
 }
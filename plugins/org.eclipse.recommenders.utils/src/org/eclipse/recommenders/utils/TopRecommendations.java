@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.utils;
+
+import static org.eclipse.recommenders.utils.Checks.ensureIsGreaterOrEqualTo;
+import static org.eclipse.recommenders.utils.Recommendation.newRecommendation;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Collects the k most relevant of a stream of proposals. Unlike {@link Recommendations#top(Iterable, int, double)},
+ * proposals are offered together with their relevance, and {@link Recommendation}s are only created for the proposals
+ * that make it into the top k.
+ * <p>
+ * Proposals are ordered as by {@link Recommendations#top(Iterable, int)}: by relevance, ties are broken by the
+ * proposals' <code>toString()</code>.
+ */
+@Beta
+public class TopRecommendations<T> {
+
+    private final int k;
+    private final double minRelevance;
+
+    // a min-heap of the best proposals seen so far, the least relevant one at index 0
+    private final Object[] proposals;
+    private final double[] relevances;
+    private int size;
+
+    /**
+     * @param k
+     *            the maximum number of recommendations to keep
+     * @param minRelevance
+     *            proposals with a lower relevance are ignored
+     */
+    public TopRecommendations(int k, double minRelevance) {
+        ensureIsGreaterOrEqualTo(k, 0, "k must not be negative");
+        this.k = k;
+        this.minRelevance = minRelevance;
+        proposals = new Object[k];
+        relevances = new double[k];
+    }
+
+    /**
+     * @return <code>true</code> if the proposal is among the top k proposals offered so far
+     */
+    public boolean offer(T proposal, double relevance) {
+        if (relevance < minRelevance) {
+            return false;
+        }
+        if (size < k) {
+            proposals[size] = proposal;
+            relevances[size] = relevance;
+            siftUp(size++);
+            return true;
+        }
+        if (k == 0 || compare(relevance, proposal, 0) <= 0) {
+            return false;
+        }
+        proposals[0] = proposal;
+        relevances[0] = relevance;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Returns the relevance a proposal must at least have to be accepted by {@link #offer(Object, double)}. Producers
+     * can use this to avoid computing proposals that would be rejected anyway.
+     */
+    public double getThreshold() {
+        return size < k ? minRelevance : relevances[0];
+    }
+
+    /**
+     * Returns the collected recommendations, sorted by relevance in descending order, and empties this collector.
+     */
+    public List<Recommendation<T>> toList() {
+        @SuppressWarnings("unchecked")
+        Recommendation<T>[] result = new Recommendation[size];
+        while (size > 0) {
+            result[size - 1] = newRecommendation(proposal(0), relevances[0]);
+            size--;
+            swap(0, size);
+            proposals[size] = null;
+            siftDown(0);
+        }
+        return Arrays.asList(result);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (compare(relevances[index], proposal(index), parent) >= 0) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (compare(relevances[child], proposal(child), smallest) < 0) {
+                    smallest = child;
+                }
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    /**
+     * compares the given proposal with the one at the given heap index
+     */
+    private int compare(double relevance, T proposal, int index) {
+        int compareRelevance = Double.compare(relevance, relevances[index]);
+        if (compareRelevance != 0) {
+            return compareRelevance;
+        }
+        return proposal.toString().compareTo(proposal(index).toString());
+    }
+
+    private void swap(int i, int j) {
+        Object proposal = proposals[i];
+        proposals[i] = proposals[j];
+        proposals[j] = proposal;
+        double relevance = relevances[i];
+        relevances[i] = relevances[j];
+        relevances[j] = relevance;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T proposal(int index) {
+        return (T) proposals[index];
+    }
+}
@@ -160,8 +160,27 @@ public final class Zips {
         return content;
     }
 
+    /**
+     * Same as {@link #types(Enumeration, String)}, but for the entry names of an archive, e.g., of an index of the
+     * archive.
+     */
+    public static Set<ITypeName> types(Iterable<String> entryNames, String suffix) {
+        TreeSet<ITypeName> content = new TreeSet<>();
+        for (String entryName : entryNames) {
+            if (isDirectoryOrMetaInf(entryName)) {
+                continue;
+            }
+            content.add(type(entryName, suffix));
+        }
+        return content;
+    }
+
     public static ITypeName type(ZipEntry entry, @Nullable String suffix) {
-        String name = StringUtils.removeEnd(entry.getName(), suffix);
+        return type(entry.getName(), suffix);
+    }
+
+    private static ITypeName type(String entryName, @Nullable String suffix) {
+        String name = StringUtils.removeEnd(entryName, suffix);
         return VmTypeName.get("L" + name);
     }
 
@@ -182,8 +201,31 @@ public final class Zips {
         return content;
     }
 
+    /**
+     * Same as {@link #methods(Enumeration, String)}, but for the entry names of an archive, e.g., of an index of the
+     * archive.
+     */
+    public static Set<IMethodName> methods(Iterable<String> entryNames, String suffix) {
+        TreeSet<IMethodName> content = new TreeSet<>();
+        for (String entryName : entryNames) {
+            if (isDirectoryOrMetaInf(entryName)) {
+                continue;
+            }
+            content.add(method(entryName, suffix));
+        }
+        return content;
+    }
+
+    private static boolean isDirectoryOrMetaInf(String entryName) {
+        return entryName.endsWith("/") || entryName.startsWith("META-INF/");
+    }
+
     public static IMethodName method(ZipEntry e, String suffix) {
-        String name = "L" + StringUtils.substringBefore(e.getName(), suffix);
+        return method(e.getName(), suffix);
+    }
+
+    private static IMethodName method(String entryName, String suffix) {
+        String name = "L" + StringUtils.substringBefore(entryName, suffix);
         int start = name.lastIndexOf('/');
         char[] chars = name.toCharArray();
         chars[start] = '.';
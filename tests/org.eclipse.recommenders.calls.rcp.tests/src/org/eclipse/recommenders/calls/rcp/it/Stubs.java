@@ -152,6 +152,11 @@ public class Stubs {
             return ImmutableList.of();
         }
 
+        @Override
+        public List<Recommendation<IMethodName>> recommendCalls(int k, double minRelevance) {
+            return ImmutableList.of();
+        }
+
         @Override
         public ImmutableSet<DefinitionKind> getKnownDefinitionKinds() {
             return ImmutableSet.of();
@@ -30,12 +30,15 @@ import org.eclipse.recommenders.models.rcp.IProjectCoordinateProvider;
 import org.eclipse.recommenders.rcp.SharedImages;
 import org.eclipse.recommenders.utils.Recommendation;
 import org.eclipse.recommenders.utils.Result;
+import org.eclipse.recommenders.utils.TopRecommendations;
 import org.eclipse.recommenders.utils.names.IMethodName;
 import org.eclipse.recommenders.utils.names.ITypeName;
 import org.eclipse.recommenders.utils.names.VmMethodName;
 import org.eclipse.recommenders.utils.names.VmTypeName;
 import org.junit.Test;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
@@ -59,6 +62,7 @@ public class CallCompletionSessionProcessorTest {
     private Provider<ICallModelProvider> modelMetaProvider;
     private IProposalNameProvider proposalNameProvider = new ProposalNameProvider();
     private IRecommendersCompletionContext context;
+    private ICallModel model;
 
     @Test
     public void testCompletionOnObjectWithoutRecommendations() {
@@ -101,6 +105,52 @@ public class CallCompletionSessionProcessorTest {
         assertThat(shouldProcess, is(equalTo(false)));
     }
 
+    @Test
+    public void testTopRecommendationsRequestedWithPreferences() {
+        setUp(CompletionOnMessageSend.class, new UniqueTypeName(JRE_1_6_0, OBJECT), OBJECT_TYPE, NO_OBSERVATIONS,
+                ANY_TYPE_SIGNATURE, ImmutableList.of(newRecommendation(OBJECT_HASH_CODE, 0.5)));
+
+        CallsRcpPreferences pref = createPreferences(30, 3);
+        CallCompletionSessionProcessor sut = new CallCompletionSessionProcessor(pcMetaProvider, modelMetaProvider,
+                proposalNameProvider, pref, new SharedImages());
+
+        boolean shouldProcess = sut.startSession(context);
+
+        assertThat(shouldProcess, is(equalTo(true)));
+        verify(model).recommendCalls(eq(3), eq(0.3));
+        verify(model, never()).recommendCalls();
+    }
+
+    @Test
+    public void testTopRecommendationsWith100PercentMinProposalProbability() {
+        setUp(CompletionOnMessageSend.class, new UniqueTypeName(JRE_1_6_0, OBJECT), OBJECT_TYPE, NO_OBSERVATIONS,
+                ANY_TYPE_SIGNATURE, ImmutableList.of(newRecommendation(OBJECT_HASH_CODE, 0.5)));
+
+        CallsRcpPreferences pref = createPreferencesWithMinimalProposalProbability(100);
+        CallCompletionSessionProcessor sut = new CallCompletionSessionProcessor(pcMetaProvider, modelMetaProvider,
+                proposalNameProvider, pref, new SharedImages());
+
+        boolean shouldProcess = sut.startSession(context);
+
+        assertThat(shouldProcess, is(equalTo(false)));
+        verify(model).recommendCalls(eq(7), eq(1.0));
+    }
+
+    @Test
+    public void testTopRecommendationsWithoutProposals() {
+        setUp(CompletionOnMessageSend.class, new UniqueTypeName(JRE_1_6_0, OBJECT), OBJECT_TYPE, NO_OBSERVATIONS,
+                ANY_TYPE_SIGNATURE, ImmutableList.of(newRecommendation(OBJECT_HASH_CODE, 0.5)));
+
+        CallsRcpPreferences pref = createPreferences(0, 0);
+        CallCompletionSessionProcessor sut = new CallCompletionSessionProcessor(pcMetaProvider, modelMetaProvider,
+                proposalNameProvider, pref, new SharedImages());
+
+        boolean shouldProcess = sut.startSession(context);
+
+        assertThat(shouldProcess, is(equalTo(false)));
+        verify(model).recommendCalls(eq(0), anyDouble());
+    }
+
     @Test
     public void testCompletionOnObjectWithObservedMethods() {
         setUp(CompletionOnMessageSend.class, new UniqueTypeName(JRE_1_6_0, OBJECT), OBJECT_TYPE,
@@ -222,7 +272,7 @@ public class CallCompletionSessionProcessorTest {
 
     private void setUp(Class<? extends ASTNode> completionType, UniqueTypeName uniqueTypeName, IType receiverType,
             List<IMethodName> observedCalls, String expectedTypeSignature,
-            List<Recommendation<IMethodName>> recommendations) {
+            final List<Recommendation<IMethodName>> recommendations) {
         LookupEnvironment lookupEnvironment = mock(LookupEnvironment.class);
         context = mock(IRecommendersCompletionContext.class);
         when(context.get(CompletionContextKey.LOOKUP_ENVIRONMENT)).thenReturn(Optional.of(lookupEnvironment));
@@ -241,12 +291,26 @@ public class CallCompletionSessionProcessorTest {
         when(pcMetaProvider.get()).thenReturn(pcProvider);
 
         ICallModelProvider modelProvider = mock(ICallModelProvider.class);
-        ICallModel model;
         if (recommendations == null) {
             model = null;
         } else {
             model = mock(ICallModel.class);
             when(model.recommendCalls()).thenReturn(recommendations);
+            // filter like a real model would, so that the tests see the effect of the preferences
+            when(model.recommendCalls(anyInt(), anyDouble())).thenAnswer(
+                    new Answer<List<Recommendation<IMethodName>>>() {
+
+                        @Override
+                        public List<Recommendation<IMethodName>> answer(InvocationOnMock invocation) {
+                            Object[] args = invocation.getArguments();
+                            TopRecommendations<IMethodName> top = new TopRecommendations<>((Integer) args[0],
+                                    (Double) args[1]);
+                            for (Recommendation<IMethodName> recommendation : recommendations) {
+                                top.offer(recommendation.getProposal(), recommendation.getRelevance());
+                            }
+                            return top.toList();
+                        }
+                    });
         }
 
         modelMetaProvider = Mockito.mock(Provider.class);
@@ -82,6 +82,7 @@ public class JayesCallModelTest {
 
         assertThat(Recommendations.top(model.recommendCalls(), 1).get(0).getProposal(),
                 is(STRING_TO_STRING));
+        assertThat(model.recommendCalls(1, 0.0).get(0).getProposal(), is(STRING_TO_STRING));
 
         model.reset();
         model.setObservedCalls(ImmutableSet.of(STRING_TO_STRING));
@@ -92,6 +93,7 @@ public class JayesCallModelTest {
 
         assertThat(Recommendations.top(model.recommendCalls(), 1).get(0).getProposal(),
                 is(STRING_VALUE_OF));
+        assertThat(model.recommendCalls(1, 0.0).get(0).getProposal(), is(STRING_VALUE_OF));
     }
 
     private List<Recommendation<String>> getTopPatterns(JayesCallModel model) {
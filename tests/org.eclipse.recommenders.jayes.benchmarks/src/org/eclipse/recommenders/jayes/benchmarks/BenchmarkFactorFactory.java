@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.recommenders.jayes.factor.AbstractFactor;
+import org.eclipse.recommenders.jayes.factor.DenseFactor;
+import org.eclipse.recommenders.jayes.factor.FactorFactory;
+import org.eclipse.recommenders.jayes.factor.SparseFactor;
+
+/**
+ * A {@link FactorFactory} for which factor layout, precision and scale are set explicitly by the benchmark parameters.
+ */
+public class BenchmarkFactorFactory extends FactorFactory {
+
+    /**
+     * <code>dense</code> forces {@link DenseFactor}s everywhere, <code>sparse</code> keeps the default behavior of
+     * using {@link SparseFactor}s wherever they save memory.
+     */
+    public static final String DENSE = "dense";
+    public static final String SPARSE = "sparse";
+
+    public static final String LINEAR = "linear";
+    public static final String LOG = "log";
+
+    private final boolean dense;
+
+    public BenchmarkFactorFactory(String layout, String precision, String scale) {
+        if (DENSE.equals(layout)) {
+            dense = true;
+        } else if (SPARSE.equals(layout)) {
+            dense = false;
+        } else {
+            throw new IllegalArgumentException("Unknown factor layout: " + layout);
+        }
+
+        if ("double".equals(precision)) {
+            setFloatingPointType(double.class);
+        } else if ("float".equals(precision)) {
+            setFloatingPointType(float.class);
+        } else {
+            throw new IllegalArgumentException("Unknown precision: " + precision);
+        }
+
+        if (LOG.equals(scale)) {
+            setUseLogScale(true);
+        } else if (!LINEAR.equals(scale)) {
+            throw new IllegalArgumentException("Unknown scale: " + scale);
+        }
+    }
+
+    @Override
+    public AbstractFactor create(List<Integer> vars, List<AbstractFactor> multiplicationPartners) {
+        // without multiplication partners there is no zero structure to exploit, so the default is a DenseFactor
+        return super.create(vars, dense ? Collections.<AbstractFactor>emptyList() : multiplicationPartners);
+    }
+}
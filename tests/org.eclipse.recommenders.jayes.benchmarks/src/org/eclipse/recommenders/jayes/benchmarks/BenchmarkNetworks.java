@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.testing.jayes.NetExamples;
+
+/**
+ * The networks the benchmarks run on. Besides the small {@link NetExamples}, this includes synthetic networks shaped
+ * like the call models served by code completion: a callgroup node as the single root, with a context node, a
+ * definition kind node, a definition node and a large number of boolean method nodes as its children.
+ */
+public final class BenchmarkNetworks {
+
+    public static final String CALL_GROUPS = "patterns";
+    public static final String CONTEXTS = "contexts";
+    public static final String DEF_KIND = "kind";
+    public static final String DEF = "definitions";
+
+    public static final String TRUE = "true";
+    public static final String FALSE = "false";
+
+    private static final int CALL_GROUP_COUNT = 40;
+    private static final int CONTEXT_COUNT = 60;
+    private static final int DEF_KIND_COUNT = 5;
+    private static final int DEF_COUNT = 80;
+
+    private static final long SEED = 4711L;
+
+    private BenchmarkNetworks() {
+        // Not meant to be instantiated
+    }
+
+    /**
+     * @param name
+     *            one of <code>testNet1</code>, <code>sparseNet</code>, <code>treeNet</code> or
+     *            <code>callModel-&lt;number of methods&gt;</code>
+     */
+    public static BayesNet create(String name) {
+        if ("testNet1".equals(name)) {
+            return NetExamples.testNet1();
+        } else if ("sparseNet".equals(name)) {
+            return NetExamples.sparseNet();
+        } else if ("treeNet".equals(name)) {
+            return NetExamples.treeNet();
+        } else if (name.startsWith("callModel-")) {
+            return callModelNet(Integer.parseInt(name.substring("callModel-".length())), SEED);
+        }
+        throw new IllegalArgumentException("Unknown network: " + name);
+    }
+
+    public static BayesNet callModelNet(int methodCount, long seed) {
+        Random random = new Random(seed);
+        BayesNet net = new BayesNet();
+        net.setName("callModel-" + methodCount);
+
+        BayesNode callGroups = net.createNode(CALL_GROUPS);
+        callGroups.addOutcomes(outcomes("p", CALL_GROUP_COUNT));
+        callGroups.setProbabilities(randomDistributions(random, 1, CALL_GROUP_COUNT, 0.0));
+
+        createChild(net, random, CONTEXTS, outcomes("Ljava/lang/Object.ctx", CONTEXT_COUNT), callGroups, 0.8);
+        createChild(net, random, DEF_KIND, outcomes("KIND", DEF_KIND_COUNT), callGroups, 0.5);
+        createChild(net, random, DEF, outcomes("Ljava/lang/Object.def", DEF_COUNT), callGroups, 0.9);
+
+        for (int i = 0; i < methodCount; i++) {
+            createChild(net, random, "Ljava/lang/Object.m" + i + "()V", new String[] { TRUE, FALSE }, callGroups,
+                    0.0);
+        }
+        return net;
+    }
+
+    /**
+     * @return the boolean method nodes of a network created by {@link #callModelNet(int, long)}
+     */
+    public static List<BayesNode> methodNodes(BayesNet net) {
+        List<BayesNode> methods = new ArrayList<BayesNode>();
+        List<String> special = Arrays.asList(CALL_GROUPS, CONTEXTS, DEF_KIND, DEF);
+        for (BayesNode node : net.getNodes()) {
+            if (!special.contains(node.getName())) {
+                methods.add(node);
+            }
+        }
+        return methods;
+    }
+
+    private static BayesNode createChild(BayesNet net, Random random, String name, String[] outcomes,
+            BayesNode parent, double sparsity) {
+        BayesNode node = net.createNode(name);
+        node.addOutcomes(outcomes);
+        node.setParents(Arrays.asList(parent));
+        node.setProbabilities(randomDistributions(random, parent.getOutcomeCount(), outcomes.length, sparsity));
+        return node;
+    }
+
+    private static String[] outcomes(String prefix, int count) {
+        String[] outcomes = new String[count];
+        for (int i = 0; i < count; i++) {
+            outcomes[i] = prefix + i;
+        }
+        return outcomes;
+    }
+
+    /**
+     * Creates <code>rows</code> normalized distributions over <code>columns</code> outcomes. Each entry except the
+     * first of a row is zero with probability <code>sparsity</code>, which mimics the mostly-zero context and
+     * definition tables of real call models.
+     */
+    private static double[] randomDistributions(Random random, int rows, int columns, double sparsity) {
+        double[] cpt = new double[rows * columns];
+        for (int row = 0; row < rows; row++) {
+            double sum = 0;
+            for (int column = 0; column < columns; column++) {
+                double p = column > 0 && random.nextDouble() < sparsity ? 0.0 : 0.01 + random.nextDouble();
+                cpt[row * columns + column] = p;
+                sum += p;
+            }
+            for (int column = 0; column < columns; column++) {
+                cpt[row * columns + column] /= sum;
+            }
+        }
+        return cpt;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.jayes.factor.AbstractFactor;
+import org.eclipse.recommenders.jayes.factor.DenseFactor;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the array kernels of {@link DenseFactor} with the generic implementation of the prepared operations in
+ * {@link AbstractFactor}. The kernels are only used for plain {@link DoubleArrayWrapper}s and
+ * {@link FloatArrayWrapper}s, so the <code>generic</code> path is measured with trivial subclasses of those, which
+ * perform exactly the same operations per entry.
+ * <p>
+ * Run with <code>java -jar target/benchmarks.jar FactorKernelBenchmark</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class FactorKernelBenchmark {
+
+    public static final String KERNEL = "kernel";
+    public static final String GENERIC = "generic";
+
+    @Param({ KERNEL, GENERIC })
+    public String path;
+
+    @Param({ "double", "float" })
+    public String precision;
+
+    @Param({ BenchmarkFactorFactory.LINEAR, BenchmarkFactorFactory.LOG })
+    public String scale;
+
+    /**
+     * <code>none</code> is the common case; <code>middle</code> selects an outcome of an inner dimension, as evidence
+     * does, so that the factor is visited in several strided stretches.
+     */
+    @Param({ "none", "middle" })
+    public String selection;
+
+    private AbstractFactor factor;
+    private IArrayWrapper compatibleValues;
+    private int[] positions;
+
+    private static class GenericDoubleArrayWrapper extends DoubleArrayWrapper {
+
+        GenericDoubleArrayWrapper(double... array) {
+            super(array);
+        }
+    }
+
+    private static class GenericFloatArrayWrapper extends FloatArrayWrapper {
+
+        GenericFloatArrayWrapper(float... array) {
+            super(array);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        factor = new DenseFactor();
+        factor.setDimensionIDs(0, 1, 2, 3, 4);
+        factor.setDimensions(8, 4, 6, 4, 8);
+        factor.setValues(newArray(8 * 4 * 6 * 4 * 8));
+        factor.setLogScale(BenchmarkFactorFactory.LOG.equals(scale));
+        if ("middle".equals(selection)) {
+            factor.select(2, 3);
+        } else if (!"none".equals(selection)) {
+            throw new IllegalArgumentException("Unknown selection: " + selection);
+        }
+
+        AbstractFactor compatible = new DenseFactor();
+        compatible.setDimensionIDs(4, 1, 0);
+        compatible.setDimensions(8, 4, 8);
+        compatibleValues = newArray(8 * 4 * 8);
+        positions = factor.prepareMultiplication(compatible);
+    }
+
+    private IArrayWrapper newArray(int length) {
+        // values close to one, so that repeated multiplication neither overflows nor underflows during a run
+        Random random = new Random(42);
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = 1.0 + (random.nextDouble() - 0.5) * 1e-6;
+        }
+        boolean generic = GENERIC.equals(path);
+        if (!generic && !KERNEL.equals(path)) {
+            throw new IllegalArgumentException("Unknown path: " + path);
+        }
+        if ("double".equals(precision)) {
+            return generic ? new GenericDoubleArrayWrapper(values) : new DoubleArrayWrapper(values);
+        } else if ("float".equals(precision)) {
+            float[] floats = new float[length];
+            for (int i = 0; i < length; i++) {
+                floats[i] = (float) values[i];
+            }
+            return generic ? new GenericFloatArrayWrapper(floats) : new FloatArrayWrapper(floats);
+        }
+        throw new IllegalArgumentException("Unknown precision: " + precision);
+    }
+
+    @Benchmark
+    public AbstractFactor multiplyPrepared() {
+        factor.multiplyPrepared(compatibleValues, positions);
+        return factor;
+    }
+
+    @Benchmark
+    public IArrayWrapper sumPrepared() {
+        factor.sumPrepared(compatibleValues, positions);
+        return compatibleValues;
+    }
+}
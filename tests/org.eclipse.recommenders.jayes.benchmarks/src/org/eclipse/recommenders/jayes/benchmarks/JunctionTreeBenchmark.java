@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeBuilder;
+import org.eclipse.recommenders.jayes.sampling.BasicSampler;
+import org.eclipse.recommenders.jayes.util.triangulation.MinDegree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the two costs that matter on the code completion hot path: compiling a network into a junction tree
+ * ({@link JunctionTreeAlgorithm#setNetwork(BayesNet)}) and the evidence/belief round-trip performed on every
+ * keystroke.
+ * <p>
+ * Run with <code>java -jar target/benchmarks.jar JunctionTreeBenchmark</code>. Add <code>-prof gc</code> to see
+ * the allocation rate; the memory footprint of the compiled structures is reported by
+ * {@link org.eclipse.recommenders.jayes.inference.jtree.FootprintReport}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class JunctionTreeBenchmark {
+
+    @Param({ "testNet1", "sparseNet", "treeNet", "callModel-100", "callModel-500" })
+    public String network;
+
+    @Param({ BenchmarkFactorFactory.DENSE, BenchmarkFactorFactory.SPARSE })
+    public String layout;
+
+    @Param({ "double", "float" })
+    public String precision;
+
+    @Param({ BenchmarkFactorFactory.LINEAR, BenchmarkFactorFactory.LOG })
+    public String scale;
+
+    private BayesNet net;
+    private JunctionTreeAlgorithm inferrer;
+
+    private BayesNode[] evidenceNodes;
+    private List<BayesNode> queryNodes;
+    private boolean toggle;
+    private Map<BayesNode, String> observations;
+    private int observed;
+
+    @Setup
+    public void setUp() {
+        net = BenchmarkNetworks.create(network);
+        inferrer = newInferrer();
+        inferrer.setNetwork(net);
+
+        if (network.startsWith("callModel-")) {
+            List<BayesNode> methods = BenchmarkNetworks.methodNodes(net);
+            evidenceNodes = new BayesNode[] { net.getNode(BenchmarkNetworks.CONTEXTS),
+                    net.getNode(BenchmarkNetworks.DEF_KIND), methods.get(0), methods.get(1) };
+            queryNodes = methods.subList(2, methods.size());
+        } else {
+            List<BayesNode> nodes = net.getNodes();
+            evidenceNodes = new BayesNode[] { nodes.get(nodes.size() - 1) };
+            queryNodes = new ArrayList<BayesNode>(nodes.subList(0, nodes.size() - 1));
+        }
+
+        // a sample never contains impossible combinations of outcomes
+        BasicSampler sampler = new BasicSampler();
+        sampler.setNetwork(net);
+        sampler.seed(42);
+        observations = sampler.sample();
+    }
+
+    JunctionTreeAlgorithm newInferrer() {
+        JunctionTreeAlgorithm algorithm = new JunctionTreeAlgorithm();
+        // same configuration as the call models use
+        algorithm.setJunctionTreeBuilder(JunctionTreeBuilder.forHeuristic(new MinDegree()));
+        algorithm.setFactorFactory(new BenchmarkFactorFactory(layout, precision, scale));
+        return algorithm;
+    }
+
+    @Benchmark
+    public JunctionTreeAlgorithm setNetwork() {
+        JunctionTreeAlgorithm algorithm = newInferrer();
+        algorithm.setNetwork(net);
+        return algorithm;
+    }
+
+    /**
+     * Alternates between two evidence sets so that every invocation has to update the beliefs.
+     */
+    @Benchmark
+    public void evidenceRoundTrip(Blackhole blackhole) {
+        toggle = !toggle;
+        inferrer.clearEvidence();
+        for (int i = 0; i < evidenceNodes.length; i++) {
+            BayesNode node = evidenceNodes[i];
+            int outcome = toggle || i > 0 ? 0 : node.getOutcomeCount() - 1;
+            inferrer.addEvidence(node, node.getOutcomeName(outcome));
+        }
+        for (BayesNode node : queryNodes) {
+            blackhole.consume(inferrer.getBeliefs(node));
+        }
+    }
+
+    /**
+     * Same as {@link #evidenceRoundTrip(Blackhole)}, but queries all nodes at once.
+     */
+    @Benchmark
+    public void batchedEvidenceRoundTrip(Blackhole blackhole) {
+        toggle = !toggle;
+        inferrer.clearEvidence();
+        for (int i = 0; i < evidenceNodes.length; i++) {
+            BayesNode node = evidenceNodes[i];
+            int outcome = toggle || i > 0 ? 0 : node.getOutcomeCount() - 1;
+            inferrer.addEvidence(node, node.getOutcomeName(outcome));
+        }
+        blackhole.consume(inferrer.getBeliefs(queryNodes));
+    }
+
+    /**
+     * Observes one more query node per invocation, like a completion session in which one call after the other gets
+     * observed. Starts over once half of the query nodes are observed.
+     */
+    @Benchmark
+    public void addObservation(Blackhole blackhole) {
+        if (observed == queryNodes.size() / 2) {
+            observed = 0;
+            inferrer.clearEvidence();
+        }
+        BayesNode node = queryNodes.get(observed++);
+        inferrer.addEvidence(node, observations.get(node));
+        for (BayesNode query : queryNodes) {
+            blackhole.consume(inferrer.getBeliefs(query));
+        }
+    }
+}
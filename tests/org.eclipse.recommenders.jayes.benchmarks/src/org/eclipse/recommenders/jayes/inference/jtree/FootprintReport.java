@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.jtree;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.benchmarks.BenchmarkFactorFactory;
+import org.eclipse.recommenders.jayes.benchmarks.BenchmarkNetworks;
+import org.eclipse.recommenders.jayes.factor.AbstractFactor;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+import org.eclipse.recommenders.jayes.util.sharing.CanonicalArrayPool;
+import org.eclipse.recommenders.jayes.util.triangulation.MinDegree;
+
+/**
+ * Prints the approximate heap footprint of compiled junction trees for every benchmark configuration. Shared
+ * (canonicalized) arrays are counted only once per tree; the arrays shared between trees are summarized at the end.
+ * Memory is deterministic, so unlike timings this does not need JMH.
+ * <p>
+ * Lives in the junction tree package to read the package-private structures of {@link CompiledJunctionTree}.
+ * <p>
+ * Run with <code>java -cp target/benchmarks.jar org.eclipse.recommenders.jayes.inference.jtree.FootprintReport</code>.
+ */
+public final class FootprintReport {
+
+    private static final String[] NETWORKS = { "testNet1", "sparseNet", "treeNet", "callModel-100",
+            "callModel-500" };
+    private static final String[] LAYOUTS = { BenchmarkFactorFactory.DENSE, BenchmarkFactorFactory.SPARSE };
+    private static final String[] PRECISIONS = { "double", "float" };
+
+    private static final int SIZE_OF_INT = 4;
+
+    private FootprintReport() {
+        // Not meant to be instantiated
+    }
+
+    public static void main(String[] args) {
+        System.out.printf("%-15s %-7s %-7s %10s %12s %12s %12s%n", "network", "layout", "type", "clusters",
+                "potentials", "prepared", "total");
+        for (String network : NETWORKS) {
+            BayesNet net = BenchmarkNetworks.create(network);
+            for (String layout : LAYOUTS) {
+                for (String precision : PRECISIONS) {
+                    CompiledJunctionTree tree = CompiledJunctionTree.compile(net,
+                            JunctionTreeBuilder.forHeuristic(new MinDegree()),
+                            new BenchmarkFactorFactory(layout, precision, BenchmarkFactorFactory.LINEAR));
+
+                    long potentials = potentialBytes(tree);
+                    long prepared = preparedBytes(tree);
+                    System.out.printf("%-15s %-7s %-7s %10d %12d %12d %12d%n", network, layout, precision,
+                            tree.getClusterCount(), potentials, prepared, potentials + prepared);
+                }
+            }
+        }
+        CanonicalArrayPool pool = CanonicalArrayPool.getDefault();
+        System.out.printf("%nshared across trees: %d arrays, %d bytes pooled, %d bytes saved%n",
+                pool.getEntryCount(), pool.getPooledBytes(), pool.getSavedBytes());
+    }
+
+    /**
+     * cluster and sepset values of the compiled tree plus those of one session
+     */
+    static long potentialBytes(CompiledJunctionTree tree) {
+        long bytes = 0;
+        for (AbstractFactor factor : tree.clusters) {
+            bytes += 2 * sizeOf(factor.getValues()) + factor.getOverhead();
+        }
+        for (AbstractFactor factor : tree.sepSets) {
+            bytes += 2 * sizeOf(factor.getValues()) + factor.getOverhead();
+        }
+        return bytes;
+    }
+
+    /**
+     * index arrays of prepared sepset multiplications and queries
+     */
+    static long preparedBytes(CompiledJunctionTree tree) {
+        Set<int[]> counted = Collections.newSetFromMap(new IdentityHashMap<int[], Boolean>());
+        long bytes = 0;
+        for (int[] prepared : tree.preparedMultiplications) {
+            if (counted.add(prepared)) {
+                bytes += (long) prepared.length * SIZE_OF_INT;
+            }
+        }
+        for (int[] prepared : tree.preparedQueries) {
+            if (counted.add(prepared)) {
+                bytes += (long) prepared.length * SIZE_OF_INT;
+            }
+        }
+        return bytes;
+    }
+
+    private static long sizeOf(IArrayWrapper values) {
+        return (long) values.length() * values.sizeOfElement();
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.io.jbif;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.factor.FactorFactory;
+import org.eclipse.recommenders.jayes.inference.jtree.CompiledJunctionTree;
+import org.eclipse.recommenders.jayes.inference.jtree.InferenceSession;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeBuilder;
+import org.eclipse.recommenders.jayes.util.triangulation.MinDegree;
+import org.junit.Test;
+
+public class CompiledJayesBifTest {
+
+    private static final long CHECKSUM = 42L;
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        BayesNet net = createNet();
+        CompiledJunctionTree compiled = compile(net);
+
+        CompiledJayesBifReader reader = new CompiledJayesBifReader(ByteBuffer.wrap(write(compiled)));
+        assertThat(reader.getSourceChecksum(), is(CHECKSUM));
+        CompiledJunctionTree restored = reader.read(net, new FactorFactory());
+
+        assertThat(restored.getClusterCount(), is(compiled.getClusterCount()));
+        InferenceSession expected = compiled.newSession();
+        InferenceSession actual = restored.newSession();
+        assertSameBeliefs(net, expected, actual);
+
+        expected.addEvidence(net.getNode("C"), "f");
+        actual.addEvidence(net.getNode("C"), "f");
+        assertSameBeliefs(net, expected, actual);
+
+        expected.addEvidence(net.getNode("A"), "t");
+        actual.addEvidence(net.getNode("A"), "t");
+        assertSameBeliefs(net, expected, actual);
+    }
+
+    @Test
+    public void testPotentialsAreUsedInPlace() throws IOException {
+        BayesNet net = createNet();
+        CompiledJunctionTree compiled = compile(net);
+
+        // like a memory-mapped snapshot, which sessions must not write to
+        ByteBuffer snapshot = ByteBuffer.wrap(write(compiled)).asReadOnlyBuffer();
+        CompiledJunctionTree restored = new CompiledJayesBifReader(snapshot).read(net, new FactorFactory());
+        InferenceSession expected = compiled.newSession();
+        InferenceSession actual = restored.newSession();
+        expected.setEvidenceSlicing(true);
+        actual.setEvidenceSlicing(true);
+
+        expected.addEvidence(net.getNode("A"), "t");
+        actual.addEvidence(net.getNode("A"), "t");
+        assertSameBeliefs(net, expected, actual);
+
+        expected.clearEvidence();
+        actual.clearEvidence();
+        expected.addEvidence(net.getNode("B"), "n");
+        actual.addEvidence(net.getNode("B"), "n");
+        assertSameBeliefs(net, expected, actual);
+    }
+
+    @Test
+    public void testChecksumOfSource() {
+        byte[] jbif = new byte[] { 1, 2, 3 };
+        assertThat(CompiledJayesBifReader.checksum(jbif), is(CompiledJayesBifReader.checksum(jbif.clone())));
+        assertFalse(CompiledJayesBifReader.checksum(jbif) == CompiledJayesBifReader.checksum(new byte[] { 1, 2 }));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongMagicNumber() throws IOException {
+        byte[] bytes = write(compile(createNet()));
+        bytes[0] = 0;
+        new CompiledJayesBifReader(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDifferentNetwork() throws IOException {
+        BayesNet other = createNet();
+        other.createNode("D").addOutcomes("t", "f");
+        other.getNode("D").setProbabilities(0.5, 0.5);
+
+        new CompiledJayesBifReader(ByteBuffer.wrap(write(compile(createNet())))).read(other, new FactorFactory());
+    }
+
+    @Test(expected = IOException.class)
+    public void testDifferentlyConfiguredFactory() throws IOException {
+        BayesNet net = createNet();
+        FactorFactory logScale = new FactorFactory();
+        logScale.setUseLogScale(true);
+
+        new CompiledJayesBifReader(ByteBuffer.wrap(write(compile(net)))).read(net, logScale);
+    }
+
+    private static BayesNet createNet() {
+        BayesNet net = new BayesNet();
+        BayesNode a = net.createNode("A");
+        a.addOutcomes("t", "f");
+        a.setProbabilities(0.4, 0.6);
+
+        BayesNode b = net.createNode("B");
+        b.addOutcomes("t", "f", "n");
+        b.setParents(Arrays.asList(a));
+        b.setProbabilities(0.2, 0.3, 0.5, 0.6, 0.1, 0.3);
+
+        BayesNode c = net.createNode("C");
+        c.addOutcomes("t", "f");
+        c.setParents(Arrays.asList(a, b));
+        c.setProbabilities(0.1, 0.9, 0.2, 0.8, 0.3, 0.7, 0.4, 0.6, 0.5, 0.5, 0.0, 1.0);
+        return net;
+    }
+
+    private static CompiledJunctionTree compile(BayesNet net) {
+        return CompiledJunctionTree.compile(net, JunctionTreeBuilder.forHeuristic(new MinDegree()),
+                new FactorFactory());
+    }
+
+    private static byte[] write(CompiledJunctionTree compiled) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompiledJayesBifWriter writer = new CompiledJayesBifWriter(out);
+        writer.write(compiled, CHECKSUM);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static void assertSameBeliefs(BayesNet net, InferenceSession expected, InferenceSession actual) {
+        for (BayesNode node : net.getNodes()) {
+            assertArrayEquals(expected.getBeliefs(node), actual.getBeliefs(node), 0.0);
+        }
+    }
+}
@@ -10,18 +10,33 @@
  ******************************************************************************/
 package org.eclipse.recommenders.jayes.io.jbif;
 
-import static org.hamcrest.CoreMatchers.is;
-import static org.junit.Assert.assertThat;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleBufferArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class JayesBifTest {
 
+    @Rule
+    public final TemporaryFolder tmp = new TemporaryFolder();
+
     @Test
     public void testReadDefaultNode() throws IOException {
         // create simple network
@@ -61,4 +76,147 @@ public class JayesBifTest {
 
     }
 
+    @Test
+    public void testReadFromBuffer() throws IOException {
+        byte[] jbif = write(createNet());
+
+        BayesNet net = new JayesBifReader(ByteBuffer.wrap(jbif)).read();
+
+        assertNet(net);
+    }
+
+    @Test
+    public void testReadMappedFile() throws IOException {
+        File file = tmp.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(write(createNet()));
+        }
+
+        BayesNet net = JayesBifReader.map(file).read();
+
+        assertNet(net);
+    }
+
+    @Test
+    public void testReadMappedRegion() throws IOException {
+        byte[] jbif = write(createNet());
+        File file = tmp.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[] { 1, 2, 3 });
+            out.write(jbif);
+            out.write(new byte[] { 4, 5 });
+        }
+
+        BayesNet net;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            net = JayesBifReader.map(channel, 3, jbif.length).read();
+        }
+
+        assertNet(net);
+    }
+
+    @Test
+    public void testEncodedCpts() throws IOException {
+        BayesNet net = createNetWithRepeatedRows();
+
+        assertEncodedCpts(net, CptEncoding.DOUBLE, 0.0);
+        assertEncodedCpts(net, CptEncoding.FLOAT, 1e-7);
+        assertEncodedCpts(net, CptEncoding.LOG_QUANTIZED, 1e-3);
+    }
+
+    @Test
+    public void testRepeatedRowsAreStoredOnce() throws IOException {
+        BayesNet net = createNetWithRepeatedRows();
+
+        int version1 = write(net).length;
+        int version2 = write(net, CptEncoding.DOUBLE).length;
+
+        // node c has 2 distinct out of 4 rows, i.e., 4 doubles less but 4 byte-sized indices more; each node has an
+        // additional encoding and distinct row count
+        assertThat(version1 - version2, is(4 * 8 - 4 - 3 * (1 + 4)));
+    }
+
+    @Test
+    public void testReadAsFloat() throws IOException {
+        for (byte[] jbif : Arrays.asList(write(createNet()), write(createNet(), CptEncoding.FLOAT))) {
+            JayesBifReader reader = new JayesBifReader(ByteBuffer.wrap(jbif));
+            reader.setFloatingPointType(float.class);
+            BayesNet net = reader.read();
+
+            assertThat(net.getNode("b").getFactor().getValues(), is(instanceOf(FloatArrayWrapper.class)));
+            assertArrayEquals(new double[] { 0.1, 0.9, 0.7, 0.3 }, net.getNode("b").getProbabilities(), 1e-7);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownCptEncoding() throws IOException {
+        byte[] jbif = write(createNet(), CptEncoding.DOUBLE);
+        // skip the definition of node b (one parent, two distinct rows) and the CPT of node a (one row)
+        int encodingOffset = jbif.length - (1 + 4 + 1 + 2 * 4 + 4 * 8) - (1 + 2 * 4 + 2 * 8);
+        assertThat(jbif[encodingOffset], is(CptEncoding.DOUBLE.getCode()));
+        jbif[encodingOffset] = 42;
+
+        new JayesBifReader(ByteBuffer.wrap(jbif)).read();
+    }
+
+    private static void assertEncodedCpts(BayesNet expected, CptEncoding encoding, double relativeError)
+            throws IOException {
+        BayesNet actual = new JayesBifReader(ByteBuffer.wrap(write(expected, encoding))).read();
+
+        for (BayesNode node : expected.getNodes()) {
+            double[] expectedCpt = node.getProbabilities();
+            double[] actualCpt = actual.getNode(node.getName()).getProbabilities();
+            assertThat(actualCpt.length, is(expectedCpt.length));
+            for (int i = 0; i < expectedCpt.length; i++) {
+                assertEquals(expectedCpt[i], actualCpt[i], expectedCpt[i] * relativeError);
+            }
+        }
+    }
+
+    private static BayesNet createNetWithRepeatedRows() {
+        BayesNet net = createNet();
+        BayesNode c = net.createNode("c");
+        c.addOutcomes("t", "f");
+        c.setParents(Arrays.asList(net.getNode("a"), net.getNode("b")));
+        c.setProbabilities(0.01, 0.99, 0.01, 0.99, 0.25, 0.75, 0.01, 0.99);
+        return net;
+    }
+
+    private static BayesNet createNet() {
+        BayesNet net = new BayesNet();
+        BayesNode a = net.createNode("a");
+        a.addOutcomes("t", "f");
+        a.setProbabilities(0.4, 0.6);
+
+        BayesNode b = net.createNode("b");
+        b.addOutcomes("t", "f");
+        b.setParents(Arrays.asList(a));
+        b.setProbabilities(0.1, 0.9, 0.7, 0.3);
+        return net;
+    }
+
+    private static byte[] write(BayesNet net) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JayesBifWriter writer = new JayesBifWriter(out);
+        writer.write(net);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] write(BayesNet net, CptEncoding encoding) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JayesBifWriter writer = new JayesBifWriter(out, encoding);
+        writer.write(net);
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static void assertNet(BayesNet net) {
+        assertThat(net.getNodes().size(), is(2));
+        assertThat(net.getNode("a").getProbabilities(), is(new double[] { 0.4, 0.6 }));
+        assertThat(net.getNode("b").getProbabilities(), is(new double[] { 0.1, 0.9, 0.7, 0.3 }));
+        assertThat(net.getNode("b").getParents(), is(Arrays.asList(net.getNode("a"))));
+        // the CPTs are views of the buffer
+        assertThat(net.getNode("b").getFactor().getValues(), is(instanceOf(DoubleBufferArrayWrapper.class)));
+    }
 }
@@ -10,6 +10,10 @@
  ******************************************************************************/
 package org.eclipse.recommenders.jayes;
 
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
 import org.junit.Test;
 
 public class BayesNetTest {
@@ -19,4 +23,44 @@ public class BayesNetTest {
         BayesNet net = new BayesNet();
         net.createNode(null);
     }
+
+    @Test
+    public void testOutcomeNamesAreInterned() {
+        BayesNet net = new BayesNet();
+        BayesNode a = net.createNode("a");
+        BayesNode b = net.createNode("b");
+        a.addOutcomes(new String("true"), new String("false"));
+        b.addOutcomes(new String("true"), new String("false"));
+
+        assertSame(a.getOutcomeName(0), b.getOutcomeName(0));
+        assertSame(a.getOutcomeName(1), b.getOutcomeName(1));
+    }
+
+    @Test
+    public void testOutcomeIndices() {
+        BayesNet net = new BayesNet();
+        BayesNode few = net.createNode("few");
+        few.addOutcomes("x", "y");
+        BayesNode many = net.createNode("many");
+        for (int i = 0; i < 20; i++) {
+            many.addOutcome("o" + i);
+        }
+
+        assertEquals(1, few.indexOfOutcome("y"));
+        assertEquals(BayesNode.NO_OUTCOME, few.indexOfOutcome("z"));
+        assertEquals(Arrays.asList("x", "y"), few.getOutcomes());
+        assertEquals(13, many.indexOfOutcome("o13"));
+        assertEquals(13, many.getOutcomeIndex("o13"));
+        assertEquals(BayesNode.NO_OUTCOME, many.indexOfOutcome("o20"));
+        assertEquals("o19", many.getOutcomeName(19));
+        assertNull(many.getOutcomeName(20));
+        assertTrue(many.getOutcomes().contains("o7"));
+        assertEquals(20, many.getOutcomes().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateOutcomesAreRejected() {
+        BayesNet net = new BayesNet();
+        net.createNode("a").addOutcomes("x", "y", "x");
+    }
 }
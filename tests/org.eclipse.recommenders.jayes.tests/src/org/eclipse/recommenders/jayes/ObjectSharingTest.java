@@ -14,6 +14,9 @@ import static org.junit.Assert.*;
 import static org.junit.Assume.assumeTrue;
 
 import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
+import org.eclipse.recommenders.jayes.util.sharing.CanonicalArrayPool;
 import org.eclipse.recommenders.jayes.util.sharing.CanonicalArrayWrapperManager;
 import org.eclipse.recommenders.jayes.util.sharing.CanonicalIntArraySet;
 import org.junit.Test;
@@ -63,4 +66,36 @@ public class ObjectSharingTest {
 
     }
 
+    @Test
+    public void testCanonicalArrayPool() {
+        CanonicalArrayPool sut = new CanonicalArrayPool();
+        int[] a1 = new int[] { 1, 2, 3 };
+        int[] a2 = new int[] { 1, 2, 3 };
+        double[] d1 = new double[] { 1, 2, 3 };
+        double[] d2 = new double[] { 1, 2, 3 };
+
+        assertSame(a1, sut.getInstance(a1));
+        assertSame(a1, sut.getInstance(a2));
+        assertSame(d1, sut.getInstance(d1));
+        assertSame(d1, sut.getInstance(d2));
+        assertNotSame(a1, sut.getInstance(new int[] { 2, 3, 4 }));
+
+        assertEquals(3, sut.getEntryCount());
+        assertEquals(2, sut.getHitCount());
+        assertEquals(3, sut.getMissCount());
+        assertEquals(16 + 3 * 4 + 16 + 3 * 8, sut.getSavedBytes());
+    }
+
+    @Test
+    public void testCanonicalArrayPoolSharesWrappedArrays() {
+        CanonicalArrayPool sut = new CanonicalArrayPool();
+        IArrayWrapper first = new FloatArrayWrapper(1, 2, 3);
+        IArrayWrapper second = new FloatArrayWrapper(1, 2, 3);
+
+        float[] canonical = first.toFloatArray();
+        sut.share(first);
+        sut.share(second);
+        assertSame(canonical, first.toFloatArray());
+        assertSame(canonical, second.toFloatArray());
+    }
 }
@@ -13,7 +13,11 @@ package org.eclipse.recommenders.jayes.factor;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.eclipse.recommenders.jayes.factor.arraywrapper.DoubleArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.FloatArrayWrapper;
+import org.eclipse.recommenders.jayes.factor.arraywrapper.IArrayWrapper;
 import org.eclipse.recommenders.jayes.util.MathUtils;
 import org.eclipse.recommenders.testing.jayes.ArrayUtils;
 import org.junit.Test;
@@ -54,6 +58,19 @@ public class DenseFactorTest {
         assertArrayEquals(prob, new double[] { 0.65, 0.35 }, TOLERANCE);
     }
 
+    @Test
+    public void testSumOfSelection() {
+        AbstractFactor factor = create2x2x2Factor();
+        factor.setValues(new DoubleArrayWrapper(distribution2x2x2()));
+        assertEquals(4.0, factor.sum(), TOLERANCE);
+
+        factor.select(0, 0);
+        assertEquals(2.0, factor.sum(), TOLERANCE);
+
+        factor.select(1, 1);
+        assertEquals(1.0, factor.sum(), TOLERANCE);
+    }
+
     private AbstractFactor create2x2x2Factor() {
         AbstractFactor factor = new DenseFactor();
         factor.setDimensionIDs(0, 1, 2);
@@ -114,6 +131,26 @@ public class DenseFactorTest {
         assertArrayEquals(f.marginalizeAllBut(-1), f2.getValues().toDoubleArray(), TOLERANCE);
     }
 
+    @Test
+    public void testPreparedSumOfSeveralFactors() {
+        AbstractFactor f = create2x2x2Factor();
+        f.setValues(new DoubleArrayWrapper(distribution2x2x2()));
+        f.select(1, 1);
+
+        AbstractFactor first = new DenseFactor();
+        first.setDimensionIDs(0);
+        first.setDimensions(2);
+        AbstractFactor last = new DenseFactor();
+        last.setDimensionIDs(2);
+        last.setDimensions(2);
+
+        f.sumPrepared(new IArrayWrapper[] { first.getValues(), last.getValues() },
+                new int[][] { f.prepareMultiplication(first), f.prepareMultiplication(last) }, 2);
+
+        assertArrayEquals(new double[] { 1.0, 1.0 }, first.getValues().toDoubleArray(), TOLERANCE);
+        assertArrayEquals(new double[] { 1.3, 0.7 }, last.getValues().toDoubleArray(), TOLERANCE);
+    }
+
     @Test
     public void testCopy() {
         AbstractFactor f = create2x2x2Factor();
@@ -161,4 +198,95 @@ public class DenseFactorTest {
         assertThat(dense2.getValues().toDoubleArray(), is(new double[] { 6 }));
     }
 
+    /**
+     * the array kernels are bypassed for subclasses of the array wrappers, so these take the generic path
+     */
+    private static class GenericDoubleArrayWrapper extends DoubleArrayWrapper {
+
+        GenericDoubleArrayWrapper(double... array) {
+            super(array);
+        }
+    }
+
+    private static class GenericFloatArrayWrapper extends FloatArrayWrapper {
+
+        GenericFloatArrayWrapper(float... array) {
+            super(array);
+        }
+    }
+
+    @Test
+    public void testKernelsMatchGenericImplementation() {
+        Random random = new Random(42);
+        double[] values = new double[3 * 4 * 2 * 3];
+        double[] compatibleValues = new double[3 * 3];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble();
+        }
+        for (int i = 0; i < compatibleValues.length; i++) {
+            compatibleValues[i] = random.nextDouble();
+        }
+        int[][] selections = { {}, { 3, 1 }, { 1, 2 }, { 1, 2, 3, 0 } };
+
+        for (boolean logScale : new boolean[] { false, true }) {
+            for (int[] selection : selections) {
+                AbstractFactor kernel = createFactor(new DoubleArrayWrapper(values.clone()), logScale, selection);
+                AbstractFactor generic = createFactor(new GenericDoubleArrayWrapper(values.clone()), logScale,
+                        selection);
+                assertSameResults(kernel, generic, new DoubleArrayWrapper(compatibleValues.clone()),
+                        new GenericDoubleArrayWrapper(compatibleValues.clone()));
+
+                float[] floatValues = toFloatArray(values);
+                float[] floatCompatibleValues = toFloatArray(compatibleValues);
+                kernel = createFactor(new FloatArrayWrapper(floatValues.clone()), logScale, selection);
+                generic = createFactor(new GenericFloatArrayWrapper(floatValues.clone()), logScale, selection);
+                assertSameResults(kernel, generic, new FloatArrayWrapper(floatCompatibleValues.clone()),
+                        new GenericFloatArrayWrapper(floatCompatibleValues.clone()));
+            }
+        }
+    }
+
+    private static float[] toFloatArray(double[] array) {
+        float[] floats = new float[array.length];
+        for (int i = 0; i < array.length; i++) {
+            floats[i] = (float) array[i];
+        }
+        return floats;
+    }
+
+    private AbstractFactor createFactor(IArrayWrapper values, boolean logScale, int[] selection) {
+        AbstractFactor factor = new DenseFactor();
+        factor.setDimensionIDs(0, 1, 2, 3);
+        factor.setDimensions(3, 4, 2, 3);
+        factor.setValues(values);
+        factor.setLogScale(logScale);
+        for (int i = 0; i < selection.length; i += 2) {
+            factor.select(selection[i], selection[i + 1]);
+        }
+        return factor;
+    }
+
+    private void assertSameResults(AbstractFactor kernel, AbstractFactor generic, IArrayWrapper compatibleValues,
+            IArrayWrapper genericCompatibleValues) {
+        AbstractFactor compatible = new DenseFactor();
+        compatible.setDimensionIDs(3, 0);
+        compatible.setDimensions(3, 3);
+        int[] positions = kernel.prepareMultiplication(compatible);
+
+        kernel.multiplyPrepared(compatibleValues, positions);
+        generic.multiplyPrepared(genericCompatibleValues, positions);
+        assertArrayEquals(generic.getValues().toDoubleArray(), kernel.getValues().toDoubleArray(), 0.0);
+
+        kernel.sumPrepared(compatibleValues, positions);
+        generic.sumPrepared(genericCompatibleValues, positions);
+        assertArrayEquals(genericCompatibleValues.toDoubleArray(), compatibleValues.toDoubleArray(), 0.0);
+
+        IArrayWrapper copy = compatibleValues.clone();
+        IArrayWrapper genericCopy = genericCompatibleValues.clone();
+        kernel.sumPrepared(new IArrayWrapper[] { compatibleValues, copy }, new int[][] { positions, positions }, 2);
+        generic.sumPrepared(new IArrayWrapper[] { genericCompatibleValues, genericCopy }, new int[][] { positions,
+                positions }, 2);
+        assertArrayEquals(genericCompatibleValues.toDoubleArray(), compatibleValues.toDoubleArray(), 0.0);
+        assertArrayEquals(genericCopy.toDoubleArray(), copy.toDoubleArray(), 0.0);
+    }
 }
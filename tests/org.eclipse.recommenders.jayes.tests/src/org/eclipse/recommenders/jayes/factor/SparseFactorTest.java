@@ -45,6 +45,23 @@ public class SparseFactorTest {
         assertFalse(SparseFactor.isSuitable(MathUtils.product(nonsparse.getDimensions()), nonsparse));
     }
 
+    @Test
+    public void testSumOfSelection() {
+        AbstractFactor dense = new DenseFactor();
+        dense.setDimensionIDs(0, 1);
+        dense.setDimensions(3, 4);
+        dense.setValues(new DoubleArrayWrapper(0, 1, 0, 2, 0, 0, 0, 0, 3, 0, 4, 0));
+
+        SparseFactor sparse = SparseFactor.fromFactor(dense);
+        assertEquals(10.0, sparse.sum(), 0.0);
+
+        sparse.select(0, 1);
+        assertEquals(0.0, sparse.sum(), 0.0);
+
+        sparse.select(0, 2);
+        assertEquals(7.0, sparse.sum(), 0.0);
+    }
+
     @Test
     public void testBlocksizeOne() {
         AbstractFactor dense = new DenseFactor();
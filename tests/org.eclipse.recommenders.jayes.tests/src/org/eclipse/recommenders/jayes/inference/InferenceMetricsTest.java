@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.inference.InferenceMetrics.NetworkMetrics;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.util.NumericalInstabilityException;
+import org.eclipse.recommenders.testing.jayes.NetExamples;
+import org.junit.Test;
+
+public class InferenceMetricsTest {
+
+    @Test
+    public void testJunctionTreeAlgorithmReportsMeasurements() {
+        BayesNet net = NetExamples.testNet1();
+        InferenceMetrics metrics = new InferenceMetrics();
+        JunctionTreeAlgorithm inferrer = new JunctionTreeAlgorithm();
+        inferrer.setInferenceListener(metrics);
+        inferrer.setNetwork(net);
+
+        NetworkMetrics networkMetrics = metrics.getMetrics(net);
+        assertEquals(net.getName(), networkMetrics.getNetworkName());
+        assertEquals(inferrer.getCompiledJunctionTree().getClusterCount(), networkMetrics.getClusterCount());
+        assertTrue(networkMetrics.getLargestClusterSize() > 0);
+        assertEquals(0, networkMetrics.getUpdateCount());
+
+        inferrer.addEvidence(net.getNode("a"), "false");
+        inferrer.getBeliefs(net.getNode("d"));
+        inferrer.addEvidence(net.getNode("b"), "lu");
+        inferrer.getBeliefs(net.getNode("d"));
+
+        assertEquals(2, networkMetrics.getUpdateCount());
+        assertTrue(networkMetrics.getMessagePasses() > 0);
+        long histogramCount = 0;
+        for (long count : networkMetrics.getLatencyHistogram()) {
+            histogramCount += count;
+        }
+        assertEquals(2, histogramCount);
+        assertEquals(0, networkMetrics.getNumericalInstabilities());
+    }
+
+    @Test
+    public void testNumericalInstabilitiesAreReported() {
+        BayesNet net = NetExamples.testNet1();
+        InferenceMetrics metrics = new InferenceMetrics();
+        JunctionTreeAlgorithm inferrer = new JunctionTreeAlgorithm();
+        inferrer.setNetwork(net);
+        inferrer.setInferenceListener(metrics);
+
+        // impossible evidence
+        inferrer.addEvidence(net.getNode("b"), "le");
+        inferrer.addEvidence(net.getNode("c"), "true");
+        try {
+            inferrer.getBeliefs(net.getNode("a"));
+            fail();
+        } catch (NumericalInstabilityException expected) {
+            assertEquals(1, metrics.getMetrics(net).getNumericalInstabilities());
+        }
+    }
+
+    @Test
+    public void testLatencyBuckets() {
+        assertEquals(0, InferenceMetrics.bucketOf(1999));
+        assertEquals(1, InferenceMetrics.bucketOf(2000));
+        assertEquals(1, InferenceMetrics.bucketOf(3999));
+        assertEquals(2, InferenceMetrics.bucketOf(4000));
+        assertEquals(InferenceMetrics.LATENCY_BUCKETS - 1, InferenceMetrics.bucketOf(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.InferrerFactory.Fallback;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeBuilder;
+import org.eclipse.recommenders.jayes.util.triangulation.MinFillIn;
+import org.eclipse.recommenders.testing.jayes.NetExamples;
+import org.junit.Test;
+
+public class InferrerFactoryTest {
+
+    @Test
+    public void testEstimateClusterTableSize() {
+        BayesNet net = NetExamples.testNet1();
+
+        // the cliques {d,c}, {a,b,c}, {b,c} and {c}, of which only the first two become clusters
+        assertEquals(4 + 12 + 6 + 2, JunctionTreeBuilder.forHeuristic(new MinFillIn()).estimateClusterTableSize(net));
+    }
+
+    @Test
+    public void testJunctionTreeWithinBudget() {
+        BayesNet net = NetExamples.testNet1();
+        InferrerFactory factory = InferrerFactory.defaultFactory();
+
+        IBayesInferrer inferrer = factory.createInferrer(net);
+
+        assertTrue(inferrer instanceof JunctionTreeAlgorithm);
+        factory.checkMemoryBudget(net);
+    }
+
+    @Test
+    public void testLoopyBeliefPropagationFallback() {
+        BayesNet net = NetExamples.testNet1();
+        InferrerFactory factory = InferrerFactory.withMemoryBudget(0);
+
+        IBayesInferrer inferrer = factory.createInferrer(net);
+
+        assertTrue(inferrer instanceof LoopyBeliefPropagation);
+        assertSameBeliefs(net, inferrer);
+    }
+
+    @Test
+    public void testSamplingFallback() {
+        BayesNet net = NetExamples.testNet1();
+        InferrerFactory factory = InferrerFactory.withMemoryBudget(0);
+        factory.setFallback(Fallback.LIKELIHOOD_WEIGHTED_SAMPLING);
+
+        assertTrue(factory.createInferrer(net) instanceof ParallelLikelihoodWeightedSampling);
+    }
+
+    @Test(expected = ModelTooLargeException.class)
+    public void testRejectsLargeModel() {
+        InferrerFactory factory = InferrerFactory.withMemoryBudget(0);
+        factory.setFallback(Fallback.NONE);
+
+        factory.createInferrer(NetExamples.testNet1());
+    }
+
+    @Test
+    public void testCheckMemoryBudget() {
+        BayesNet net = NetExamples.testNet1();
+        InferrerFactory factory = InferrerFactory.withMemoryBudget(100);
+        try {
+            factory.checkMemoryBudget(net);
+            fail();
+        } catch (ModelTooLargeException e) {
+            assertEquals(factory.estimateMemory(net), e.getEstimatedMemory());
+            assertEquals(100, e.getMemoryBudget());
+        }
+    }
+
+    @Test
+    public void testJunctionTreeBuilderChecksMemoryBudget() {
+        BayesNet net = NetExamples.testNet1();
+        JunctionTreeBuilder builder = JunctionTreeBuilder.forHeuristic(new MinFillIn());
+
+        builder.withMemoryBudget(builder.estimateMemory(net)).buildJunctionTree(net);
+        try {
+            builder.withMemoryBudget(100).buildJunctionTree(net);
+            fail();
+        } catch (ModelTooLargeException e) {
+            assertTrue(e.getEstimatedMemory() > 100);
+            assertTrue(e.getEstimatedMemory() <= builder.estimateMemory(net));
+            assertEquals(100, e.getMemoryBudget());
+        }
+    }
+
+    private static void assertSameBeliefs(BayesNet net, IBayesInferrer inferrer) {
+        BayesNode a = net.getNode("a");
+        BayesNode b = net.getNode("b");
+        JunctionTreeAlgorithm exact = new JunctionTreeAlgorithm();
+        exact.setNetwork(net);
+        exact.addEvidence(a, "false");
+        exact.addEvidence(b, "lu");
+        inferrer.addEvidence(a, "false");
+        inferrer.addEvidence(b, "lu");
+
+        for (BayesNode node : net.getNodes()) {
+            assertArrayEquals(exact.getBeliefs(node), inferrer.getBeliefs(node), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2011 Michael Kutschke.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Michael Kutschke - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.LoopyBeliefPropagation.Schedule;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.jayes.util.MathUtils;
+import org.eclipse.recommenders.testing.jayes.NetExamples;
+import org.junit.After;
+import org.junit.Test;
+
+public class LoopyBeliefPropagationTest {
+
+    private ForkJoinPool pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSampler1() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode a = net.getNode("a");
+        BayesNode b = net.getNode("b");
+        BayesNode c = net.getNode("c");
+
+        IBayesInferrer sampler = new LoopyBeliefPropagation();
+        sampler.setNetwork(net);
+        sampler.addEvidence(a, "false");
+        sampler.addEvidence(b, "lu");
+
+        assertArrayEquals(sampler.getBeliefs(c), new double[] { 0.7, 0.3 }, 0.01);
+    }
+
+    @Test
+    public void testExactOnTrees() {
+        LoopyBeliefPropagation lbp = new LoopyBeliefPropagation();
+        assertSameBeliefsOnTree(lbp);
+        assertTrue(lbp.hasConverged());
+    }
+
+    @Test
+    public void testSynchronousSchedule() {
+        LoopyBeliefPropagation lbp = new LoopyBeliefPropagation();
+        lbp.setSchedule(Schedule.SYNCHRONOUS);
+        pool = new ForkJoinPool(2);
+        lbp.setForkJoinPool(pool);
+        assertSameBeliefsOnTree(lbp);
+        assertTrue(lbp.hasConverged());
+    }
+
+    @Test
+    public void testDamping() {
+        LoopyBeliefPropagation lbp = new LoopyBeliefPropagation();
+        lbp.setDamping(0.5);
+        assertSameBeliefsOnTree(lbp);
+        assertTrue(lbp.hasConverged());
+    }
+
+    @Test
+    public void testIterationLimit() {
+        BayesNet net = NetExamples.testNet1();
+        LoopyBeliefPropagation lbp = new LoopyBeliefPropagation();
+        lbp.setMaxIterations(1);
+        lbp.setThreshold(0.0);
+        lbp.setNetwork(net);
+        lbp.addEvidence(net.getNode("d"), "true");
+
+        assertEquals(1.0, MathUtils.sum(lbp.getBeliefs(net.getNode("a"))), 1e-9);
+        assertFalse(lbp.hasConverged());
+    }
+
+    @Test
+    public void testApproximatesLoopyNetwork() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode d = net.getNode("d");
+
+        JunctionTreeAlgorithm exact = new JunctionTreeAlgorithm();
+        exact.setNetwork(net);
+        exact.addEvidence(d, "true");
+        LoopyBeliefPropagation lbp = new LoopyBeliefPropagation();
+        lbp.setNetwork(net);
+        lbp.addEvidence(d, "true");
+
+        for (BayesNode node : net.getNodes()) {
+            assertArrayEquals(exact.getBeliefs(node), lbp.getBeliefs(node), 0.01);
+        }
+        assertTrue(lbp.hasConverged());
+    }
+
+    private static void assertSameBeliefsOnTree(LoopyBeliefPropagation lbp) {
+        BayesNet net = NetExamples.treeNet();
+        BayesNode leaf = net.getNodes().get(net.getNodes().size() - 1);
+
+        JunctionTreeAlgorithm exact = new JunctionTreeAlgorithm();
+        exact.setNetwork(net);
+        exact.addEvidence(leaf, leaf.getOutcomeName(0));
+        lbp.setNetwork(net);
+        lbp.addEvidence(leaf, leaf.getOutcomeName(0));
+
+        for (BayesNode node : net.getNodes()) {
+            assertArrayEquals(exact.getBeliefs(node), lbp.getBeliefs(node), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.inference.jtree.JunctionTreeAlgorithm;
+import org.eclipse.recommenders.testing.jayes.NetExamples;
+import org.junit.After;
+import org.junit.Test;
+
+public class ParallelLikelihoodWeightedSamplingTest {
+
+    private final List<ForkJoinPool> pools = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (ForkJoinPool pool : pools) {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSampler1() {
+        BayesNet net = NetExamples.testNet1();
+
+        BayesNode a = net.getNode("a");
+        BayesNode b = net.getNode("b");
+        BayesNode c = net.getNode("c");
+
+        ParallelLikelihoodWeightedSampling sampler = new ParallelLikelihoodWeightedSampling();
+        sampler.setSampleCount(10000);
+        sampler.seed(1337); // for reproducibility
+        sampler.setNetwork(net);
+        sampler.addEvidence(a, "false");
+        sampler.addEvidence(b, "lu");
+
+        assertArrayEquals(new double[] { 0.7, 0.3 }, sampler.getBeliefs(c), 0.01);
+    }
+
+    @Test
+    public void testApproximatesExactBeliefs() {
+        BayesNet net = NetExamples.sparseNet();
+
+        JunctionTreeAlgorithm exact = new JunctionTreeAlgorithm();
+        exact.setNetwork(net);
+        ParallelLikelihoodWeightedSampling sampler = new ParallelLikelihoodWeightedSampling();
+        sampler.setSampleCount(100000);
+        sampler.seed(42);
+        sampler.setNetwork(net);
+
+        BayesNode evidence = net.getNodes().get(net.getNodes().size() - 1);
+        exact.addEvidence(evidence, evidence.getOutcomeName(0));
+        sampler.addEvidence(evidence, evidence.getOutcomeName(0));
+
+        for (BayesNode node : net.getNodes()) {
+            assertArrayEquals(exact.getBeliefs(node), sampler.getBeliefs(node), 0.01);
+        }
+    }
+
+    @Test
+    public void testIndependentOfParallelism() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode c = net.getNode("c");
+
+        double[] sequential = sample(net, newPool(1)).getBeliefs(c);
+        double[] parallel = sample(net, newPool(4)).getBeliefs(c);
+
+        assertArrayEquals(sequential, parallel, 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSamples() {
+        new ParallelLikelihoodWeightedSampling().setSampleCount(0);
+    }
+
+    private ForkJoinPool newPool(int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pools.add(pool);
+        return pool;
+    }
+
+    private ParallelLikelihoodWeightedSampling sample(BayesNet net, ForkJoinPool pool) {
+        ParallelLikelihoodWeightedSampling sampler = new ParallelLikelihoodWeightedSampling();
+        sampler.setForkJoinPool(pool);
+        sampler.setSampleCount(20000);
+        sampler.seed(1337);
+        sampler.setNetwork(net);
+        sampler.addEvidence(net.getNode("a"), "false");
+        return sampler;
+    }
+}
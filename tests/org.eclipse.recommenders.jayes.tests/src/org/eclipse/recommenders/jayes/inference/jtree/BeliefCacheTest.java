@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.jayes.inference.jtree;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.eclipse.recommenders.jayes.BayesNet;
+import org.eclipse.recommenders.jayes.BayesNode;
+import org.eclipse.recommenders.jayes.factor.FactorFactory;
+import org.eclipse.recommenders.jayes.util.triangulation.MinFillIn;
+import org.eclipse.recommenders.testing.jayes.NetExamples;
+import org.junit.Test;
+
+public class BeliefCacheTest {
+
+    private static final double TOLERANCE = 1e-12;
+
+    private static CompiledJunctionTree compile(BayesNet net) {
+        return CompiledJunctionTree.compile(net, JunctionTreeBuilder.forHeuristic(new MinFillIn()),
+                new FactorFactory());
+    }
+
+    @Test
+    public void testHitsReturnComputedBeliefs() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode a = net.getNode("a");
+        BayesNode c = net.getNode("c");
+        CompiledJunctionTree compiled = compile(net);
+        BeliefCache cache = new BeliefCache(compiled, 1024 * 1024);
+        InferenceSession session = compiled.newSession();
+        session.setBeliefCache(cache);
+        InferenceSession uncached = compiled.newSession();
+
+        session.addEvidence(a, "false");
+        uncached.addEvidence(a, "false");
+        double[] expected = uncached.getBeliefs(c).clone();
+        assertArrayEquals(expected, session.getBeliefs(c), TOLERANCE);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // evidence is compared by value, not by the order of observations
+        session.removeEvidence(a);
+        session.getBeliefs(c);
+        session.addEvidence(a, "false");
+        assertArrayEquals(expected, session.getBeliefs(c), TOLERANCE);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    public void testCacheIsSharedBetweenSessions() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode b = net.getNode("b");
+        CompiledJunctionTree compiled = compile(net);
+        BeliefCache cache = new BeliefCache(compiled, 1024 * 1024);
+        InferenceSession first = compiled.newSession();
+        first.setBeliefCache(cache);
+        InferenceSession second = compiled.newSession();
+        second.setBeliefCache(cache);
+
+        first.addEvidence(b, "lu");
+        Map<BayesNode, double[]> expected = first.getBeliefs(net.getNodes());
+        assertEquals(0, cache.getHitCount());
+
+        second.addEvidence(b, "lu");
+        Map<BayesNode, double[]> beliefs = second.getBeliefs(net.getNodes());
+        for (BayesNode node : net.getNodes()) {
+            assertArrayEquals(expected.get(node), beliefs.get(node), TOLERANCE);
+        }
+        // the observed node is answered from the evidence
+        assertEquals(net.getNodes().size() - 1, cache.getHitCount());
+    }
+
+    @Test
+    public void testEviction() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode a = net.getNode("a");
+        BayesNode d = net.getNode("d");
+        CompiledJunctionTree compiled = compile(net);
+        BeliefCache cache = new BeliefCache(compiled, 256);
+        InferenceSession session = compiled.newSession();
+        session.setBeliefCache(cache);
+
+        for (String outcome : a.getOutcomes()) {
+            session.addEvidence(a, outcome);
+            session.getBeliefs(d);
+        }
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getSize() <= cache.getMaxSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCacheOfOtherCompiledJunctionTreeIsRejected() {
+        BayesNet net = NetExamples.testNet1();
+        compile(net).newSession().setBeliefCache(new BeliefCache(compile(net), 1024));
+    }
+}
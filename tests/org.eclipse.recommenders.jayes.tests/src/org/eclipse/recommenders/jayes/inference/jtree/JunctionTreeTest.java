@@ -12,6 +12,8 @@ package org.eclipse.recommenders.jayes.inference.jtree;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,7 +22,10 @@ import org.eclipse.recommenders.jayes.BayesNode;
 import org.eclipse.recommenders.jayes.factor.AbstractFactor;
 import org.eclipse.recommenders.jayes.factor.FactorFactory;
 import org.eclipse.recommenders.jayes.inference.IBayesInferrer;
-import org.eclipse.recommenders.jayes.lbp.LoopyBeliefPropagation;
+import org.eclipse.recommenders.jayes.inference.IInferenceListener;
+import org.eclipse.recommenders.jayes.inference.LoopyBeliefPropagation;
+import org.eclipse.recommenders.jayes.util.NumericalInstabilityException;
+import org.eclipse.recommenders.jayes.util.triangulation.MinFillIn;
 import org.eclipse.recommenders.testing.jayes.NetExamples;
 import org.junit.Test;
 
@@ -161,4 +166,290 @@ public class JunctionTreeTest {
         }
     }
 
+    @Test
+    public void testSessionsOfCompiledJunctionTreeAreIndependent() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode a = net.getNode("a");
+        BayesNode b = net.getNode("b");
+
+        CompiledJunctionTree compiled = CompiledJunctionTree.compile(net,
+                JunctionTreeBuilder.forHeuristic(new MinFillIn()), new FactorFactory());
+        InferenceSession first = compiled.newSession();
+        InferenceSession second = compiled.newSession();
+        first.addEvidence(a, "false");
+        first.addEvidence(b, "lu");
+
+        IBayesInferrer withEvidence = new JunctionTreeAlgorithm();
+        withEvidence.setNetwork(net);
+        withEvidence.addEvidence(a, "false");
+        withEvidence.addEvidence(b, "lu");
+        IBayesInferrer withoutEvidence = new JunctionTreeAlgorithm();
+        withoutEvidence.setNetwork(net);
+
+        for (BayesNode n : net.getNodes()) {
+            assertArrayEquals(withEvidence.getBeliefs(n), first.getBeliefs(n), TOLERANCE);
+            assertArrayEquals(withoutEvidence.getBeliefs(n), second.getBeliefs(n), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testCompiledJunctionTreesShareEqualArrays() {
+        BayesNet net = NetExamples.testNet1();
+        CompiledJunctionTree first = CompiledJunctionTree.compile(net,
+                JunctionTreeBuilder.forHeuristic(new MinFillIn()), new FactorFactory());
+        CompiledJunctionTree second = CompiledJunctionTree.compile(net,
+                JunctionTreeBuilder.forHeuristic(new MinFillIn()), new FactorFactory());
+
+        for (int i = 0; i < first.preparedQueries.length; i++) {
+            assertSame(first.preparedQueries[i], second.preparedQueries[i]);
+        }
+        for (int i = 0; i < first.clusters.length; i++) {
+            assertSame(first.clusters[i].getValues().toDoubleArray(), second.clusters[i].getValues().toDoubleArray());
+        }
+    }
+
+    @Test
+    public void testEvidenceByOutcomeIndex() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode a = net.getNode("a");
+        BayesNode b = net.getNode("b");
+
+        CompiledJunctionTree compiled = CompiledJunctionTree.compile(net,
+                JunctionTreeBuilder.forHeuristic(new MinFillIn()), new FactorFactory());
+        InferenceSession byName = compiled.newSession();
+        byName.addEvidence(a, "false");
+        byName.addEvidence(b, "lu");
+        InferenceSession byIndex = compiled.newSession();
+        byIndex.addEvidence(a, a.getOutcomeIndex("false"));
+        byIndex.addEvidence(b, b.getOutcomeIndex("lu"));
+
+        assertEquals(byName.getEvidence(), byIndex.getEvidence());
+        assertEquals(2, byIndex.getEvidenceCount());
+        assertEquals(a.getOutcomeIndex("false"), byIndex.getObservedOutcome(a));
+        assertEquals(InferenceSession.NOT_OBSERVED, byIndex.getObservedOutcome(net.getNode("c")));
+        for (BayesNode n : net.getNodes()) {
+            assertArrayEquals(byName.getBeliefs(n), byIndex.getBeliefs(n), TOLERANCE);
+        }
+
+        byIndex.clearEvidence();
+        assertFalse(byIndex.hasEvidence(a));
+        assertTrue(byIndex.getEvidence().isEmpty());
+    }
+
+    @Test
+    public void testAdaptiveLogScale() {
+        BayesNet net = new BayesNet();
+        BayesNode root = net.createNode("root");
+        root.addOutcomes("true", "false");
+        root.setProbabilities(0.5, 0.5);
+        // the joint probability of the observations underflows in linear scale
+        for (int i = 0; i < 201; i++) {
+            BayesNode child = net.createNode("child" + i);
+            child.addOutcomes("rare", "common");
+            child.setParents(Arrays.asList(root));
+            if (i % 2 == 0) {
+                child.setProbabilities(1e-4, 1 - 1e-4, 2e-4, 1 - 2e-4);
+            } else {
+                child.setProbabilities(2e-4, 1 - 2e-4, 1e-4, 1 - 1e-4);
+            }
+        }
+
+        CompiledJunctionTree linear = CompiledJunctionTree.compile(net,
+                JunctionTreeBuilder.forHeuristic(new MinFillIn()), new FactorFactory());
+        FactorFactory logScaleFactory = new FactorFactory();
+        logScaleFactory.setUseLogScale(true);
+        InferenceSession logScale = CompiledJunctionTree.compile(net,
+                JunctionTreeBuilder.forHeuristic(new MinFillIn()), logScaleFactory).newSession();
+        InferenceSession adaptive = linear.newSession();
+        adaptive.setAdaptiveLogScale(true);
+        InferenceSession failing = linear.newSession();
+        for (BayesNode node : net.getNodes()) {
+            if (node != root) {
+                logScale.addEvidence(node, "rare");
+                adaptive.addEvidence(node, "rare");
+                failing.addEvidence(node, "rare");
+            }
+        }
+
+        assertArrayEquals(logScale.getBeliefs(root), adaptive.getBeliefs(root), 1e-9);
+        assertEquals(1, adaptive.getLogScaleFallbackCount());
+        assertTrue(adaptive.getLogScaleClusterCount() > 0);
+        try {
+            failing.getBeliefs(root);
+            fail("expected numerical underflow in linear scale");
+        } catch (NumericalInstabilityException expected) {
+            // expected
+        }
+
+        // further evidence is propagated in the mixed scale, without another fallback
+        adaptive.removeEvidence(net.getNode("child0"));
+        logScale.removeEvidence(net.getNode("child0"));
+        Map<BayesNode, double[]> expected = logScale.getBeliefs(net.getNodes());
+        Map<BayesNode, double[]> beliefs = adaptive.getBeliefs(net.getNodes());
+        for (BayesNode n : net.getNodes()) {
+            assertArrayEquals(expected.get(n), beliefs.get(n), 1e-9);
+        }
+        assertEquals(1, adaptive.getLogScaleFallbackCount());
+
+        adaptive.setAdaptiveLogScale(false);
+        assertEquals(0, adaptive.getLogScaleClusterCount());
+    }
+
+    @Test
+    public void testIncrementalPropagation() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode a = net.getNode("a");
+        BayesNode b = net.getNode("b");
+        BayesNode c = net.getNode("c");
+
+        JunctionTreeAlgorithm incremental = new JunctionTreeAlgorithm();
+        incremental.setNetwork(net);
+        JunctionTreeAlgorithm full = new JunctionTreeAlgorithm();
+        full.setIncrementalPropagation(false);
+        full.setNetwork(net);
+
+        for (BayesNode observed : new BayesNode[] { a, b, c }) {
+            incremental.addEvidence(observed, observed.getOutcomeName(0));
+            full.addEvidence(observed, observed.getOutcomeName(0));
+            for (BayesNode n : net.getNodes()) {
+                assertArrayEquals(full.getBeliefs(n), incremental.getBeliefs(n), 1e-6);
+            }
+        }
+
+        incremental.removeEvidence(a);
+        full.removeEvidence(a);
+        for (BayesNode n : net.getNodes()) {
+            assertArrayEquals(full.getBeliefs(n), incremental.getBeliefs(n), 1e-6);
+        }
+    }
+
+    @Test
+    public void testInferrerPassesOnlyChangedEvidenceToSession() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode a = net.getNode("a");
+        BayesNode b = net.getNode("b");
+
+        final int[] updates = new int[1];
+        JunctionTreeAlgorithm inferrer = new JunctionTreeAlgorithm();
+        inferrer.setInferenceListener(new IInferenceListener() {
+
+            @Override
+            public void networkCompiled(BayesNet net, int clusterCount, long largestClusterSize, long nanos) {
+            }
+
+            @Override
+            public void beliefsUpdated(BayesNet net, int messagePasses, int skippedMessagePasses, long nanos) {
+                updates[0]++;
+            }
+
+            @Override
+            public void numericalInstabilityDetected(BayesNet net, BayesNode node) {
+            }
+        });
+        inferrer.setNetwork(net);
+        inferrer.addEvidence(a, "false");
+        inferrer.addEvidence(b, b.getOutcomeIndex("lu"));
+        inferrer.getBeliefs(net.getNode("c"));
+        assertEquals(1, updates[0]);
+        assertEquals(inferrer.getEvidence(), inferrer.session.getEvidence());
+
+        // observing the same outcomes again leaves the session's beliefs valid
+        inferrer.addEvidence(a, a.getOutcomeIndex("false"));
+        inferrer.addEvidence(b, "lu");
+        inferrer.getBeliefs(net.getNode("c"));
+        assertEquals(1, updates[0]);
+
+        inferrer.removeEvidence(a);
+        InferenceSession expected = inferrer.getCompiledJunctionTree().newSession();
+        expected.addEvidence(b, "lu");
+        for (BayesNode n : net.getNodes()) {
+            assertArrayEquals(expected.getBeliefs(n), inferrer.getBeliefs(n), TOLERANCE);
+        }
+        assertEquals(2, updates[0]);
+        assertEquals(InferenceSession.NOT_OBSERVED, inferrer.getObservedOutcome(a));
+        assertEquals(expected.getEvidence(), inferrer.getEvidence());
+    }
+
+    @Test
+    public void testBatchedBeliefs() {
+        BayesNet net = NetExamples.testNet1();
+        for (boolean isLogScale : new boolean[] { false, true }) {
+            FactorFactory factory = new FactorFactory();
+            factory.setUseLogScale(isLogScale);
+            JunctionTreeAlgorithm batched = new JunctionTreeAlgorithm();
+            batched.setFactorFactory(factory);
+            batched.setNetwork(net);
+            JunctionTreeAlgorithm single = new JunctionTreeAlgorithm();
+            single.setNetwork(net);
+
+            batched.addEvidence(net.getNode("a"), "false");
+            single.addEvidence(net.getNode("a"), "false");
+
+            Map<BayesNode, double[]> beliefs = batched.getBeliefs(net.getNodes());
+            assertEquals(net.getNodes(), new ArrayList<BayesNode>(beliefs.keySet()));
+            for (BayesNode n : net.getNodes()) {
+                assertArrayEquals(single.getBeliefs(n), beliefs.get(n), TOLERANCE);
+            }
+        }
+    }
+
+    @Test
+    public void testComputedBeliefsAreKeptInSession() {
+        BayesNet net = NetExamples.testNet1();
+        CompiledJunctionTree compiled = CompiledJunctionTree.compile(net,
+                JunctionTreeBuilder.forHeuristic(new MinFillIn()), new FactorFactory());
+        InferenceSession batched = compiled.newSession();
+        batched.addEvidence(net.getNode("a"), "false");
+        InferenceSession single = compiled.newSession();
+        single.addEvidence(net.getNode("a"), "false");
+
+        batched.computeBeliefs(net.getNodes());
+        Map<BayesNode, double[]> beliefs = batched.getBeliefs(net.getNodes());
+        for (BayesNode n : net.getNodes()) {
+            assertSame(beliefs.get(n), batched.getBeliefs(n));
+            assertArrayEquals(single.getBeliefs(n), batched.getBeliefs(n), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testEvidenceSlicing() {
+        BayesNet net = NetExamples.testNet1();
+        BayesNode a = net.getNode("a");
+        BayesNode b = net.getNode("b");
+        BayesNode c = net.getNode("c");
+        BayesNode d = net.getNode("d");
+        for (boolean isLogScale : new boolean[] { false, true }) {
+            FactorFactory factory = new FactorFactory();
+            factory.setUseLogScale(isLogScale);
+            JunctionTreeAlgorithm sliced = new JunctionTreeAlgorithm();
+            sliced.setFactorFactory(factory);
+            sliced.setEvidenceSlicing(true);
+            sliced.setNetwork(net);
+            JunctionTreeAlgorithm selected = new JunctionTreeAlgorithm();
+            selected.setFactorFactory(factory);
+            selected.setNetwork(net);
+
+            // slicing by the first evidence, incremental observations in the slices, retraction and re-slicing
+            for (BayesNode observed : new BayesNode[] { a, b, d }) {
+                sliced.addEvidence(observed, observed.getOutcomeName(1));
+                selected.addEvidence(observed, observed.getOutcomeName(1));
+                for (BayesNode n : net.getNodes()) {
+                    assertArrayEquals(selected.getBeliefs(n), sliced.getBeliefs(n), 1e-12);
+                }
+            }
+            sliced.removeEvidence(a);
+            selected.removeEvidence(a);
+            sliced.addEvidence(c, c.getOutcomeName(1));
+            selected.addEvidence(c, c.getOutcomeName(1));
+            assertEquals(selected.getBeliefs(net.getNodes()).size(), sliced.getBeliefs(net.getNodes()).size());
+            for (BayesNode n : net.getNodes()) {
+                assertArrayEquals(selected.getBeliefs(n), sliced.getBeliefs(n), 1e-12);
+            }
+
+            sliced.setEvidenceSlicing(false);
+            for (BayesNode n : net.getNodes()) {
+                assertArrayEquals(selected.getBeliefs(n), sliced.getBeliefs(n), 1e-12);
+            }
+        }
+    }
 }
@@ -15,9 +15,11 @@ import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 import org.eclipse.recommenders.jayes.util.Graph;
 import org.junit.Test;
@@ -60,6 +62,94 @@ public class GraphEliminationTest {
         assertFalse(it.hasNext()); // sanity check
     }
 
+    @Test
+    public void testMinDegree() {
+        Graph graph = createTestGraph();
+
+        double[] weights = new double[] { 0d, 0d, 1d, 0d };
+
+        Iterator<List<Integer>> it = new GraphElimination(graph, weights, new MinDegree()).iterator();
+        // 2 has the lowest degree, then all nodes have degree 2 and 0 comes first
+        assertThat(it.next(), is(Arrays.asList(2, 0)));
+        assertThat(it.next(), is(Arrays.asList(0, 1, 3)));
+        assertThat(it.next(), is(Arrays.asList(1, 3)));
+        assertThat(it.next(), is(Arrays.asList(3)));
+        assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testSameOrderAsExhaustiveSearch() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            int nodes = 2 + random.nextInt(40);
+            double density = random.nextDouble() * 0.3;
+            double[] weights = new double[nodes];
+            for (int node = 0; node < nodes; node++) {
+                weights[node] = Math.log(2 + random.nextInt(3));
+            }
+            List<int[]> edges = new ArrayList<int[]>();
+            for (int v1 = 0; v1 < nodes; v1++) {
+                for (int v2 = v1 + 1; v2 < nodes; v2++) {
+                    if (random.nextDouble() < density) {
+                        edges.add(new int[] { v1, v2 });
+                    }
+                }
+            }
+            for (IEliminationHeuristic heuristic : Arrays.asList(new MinFillIn(), new MinDegree())) {
+                List<List<Integer>> actual = new ArrayList<List<Integer>>();
+                for (List<Integer> clique : new GraphElimination(createGraph(nodes, edges), weights, heuristic)) {
+                    actual.add(clique);
+                }
+                assertThat(actual, is(eliminateExhaustively(createGraph(nodes, edges), weights, heuristic)));
+            }
+        }
+    }
+
+    private static Graph createGraph(int nodes, List<int[]> edges) {
+        Graph graph = new Graph(nodes);
+        for (int[] edge : edges) {
+            graph.addEdge(edge[0], edge[1]);
+        }
+        return graph;
+    }
+
+    /**
+     * evaluates the heuristic for all remaining nodes in each step
+     */
+    private static List<List<Integer>> eliminateExhaustively(Graph graph, double[] weights,
+            IEliminationHeuristic heuristic) {
+        QuotientGraph quotientGraph = new QuotientGraph(graph);
+        List<Integer> remaining = new ArrayList<Integer>();
+        for (int node = 0; node < graph.numberOfVertices(); node++) {
+            remaining.add(node);
+        }
+        List<List<Integer>> cliques = new ArrayList<List<Integer>>();
+        while (!remaining.isEmpty()) {
+            int best = -1;
+            int bestCost = 0;
+            double bestWeight = 0;
+            for (int node : remaining) {
+                int cost = heuristic.getHeuristicValue(quotientGraph, node);
+                double weight = weights[node];
+                for (int neighbor : quotientGraph.getNeighbors(node)) {
+                    weight += weights[neighbor];
+                }
+                if (best < 0 || cost < bestCost || cost == bestCost && weight < bestWeight) {
+                    best = node;
+                    bestCost = cost;
+                    bestWeight = weight;
+                }
+            }
+            List<Integer> clique = new ArrayList<Integer>();
+            clique.add(best);
+            clique.addAll(quotientGraph.getNeighbors(best));
+            cliques.add(clique);
+            quotientGraph.eliminate(best);
+            remaining.remove(Integer.valueOf(best));
+        }
+        return cliques;
+    }
+
     @Test
     public void testQuotientGraph() {
         Graph graph = createTestGraph();
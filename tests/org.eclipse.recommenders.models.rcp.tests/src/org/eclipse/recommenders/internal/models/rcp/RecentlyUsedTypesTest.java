@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.internal.models.rcp;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.eclipse.recommenders.coordinates.ProjectCoordinate;
+import org.eclipse.recommenders.models.UniqueTypeName;
+import org.eclipse.recommenders.utils.names.VmTypeName;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+public class RecentlyUsedTypesTest {
+
+    private static final String CALL = "call";
+    private static final String OVRM = "ovrm";
+
+    private static final ProjectCoordinate PC = new ProjectCoordinate("org.example", "example", "1.0.0");
+
+    private static final UniqueTypeName FOO = new UniqueTypeName(PC, VmTypeName.get("Lorg/example/Foo"));
+    private static final UniqueTypeName BAR = new UniqueTypeName(PC, VmTypeName.get("Lorg/example/Bar"));
+    private static final UniqueTypeName BAZ = new UniqueTypeName(PC, VmTypeName.get("Lorg/example/Baz"));
+
+    @Test
+    public void testMostFrequentlyUsedFirst() throws IOException {
+        RecentlyUsedTypes sut = new RecentlyUsedTypes(createTempFile());
+
+        record(sut, CALL, FOO, 1);
+        record(sut, CALL, BAR, 3);
+        record(sut, CALL, BAZ, 2);
+        record(sut, OVRM, FOO, 1);
+
+        assertEquals(ImmutableList.of(BAR, BAZ, FOO), sut.getMostFrequentlyUsed(CALL, 10));
+        assertEquals(ImmutableList.of(BAR, BAZ), sut.getMostFrequentlyUsed(CALL, 2));
+        assertEquals(ImmutableList.of(FOO), sut.getMostFrequentlyUsed(OVRM, 10));
+        assertEquals(Collections.emptyList(), sut.getMostFrequentlyUsed("statics", 10));
+    }
+
+    @Test
+    public void testCountsAreHalvedWhenLoaded() throws IOException {
+        File file = createTempFile();
+        RecentlyUsedTypes sut = new RecentlyUsedTypes(file);
+        record(sut, CALL, FOO, 2);
+        record(sut, CALL, BAR, 5);
+        record(sut, CALL, BAZ, 1);
+        sut.save();
+
+        RecentlyUsedTypes loaded = new RecentlyUsedTypes(file);
+        loaded.load();
+        assertEquals(ImmutableList.of(BAR, FOO, BAZ), loaded.getMostFrequentlyUsed(CALL, 10));
+
+        // FOO now counts 1 + 2 and overtakes BAR, which counts 2.5
+        record(loaded, CALL, FOO, 2);
+        assertEquals(ImmutableList.of(FOO, BAR, BAZ), loaded.getMostFrequentlyUsed(CALL, 10));
+    }
+
+    @Test
+    public void testTypesNoLongerUsedAreEventuallyForgotten() throws IOException {
+        File file = createTempFile();
+        RecentlyUsedTypes sut = new RecentlyUsedTypes(file);
+        record(sut, CALL, FOO, 1);
+        sut.save();
+
+        for (int session = 1; session <= 3; session++) {
+            sut = new RecentlyUsedTypes(file);
+            sut.load();
+            assertEquals(ImmutableList.of(FOO), sut.getMostFrequentlyUsed(CALL, 10));
+            sut.save();
+        }
+        sut = new RecentlyUsedTypes(file);
+        sut.load();
+        assertEquals(Collections.emptyList(), sut.getMostFrequentlyUsed(CALL, 10));
+    }
+
+    @Test
+    public void testOnlyMostFrequentlyUsedTypesAreSaved() throws IOException {
+        File file = createTempFile();
+        RecentlyUsedTypes sut = new RecentlyUsedTypes(file);
+        for (int i = 0; i < RecentlyUsedTypes.MAX_TYPES_PER_MODEL_TYPE + 10; i++) {
+            record(sut, CALL, new UniqueTypeName(PC, VmTypeName.get("Lorg/example/Type" + i)), 2 + i);
+        }
+        sut.save();
+
+        RecentlyUsedTypes loaded = new RecentlyUsedTypes(file);
+        loaded.load();
+        assertEquals(RecentlyUsedTypes.MAX_TYPES_PER_MODEL_TYPE,
+                loaded.getMostFrequentlyUsed(CALL, Integer.MAX_VALUE).size());
+        assertFalse(loaded.getMostFrequentlyUsed(CALL, Integer.MAX_VALUE)
+                .contains(new UniqueTypeName(PC, VmTypeName.get("Lorg/example/Type0"))));
+    }
+
+    @Test
+    public void testMalformedLinesAreSkipped() throws IOException {
+        File file = createTempFile();
+        Files.write(file.toPath(), ImmutableList.of("garbage", "call\tNaN\torg.example:example:1.0.0\tLorg/example/Foo",
+                "call\t4\torg.example:example:1.0.0\tLorg/example/Bar"), StandardCharsets.UTF_8);
+
+        RecentlyUsedTypes sut = new RecentlyUsedTypes(file);
+        sut.load();
+
+        assertEquals(ImmutableList.of(BAR), sut.getMostFrequentlyUsed(CALL, 10));
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        File file = createTempFile();
+        file.delete();
+
+        RecentlyUsedTypes sut = new RecentlyUsedTypes(file);
+        sut.load();
+
+        assertEquals(Collections.emptyList(), sut.getMostFrequentlyUsed(CALL, 10));
+    }
+
+    private static void record(RecentlyUsedTypes sut, String modelType, UniqueTypeName name, int times) {
+        for (int i = 0; i < times; i++) {
+            sut.record(modelType, name);
+        }
+    }
+
+    private static File createTempFile() throws IOException {
+        File file = File.createTempFile("recently-used-types", ".txt");
+        file.deleteOnExit();
+        return file;
+    }
+}
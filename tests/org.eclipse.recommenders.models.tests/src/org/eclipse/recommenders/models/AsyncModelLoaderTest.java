@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models;
+
+import static java.util.concurrent.TimeUnit.*;
+import static org.eclipse.recommenders.utils.names.VmTypeName.*;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.recommenders.coordinates.ProjectCoordinate;
+import org.junit.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class AsyncModelLoaderTest {
+
+    private static final UniqueTypeName KEY = new UniqueTypeName(ProjectCoordinate.UNKNOWN, OBJECT);
+    private static final UniqueTypeName MISSING = new UniqueTypeName(ProjectCoordinate.UNKNOWN, STRING);
+
+    private final BlockingModelProvider provider = new BlockingModelProvider();
+    private final AsyncModelLoader<UniqueTypeName, String> sut = new AsyncModelLoader<>(provider);
+
+    @Test
+    public void testConcurrentRequestsShareOneLoad() throws Exception {
+        ListenableFuture<Optional<String>> first = sut.acquire(KEY, 10, SECONDS);
+        ListenableFuture<Optional<String>> second = sut.acquire(KEY, 10, SECONDS);
+        provider.awaitLoads(1);
+        Thread.sleep(50);
+        assertEquals(1, provider.loads.get());
+
+        provider.unblock.countDown();
+        String firstModel = first.get().get();
+        String secondModel = second.get().get();
+        // the second client gets a model of its own
+        assertNotSame(firstModel, secondModel);
+        assertEquals(2, provider.loads.get());
+    }
+
+    @Test
+    public void testModelLoadedAfterDeadlineIsKeptForNextRequest() throws Exception {
+        ListenableFuture<Optional<String>> impatient = sut.acquire(KEY, 10, MILLISECONDS);
+        assertFalse(impatient.get().isPresent());
+
+        provider.unblock.countDown();
+        assertTrue(sut.acquire(KEY, 10, SECONDS).get().isPresent());
+        assertEquals(1, provider.loads.get());
+    }
+
+    @Test
+    public void testUnrequestedLateModelIsReleased() throws Exception {
+        AsyncModelLoader<UniqueTypeName, String> sut = new AsyncModelLoader<>(provider, 50, MILLISECONDS);
+        ListenableFuture<Optional<String>> impatient = sut.acquire(KEY, 10, MILLISECONDS);
+        assertFalse(impatient.get().isPresent());
+
+        provider.unblock.countDown();
+        // released without any further access to the loader
+        for (int i = 0; i < 500 && provider.released.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, provider.released.size());
+        sut.releaseLateModels();
+    }
+
+    @Test
+    public void testMissingModel() throws Exception {
+        provider.unblock.countDown();
+        assertFalse(sut.acquire(MISSING, 10, SECONDS).get().isPresent());
+        assertFalse(sut.acquire(null, 10, SECONDS).get().isPresent());
+    }
+
+    private static final class BlockingModelProvider implements IModelProvider<UniqueTypeName, String> {
+
+        private final CountDownLatch unblock = new CountDownLatch(1);
+        private final AtomicInteger loads = new AtomicInteger();
+        private final List<String> released = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Optional<String> acquireModel(UniqueTypeName key) {
+            loads.incrementAndGet();
+            Uninterruptibles.awaitUninterruptibly(unblock);
+            // a new instance per model
+            return key.equals(MISSING) ? Optional.<String>absent() : Optional.of(new String("model"));
+        }
+
+        private void awaitLoads(int count) throws InterruptedException {
+            while (loads.get() < count) {
+                Thread.sleep(1);
+            }
+        }
+
+        @Override
+        public void releaseModel(String value) {
+            released.add(value);
+        }
+
+        @Override
+        public void open() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
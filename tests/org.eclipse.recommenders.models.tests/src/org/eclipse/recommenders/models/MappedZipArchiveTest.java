@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+
+public class MappedZipArchiveTest {
+
+    private static final byte[] TEXT = new byte[100000];
+    private static final byte[] RANDOM = new byte[10000];
+
+    static {
+        for (int i = 0; i < TEXT.length; i++) {
+            TEXT[i] = (byte) ('a' + i % 7);
+        }
+        new Random(0).nextBytes(RANDOM);
+    }
+
+    @Test
+    public void testStoredAndDeflatedEntries() throws Exception {
+        File file = createZipFile();
+        file.setLastModified(file.lastModified() - 10000);
+        MappedZipArchive sut = MappedZipArchive.open(file);
+
+        assertEquals(ImmutableList.of("org/example/Bar.json", "org/example/Empty.json", "org/example/Foo.json"),
+                sut.getEntryNames());
+        assertEquals(file.length(), sut.getMappedSize());
+        assertFalse(sut.isStale());
+
+        // repeated reads, so that pooled inflaters are reused
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(TEXT, read(sut, "org/example/Foo.json"));
+            assertArrayEquals(RANDOM, read(sut, "org/example/Bar.json"));
+            assertArrayEquals(new byte[0], read(sut, "org/example/Empty.json"));
+        }
+    }
+
+    @Test
+    public void testMissingEntry() throws Exception {
+        MappedZipArchive sut = MappedZipArchive.open(createZipFile());
+
+        assertFalse(sut.hasEntry("org/example/Baz.json"));
+        assertFalse(sut.getInputStream("org/example/Baz.json").isPresent());
+    }
+
+    @Test
+    public void testLookupInLargeArchive() throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            names.add("org/example/Type" + i + ".json");
+        }
+        Collections.shuffle(names, new Random(0));
+        File file = File.createTempFile("models", ".zip");
+        file.deleteOnExit();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (String name : names) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(name.getBytes());
+            }
+        }
+        MappedZipArchive sut = MappedZipArchive.open(file);
+
+        assertEquals(1000, sut.getEntryCount());
+        for (String name : names) {
+            assertArrayEquals(name.getBytes(), read(sut, name));
+        }
+        assertFalse(sut.hasEntry("org/example/Type1000.json"));
+        assertFalse(sut.hasEntry("org/example/Type"));
+        Collections.sort(names);
+        assertEquals(names, sut.getEntryNames());
+    }
+
+    @Test
+    public void testIndexFile() throws Exception {
+        File file = createZipFile();
+        file.setLastModified(file.lastModified() - 10000);
+        File indexFile = MappedZipArchive.getIndexFile(file);
+        indexFile.deleteOnExit();
+
+        MappedZipArchive.open(file, indexFile);
+        assertTrue(indexFile.isFile());
+        MappedZipArchive sut = MappedZipArchive.open(file, indexFile);
+        assertArrayEquals(TEXT, read(sut, "org/example/Foo.json"));
+        assertArrayEquals(RANDOM, read(sut, "org/example/Bar.json"));
+
+        // an index of a replaced archive is not used
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("org/example/Baz.json"));
+            out.write(TEXT);
+        }
+        sut = MappedZipArchive.open(file, indexFile);
+        assertEquals(ImmutableList.of("org/example/Baz.json"), sut.getEntryNames());
+        assertArrayEquals(TEXT, read(sut, "org/example/Baz.json"));
+    }
+
+    @Test
+    public void testReplacedFileIsStale() throws Exception {
+        File file = createZipFile();
+        file.setLastModified(file.lastModified() - 10000);
+        MappedZipArchive sut = MappedZipArchive.open(file);
+
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(0);
+        }
+        assertTrue(sut.isStale());
+    }
+
+    @Test(expected = ZipException.class)
+    public void testNoZipFile() throws Exception {
+        File file = File.createTempFile("models", ".zip");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(TEXT);
+        }
+        MappedZipArchive.open(file);
+    }
+
+    private static byte[] read(MappedZipArchive archive, String path) throws IOException {
+        try (InputStream in = archive.getInputStream(path).get()) {
+            return ByteStreams.toByteArray(in);
+        }
+    }
+
+    private static File createZipFile() throws IOException {
+        File file = File.createTempFile("models", ".zip");
+        file.deleteOnExit();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("org/example/Foo.json"));
+            out.write(TEXT);
+
+            ZipEntry stored = new ZipEntry("org/example/Bar.json");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(RANDOM.length);
+            CRC32 crc = new CRC32();
+            crc.update(RANDOM);
+            stored.setCrc(crc.getValue());
+            out.putNextEntry(stored);
+            out.write(RANDOM);
+
+            out.putNextEntry(new ZipEntry("org/example/Empty.json"));
+        }
+        return file;
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.models;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool.BaseKeyedPoolableObjectFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+public class ModelPoolTest {
+
+    private final List<String> destroyed = new CopyOnWriteArrayList<>();
+    private final List<String> invalid = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> weights = new HashMap<>();
+
+    private final CountDownLatch validationStarted = new CountDownLatch(1);
+    private volatile CountDownLatch validationResumed;
+
+    private ModelPool<String, String> sut;
+
+    @After
+    public void tearDown() {
+        sut.close();
+    }
+
+    private ModelPool<String, String> create(ModelPoolConfiguration configuration) {
+        BaseKeyedPoolableObjectFactory<String, String> factory = new BaseKeyedPoolableObjectFactory<String, String>() {
+
+            @Override
+            public String makeObject(String key) {
+                // a new instance per model
+                return new String(key);
+            }
+
+            @Override
+            public void destroyObject(String key, String model) {
+                destroyed.add(model);
+            }
+
+            @Override
+            public boolean validateObject(String key, String model) {
+                CountDownLatch resumed = validationResumed;
+                if (resumed != null) {
+                    validationStarted.countDown();
+                    Uninterruptibles.awaitUninterruptibly(resumed);
+                }
+                return !invalid.contains(key);
+            }
+        };
+        Weigher<String, String> weigher = new Weigher<String, String>() {
+
+            @Override
+            public int weigh(String key, String model) {
+                Integer weight = weights.get(key);
+                return weight == null ? 1 : weight;
+            }
+        };
+        sut = new ModelPool<String, String>(factory, weigher, configuration);
+        return sut;
+    }
+
+    @Test
+    public void testReleasedModelIsHandedToWaitingClient() throws Exception {
+        ModelPoolConfiguration configuration = new ModelPoolConfiguration();
+        configuration.setSoftMaxModelsPerKey(1);
+        configuration.setMaxWaitMillis(10000);
+        final ModelPool<String, String> pool = create(configuration);
+
+        final String first = pool.borrow("a");
+        Thread releaser = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    pool.release(first);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        releaser.start();
+        assertSame(first, pool.borrow("a"));
+        releaser.join();
+
+        ModelPoolStatistics statistics = pool.getStatistics();
+        assertEquals(2, statistics.getBorrowCount());
+        assertEquals(1, statistics.getCreationCount());
+        assertTrue(statistics.getMaxBorrowWaitNanos() > 0);
+    }
+
+    @Test
+    public void testCreatesModelBeyondSoftLimitAfterWaiting() throws Exception {
+        ModelPoolConfiguration configuration = new ModelPoolConfiguration();
+        configuration.setSoftMaxModelsPerKey(1);
+        configuration.setMaxWaitMillis(10);
+        ModelPool<String, String> pool = create(configuration);
+
+        String first = pool.borrow("a");
+        String second = pool.borrow("a");
+
+        assertNotSame(first, second);
+        assertEquals(1, pool.getStatistics().getElasticCreationCount());
+        // the soft limit of one key does not affect the others
+        pool.borrow("b");
+        assertEquals(1, pool.getStatistics().getElasticCreationCount());
+    }
+
+    @Test
+    public void testExhaustedWeightBudget() throws Exception {
+        ModelPoolConfiguration configuration = new ModelPoolConfiguration();
+        configuration.setMaxTotalWeight(2);
+        configuration.setMaxWaitMillis(10);
+        ModelPool<String, String> pool = create(configuration);
+
+        pool.borrow("a");
+        String b = pool.borrow("b");
+        try {
+            pool.borrow("c");
+            fail("budget is used up by borrowed models");
+        } catch (NoSuchElementException expected) {
+            assertEquals(1, pool.getStatistics().getExhaustionCount());
+        }
+
+        // idle models are evicted to make room
+        pool.release(b);
+        pool.borrow("c");
+        assertEquals(Collections.singletonList(b), destroyed);
+        assertEquals(1, pool.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testHeaviestIdleModelIsEvictedFirst() throws Exception {
+        weights.put("heavy", 6);
+        weights.put("light", 3);
+        weights.put("new", 2);
+        ModelPoolConfiguration configuration = new ModelPoolConfiguration();
+        configuration.setMaxTotalWeight(10);
+        ModelPool<String, String> pool = create(configuration);
+
+        String light = pool.borrow("light");
+        String heavy = pool.borrow("heavy");
+        pool.release(light);
+        pool.release(heavy);
+        String model = pool.borrow("new");
+        assertEquals(11, pool.getStatistics().getTotalWeight());
+
+        // over budget; the heavy model is evicted, although the light one has been idle for longer
+        pool.release(model);
+        assertEquals(Collections.singletonList(heavy), destroyed);
+        assertEquals(5, pool.getStatistics().getTotalWeight());
+        assertEquals(2, pool.getStatistics().getIdleCount());
+    }
+
+    @Test
+    public void testMaintenanceEvictsInvalidModels() throws Exception {
+        ModelPoolConfiguration configuration = new ModelPoolConfiguration();
+        configuration.setTimeBetweenMaintenanceRunsMillis(10);
+        ModelPool<String, String> pool = create(configuration);
+
+        String valid = pool.borrow("valid");
+        String stale = pool.borrow("stale");
+        invalid.add("stale");
+        pool.release(valid);
+        pool.release(stale);
+
+        for (int i = 0; i < 500 && destroyed.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Collections.singletonList(stale), destroyed);
+        assertEquals(1, pool.getStatistics().getEvictionCount());
+    }
+
+    @Test
+    public void testOtherIdleModelsRemainAvailableDuringValidation() throws Exception {
+        ModelPoolConfiguration configuration = new ModelPoolConfiguration();
+        configuration.setTimeBetweenMaintenanceRunsMillis(10);
+        CountDownLatch resumed = new CountDownLatch(1);
+        validationResumed = resumed;
+        ModelPool<String, String> pool = create(configuration);
+
+        String first = pool.borrow("a");
+        String second = pool.borrow("a");
+        pool.release(first);
+        pool.release(second);
+        assertTrue(validationStarted.await(5, TimeUnit.SECONDS));
+
+        pool.borrow("a");
+        assertEquals(2, pool.getStatistics().getCreationCount());
+        assertEquals(2, pool.getStatistics().getTotalWeight());
+
+        validationResumed = null;
+        resumed.countDown();
+    }
+
+    @Test
+    public void testValidatedModelRespectsIdleLimit() throws Exception {
+        ModelPoolConfiguration configuration = new ModelPoolConfiguration();
+        configuration.setMaxIdleModelsPerKey(1);
+        configuration.setTimeBetweenMaintenanceRunsMillis(10);
+        CountDownLatch resumed = new CountDownLatch(1);
+        validationResumed = resumed;
+        ModelPool<String, String> pool = create(configuration);
+
+        String validated = pool.borrow("a");
+        pool.release(validated);
+        assertTrue(validationStarted.await(5, TimeUnit.SECONDS));
+
+        // the model under validation is not handed out
+        String other = pool.borrow("a");
+        assertNotSame(validated, other);
+        pool.release(other);
+
+        validationResumed = null;
+        resumed.countDown();
+        for (int i = 0; i < 500 && destroyed.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        // the validated model has been released less recently than the other one
+        assertEquals(Collections.singletonList(validated), destroyed);
+        assertEquals(1, pool.getStatistics().getIdleCount());
+        assertEquals(1, pool.getStatistics().getTotalWeight());
+        assertEquals(1, pool.getStatistics().getEvictionCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleaseOfForeignModel() throws Exception {
+        create(new ModelPoolConfiguration()).release("foreign");
+    }
+}
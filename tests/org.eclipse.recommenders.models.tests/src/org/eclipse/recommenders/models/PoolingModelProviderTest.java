@@ -12,7 +12,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
-import java.util.zip.ZipFile;
 
 import org.eclipse.recommenders.coordinates.ProjectCoordinate;
 import org.eclipse.recommenders.utils.Zips;
@@ -52,6 +51,7 @@ public class PoolingModelProviderTest {
             last = sut.acquireModel(someName);
         }
         assertFalse("pool did not get exhausted", last.isPresent());
+        assertEquals(5, sut.getPoolStatistics().getExhaustionCount());
     }
 
     @Test
@@ -74,14 +74,18 @@ public class PoolingModelProviderTest {
         IModelArchiveCoordinateAdvisor models = mock(IModelArchiveCoordinateAdvisor.class);
         when(models.suggest(any(ProjectCoordinate.class), anyString())).thenReturn(of(UNKNOWN));
 
+        ModelPoolConfiguration poolConfiguration = new ModelPoolConfiguration();
+        poolConfiguration.setMaxTotalWeight(5);
+        poolConfiguration.setMaxWaitMillis(10);
         return new PoolingModelProviderStub(repository, models, "calls",
-                Collections.<String, IInputStreamTransformer>emptyMap());
+                Collections.<String, IInputStreamTransformer>emptyMap(), poolConfiguration);
     }
 
     private static final class PoolingModelProviderStub extends PoolingModelProvider<UniqueTypeName, String> {
         private PoolingModelProviderStub(IModelRepository repository, IModelArchiveCoordinateAdvisor index,
-                String modelType, Map<String, IInputStreamTransformer> transformers) {
-            super(repository, index, modelType, transformers);
+                String modelType, Map<String, IInputStreamTransformer> transformers,
+                ModelPoolConfiguration poolConfiguration) {
+            super(repository, index, modelType, transformers, poolConfiguration);
         }
 
         @Override
@@ -91,7 +95,7 @@ public class PoolingModelProviderTest {
         }
 
         @Override
-        protected Optional<InputStream> getInputStream(ZipFile zip, String path) throws IOException {
+        protected Optional<InputStream> getInputStream(MappedZipArchive zip, String path) throws IOException {
             return Optional.of(mock(InputStream.class));
         }
 
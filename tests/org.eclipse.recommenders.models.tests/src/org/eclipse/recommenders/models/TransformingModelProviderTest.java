@@ -6,15 +6,17 @@ import static org.mockito.Mockito.mock;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
-import java.util.zip.ZipFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.eclipse.recommenders.coordinates.ProjectCoordinate;
-import org.eclipse.recommenders.testing.JarFileMockBuilder;
 import org.eclipse.recommenders.utils.Constants;
 import org.eclipse.recommenders.utils.Zips;
 import org.eclipse.recommenders.utils.names.VmTypeName;
@@ -46,7 +48,7 @@ public class TransformingModelProviderTest {
     @Test
     public void testNoModel() throws Exception {
         SimpleModelProvider<UniqueTypeName, String> sut = createModelProvider(NO_TRANSFORMERS);
-        ZipFile zip = mockZipFile();
+        MappedZipArchive zip = createZipFile();
 
         Optional<String> transformedModel = sut.doAcquireModel(ORG_EXAMPLE_BAZ, zip);
         assertThat(transformedModel.isPresent(), is(false));
@@ -55,7 +57,7 @@ public class TransformingModelProviderTest {
     @Test
     public void testNoTransformers() throws Exception {
         SimpleModelProvider<UniqueTypeName, String> sut = createModelProvider(NO_TRANSFORMERS);
-        ZipFile zip = mockZipFile();
+        MappedZipArchive zip = createZipFile();
 
         Optional<String> transformedModel = sut.doAcquireModel(ORG_EXAMPLE_FOO, zip);
         assertThat(transformedModel.isPresent(), is(false));
@@ -69,7 +71,7 @@ public class TransformingModelProviderTest {
         Map<String, IInputStreamTransformer> transformers = ImmutableMap.<String, IInputStreamTransformer>of(
                 TRANSFORM_EXTENSION, new DummyTransformer());
         SimpleModelProvider<UniqueTypeName, String> sut = createModelProvider(transformers);
-        ZipFile zip = mockZipFile();
+        MappedZipArchive zip = createZipFile();
 
         String transformedModel = sut.doAcquireModel(ORG_EXAMPLE_FOO, zip).get();
         Assert.assertThat(transformedModel, Matchers.is(Matchers.equalTo(TRANSFORMED_DATA)));
@@ -78,11 +80,16 @@ public class TransformingModelProviderTest {
         Assert.assertThat(untransformedModel, Matchers.is(Matchers.equalTo(UNTRANSFORMED_DATA)));
     }
 
-    private ZipFile mockZipFile() {
-        JarFileMockBuilder builder = new JarFileMockBuilder();
-        builder.addEntry(ORG_EXAMPLE_FOO_JSON_TRANSFORM, IOUtils.toInputStream(UNTRANSFORMED_DATA));
-        builder.addEntry(ORG_EXAMPLE_BAR_JSON, IOUtils.toInputStream(UNTRANSFORMED_DATA));
-        return builder.build();
+    private MappedZipArchive createZipFile() throws IOException {
+        File file = File.createTempFile("models", ".zip");
+        file.deleteOnExit();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry(ORG_EXAMPLE_FOO_JSON_TRANSFORM));
+            out.write(UNTRANSFORMED_DATA.getBytes());
+            out.putNextEntry(new ZipEntry(ORG_EXAMPLE_BAR_JSON));
+            out.write(UNTRANSFORMED_DATA.getBytes());
+        }
+        return MappedZipArchive.open(file);
     }
 
     private SimpleModelProvider<UniqueTypeName, String> createModelProvider(
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2018 Codetrails GmbH.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Codetrails GmbH - initial API and implementation.
+ */
+package org.eclipse.recommenders.utils;
+
+import static org.eclipse.recommenders.utils.Recommendation.newRecommendation;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TopRecommendationsTest {
+
+    @Test
+    public void testKeepsMostRelevant() {
+        TopRecommendations<String> sut = new TopRecommendations<>(2, 0.0);
+        assertTrue(sut.offer("a", 0.2));
+        assertTrue(sut.offer("b", 0.1));
+        assertTrue(sut.offer("c", 0.3));
+        assertFalse(sut.offer("d", 0.05));
+
+        List<Recommendation<String>> top = sut.toList();
+
+        assertEquals(2, top.size());
+        assertEquals("c", top.get(0).getProposal());
+        assertEquals("a", top.get(1).getProposal());
+    }
+
+    @Test
+    public void testIgnoresIrrelevantProposals() {
+        TopRecommendations<String> sut = new TopRecommendations<>(5, 0.1);
+        assertFalse(sut.offer("a", 0.05));
+        assertTrue(sut.offer("b", 0.1));
+
+        List<Recommendation<String>> top = sut.toList();
+
+        assertEquals(1, top.size());
+        assertEquals("b", top.get(0).getProposal());
+    }
+
+    @Test
+    public void testThreshold() {
+        TopRecommendations<String> sut = new TopRecommendations<>(1, 0.1);
+        assertEquals(0.1, sut.getThreshold(), 0.0);
+        sut.offer("a", 0.5);
+        assertEquals(0.5, sut.getThreshold(), 0.0);
+    }
+
+    @Test
+    public void testSameOrderAsRecommendationsTop() {
+        Random random = new Random(42);
+        for (int k = 0; k < 10; k++) {
+            List<Recommendation<String>> input = new ArrayList<>();
+            TopRecommendations<String> sut = new TopRecommendations<>(k, 0.2);
+            for (int i = 0; i < 50; i++) {
+                // few distinct relevances, so that ties have to be broken by name
+                Recommendation<String> recommendation = newRecommendation("p" + random.nextInt(30),
+                        random.nextInt(5) / 4.0);
+                input.add(recommendation);
+                sut.offer(recommendation.getProposal(), recommendation.getRelevance());
+            }
+
+            List<Recommendation<String>> expected = Recommendations.top(input, k, 0.2);
+            List<Recommendation<String>> actual = sut.toList();
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getProposal(), actual.get(i).getProposal());
+                assertEquals(expected.get(i).getRelevance(), actual.get(i).getRelevance(), 0.0);
+            }
+        }
+    }
+}